@@ -119,6 +119,21 @@ public class ClientConnectionHTTP extends ClientConnection {
         return result;
     }
 
+    /**
+     * Each HTTP request has its own response, so requests are not pipelined
+     */
+    public synchronized PendingResult executeAsync(Result r) {
+        return new PendingResult(execute(r));
+    }
+
+    /**
+     * Rows are not read ahead, as each request waits for its response
+     */
+    public synchronized PendingResult getRowsAsync(long navigatorId,
+            int offset, int size) {
+        return null;
+    }
+
     protected void write(Result r) throws IOException, HsqlException {
 
         HsqlByteArrayOutputStream memStream  = new HsqlByteArrayOutputStream();
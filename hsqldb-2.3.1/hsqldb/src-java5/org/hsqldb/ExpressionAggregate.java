@@ -38,6 +38,7 @@ import org.hsqldb.lib.HsqlList;
 import org.hsqldb.map.ValuePool;
 import org.hsqldb.types.ArrayType;
 import org.hsqldb.types.RowType;
+import org.hsqldb.types.Type;
 
 /**
  * Implementation of aggregate operations
@@ -274,17 +275,44 @@ public class ExpressionAggregate extends Expression {
             return currValue;
         }
 
+        return updateAggregatingValue(session, currValue,
+                                      getAggregatingArgument(session));
+    }
+
+    /**
+     * Returns the value added to the SetFunction for the current row
+     */
+    Object getAggregatingArgument(Session session) {
+
+        if (nodes[LEFT].opType == OpTypes.ASTERISK) {
+            return ValuePool.INTEGER_1;
+        }
+
+        return nodes[LEFT].getValue(session);
+    }
+
+    /**
+     * Returns the type of the values returned by getAggregatingArgument()
+     */
+    Type getAggregatingArgumentType() {
+        return nodes[LEFT].opType == OpTypes.ASTERISK ? Type.SQL_INTEGER
+                                                      : nodes[LEFT].dataType;
+    }
+
+    /**
+     * Adds a value returned earlier by getAggregatingArgument() to the
+     * SetFunction
+     */
+    Object updateAggregatingValue(Session session, Object currValue,
+                                  Object argument) {
+
         if (currValue == null) {
             currValue = new SetFunction(session, opType, nodes[LEFT].dataType,
                                         dataType, isDistinctAggregate,
                                         arrayType);
         }
 
-        Object newValue = nodes[LEFT].opType == OpTypes.ASTERISK
-                          ? ValuePool.INTEGER_1
-                          : nodes[LEFT].getValue(session);
-
-        ((SetFunction) currValue).add(session, newValue);
+        ((SetFunction) currValue).add(session, argument);
 
         return currValue;
     }
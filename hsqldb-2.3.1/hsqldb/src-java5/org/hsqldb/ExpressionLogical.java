@@ -59,6 +59,9 @@ public class ExpressionLogical extends Expression {
     //
     RangeVariable[] rangeArray = RangeVariable.emptyArray;
 
+    // set when the statement is compiled, for conditions of range variables
+    CompiledCondition compiledCondition;
+
     /**
      * For LIKE
      */
@@ -1350,6 +1353,35 @@ public class ExpressionLogical extends Expression {
         }
     }
 
+    public boolean testCondition(Session session) {
+
+        if (compiledCondition != null) {
+            return compiledCondition.test(session) == CompiledCondition.TRUE;
+        }
+
+        return super.testCondition(session);
+    }
+
+    /**
+     * Compiles the condition if it is an ExpressionLogical.
+     */
+    static void compileCondition(Expression e) {
+
+        if (e instanceof ExpressionLogical) {
+            ((ExpressionLogical) e).compiledCondition =
+                CompiledCondition.compile(e);
+        }
+    }
+
+    public Expression duplicate() {
+
+        ExpressionLogical e = (ExpressionLogical) super.duplicate();
+
+        e.compiledCondition = null;
+
+        return e;
+    }
+
     /**
      * For MATCH SIMPLE and FULL expressions, nulls in left are handled
      * prior to calling this method
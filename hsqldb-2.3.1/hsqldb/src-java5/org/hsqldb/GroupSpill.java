@@ -0,0 +1,326 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import org.hsqldb.navigator.RowIterator;
+import org.hsqldb.navigator.RowSetNavigatorData;
+import org.hsqldb.persist.PersistentStore;
+import org.hsqldb.types.Type;
+
+/**
+ * Disk partitions for the rows of a GROUP BY select that has more groups
+ * than the maximum number of result rows held in memory.<p>
+ *
+ * Once the limit is reached, the groups already in memory are aggregated as
+ * before, while the rows of any other group are written to one of the
+ * partitions, chosen by the hash of the GROUP BY values. Instead of the
+ * SetFunction objects, each row holds the argument value of each aggregate
+ * and the result of its FILTER condition.<p>
+ *
+ * When the scan is complete, each partition is read back and aggregated in
+ * memory with the usual SetFunction accumulators, then the finished groups
+ * are added to the result. A partition that again reaches the limit is
+ * split further on other bits of the hash.<p>
+ *
+ * The partitions use result row stores, which move to the session's data
+ * file when they exceed the row limit.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+final class GroupSpill {
+
+    static final int partitionBits  = 4;
+    static final int partitionCount = 1 << partitionBits;
+    static final int maxDepth       = 32 / partitionBits - 1;
+
+    //
+    final Session            session;
+    final QuerySpecification select;
+    final int                depth;
+    final int                aggregateStart;
+    final int                aggregateLimit;
+    final int[]              groupColumns;
+    final boolean[]          groupColumnHashed;
+    final Type[]             colTypes;
+
+    //
+    final TableBase[]       tables = new TableBase[partitionCount];
+    final PersistentStore[] stores = new PersistentStore[partitionCount];
+
+    GroupSpill(Session session, QuerySpecification select, int depth) {
+
+        this.session   = session;
+        this.select    = select;
+        this.depth     = depth;
+        aggregateStart = select.indexStartAggregates;
+        aggregateLimit = select.exprColumns.length;
+        groupColumns   = select.groupIndex.getColumns();
+        colTypes       = new Type[aggregateLimit * 2 - aggregateStart];
+
+        for (int i = 0; i < aggregateStart; i++) {
+            colTypes[i] = select.resultColumnTypes[i];
+        }
+
+        for (int i = aggregateStart; i < aggregateLimit; i++) {
+            ExpressionAggregate e = (ExpressionAggregate) select.exprColumns[i];
+
+            colTypes[i] = e.getAggregatingArgumentType();
+            colTypes[aggregateLimit + i - aggregateStart] = Type.SQL_BOOLEAN;
+        }
+
+        groupColumnHashed = new boolean[groupColumns.length];
+
+        for (int i = 0; i < groupColumns.length; i++) {
+            groupColumnHashed[i] =
+                isHashedType(select.resultColumnTypes[groupColumns[i]]);
+        }
+
+        session.sessionData.groupSpillCount++;
+    }
+
+    /**
+     * Returns true if the rows of the select can be written to partitions.
+     */
+    static boolean isSupported(QuerySpecification select) {
+
+        if (!select.isAggregated || !select.isGrouped
+                || select.isSimpleDistinct
+                || select.sortAndSlice.isGenerated) {
+            return false;
+        }
+
+        for (int i = 0; i < select.indexStartAggregates; i++) {
+            Type type = select.resultColumnTypes[i];
+
+            if (type == null || type == Type.SQL_ALL_TYPES) {
+                return false;
+            }
+        }
+
+        for (int i = select.indexStartAggregates;
+                i < select.exprColumns.length; i++) {
+            if (!(select.exprColumns[i] instanceof ExpressionAggregate)) {
+                return false;
+            }
+
+            ExpressionAggregate e = (ExpressionAggregate) select.exprColumns[i];
+
+            if (e.getAggregatingArgumentType() == null) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds the current row of the select, with the values computed so far
+     * in data.
+     */
+    void add(Object[] data) {
+
+        Object[] record = new Object[colTypes.length];
+
+        System.arraycopy(data, 0, record, 0, aggregateStart);
+
+        for (int i = aggregateStart; i < aggregateLimit; i++) {
+            ExpressionAggregate e = (ExpressionAggregate) select.exprColumns[i];
+            boolean included = e.getCondition().testCondition(session);
+
+            if (included) {
+                record[i] = e.getAggregatingArgument(session);
+            }
+
+            record[aggregateLimit + i - aggregateStart] =
+                included ? Boolean.TRUE
+                         : Boolean.FALSE;
+        }
+
+        addRecord(record);
+    }
+
+    /**
+     * Aggregates each partition in turn and adds the finished groups to the
+     * result.
+     */
+    void finish(RowSetNavigatorData result) {
+
+        for (int i = 0; i < partitionCount; i++) {
+            if (stores[i] != null) {
+                aggregatePartition(i, result);
+            }
+        }
+    }
+
+    private void addRecord(Object[] record) {
+
+        int partition = (getHash(record) >>> (depth * partitionBits))
+                        & (partitionCount - 1);
+        PersistentStore store = stores[partition];
+
+        if (store == null) {
+            TableBase table = new TableBase(session, session.database,
+                                            TableBase.SCOPE_STATEMENT,
+                                            TableBase.RESULT_TABLE, colTypes);
+
+            store = session.sessionData.getNewResultRowStore(table, true);
+            table.store       = store;
+            tables[partition] = table;
+            stores[partition] = store;
+        }
+
+        Row row = (Row) store.getNewCachedObject(session, record, false);
+
+        store.indexRow(session, row);
+
+        session.sessionData.groupSpillRowCount++;
+    }
+
+    private void aggregatePartition(int partition, RowSetNavigatorData result) {
+
+        PersistentStore     store  = stores[partition];
+        RowIterator         it     = tables[partition].rowIterator(store);
+        RowSetNavigatorData groups = new RowSetNavigatorData(session, select);
+        GroupSpill          spill  = null;
+
+        try {
+            while (true) {
+                Row row = it.getNextRow();
+
+                if (row == null) {
+                    break;
+                }
+
+                Object[] record = row.getData();
+                Object[] data   = new Object[select.indexLimitData];
+
+                System.arraycopy(record, 0, data, 0, aggregateStart);
+
+                Object[] groupData = groups.getGroupData(data);
+
+                if (groupData == null) {
+                    if (spill != null) {
+                        spill.addRecord(record);
+
+                        continue;
+                    }
+
+                    groupData = data;
+                }
+
+                for (int i = aggregateStart; i < aggregateLimit; i++) {
+                    if (Boolean.TRUE.equals(
+                            record[aggregateLimit + i - aggregateStart])) {
+                        ExpressionAggregate e =
+                            (ExpressionAggregate) select.exprColumns[i];
+
+                        groupData[i] = e.updateAggregatingValue(session,
+                                groupData[i], record[i]);
+                    }
+                }
+
+                if (groupData == data) {
+                    groups.add(data);
+
+                    if (groups.getSize() == session.resultMaxMemoryRows
+                            && depth < maxDepth) {
+                        spill = new GroupSpill(session, select, depth + 1);
+                    }
+                }
+            }
+        } finally {
+            it.release();
+            store.release();
+
+            tables[partition] = null;
+            stores[partition] = null;
+        }
+
+        select.setAggregatedValues(session, groups);
+        groups.reset();
+
+        while (groups.hasNext()) {
+            result.add(groups.getNext());
+        }
+
+        groups.release();
+
+        if (spill != null) {
+            spill.finish(result);
+        }
+    }
+
+    /**
+     * Equal GROUP BY values must have the same hash. Columns of types that
+     * are not hashed consistently with their comparison do not contribute
+     * to the hash.
+     */
+    private int getHash(Object[] record) {
+
+        int hash = 0;
+
+        for (int i = 0; i < groupColumns.length; i++) {
+            Object value = record[groupColumns[i]];
+
+            hash = 31 * hash;
+
+            if (value != null && groupColumnHashed[i]) {
+                hash += HashJoinTable.getHashCode(value);
+            }
+        }
+
+        // spread the bits, as each level of partitions uses different bits
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+
+        return hash;
+    }
+
+    private static boolean isHashedType(Type type) {
+
+        if (type.isNumberType() || type.isBooleanType()
+                || type.isDateTimeType()) {
+            return true;
+        }
+
+        if (type.isCharacterType()) {
+            return !type.isLobType()
+                   && type.getCollation().isCharacterCompare();
+        }
+
+        return false;
+    }
+}
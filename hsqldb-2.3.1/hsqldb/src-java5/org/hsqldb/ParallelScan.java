@@ -0,0 +1,498 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.hsqldb.RangeVariable.RangeIteratorMain;
+import org.hsqldb.RangeVariable.RangeVariableConditions;
+import org.hsqldb.error.Error;
+import org.hsqldb.error.ErrorCode;
+import org.hsqldb.index.Index;
+import org.hsqldb.lib.ArrayUtil;
+import org.hsqldb.map.ValuePool;
+import org.hsqldb.navigator.RangeIterator;
+import org.hsqldb.navigator.RowIterator;
+import org.hsqldb.persist.PersistentStore;
+import org.hsqldb.persist.RowStoreAVLMemory;
+
+/**
+ * Parallel execution of an aggregate SELECT without GROUP BY on a single
+ * MEMORY table.<p>
+ *
+ * The primary index of the table is split into ranges that cover subtrees
+ * of the AVL tree. A number of tasks, set by the parallel degree of the
+ * session, take the ranges in turn. Each task reads the rows of a range
+ * in blocks, tests the WHERE condition on the block and adds the rows that
+ * pass to a set of SetFunction objects for the range. When all the ranges
+ * have been scanned, the SetFunction objects of the ranges are merged in
+ * index order, so that MIN and MAX return the same one of several values
+ * that compare equal as a serial scan.<p>
+ *
+ * The rows are checked for visibility to the session with the transaction
+ * manager, as in serial scans. The parallel path is used only when the
+ * conditions are compiled and can be tested without the session context,
+ * and the aggregates are not DISTINCT and have a column of the table or *
+ * as argument. Other queries, and tables that are too small, are executed
+ * serially.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+final class ParallelScan {
+
+    static final int       minRowsPerTask    = 16384;
+    static final int       partitionsPerTask = 4;
+    static final int       blockSize         = 1024;
+    static ExecutorService executor;
+
+    //
+    final Session               session;
+    final RangeIteratorMain     iterator;
+    final PersistentStore       store;
+    final Index                 index;
+    final int                   degree;
+    final ExpressionAggregate[] aggregates;
+    final int[]                 argumentColumns;
+    final CompiledCondition[]   conditions;
+
+    // guarded by this
+    RowIterator[] partitions;
+    int           nextPartition;
+    Object[][]    results;
+    int           pendingTasks;
+    Throwable     error;
+
+    private ParallelScan(Session session, QuerySpecification select,
+                         RangeIteratorMain iterator, int degree) {
+
+        RangeVariable range = select.rangeVariables[0];
+
+        this.session  = session;
+        this.iterator = iterator;
+        this.degree   = degree;
+        store         = range.rangeTable.getRowStore(session);
+        index         = range.rangeTable.getPrimaryIndex();
+
+        int start = select.indexStartAggregates;
+        int count = select.exprColumns.length - start;
+
+        aggregates      = new ExpressionAggregate[count];
+        argumentColumns = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            ExpressionAggregate e =
+                (ExpressionAggregate) select.exprColumns[start + i];
+
+            aggregates[i]      = e;
+            argumentColumns[i] = e.getLeftNode().opType == OpTypes.ASTERISK
+                                 ? -1
+                                 : e.getLeftNode().columnIndex;
+        }
+
+        CompiledCondition[] list = new CompiledCondition[2];
+        int                 size = 0;
+        CompiledCondition   join =
+            getCompiledCondition(range.joinConditions[0].nonIndexCondition);
+        CompiledCondition   where =
+            getCompiledCondition(range.whereConditions[0].nonIndexCondition);
+
+        if (join != null) {
+            list[size++] = join;
+        }
+
+        if (where != null) {
+            list[size++] = where;
+        }
+
+        conditions = (CompiledCondition[]) ArrayUtil.resizeArray(list, size);
+    }
+
+    /**
+     * Returns a ParallelScan for the select, or null if it is executed
+     * serially.
+     */
+    static ParallelScan newParallelScan(Session session,
+                                        QuerySpecification select,
+                                        RangeIterator[] rangeIterators) {
+
+        int degree = getDegree(session, select);
+
+        if (degree < 2 || !(rangeIterators[0] instanceof RangeIteratorMain)) {
+            return null;
+        }
+
+        return new ParallelScan(session, select,
+                                (RangeIteratorMain) rangeIterators[0], degree);
+    }
+
+    /**
+     * Returns the number of tasks that execute the select, 1 when it is
+     * executed serially.
+     */
+    static int getDegree(Session session, QuerySpecification select) {
+
+        int degree = session.getParallelDegree();
+
+        if (degree < 2 || !isSupported(select)) {
+            return 1;
+        }
+
+        PersistentStore store =
+            select.rangeVariables[0].rangeTable.getRowStore(session);
+
+        if (!(store instanceof RowStoreAVLMemory)) {
+            return 1;
+        }
+
+        long rows = store.elementCount() / minRowsPerTask;
+
+        if (rows < degree) {
+            degree = (int) rows;
+        }
+
+        return degree < 2 ? 1
+                          : degree;
+    }
+
+    static boolean isSupported(QuerySpecification select) {
+
+        if (!select.isAggregated || select.isGrouped || select.isUpdatable
+                || select.sortAndSlice.hasLimit()
+                || select.rangeVariables.length != 1) {
+            return false;
+        }
+
+        RangeVariable range = select.rangeVariables[0];
+
+        if (range.rangeTable.getTableType() != TableBase.MEMORY_TABLE
+                || range.isLeftJoin || range.isRightJoin
+                || range.indexDistinctCount != 0) {
+            return false;
+        }
+
+        if (!isSupported(range, range.joinConditions)
+                || !isSupported(range, range.whereConditions)) {
+            return false;
+        }
+
+        for (int i = select.indexStartAggregates;
+                i < select.exprColumns.length; i++) {
+            Expression e = select.exprColumns[i];
+
+            if (e.getClass() != ExpressionAggregate.class) {
+                return false;
+            }
+
+            ExpressionAggregate aggregate = (ExpressionAggregate) e;
+
+            if (aggregate.isDistinctAggregate
+                    || aggregate.getCondition() != Expression.EXPR_TRUE) {
+                return false;
+            }
+
+            switch (aggregate.opType) {
+
+                case OpTypes.COUNT :
+                case OpTypes.SUM :
+                case OpTypes.AVG :
+                case OpTypes.MIN :
+                case OpTypes.MAX :
+                case OpTypes.EVERY :
+                case OpTypes.SOME :
+                case OpTypes.STDDEV_POP :
+                case OpTypes.STDDEV_SAMP :
+                case OpTypes.VAR_POP :
+                case OpTypes.VAR_SAMP :
+                    break;
+
+                default :
+                    return false;
+            }
+
+            Expression argument = aggregate.getLeftNode();
+
+            if (argument.opType == OpTypes.ASTERISK) {
+                continue;
+            }
+
+            if (argument.opType != OpTypes.COLUMN
+                    || ((ExpressionColumn) argument).getRangeVariable()
+                       != range) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isSupported(RangeVariable range,
+                                       RangeVariableConditions[] conditions) {
+
+        if (conditions.length != 1) {
+            return false;
+        }
+
+        RangeVariableConditions c = conditions[0];
+
+        if (c.hasIndexCondition() || c.isFalse || c.hashKeys != null
+                || c.terminalCondition != null || c.indexEndCondition != null
+                || c.excludeConditions != null) {
+            return false;
+        }
+
+        if (c.nonIndexCondition == null) {
+            return true;
+        }
+
+        CompiledCondition compiled =
+            getCompiledCondition(c.nonIndexCondition);
+
+        return compiled != null && compiled.isThreadSafe(range);
+    }
+
+    private static CompiledCondition getCompiledCondition(Expression e) {
+
+        if (e instanceof ExpressionLogical) {
+            return ((ExpressionLogical) e).compiledCondition;
+        }
+
+        return null;
+    }
+
+    /**
+     * Scans the table and returns the SetFunction objects for the
+     * aggregates, or null if no row passes the conditions.
+     */
+    Object[] execute() {
+
+        partitions = index.partitionRows(session, store,
+                                         degree * partitionsPerTask);
+        results = new Object[partitions.length][];
+
+        ExecutorService executor = getExecutor();
+
+        // the session thread runs the first task
+        synchronized (this) {
+            pendingTasks = degree;
+        }
+
+        for (int i = 1; i < degree; i++) {
+            executor.execute(new ScanTask());
+        }
+
+        new ScanTask().run();
+        waitForTasks();
+
+        Object[] states = null;
+
+        for (int i = 0; i < results.length; i++) {
+            Object[] partitionStates = results[i];
+
+            if (partitionStates == null) {
+                continue;
+            }
+
+            if (states == null) {
+                states = partitionStates;
+
+                continue;
+            }
+
+            for (int j = 0; j < states.length; j++) {
+                if (states[j] == null) {
+                    states[j] = partitionStates[j];
+                } else if (partitionStates[j] != null) {
+                    ((SetFunction) states[j]).merge(
+                        session, (SetFunction) partitionStates[j]);
+                }
+            }
+        }
+
+        return states;
+    }
+
+    static synchronized ExecutorService getExecutor() {
+
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+
+                    Thread thread = new Thread(r, "HSQLDB Parallel Query");
+
+                    thread.setDaemon(true);
+
+                    return thread;
+                }
+            });
+        }
+
+        return executor;
+    }
+
+    synchronized int getNextPartition() {
+
+        if (error != null || nextPartition == partitions.length) {
+            return -1;
+        }
+
+        return nextPartition++;
+    }
+
+    private synchronized void waitForTasks() {
+
+        boolean interrupted = false;
+
+        while (pendingTasks > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                error       = e;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (error != null) {
+            if (error instanceof HsqlException) {
+                throw (HsqlException) error;
+            }
+
+            throw Error.error(error, ErrorCode.GENERAL_ERROR, null);
+        }
+    }
+
+    synchronized void partitionDone(int partition, Object[] states) {
+        results[partition] = states;
+    }
+
+    synchronized void taskDone() {
+
+        pendingTasks--;
+
+        notifyAll();
+    }
+
+    synchronized void setError(Throwable t) {
+
+        if (error == null) {
+            error = t;
+        }
+    }
+
+    final class ScanTask implements Runnable {
+
+        public void run() {
+
+            try {
+                Row[] rows      = new Row[blockSize];
+                int[] selection = new int[blockSize];
+
+                for (int partition = getNextPartition(); partition >= 0;
+                        partition = getNextPartition()) {
+                    RowIterator it     = partitions[partition];
+                    Object[]    states = null;
+
+                    while (true) {
+                        int count = 0;
+
+                        for (; count < blockSize; count++) {
+                            Row row = it.getNextRow();
+
+                            if (row == null) {
+                                break;
+                            }
+
+                            rows[count]      = row;
+                            selection[count] = count;
+                        }
+
+                        if (count == 0) {
+                            break;
+                        }
+
+                        int selected = count;
+
+                        for (int i = 0; i < conditions.length && selected > 0;
+                                i++) {
+                            selected = conditions[i].testBatch(session,
+                                                               iterator,
+                                                               rows,
+                                                               selection,
+                                                               selected);
+                        }
+
+                        if (selected > 0 && states == null) {
+                            states = new Object[aggregates.length];
+                        }
+
+                        for (int i = 0; i < selected; i++) {
+                            Object[] data = rows[selection[i]].getData();
+
+                            for (int j = 0; j < aggregates.length; j++) {
+                                Object argument = argumentColumns[j] < 0
+                                                  ? ValuePool.INTEGER_1
+                                                  : data[argumentColumns[j]];
+
+                                states[j] =
+                                    aggregates[j].updateAggregatingValue(
+                                        session, states[j], argument);
+                            }
+                        }
+
+                        for (int i = 0; i < count; i++) {
+                            rows[i] = null;
+                        }
+
+                        if (count < blockSize) {
+                            break;
+                        }
+                    }
+
+                    if (states != null) {
+                        partitionDone(partition, states);
+                    }
+                }
+            } catch (Throwable t) {
+                setError(t);
+            } finally {
+                taskDone();
+            }
+        }
+    }
+}
@@ -97,7 +97,7 @@ public class ParserCommand extends ParserDDL {
                 throw e;
             }
 
-            if (!cs.isExplain
+            if (!cs.isExplain && literalPositions == null
                     && cs.getParametersMetaData().getColumnCount() > 0) {
                 throw Error.error(ErrorCode.X_42575);
             }
@@ -278,6 +278,10 @@ public class ParserCommand extends ParserDDL {
                 cs = compileCheckpoint();
                 break;
 
+            case Tokens.ANALYZE :
+                cs = compileAnalyze();
+                break;
+
             case Tokens.EXPLAIN : {
                 int position = getPosition();
 
@@ -916,6 +920,18 @@ public class ParserCommand extends ParserDDL {
                                             args, null,
                                             new HsqlName[]{ table.getName() });
             }
+            case Tokens.STATISTICS : {
+                read();
+                checkIsValue();
+
+                args[1] = token.tokenString;
+
+                read();
+
+                return new StatementCommand(
+                    StatementTypes.SET_TABLE_STATISTICS, args, null,
+                    new HsqlName[]{ table.getName() });
+            }
             case Tokens.TYPE : {
                 read();
 
@@ -1904,6 +1920,25 @@ public class ParserCommand extends ParserDDL {
                 return new StatementSession(
                     StatementTypes.SET_SESSION_RESULT_MEMORY_ROWS, args);
             }
+            case Tokens.BATCH : {
+                read();
+                readThis(Tokens.ROWS);
+
+                Integer  size = readIntegerObject();
+                Object[] args = new Object[]{ size };
+
+                return new StatementSession(
+                    StatementTypes.SET_SESSION_BATCH_ROWS, args);
+            }
+            case Tokens.PARALLEL : {
+                read();
+
+                Integer  degree = readIntegerObject();
+                Object[] args   = new Object[]{ degree };
+
+                return new StatementSession(
+                    StatementTypes.SET_SESSION_PARALLEL, args);
+            }
             default :
                 throw unexpectedToken();
         }
@@ -2180,6 +2215,30 @@ public class ParserCommand extends ParserDDL {
         return cs;
     }
 
+    private Statement compileAnalyze() {
+
+        read();
+        readThis(Tokens.TABLE);
+
+        Table table = readTableName();
+
+        switch (table.getTableType()) {
+
+            case TableBase.MEMORY_TABLE :
+            case TableBase.CACHED_TABLE :
+            case TableBase.TEXT_TABLE :
+                break;
+
+            default :
+                throw Error.error(ErrorCode.X_42501, table.getName().name);
+        }
+
+        Object[] args = new Object[]{ table.getName() };
+
+        return new StatementCommand(StatementTypes.ANALYZE_TABLE, args,
+                                    new HsqlName[]{ table.getName() }, null);
+    }
+
     public static Statement getAutoCheckpointStatement(Database database) {
 
         HsqlName[] names =
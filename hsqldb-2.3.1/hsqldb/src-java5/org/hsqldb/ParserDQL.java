@@ -74,6 +74,11 @@ public class ParserDQL extends ParserBase {
     protected final CompileContext compileContext;
     HsqlException                  lastError;
 
+    // set by the PlanCache to compile the literals as typed parameters
+    int[]              literalPositions;
+    Type[]             literalTypes;
+    ExpressionColumn[] literalParameters;
+
     /**
      *  Constructs a new Parser object with the given context.
      *
@@ -1755,9 +1760,13 @@ public class ParserDQL extends ParserBase {
             ExpressionOrderBy o;
             boolean           isDesc    = false;
             boolean           nullsLast = false;
+            int[]             positions = literalPositions;
 
-            e = XreadValueExpression();
-            o = new ExpressionOrderBy(e);
+            // an integer literal is a column position, not a value
+            literalPositions = null;
+            e                = XreadValueExpression();
+            literalPositions = positions;
+            o                = new ExpressionOrderBy(e);
 
             if (token.tokenType == Tokens.DESC) {
                 o.setDescending();
@@ -2240,6 +2249,26 @@ public class ParserDQL extends ParserBase {
                 return e;
 
             case Tokens.X_VALUE :
+                if (literalPositions != null) {
+                    int index = ArrayUtil.find(literalPositions,
+                                               getPosition());
+
+                    if (index >= 0) {
+                        ExpressionColumn p =
+                            new ExpressionColumn(OpTypes.DYNAMIC_PARAM);
+
+                        p.dataType = literalTypes[index];
+
+                        compileContext.addParameter(p, getPosition());
+
+                        literalParameters[index] = p;
+
+                        read();
+
+                        return p;
+                    }
+                }
+
                 e = new ExpressionValue(token.tokenValue, token.dataType);
 
                 read();
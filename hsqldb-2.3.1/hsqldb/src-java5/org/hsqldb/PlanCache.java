@@ -0,0 +1,658 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hsqldb.lib.ArrayUtil;
+import org.hsqldb.lib.HsqlArrayList;
+import org.hsqldb.result.Result;
+import org.hsqldb.result.ResultConstants;
+import org.hsqldb.result.ResultMetaData;
+import org.hsqldb.types.NumberType;
+import org.hsqldb.types.Type;
+import org.hsqldb.types.Types;
+
+/**
+ * Plan cache shared by all the sessions of a database, used for the direct
+ * execution of SQL statements when the hsqldb.plan_cache_size property is
+ * larger than zero.<p>
+ *
+ * The SQL text is normalised by replacing the numeric and character literals
+ * with parameter markers. The normalised text, with the user, role, schema,
+ * execution properties and the parameter types of the literals, forms the
+ * key of a shape. On a miss, the statement is compiled with the literals as
+ * dynamic parameters. The literal values of each execution are then passed
+ * as the parameter values.<p>
+ *
+ * The parameter type of a character literal is VARCHAR and the parameter
+ * type of a DECIMAL literal has the default precision and scale, so that
+ * literals of different lengths share a plan. The scale of a DECIMAL
+ * literal is kept when the statement has a division, as the scale of the
+ * quotient depends on it.<p>
+ *
+ * Some literals, such as the column positions in ORDER BY, LIMIT values and
+ * type lengths, are compiled as constants. The shape records these literals
+ * and their text is added to the key of the cached statement.<p>
+ *
+ * A shape that cannot be compiled in this way is recorded, so that the
+ * statement is compiled normally. The entries compiled before the last
+ * schema change are discarded and compiled again. The shapes that are
+ * cached, the shapes that cannot be cached and the cached statements are
+ * kept in separate maps of the same size. The least recently used elements
+ * are removed when a map is full.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public final class PlanCache {
+
+    final Database database;
+    final int      maxSize;
+    final LRUMap   shapes;
+    final LRUMap   uncachedShapes;
+    final LRUMap   entries;
+
+    PlanCache(Database database, int maxSize) {
+
+        this.database  = database;
+        this.maxSize   = maxSize;
+        shapes         = new LRUMap();
+        uncachedShapes = new LRUMap();
+        entries        = new LRUMap();
+    }
+
+    /**
+     * Executes a direct execution request with a cached statement. Returns
+     * null if the statement cannot use the cache or raises a data exception
+     * with the cached plan.
+     */
+    Result execute(Session session, Result cmd) {
+
+        switch (cmd.getGeneratedResultType()) {
+
+            case ResultConstants.RETURN_GENERATED_KEYS :
+            case ResultConstants.RETURN_GENERATED_KEYS_COL_NAMES :
+            case ResultConstants.RETURN_GENERATED_KEYS_COL_INDEXES :
+                return null;
+        }
+
+        String   sql      = cmd.getMainString();
+        Literals literals = normalise(session.parser.getScanner(), sql);
+
+        if (literals == null) {
+            return null;
+        }
+
+        String shapeKey = getShapeKey(session, cmd, literals);
+        long   schemaTimestamp =
+            database.schemaManager.getSchemaChangeTimestamp();
+        Entry entry = null;
+        Shape shape = getShape(shapeKey);
+
+        if (shape != null && shape.timestamp < schemaTimestamp) {
+            shape = null;
+        }
+
+        if (shape != null) {
+            if (shape.fixedLiterals == null) {
+                return null;
+            }
+
+            entry = getEntry(getEntryKey(shapeKey, shape, literals));
+
+            if (entry != null
+                    && entry.statement.getCompileTimestamp()
+                       < schemaTimestamp) {
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            entry = compile(session, cmd, shapeKey, literals);
+
+            if (entry == null) {
+                return null;
+            }
+        }
+
+        Object[] args = new Object[entry.literalIndexes.length];
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                int  index = entry.literalIndexes[i];
+                Type type  = entry.parameterTypes[i];
+
+                // parameters can be retyped, for example in UNION
+                args[i] = type.convertToType(session, literals.values[index],
+                                             literals.types[index]);
+            }
+        } catch (HsqlException e) {
+            return null;
+        }
+
+        Result result = session.executeCompiledStatement(entry.statement,
+            args, cmd.queryTimeout);
+
+        // a literal that is out of range for its column is converted at
+        // execution time and the error reports the column; the statement has
+        // been rolled back and is executed again with its literals to return
+        // the same data exception as an uncached statement
+        if (result.isError() && result.getSubString() != null
+                && result.getSubString().startsWith("22")) {
+            return null;
+        }
+
+        return result;
+    }
+
+    /**
+     * Compiles the statement with its literals as parameters and adds the
+     * shape and the entry to the cache.
+     */
+    private Entry compile(Session session, Result cmd, String shapeKey,
+                          Literals literals) {
+
+        ParserCommand parser  = session.parser;
+        long          start   = System.nanoTime();
+        Statement     cs      = null;
+        int[]         indexes = null;
+        long timestamp = database.schemaManager.getSchemaChangeTimestamp();
+
+        parser.literalPositions  = literals.positions;
+        parser.literalTypes      = literals.parameterTypes;
+        parser.literalParameters = new ExpressionColumn[literals.count];
+
+        try {
+            HsqlArrayList list = parser.compileStatements(literals.sql, cmd);
+
+            if (list.size() == 1 && list.get(0) instanceof StatementDMQL) {
+                cs = (Statement) list.get(0);
+                indexes = getLiteralIndexes((StatementDMQL) cs,
+                                            parser.literalParameters);
+            }
+        } catch (Throwable t) {
+
+            // the statement is compiled again with its literals
+        } finally {
+            parser.literalPositions  = null;
+            parser.literalTypes      = null;
+            parser.literalParameters = null;
+        }
+
+        long compileNanos = System.nanoTime() - start;
+
+        // some functions derive the result type from the value of a literal
+        if (indexes != null) {
+            try {
+                HsqlArrayList list = parser.compileStatements(literals.sql,
+                    cmd);
+
+                if (!isSameResultType(cs, (Statement) list.get(0))) {
+                    indexes = null;
+                }
+            } catch (Throwable t) {
+                indexes = null;
+            }
+        }
+
+        if (indexes == null) {
+            putShape(shapeKey, new Shape(null, timestamp));
+
+            return null;
+        }
+
+        int[] fixed = new int[literals.count - indexes.length];
+
+        for (int i = 0, j = 0; i < literals.count; i++) {
+            if (ArrayUtil.find(indexes, i) < 0) {
+                fixed[j++] = i;
+            }
+        }
+
+        ExpressionColumn[] parameters = ((StatementDMQL) cs).parameters;
+        Type[]             types      = new Type[parameters.length];
+
+        for (int i = 0; i < parameters.length; i++) {
+            types[i] = parameters[i].dataType;
+        }
+
+        Shape shape = new Shape(fixed, timestamp);
+        Entry entry = new Entry();
+
+        entry.userName       = session.getUsername();
+        entry.schemaName     = session.getCurrentSchemaHsqlName().name;
+        entry.sql            = literals.normalisedSQL;
+        entry.statement      = cs;
+        entry.literalIndexes = indexes;
+        entry.parameterTypes = types;
+        entry.compileNanos   = compileNanos;
+
+        cs.setSQL(literals.normalisedSQL);
+        putShape(shapeKey, shape);
+        putEntry(getEntryKey(shapeKey, shape, literals), entry);
+
+        return entry;
+    }
+
+    /**
+     * Returns the literal index for each parameter of the statement, or null
+     * if a parameter is not a literal.
+     */
+    private static int[] getLiteralIndexes(StatementDMQL cs,
+                                           ExpressionColumn[] literals) {
+
+        ExpressionColumn[] parameters = cs.parameters;
+        int[]              indexes    = new int[parameters.length];
+
+        for (int i = 0; i < parameters.length; i++) {
+            indexes[i] = -1;
+
+            for (int j = 0; j < literals.length; j++) {
+                if (literals[j] == parameters[i]) {
+                    indexes[i] = j;
+
+                    break;
+                }
+            }
+
+            if (indexes[i] < 0) {
+                return null;
+            }
+        }
+
+        return indexes;
+    }
+
+    private static boolean isSameResultType(Statement cs, Statement other) {
+
+        ResultMetaData meta      = cs.getResultMetaData();
+        ResultMetaData otherMeta = other.getResultMetaData();
+
+        if (meta.getColumnCount() != otherMeta.getColumnCount()) {
+            return false;
+        }
+
+        for (int i = 0; i < meta.getColumnCount(); i++) {
+            if (!meta.columnTypes[i].equals(otherMeta.columnTypes[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Scans the SQL and returns its literals and normalised text. Returns
+     * null for statements that are not single DML or query statements, or
+     * have parameter markers.
+     */
+    static Literals normalise(Scanner scanner, String sql) {
+
+        scanner.reset(sql);
+        scanner.scanNext();
+
+        switch (scanner.getTokenType()) {
+
+            case Tokens.SELECT :
+            case Tokens.WITH :
+            case Tokens.INSERT :
+            case Tokens.UPDATE :
+            case Tokens.DELETE :
+            case Tokens.MERGE :
+                break;
+
+            default :
+                return null;
+        }
+
+        Literals     literals = new Literals();
+        StringBuffer sb       = new StringBuffer(sql.length());
+        int          last     = 0;
+
+        while (true) {
+            Token token = scanner.getToken();
+
+            if (token.isMalformed) {
+                return null;
+            }
+
+            switch (token.tokenType) {
+
+                case Tokens.X_ENDPARSE :
+                    sb.append(sql, last, sql.length());
+
+                    literals.sql           = sql;
+                    literals.normalisedSQL = sb.toString();
+
+                    literals.setParameterTypes();
+
+                    return literals;
+
+                case Tokens.DIVIDE :
+                    literals.hasDivide = true;
+                    break;
+
+                case Tokens.QUESTION :
+                case Tokens.COLON :
+                case Tokens.SEMICOLON :
+                    return null;
+
+                case Tokens.X_VALUE :
+                    Type type = token.dataType;
+
+                    if (type.isNumberType() || type.isCharacterType()) {
+                        int position = scanner.getTokenPosition();
+                        int end      = scanner.currentPosition;
+
+                        // a string literal is scanned with the spaces after it
+                        while (end > position
+                                && Character.isWhitespace(sql.charAt(end - 1))) {
+                            end--;
+                        }
+
+                        literals.add(position, end, token.tokenValue, type);
+                        sb.append(sql, last, position).append('?');
+
+                        last = end;
+                    }
+                    break;
+            }
+
+            scanner.scanNext();
+        }
+    }
+
+    private static String getShapeKey(Session session, Result cmd,
+                                      Literals literals) {
+
+        StringBuffer sb = new StringBuffer(literals.normalisedSQL.length()
+                                           + 64);
+
+        sb.append(session.getUsername()).append('\u0000');
+
+        if (session.getRole() != null) {
+            sb.append(session.getRole().getName().name);
+        }
+
+        sb.append('\u0000');
+        sb.append(session.getCurrentSchemaHsqlName().name).append('\u0000');
+        sb.append(cmd.getExecuteProperties()).append(',');
+        sb.append(cmd.getStatementType()).append('\u0000');
+        sb.append(literals.normalisedSQL);
+
+        for (int i = 0; i < literals.count; i++) {
+            Type type = literals.parameterTypes[i];
+
+            sb.append('\u0000').append(type.typeCode).append(',');
+            sb.append(type.precision).append(',').append(type.scale);
+        }
+
+        return sb.toString();
+    }
+
+    private static String getEntryKey(String shapeKey, Shape shape,
+                                      Literals literals) {
+
+        StringBuffer sb = new StringBuffer(shapeKey);
+
+        sb.append('\u0001');
+
+        for (int i = 0; i < shape.fixedLiterals.length; i++) {
+            int index = shape.fixedLiterals[i];
+
+            sb.append('\u0000');
+            sb.append(literals.sql, literals.positions[index],
+                      literals.ends[index]);
+        }
+
+        return sb.toString();
+    }
+
+    private synchronized Shape getShape(String key) {
+
+        Shape shape = (Shape) shapes.get(key);
+
+        if (shape == null) {
+            shape = (Shape) uncachedShapes.get(key);
+        }
+
+        return shape;
+    }
+
+    private synchronized Entry getEntry(String key) {
+
+        Entry entry = (Entry) entries.get(key);
+
+        if (entry != null) {
+            entry.hits++;
+        }
+
+        return entry;
+    }
+
+    private synchronized void putShape(String key, Shape shape) {
+
+        if (shape.fixedLiterals == null) {
+            shapes.remove(key);
+            uncachedShapes.put(key, shape);
+        } else {
+            uncachedShapes.remove(key);
+            shapes.put(key, shape);
+        }
+    }
+
+    private synchronized void putEntry(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    /**
+     * Returns the cached statements that are still valid.
+     */
+    public synchronized Entry[] getEntries() {
+
+        HsqlArrayList list = new HsqlArrayList();
+
+        long timestamp = database.schemaManager.getSchemaChangeTimestamp();
+
+        for (Iterator it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = (Entry) it.next();
+
+            if (entry.statement.getCompileTimestamp() >= timestamp) {
+                list.add(entry);
+            }
+        }
+
+        Entry[] entries = new Entry[list.size()];
+
+        list.toArray(entries);
+
+        return entries;
+    }
+
+    synchronized void clear() {
+        shapes.clear();
+        uncachedShapes.clear();
+        entries.clear();
+    }
+
+    /**
+     * The literals of an SQL statement.
+     */
+    static final class Literals {
+
+        String   sql;
+        String   normalisedSQL;
+        boolean  hasDivide;
+        int      count;
+        int[]    positions = new int[8];
+        int[]    ends      = new int[8];
+        Object[] values    = new Object[8];
+        Type[]   types     = new Type[8];
+        Type[]   parameterTypes;
+
+        void add(int position, int end, Object value, Type type) {
+
+            if (count == positions.length) {
+                positions = (int[]) ArrayUtil.resizeArray(positions,
+                        count * 2);
+                ends   = (int[]) ArrayUtil.resizeArray(ends, count * 2);
+                values = (Object[]) ArrayUtil.resizeArray(values, count * 2);
+                types  = (Type[]) ArrayUtil.resizeArray(types, count * 2);
+            }
+
+            positions[count] = position;
+            ends[count]      = end;
+            values[count]    = value;
+            types[count]     = type;
+
+            count++;
+        }
+
+        void setParameterTypes() {
+
+            parameterTypes = new Type[count];
+
+            for (int i = 0; i < count; i++) {
+                parameterTypes[i] = getParameterType(types[i]);
+            }
+        }
+
+        /**
+         * Returns the type of the parameter for a literal. Character and
+         * DECIMAL literals that fit the wider type get the same type
+         * regardless of their length.
+         */
+        Type getParameterType(Type type) {
+
+            if (type.isCharacterType()) {
+                if (type.precision <= Type.SQL_VARCHAR_DEFAULT.precision) {
+                    return Type.SQL_VARCHAR_DEFAULT;
+                }
+
+                return type;
+            }
+
+            if (type.typeCode != Types.SQL_DECIMAL
+                    && type.typeCode != Types.SQL_NUMERIC) {
+                return type;
+            }
+
+            int maxScale  = NumberType.defaultNumericScale;
+            int maxDigits = NumberType.defaultNumericPrecision - maxScale;
+
+            if (type.scale > maxScale
+                    || type.precision - type.scale > maxDigits) {
+                return type;
+            }
+
+            if (hasDivide) {
+                return NumberType.getNumberType(Types.SQL_DECIMAL,
+                                                maxDigits + type.scale,
+                                                type.scale);
+            }
+
+            return Type.SQL_DECIMAL_DEFAULT;
+        }
+    }
+
+    /**
+     * The literals of a normalised statement that are compiled as constants,
+     * or null if the statement is not cached.
+     */
+    static final class Shape {
+
+        final int[] fixedLiterals;
+        final long  timestamp;
+
+        Shape(int[] fixedLiterals, long timestamp) {
+
+            this.fixedLiterals = fixedLiterals;
+            this.timestamp     = timestamp;
+        }
+    }
+
+    /**
+     * A cached statement with the literal index for each parameter.
+     */
+    public static final class Entry {
+
+        String    userName;
+        String    schemaName;
+        String    sql;
+        Statement statement;
+        int[]     literalIndexes;
+        Type[]    parameterTypes;
+        long      compileNanos;
+        long      hits;
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public String getSchemaName() {
+            return schemaName;
+        }
+
+        public String getSQL() {
+            return sql;
+        }
+
+        public int getParameterCount() {
+            return literalIndexes.length;
+        }
+
+        public long getHitCount() {
+            return hits;
+        }
+
+        public long getCompileNanos() {
+            return compileNanos;
+        }
+    }
+
+    /**
+     * Map of shapes or cached statements with at most maxSize elements.
+     */
+    final class LRUMap extends LinkedHashMap {
+
+        LRUMap() {
+            super(16, 0.75f, true);
+        }
+
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > maxSize;
+        }
+    }
+}
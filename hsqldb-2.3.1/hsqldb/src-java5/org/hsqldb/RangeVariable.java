@@ -960,6 +960,8 @@ public class RangeVariable implements Cloneable {
                 rangeTable.getRowStore(session))).append("\n");
 
         boolean fullScan = !conditions[0].hasIndexCondition();
+        boolean hashJoin = conditions == joinConditions
+                           && joinConditions[0].hashKeys != null;
 
         sb.append(b);
 
@@ -973,8 +975,11 @@ public class RangeVariable implements Cloneable {
             }
         }
 
-        sb.append("access=").append(fullScan ? "FULL SCAN"
-                                             : "INDEX PRED").append("\n");
+        String access = hashJoin ? "HASH"
+                                 : fullScan ? "FULL SCAN"
+                                            : "INDEX PRED";
+
+        sb.append("access=").append(access).append("\n");
 
         for (int i = 0; i < conditions.length; i++) {
             if (i > 0) {
@@ -1164,6 +1169,18 @@ public class RangeVariable implements Cloneable {
         //
         Object[] currentJoinData = null;
 
+        //
+        HashJoinTable hashTable;
+
+        // rows read ahead in batch mode and the positions of the found rows
+        int     batchRowCount;
+        boolean isBatch;
+        Row[]   batchRows;
+        int[]   batchSelection;
+        int     batchSize;
+        int     batchCount;
+        int     batchIndex;
+
         RangeIteratorMain() {
             super();
         }
@@ -1231,16 +1248,50 @@ public class RangeVariable implements Cloneable {
             currentData   = rangeVar.emptyData;
             currentRow    = null;
             isBeforeFirst = true;
+
+            clearBatch();
         }
 
         public int getRangePosition() {
             return rangeVar.rangePosition;
         }
 
+        /**
+         * Sets the number of rows read in each batch, or 0 to read one row
+         * at a time.
+         */
+        void setBatchRowCount(int count) {
+            batchRowCount = count;
+        }
+
+        /**
+         * Batch mode is used for inner ranges of MEMORY tables and
+         * conditions that can be tested on any row found by the index.
+         */
+        private boolean isBatchScan() {
+
+            if (batchRowCount == 0 || isFullIterator || rangeVar.isLeftJoin
+                    || rangeVar.isRightJoin || !store.isMemory()) {
+                return false;
+            }
+
+            RangeVariableConditions c = conditions[condIndex];
+
+            return c.terminalCondition == null && c.indexEndCondition == null
+                   && c.excludeConditions == null;
+        }
+
         /**
          */
         protected void initialiseIterator() {
 
+            isBatch = isBatchScan();
+
+            if (isBatch && batchRows == null) {
+                batchRows      = new Row[batchRowCount];
+                batchSelection = new int[batchRowCount];
+            }
+
             if (condIndex == 0) {
                 hasLeftOuterRow = rangeVar.isLeftJoin;
             }
@@ -1254,7 +1305,21 @@ public class RangeVariable implements Cloneable {
             rangeVar.rangeTable.materialiseCorrelated(session);
 
             if (conditions[condIndex].indexCond == null) {
-                if (conditions[condIndex].reversed) {
+                if (conditions[condIndex].hashKeys != null
+                        && conditions == joinConditions) {
+                    if (hashTable == null) {
+                        hashTable = new HashJoinTable(
+                            conditions[condIndex].hashKeys,
+                            conditions[condIndex].hashProbes, store);
+
+                        hashTable.build(
+                            session, this,
+                            conditions[condIndex].rangeIndex.firstRow(
+                                session, store, 0));
+                    }
+
+                    it = hashTable.getIterator(session);
+                } else if (conditions[condIndex].reversed) {
                     it = conditions[condIndex].rangeIndex.lastRow(session,
                             store, rangeVar.indexDistinctCount);
                 } else {
@@ -1366,6 +1431,10 @@ public class RangeVariable implements Cloneable {
          */
         private boolean findNext() {
 
+            if (isBatch) {
+                return findNextInBatch();
+            }
+
             boolean result = false;
 
             while (true) {
@@ -1438,6 +1507,99 @@ public class RangeVariable implements Cloneable {
             return result;
         }
 
+        /**
+         * Returns the next row of the batch that passes the conditions,
+         * reading a new batch when the current one is exhausted.
+         */
+        private boolean findNextInBatch() {
+
+            while (batchIndex == batchCount) {
+                if (!readBatch()) {
+                    it.release();
+
+                    currentRow  = null;
+                    currentData = rangeVar.emptyData;
+
+                    return false;
+                }
+            }
+
+            currentRow  = batchRows[batchSelection[batchIndex++]];
+            currentData = currentRow.getData();
+
+            return true;
+        }
+
+        private boolean readBatch() {
+
+            clearBatch();
+
+            for (; batchSize < batchRows.length; batchSize++) {
+                Row row = it.getNextRow();
+
+                if (row == null) {
+                    break;
+                }
+
+                batchRows[batchSize]      = row;
+                batchSelection[batchSize] = batchSize;
+            }
+
+            if (batchSize == 0) {
+                return false;
+            }
+
+            batchCount = filterBatch(joinConditions[condIndex]
+                .nonIndexCondition, batchSize);
+            batchCount = filterBatch(whereConditions[condIndex]
+                .nonIndexCondition, batchCount);
+
+            return true;
+        }
+
+        /**
+         * Reduces the selection of the batch to the rows that pass the
+         * condition, returns the new count.
+         */
+        private int filterBatch(Expression e, int count) {
+
+            if (e == null || count == 0) {
+                return count;
+            }
+
+            if (e instanceof ExpressionLogical
+                    && ((ExpressionLogical) e).compiledCondition != null) {
+                return ((ExpressionLogical) e).compiledCondition.testBatch(
+                    session, this, batchRows, batchSelection, count);
+            }
+
+            int selected = 0;
+
+            for (int i = 0; i < count; i++) {
+                int pos = batchSelection[i];
+
+                currentRow  = batchRows[pos];
+                currentData = currentRow.getData();
+
+                if (e.testCondition(session)) {
+                    batchSelection[selected++] = pos;
+                }
+            }
+
+            return selected;
+        }
+
+        private void clearBatch() {
+
+            for (int i = 0; i < batchSize; i++) {
+                batchRows[i] = null;
+            }
+
+            batchSize  = 0;
+            batchCount = 0;
+            batchIndex = 0;
+        }
+
         private void addFoundRow() {
 
             if (rangeVar.isRightJoin) {
@@ -1642,6 +1804,10 @@ public class RangeVariable implements Cloneable {
         boolean             reversed;
         boolean             hasIndex;
 
+        // keys of this range and the preceding ranges for a hash join
+        Expression[] hashKeys;
+        Expression[] hashProbes;
+
         RangeVariableConditions(RangeVariable rangeVar, boolean isJoin) {
             this.rangeVar = rangeVar;
             this.isJoin   = isJoin;
@@ -1963,6 +2129,15 @@ public class RangeVariable implements Cloneable {
         private void replaceColumnReferences(RangeVariable range,
                                             Expression[] list) {
 
+            if (hashKeys != null) {
+                for (int i = 0; i < hashKeys.length; i++) {
+                    hashKeys[i] = hashKeys[i].replaceColumnReferences(range,
+                            list);
+                    hashProbes[i] =
+                        hashProbes[i].replaceColumnReferences(range, list);
+                }
+            }
+
             if (indexCond != null) {
                 for (int i = 0; i < indexCond.length; i++) {
                     if (indexCond[i] != null) {
@@ -1995,6 +2170,8 @@ public class RangeVariable implements Cloneable {
             if (nonIndexCondition != null) {
                 nonIndexCondition =
                     nonIndexCondition.replaceColumnReferences(range, list);
+
+                ExpressionLogical.compileCondition(nonIndexCondition);
             }
 
             if (terminalCondition != null) {
@@ -2624,6 +2624,12 @@ public class SchemaManager {
                     list.add(ddl);
                 }
 
+                ddl = t.getSQLForStatistics();
+
+                if (ddl != null) {
+                    list.add(ddl);
+                }
+
                 if (t.isCached()) {
                     ddl = t.getSQLForClustered();
 
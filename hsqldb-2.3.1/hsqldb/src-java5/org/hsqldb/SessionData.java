@@ -37,6 +37,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 import org.hsqldb.HsqlNameManager.HsqlName;
 import org.hsqldb.error.Error;
@@ -56,6 +59,7 @@ import org.hsqldb.persist.PersistentStoreCollectionSession;
 import org.hsqldb.result.Result;
 import org.hsqldb.result.ResultLob;
 import org.hsqldb.result.ResultProperties;
+import org.hsqldb.rowio.RowOutputBinary;
 import org.hsqldb.types.BlobData;
 import org.hsqldb.types.BlobDataID;
 import org.hsqldb.types.ClobData;
@@ -78,6 +82,11 @@ public class SessionData {
     // large results
     LongKeyHashMap resultMap;
 
+    // blocks of large results for network clients without a fetch size
+    static final int resultBlockBytes      = 1 << 19;
+    static final int resultBlockMinRows    = 256;
+    static final int resultBlockSampleRows = 32;
+
     // VALUE
     Object currentValue;
 
@@ -85,6 +94,14 @@ public class SessionData {
     HashMap sequenceMap;
     HashMap sequenceUpdateMap;
 
+    // GROUP BY partitions written to disk
+    long groupSpillCount;
+    long groupSpillRowCount;
+
+    // REGEXP_ patterns that are not constant, least recently used removed
+    static final int   patternCacheSize = 64;
+    private PatternMap patternMap;
+
     public SessionData(Database database, Session session) {
 
         this.database = database;
@@ -119,6 +136,42 @@ public class SessionData {
         throw Error.runtimeError(ErrorCode.U_S0500, "SessionData");
     }
 
+    /**
+     * Returns the compiled form of a regular expression that is not a
+     * constant in the statement.
+     */
+    Pattern getPattern(String regex) {
+
+        if (patternMap == null) {
+            patternMap = new PatternMap();
+        }
+
+        Pattern pattern = (Pattern) patternMap.get(regex);
+
+        if (pattern == null) {
+            pattern = Pattern.compile(regex);
+
+            patternMap.put(regex, pattern);
+        }
+
+        return pattern;
+    }
+
+    /**
+     * Number of times the rows of a GROUP BY were written to partitions
+     * because there were too many groups to keep in memory
+     */
+    public long getGroupSpillCount() {
+        return groupSpillCount;
+    }
+
+    /**
+     * Number of rows written to GROUP BY partitions
+     */
+    public long getGroupSpillRowCount() {
+        return groupSpillRowCount;
+    }
+
     // result
     void setResultSetProperties(Result command, Result result) {
 
@@ -196,6 +249,12 @@ public class SessionData {
         }
 
         if (isNetwork) {
+            if (fetchSize == 0 && session.isResultBlocks
+                    && ResultProperties.isHoldable(result.rsProperties)
+                    && !ResultProperties.isScrollable(result.rsProperties)) {
+                fetchSize = getResultBlockSize(result);
+            }
+
             if (fetchSize != 0
                     && result.getNavigator().getSize() > fetchSize) {
                 copy = true;
@@ -225,6 +284,49 @@ public class SessionData {
         return result;
     }
 
+    /**
+     * Returns the number of rows in each block of a large forward-only
+     * result for a client that has not set a fetch size, or 0 if the result
+     * is sent whole. The block size is based on the average width of the first
+     * rows, so that neither end holds the serialized form of a large result
+     * in memory.
+     */
+    private int getResultBlockSize(Result result) {
+
+        RowSetNavigator navigator = result.getNavigator();
+        int             size      = navigator.getSize();
+
+        if (size <= resultBlockMinRows) {
+            return 0;
+        }
+
+        RowOutputBinary out        = new RowOutputBinary(32, 1);
+        int             count      = result.metaData.getColumnCount();
+        long            totalBytes = 0;
+        int             rows       = 0;
+
+        navigator.beforeFirst();
+
+        while (rows < resultBlockSampleRows && navigator.next()) {
+            totalBytes += out.getSize(navigator.getCurrent(), count,
+                                      result.metaData.columnTypes);
+
+            rows++;
+        }
+
+        navigator.beforeFirst();
+
+        long blockRows = rows == 0 ? size
+                                   : resultBlockBytes * rows / (totalBytes + rows);
+
+        if (blockRows < resultBlockMinRows) {
+            blockRows = resultBlockMinRows;
+        }
+
+        return blockRows >= size ? 0
+                                 : (int) blockRows;
+    }
+
     Result getDataResultSlice(long id, int offset, int count) {
 
         Result          result = (Result) resultMap.get(id);
@@ -703,4 +805,15 @@ public class SessionData {
         return sequenceUpdateMap == null ? null
                                          : sequenceUpdateMap.get(sequence);
     }
+
+    static class PatternMap extends LinkedHashMap {
+
+        PatternMap() {
+            super(16, 0.75f, true);
+        }
+
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > patternCacheSize;
+        }
+    }
 }
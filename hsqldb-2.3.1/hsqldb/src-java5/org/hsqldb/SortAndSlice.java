@@ -465,6 +465,39 @@ public final class SortAndSlice {
         return defaultLimits;
     }
 
+    /**
+     * Returns the number of rows to keep while the result is built, when
+     * only the first rows in ORDER BY order are returned and the order
+     * index cannot be used, or 0 when all the rows must be kept.
+     */
+    int getTopLimit(Session session, QuerySpecification select,
+                    int[] limits) {
+
+        if (!hasOrder() || skipSort || limits == defaultLimits
+                || limits[1] == Integer.MAX_VALUE) {
+            return 0;
+        }
+
+        if (select.isDistinctSelect || select.isGrouped
+                || select.isAggregated || select.idIndex != null
+                || select.orderIndex == null) {
+            return 0;
+        }
+
+        long top = (long) limits[0] + limits[1];
+
+        if (top == 0 || top > Integer.MAX_VALUE) {
+            return 0;
+        }
+
+        if (session.resultMaxMemoryRows != 0
+                && top >= session.resultMaxMemoryRows) {
+            return 0;
+        }
+
+        return (int) top;
+    }
+
     public void setIndex(Session session, TableBase table) {
         index = getNewIndex(session, table);
     }
@@ -179,6 +179,8 @@ public class StatementSession extends Statement {
             case StatementTypes.SET_TRANSFORM_GROUP :
             case StatementTypes.SET_SESSION_RESULT_MAX_ROWS :
             case StatementTypes.SET_SESSION_RESULT_MEMORY_ROWS :
+            case StatementTypes.SET_SESSION_BATCH_ROWS :
+            case StatementTypes.SET_SESSION_PARALLEL :
             case StatementTypes.SET_SESSION_AUTOCOMMIT :
                 group = StatementTypes.X_HSQLDB_SESSION;
                 break;
@@ -650,6 +652,20 @@ public class StatementSession extends Statement {
 
                 return Result.updateZeroResult;
             }
+            case StatementTypes.SET_SESSION_BATCH_ROWS : {
+                int size = ((Integer) parameters[0]).intValue();
+
+                session.setBatchRowCount(size);
+
+                return Result.updateZeroResult;
+            }
+            case StatementTypes.SET_SESSION_PARALLEL : {
+                int degree = ((Integer) parameters[0]).intValue();
+
+                session.setParallelDegree(degree);
+
+                return Result.updateZeroResult;
+            }
             case StatementTypes.SET_SESSION_SQL_IGNORECASE : {
                 try {
                     boolean mode = ((Boolean) parameters[0]).booleanValue();
@@ -249,6 +249,8 @@ public interface StatementTypes {
     int ALTER_COLUMN_DROP_DEFAULT   = 1088;
     int ALTER_COLUMN_DROP_GENERATED = 1089;
     int ALTER_COLUMN_TYPE_IDENTITY  = 1090;
+    int SET_SESSION_BATCH_ROWS      = 1091;
+    int SET_SESSION_PARALLEL        = 1092;
 
     //
     int EXPLAIN_PLAN             = 1191;
@@ -262,6 +264,8 @@ public interface StatementTypes {
     int SET_TABLE_NEW_TABLESPACE = 1199;
     int SET_TABLE_SET_TABLESPACE = 1200;
     int LOG_SCHEMA_STATEMENT     = 1201;
+    int ANALYZE_TABLE            = 1202;
+    int SET_TABLE_STATISTICS     = 1203;
 
     // hsqldb sql implementation
     int CONDITION = 1211;                         // element of IF
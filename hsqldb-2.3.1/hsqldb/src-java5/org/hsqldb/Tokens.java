@@ -628,10 +628,12 @@ public class Tokens {
     // other tokens
     static final String        T_ALIAS                = "ALIAS";
     static final String        T_AGGREGATE            = "AGGREGATE";
+    static final String        T_ANALYZE              = "ANALYZE";
     public static final String T_AUTHENTICATION       = "AUTHENTICATION";
     static final String        T_AUTO_INCREMENT       = "AUTO_INCREMENT";
     static final String        T_AUTOCOMMIT           = "AUTOCOMMIT";
     public static final String T_BACKUP               = "BACKUP";
+    static final String        T_BATCH                = "BATCH";
     static final String        T_BIGSERIAL            = "BIGSERIAL";
     static final String        T_BINARY_DOUBLE        = "BINARY_DOUBLE";
     static final String        T_BINARY_FLOAT         = "BINARY_FLOAT";
@@ -715,6 +717,7 @@ public class Tokens {
     static final String        T_OFF                  = "OFF";
     public static final String T_OTHER                = "OTHER";
     public static final String T_ORA                  = "ORA";
+    static final String        T_PARALLEL             = "PARALLEL";
     public static final String T_PASSWORD             = "PASSWORD";
     static final String        T_PLAN                 = "PLAN";
     public static final String T_PGS                  = "PGS";
@@ -732,6 +735,7 @@ public class Tokens {
     static final String        T_SEPARATOR            = "SEPARATOR";
     static final String        T_BLOCKING             = "BLOCKING";
     static final String        T_SHUTDOWN             = "SHUTDOWN";
+    static final String        T_STATISTICS           = "STATISTICS";
     static final String        T_SQL_TSI_DAY          = "SQL_TSI_DAY";
     static final String        T_SQL_TSI_FRAC_SECOND  = "SQL_TSI_FRAC_SECOND";
     static final String        T_SQL_TSI_MILLI_SECOND = "SQL_TSI_MILLI_SECOND";
@@ -1543,7 +1547,13 @@ public class Tokens {
     static final int WRITE_DELAY    = 636;
 
     //
-    static final int INDEXER = 637;
+    static final int INDEXER  = 637;
+    static final int BATCH    = 638;
+    static final int PARALLEL = 639;
+
+    //
+    static final int ANALYZE    = 798;
+    static final int STATISTICS = 799;
 
     //
     static final int        ACOS                       = 640;
@@ -2122,10 +2132,12 @@ public class Tokens {
         commandSet.put(T_AFTER, AFTER);
         commandSet.put(T_ALIAS, ALIAS);
         commandSet.put(T_ALWAYS, ALWAYS);
+        commandSet.put(T_ANALYZE, ANALYZE);
         commandSet.put(T_ASC, ASC);
         commandSet.put(T_AUTHENTICATION, AUTHENTICATION);
         commandSet.put(T_AUTOCOMMIT, AUTOCOMMIT);
         commandSet.put(T_BACKUP, BACKUP);
+        commandSet.put(T_BATCH, BATCH);
         commandSet.put(T_BEFORE, BEFORE);
         commandSet.put(T_BINARY_DOUBLE, BINARY_DOUBLE);
         commandSet.put(T_BINARY_FLOAT, BINARY_FLOAT);
@@ -2249,6 +2261,7 @@ public class Tokens {
         commandSet.put(T_OVERRIDING, OVERRIDING);
         commandSet.put(T_P_FACTOR, P);
         commandSet.put(T_PAD, PAD);
+        commandSet.put(T_PARALLEL, PARALLEL);
         commandSet.put(T_PARTIAL, PARTIAL);
         commandSet.put(T_PASSWORD, PASSWORD);
         commandSet.put(T_PLACING, PLACING);
@@ -2285,6 +2298,7 @@ public class Tokens {
         commandSet.put(T_SIMPLE, SIMPLE);
         commandSet.put(T_SIZE, SIZE);
         commandSet.put(T_SOURCE, SOURCE);
+        commandSet.put(T_STATISTICS, STATISTICS);
         commandSet.put(T_SQL_BIGINT, SQL_BIGINT);
         commandSet.put(T_SQL_BINARY, SQL_BINARY);
         commandSet.put(T_SQL_BIT, SQL_BIT);
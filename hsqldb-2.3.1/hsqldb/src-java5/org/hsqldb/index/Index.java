@@ -212,6 +212,15 @@ public interface Index extends SchemaObject {
     public RowIterator firstRow(Session session, PersistentStore store,
                                 int distinctCount);
 
+    /**
+     * Returns iterators over consecutive ranges of the index, of similar
+     * sizes, which together return all the rows the session can read
+     *
+     * @return iterators, at least count when the index is large enough
+     */
+    public RowIterator[] partitionRows(Session session, PersistentStore store,
+                                       int count);
+
     /**
      * Returns the row for the last node of the index
      *
@@ -70,11 +70,15 @@
 
 package org.hsqldb.index;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.hsqldb.Constraint;
+import org.hsqldb.HsqlException;
 import org.hsqldb.HsqlNameManager.HsqlName;
 import org.hsqldb.OpTypes;
 import org.hsqldb.Row;
@@ -88,6 +92,7 @@ import org.hsqldb.TransactionManager;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.lib.ArrayUtil;
+import org.hsqldb.lib.HsqlArrayList;
 import org.hsqldb.lib.OrderedHashSet;
 import org.hsqldb.lib.ReadWriteLockDummy;
 import org.hsqldb.navigator.RowIterator;
@@ -917,18 +922,7 @@ public class IndexAVL implements Index {
                 }
 
                 if (compare == 0) {
-                    Constraint c = null;
-
-                    if (isConstraint) {
-                        c = ((Table) table).getUniqueConstraintForIndex(this);
-                    }
-
-                    if (c == null) {
-                        throw Error.error(ErrorCode.X_23505,
-                                          name.statementName);
-                    } else {
-                        throw c.getException(row.getData());
-                    }
+                    throw getUniqueException(row.getData());
                 }
 
                 isleft = compare < 0;
@@ -951,6 +945,361 @@ public class IndexAVL implements Index {
         }
     }
 
+    HsqlException getUniqueException(Object[] data) {
+
+        Constraint c = null;
+
+        if (isConstraint) {
+            c = ((Table) table).getUniqueConstraintForIndex(this);
+        }
+
+        if (c == null) {
+            return Error.error(ErrorCode.X_23505, name.statementName);
+        } else {
+            return c.getException(data);
+        }
+    }
+
+    /**
+     * Builds an empty index from all the rows of the store, read with the
+     * primary index.<p>
+     *
+     * The rows, or for disk tables their positions and index column values,
+     * are sorted in index order. The tree is then linked
+     * bottom-up as a perfectly balanced AVL tree in a single pass, with each
+     * node set once and no rotations. Duplicates in a unique index are
+     * reported as with insert().<p>
+     *
+     * When the keys of a disk table are too many to sort in memory, they
+     * are sorted with an external merge sort in the temp directory of the
+     * database.<p>
+     *
+     * Returns false without modifying any node if the rows cannot be
+     * sorted, or if a duplicate may involve rows that are not visible to
+     * the session in MVCC mode. The rows must then be added with insert().
+     */
+    public boolean insertSorted(Session session, PersistentStore store,
+                                Index primaryIndex) {
+
+        int     rowCount = (int) store.elementCount();
+        boolean isMemory = store.isMemory();
+
+        if (!isMemory) {
+            long keySize   = 64 + 8 * table.getColumnCount();
+            long maxMemory = Runtime.getRuntime().maxMemory() / 4;
+
+            if (rowCount * keySize > maxMemory) {
+                return insertExternalSorted(session, store, primaryIndex,
+                                            (int) (maxMemory / keySize));
+            }
+        }
+
+        Object[]    rows  = new Object[rowCount < 16 ? 16
+                                                 : rowCount];
+        int         count = 0;
+        RowIterator it    = primaryIndex.firstRow(store);
+
+        while (it.hasNext()) {
+            Row row = it.getNextRow();
+
+            // TEXT table rows have memory nodes but are not kept by position
+            if (!isMemory && ((RowAVL) row).getNode(position).isMemory()) {
+                it.release();
+
+                return false;
+            }
+
+            if (count == rows.length) {
+                rows = (Object[]) ArrayUtil.resizeArray(rows, count * 2);
+            }
+
+            rows[count++] = isMemory ? (Object) row
+                                     : new SortKey(row, colIndex);
+        }
+
+        it.release();
+
+        if (count == 0) {
+            store.setAccessor(this, null);
+
+            return true;
+        }
+
+        Comparator comparator = new SortComparator(session);
+
+        // merge sort takes advantage of runs that are already in order
+        Arrays.sort(rows, 0, count, comparator);
+
+        if (isUnique) {
+            for (int i = 1; i < count; i++) {
+                Object[] data = SortKey.getData(rows[i]);
+
+                if (compareRow(session, SortKey.getData(rows[i - 1]), data)
+                        == 0 && !hasNulls(session, data)) {
+                    if (session != null
+                            && session.database.txManager.isMVRows()) {
+                        return false;
+                    }
+
+                    if (!isMemory) {
+                        data = ((Row) store.get(SortKey.getPos(rows[i]),
+                                                false)).getData();
+                    }
+
+                    throw getUniqueException(data);
+                }
+            }
+        }
+
+        writeLock.lock();
+        store.writeLock();
+
+        try {
+            NodeAVL root = linkSorted(store, rows, 0, count);
+
+            root = root.setParent(store, null);
+
+            store.setAccessor(this, root);
+        } finally {
+            store.writeUnlock();
+            writeLock.unlock();
+        }
+
+        return true;
+    }
+
+    /**
+     * Builds the index of a disk table from keys sorted in runs of the given
+     * size in a temporary file.
+     */
+    private boolean insertExternalSorted(Session session,
+                                         PersistentStore store,
+                                         Index primaryIndex, int runSize) {
+
+        String path = table.database.logger.getTempDirectoryPath();
+
+        if (path == null) {
+            return false;
+        }
+
+        IndexSortFile sortFile = new IndexSortFile(path, colIndex, colTypes,
+            table.getColumnCount(), new SortComparator(session), runSize);
+        int count = 0;
+
+        try {
+            RowIterator it = primaryIndex.firstRow(store);
+
+            while (it.hasNext()) {
+                Row row = it.getNextRow();
+
+                if (((RowAVL) row).getNode(position).isMemory()) {
+                    it.release();
+
+                    return false;
+                }
+
+                sortFile.add(new SortKey(row, colIndex));
+
+                count++;
+            }
+
+            it.release();
+            sortFile.finishRuns();
+
+            if (count == 0) {
+                store.setAccessor(this, null);
+
+                return true;
+            }
+
+            if (isUnique) {
+                sortFile.beginMerge();
+
+                Object[] last = sortFile.next().data;
+
+                for (int i = 1; i < count; i++) {
+                    SortKey key = sortFile.next();
+
+                    if (compareRow(session, last, key.data) == 0
+                            && !hasNulls(session, key.data)) {
+                        if (session != null
+                                && session.database.txManager.isMVRows()) {
+                            return false;
+                        }
+
+                        throw getUniqueException(
+                            ((Row) store.get(key.pos, false)).getData());
+                    }
+
+                    last = key.data;
+                }
+            }
+
+            sortFile.beginMerge();
+        } catch (IOException e) {
+            sortFile.close();
+
+            return false;
+        } catch (RuntimeException e) {
+            sortFile.close();
+
+            throw e;
+        }
+
+        writeLock.lock();
+        store.writeLock();
+
+        try {
+            NodeAVL root = linkSorted(store, sortFile, count);
+
+            root = root.setParent(store, null);
+
+            store.setAccessor(this, root);
+        } catch (IOException e) {
+            throw Error.error(e, ErrorCode.FILE_IO_ERROR, null);
+        } finally {
+            store.writeUnlock();
+            writeLock.unlock();
+            sortFile.close();
+        }
+
+        return true;
+    }
+
+    /**
+     * Links the nodes for the next count keys of the sort file and returns
+     * the root of the subtree, with the same shape as linkSorted() for an
+     * array.
+     */
+    private NodeAVL linkSorted(PersistentStore store, IndexSortFile sortFile,
+                               int count) throws IOException {
+
+        if (count == 0) {
+            return null;
+        }
+
+        int     leftCount  = count >>> 1;
+        int     rightCount = count - leftCount - 1;
+        NodeAVL left       = linkSorted(store, sortFile, leftCount);
+        SortKey key        = sortFile.next();
+        RowAVL  row        = (RowAVL) store.get(key.pos, false);
+        NodeAVL node       = row.getNode(position);
+        NodeAVL right      = linkSorted(store, sortFile, rightCount);
+
+        node = node.set(store, true, left);
+        node = node.set(store, false, right);
+        node = node.setBalance(store,
+                               getSortedHeight(rightCount)
+                               - getSortedHeight(leftCount));
+
+        return node;
+    }
+
+    /**
+     * Links the nodes for rows[start, limit) and returns the root of the
+     * subtree. The left subtree is never smaller than the right one.
+     */
+    private NodeAVL linkSorted(PersistentStore store, Object[] rows,
+                               int start, int limit) {
+
+        if (start == limit) {
+            return null;
+        }
+
+        int     mid   = (start + limit) >>> 1;
+        NodeAVL left  = linkSorted(store, rows, start, mid);
+        NodeAVL right = linkSorted(store, rows, mid + 1, limit);
+        NodeAVL node;
+
+        if (rows[mid] instanceof SortKey) {
+            RowAVL row = (RowAVL) store.get(((SortKey) rows[mid]).pos, false);
+
+            node = row.getNode(position);
+        } else {
+            node = ((RowAVL) rows[mid]).getNode(position);
+        }
+
+        node = node.set(store, true, left);
+        node = node.set(store, false, right);
+        node = node.setBalance(store,
+                               getSortedHeight(limit - mid - 1)
+                               - getSortedHeight(mid - start));
+
+        return node;
+    }
+
+    /**
+     * Height of a tree of the given size linked by linkSorted()
+     */
+    private static int getSortedHeight(int count) {
+        return 32 - Integer.numberOfLeadingZeros(count);
+    }
+
+    /**
+     * Position and index column values of a row of a disk table, used for
+     * sorting without keeping the rows in memory.
+     */
+    static final class SortKey {
+
+        final Object[] data;
+        final long     pos;
+
+        SortKey(Row row, int[] colIndex) {
+
+            Object[] rowData = row.getData();
+
+            data = new Object[rowData.length];
+            pos  = row.getPos();
+
+            for (int i = 0; i < colIndex.length; i++) {
+                data[colIndex[i]] = rowData[colIndex[i]];
+            }
+        }
+
+        SortKey(Object[] data, long pos) {
+            this.data = data;
+            this.pos  = pos;
+        }
+
+        static Object[] getData(Object o) {
+            return o instanceof SortKey ? ((SortKey) o).data
+                                        : ((Row) o).getData();
+        }
+
+        static long getPos(Object o) {
+            return o instanceof SortKey ? ((SortKey) o).pos
+                                        : ((Row) o).getPos();
+        }
+    }
+
+    /**
+     * Orders rows as in the tree, by index columns then by row position.
+     */
+    final class SortComparator implements Comparator {
+
+        final Session session;
+
+        SortComparator(Session session) {
+            this.session = session;
+        }
+
+        public int compare(Object a, Object b) {
+
+            int i = compareRow(session, SortKey.getData(a),
+                               SortKey.getData(b));
+
+            if (i != 0) {
+                return i;
+            }
+
+            long diff = SortKey.getPos(a) - SortKey.getPos(b);
+
+            return diff == 0L ? 0
+                              : diff > 0L ? 1
+                                          : -1;
+        }
+    }
+
     public void delete(Session session, PersistentStore store, Row row) {
 
         if (!row.isInMemory()) {
@@ -1357,6 +1706,77 @@ public class IndexAVL implements Index {
         }
     }
 
+    /**
+     * Returns iterators over consecutive ranges of the index that together
+     * return all the rows the session can read. The ranges are the subtrees
+     * below the nodes of the top levels of the tree, so there are at least
+     * count ranges, of similar sizes, when the tree is large enough.
+     *
+     * @return iterators in index order
+     */
+    public RowIterator[] partitionRows(Session session, PersistentStore store,
+                                       int count) {
+
+        readLock.lock();
+
+        try {
+            NodeAVL x = getAccessor(store);
+
+            if (x == null) {
+                return new RowIterator[0];
+            }
+
+            int depth = 1;
+
+            while ((1 << depth) < count) {
+                depth++;
+            }
+
+            HsqlArrayList bounds = new HsqlArrayList();
+
+            addTopNodes(store, x, depth, bounds);
+
+            NodeAVL l = x;
+
+            while (l != null) {
+                x = l;
+                l = x.getLeft(store);
+            }
+
+            RowIterator[] iterators = new RowIterator[bounds.size() + 1];
+
+            for (int i = 0; i < iterators.length; i++) {
+                NodeAVL start = i == 0 ? x
+                                       : (NodeAVL) bounds.get(i - 1);
+                NodeAVL end = i == bounds.size() ? null
+                                                 : (NodeAVL) bounds.get(i);
+
+                iterators[i] = new PartitionIterator(session, store, this,
+                                                     start, end);
+            }
+
+            return iterators;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Adds the nodes of the given number of top levels of the subtree to the
+     * list, in index order.
+     */
+    private void addTopNodes(PersistentStore store, NodeAVL x, int depth,
+                             HsqlArrayList list) {
+
+        if (x == null || depth == 0) {
+            return;
+        }
+
+        addTopNodes(store, x.getLeft(store), depth - 1, list);
+        list.add(x);
+        addTopNodes(store, x.getRight(store), depth - 1, list);
+    }
+
     /**
      * Returns the node after the given one
      */
@@ -1939,6 +2359,114 @@ public class IndexAVL implements Index {
         }
     }
 
+    /**
+     * Iterator over the rows from a start node up to, but not including, an
+     * end node. The nodes are read ahead in blocks under a single read lock,
+     * so that several threads can scan different ranges of the same index
+     * without contending for the lock on each row. The rows the session
+     * cannot read are skipped.
+     */
+    static final class PartitionIterator implements RowIterator {
+
+        static final int blockSize = 256;
+
+        //
+        final Session         session;
+        final PersistentStore store;
+        final IndexAVL        index;
+        final NodeAVL         endnode;
+        NodeAVL               nextnode;
+        Row[]                 rows = new Row[blockSize];
+        int                   rowCount;
+        int                   rowIndex;
+        Row                   lastrow;
+
+        PartitionIterator(Session session, PersistentStore store,
+                          IndexAVL index, NodeAVL start, NodeAVL end) {
+
+            this.session = session;
+            this.store   = store;
+            this.index   = index;
+            this.endnode = end;
+            nextnode     = start == end ? null
+                                        : start;
+        }
+
+        public boolean hasNext() {
+            return rowIndex < rowCount || nextnode != null;
+        }
+
+        public Row getNextRow() {
+
+            while (true) {
+                while (rowIndex < rowCount) {
+                    Row row = rows[rowIndex];
+
+                    rows[rowIndex++] = null;
+
+                    if (session.database.txManager.canRead(
+                            session, store, row,
+                            TransactionManager.ACTION_READ, null)) {
+                        lastrow = row;
+
+                        return row;
+                    }
+                }
+
+                if (nextnode == null) {
+                    lastrow = null;
+
+                    return null;
+                }
+
+                readBlock();
+            }
+        }
+
+        private void readBlock() {
+
+            rowCount = 0;
+            rowIndex = 0;
+
+            index.readLock.lock();
+
+            try {
+                while (nextnode != null && rowCount < blockSize) {
+                    rows[rowCount++] = nextnode.getRow(store);
+                    nextnode         = index.next(store, nextnode);
+
+                    if (nextnode == endnode) {
+                        nextnode = null;
+                    }
+                }
+            } finally {
+                index.readLock.unlock();
+            }
+        }
+
+        public Object[] getNext() {
+
+            Row row = getNextRow();
+
+            return row == null ? null
+                               : row.getData();
+        }
+
+        public void removeCurrent() {
+            throw Error.runtimeError(ErrorCode.U_S0500, "IndexAVL");
+        }
+
+        public void release() {}
+
+        public boolean setRowColumns(boolean[] columns) {
+            return false;
+        }
+
+        public long getRowId() {
+            return lastrow.getPos();
+        }
+    }
+
     public static final class IndexRowIterator implements RowIterator {
 
         final Session         session;
@@ -2874,7 +2874,9 @@ public class JDBCConnection implements Connection {
         if (this.isInternal) {
             return true;
         } else if (!this.isNetConn) {
-            return !this.isClosed();
+
+            // the session is closed when the database is shut down
+            return !this.isClosed() && !sessionProxy.isClosed();
         } else if (this.isClosed()) {
             return false;
         }
@@ -3595,6 +3597,9 @@ public class JDBCConnection implements Connection {
 
         isTLSWrapper &= isTLS;
 
+        boolean isCompressed =
+            props.isPropertyTrue(HsqlDatabaseProperties.url_compress, false);
+
         if (user == null) {
             user = "SA";
         }
@@ -3619,7 +3624,8 @@ public class JDBCConnection implements Connection {
             } else if (connType == DatabaseURL.S_HSQL
                        || connType == DatabaseURL.S_HSQLS) {
                 sessionProxy = new ClientConnection(host, port, path,
-                        database, isTLS, isTLSWrapper, user, password, zoneSeconds);
+                        database, isTLS, isTLSWrapper, isCompressed, user,
+                        password, zoneSeconds);
                 isNetConn = true;
             } else if (connType == DatabaseURL.S_HTTP
                        || connType == DatabaseURL.S_HTTPS) {
@@ -0,0 +1,192 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.lib;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream for network connections that use compression. The data
+ * written between two calls to flush() is sent as one block, compressed
+ * with Deflater if it is larger than the threshold and compression makes
+ * it smaller.<p>
+ *
+ * Each block has an 8 byte header with the length of the block data and
+ * its uncompressed length, or 0 if the data is not compressed. The blocks
+ * are read with InflaterBlockInputStream.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class DeflaterBlockOutputStream extends OutputStream {
+
+    static final int headerSize        = 8;
+    static final int initialBufferSize = 0x1000;
+    static final int maxKeptBufferSize = 1 << 20;
+
+    //
+    private final OutputStream        out;
+    private final int                 threshold;
+    private Deflater                  deflater;
+    private HsqlByteArrayOutputStream buffer;
+    private byte[]                    compressed;
+
+    //
+    private volatile long rawBytes;
+    private volatile long wireBytes;
+    private volatile long nanos;
+
+    public DeflaterBlockOutputStream(OutputStream out, int threshold) {
+
+        this.out       = out;
+        this.threshold = threshold;
+        deflater       = new Deflater(Deflater.BEST_SPEED);
+        buffer         = new HsqlByteArrayOutputStream(initialBufferSize);
+
+        buffer.fill(0, headerSize);
+    }
+
+    public void write(int b) {
+        buffer.write(b);
+    }
+
+    public void write(byte[] b, int off, int len) {
+        buffer.write(b, off, len);
+    }
+
+    public void flush() throws IOException {
+
+        if (buffer.size() > headerSize) {
+            writeBlock();
+        }
+
+        out.flush();
+    }
+
+    public void close() throws IOException {
+
+        try {
+            flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+
+        byte[] data   = buffer.getBuffer();
+        int    length = buffer.size() - headerSize;
+        int    size   = 0;
+
+        if (length >= threshold) {
+            long start = System.nanoTime();
+
+            if (compressed == null || compressed.length < buffer.size()) {
+                compressed = new byte[buffer.size()];
+            }
+
+            deflater.reset();
+            deflater.setInput(data, headerSize, length);
+            deflater.finish();
+
+            size = headerSize;
+
+            while (!deflater.finished() && size < compressed.length) {
+                size += deflater.deflate(compressed, size,
+                                         compressed.length - size);
+            }
+
+            if (!deflater.finished()) {
+                size = 0;
+            }
+
+            nanos += System.nanoTime() - start;
+        }
+
+        if (size > 0) {
+            writeHeader(compressed, size - headerSize, length);
+            out.write(compressed, 0, size);
+        } else {
+            size = buffer.size();
+
+            writeHeader(data, length, 0);
+            out.write(data, 0, size);
+        }
+
+        rawBytes  += length;
+        wireBytes += size;
+
+        if (data.length > maxKeptBufferSize) {
+            buffer     = new HsqlByteArrayOutputStream(initialBufferSize);
+            compressed = null;
+        } else {
+            buffer.reset();
+        }
+
+        buffer.fill(0, headerSize);
+    }
+
+    private static void writeHeader(byte[] b, int length, int rawLength) {
+
+        b[0] = (byte) (length >>> 24);
+        b[1] = (byte) (length >>> 16);
+        b[2] = (byte) (length >>> 8);
+        b[3] = (byte) length;
+        b[4] = (byte) (rawLength >>> 24);
+        b[5] = (byte) (rawLength >>> 16);
+        b[6] = (byte) (rawLength >>> 8);
+        b[7] = (byte) rawLength;
+    }
+
+    /**
+     * Bytes written to this stream
+     */
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    /**
+     * Bytes sent to the underlying stream, including the block headers
+     */
+    public long getWireBytes() {
+        return wireBytes;
+    }
+
+    /**
+     * Time spent in compression
+     */
+    public long getNanos() {
+        return nanos;
+    }
+}
@@ -0,0 +1,228 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.lib;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Input stream for the blocks written by DeflaterBlockOutputStream.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class InflaterBlockInputStream extends InputStream {
+
+    static final int maxKeptBufferSize = 1 << 20;
+
+    //
+    private final InputStream in;
+    private Inflater          inflater;
+    private byte[]            header = new byte[8];
+    private byte[]            wire   = new byte[0];
+    private byte[]            block  = new byte[0];
+    private int               position;
+    private int               limit;
+
+    //
+    private volatile long rawBytes;
+    private volatile long wireBytes;
+    private volatile long nanos;
+
+    public InflaterBlockInputStream(InputStream in) {
+        this.in  = in;
+        inflater = new Inflater();
+    }
+
+    public int read() throws IOException {
+
+        if (position == limit && !readBlock()) {
+            return -1;
+        }
+
+        return block[position++] & 0xff;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+
+        if (position == limit && !readBlock()) {
+            return -1;
+        }
+
+        if (len > limit - position) {
+            len = limit - position;
+        }
+
+        System.arraycopy(block, position, b, off, len);
+
+        position += len;
+
+        return len;
+    }
+
+    public int available() {
+        return limit - position;
+    }
+
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+
+    /**
+     * Reads the next block, returns false at the end of the stream.
+     */
+    private boolean readBlock() throws IOException {
+
+        if (!readFully(header, 0, header.length, true)) {
+            return false;
+        }
+
+        int length    = getInt(header, 0);
+        int rawLength = getInt(header, 4);
+
+        if (length < 0 || rawLength < 0) {
+            throw new IOException("invalid block header");
+        }
+
+        if (wire.length < length
+                || (wire.length > maxKeptBufferSize
+                    && length <= maxKeptBufferSize)) {
+            wire = new byte[length];
+        }
+
+        readFully(wire, 0, length, false);
+
+        wireBytes += header.length + length;
+        position  = 0;
+
+        if (rawLength == 0) {
+            byte[] temp = block;
+
+            block    = wire;
+            wire     = temp;
+            limit    = length;
+            rawBytes += length;
+
+            return true;
+        }
+
+        long start = System.nanoTime();
+
+        if (block.length < rawLength
+                || (block.length > maxKeptBufferSize
+                    && rawLength <= maxKeptBufferSize)) {
+            block = new byte[rawLength];
+        }
+
+        inflater.reset();
+        inflater.setInput(wire, 0, length);
+
+        try {
+            limit = 0;
+
+            while (limit < rawLength) {
+                int count = inflater.inflate(block, limit, rawLength - limit);
+
+                if (count == 0 && (inflater.finished()
+                                   || inflater.needsInput())) {
+                    throw new IOException("invalid compressed block");
+                }
+
+                limit += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e.toString());
+        }
+
+        nanos    += System.nanoTime() - start;
+        rawBytes += rawLength;
+
+        return true;
+    }
+
+    private boolean readFully(byte[] b, int off, int len,
+                              boolean eofAllowed) throws IOException {
+
+        int count = 0;
+
+        while (count < len) {
+            int read = in.read(b, off + count, len - count);
+
+            if (read < 0) {
+                if (count == 0 && eofAllowed) {
+                    return false;
+                }
+
+                throw new EOFException();
+            }
+
+            count += read;
+        }
+
+        return true;
+    }
+
+    private static int getInt(byte[] b, int off) {
+
+        return ((b[off] & 0xff) << 24) + ((b[off + 1] & 0xff) << 16)
+               + ((b[off + 2] & 0xff) << 8) + (b[off + 3] & 0xff);
+    }
+
+    /**
+     * Bytes read from this stream
+     */
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    /**
+     * Bytes read from the underlying stream, including the block headers
+     */
+    public long getWireBytes() {
+        return wireBytes;
+    }
+
+    /**
+     * Time spent in decompression
+     */
+    public long getNanos() {
+        return nanos;
+    }
+}
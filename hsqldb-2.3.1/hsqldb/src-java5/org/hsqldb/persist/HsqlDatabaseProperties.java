@@ -195,6 +195,7 @@ public class HsqlDatabaseProperties extends HsqlProperties {
     public static final String url_shutdown    = "shutdown";
     public static final String url_recover     = "recover";
     public static final String url_tls_wrapper = "tls_wrapper";
+    public static final String url_compress    = "compress";
 
     //
     public static final String url_crypt_key      = "crypt_key";
@@ -218,22 +219,34 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         "hsqldb.cache_free_count";
     public static final String hsqldb_cache_rows = "hsqldb.cache_rows";
     public static final String hsqldb_cache_size = "hsqldb.cache_size";
+    public static final String hsqldb_cache_policy = "hsqldb.cache_policy";
+    public static final String hsqldb_cache_write_back =
+        "hsqldb.cache_write_back";
     public static final String hsqldb_default_table_type =
         "hsqldb.default_table_type";
     public static final String hsqldb_defrag_limit   = "hsqldb.defrag_limit";
     public static final String hsqldb_files_readonly = "files_readonly";
     public static final String hsqldb_lock_file      = "hsqldb.lock_file";
     public static final String hsqldb_log_data       = "hsqldb.log_data";
+    public static final String hsqldb_log_binary     = "hsqldb.log_binary";
     public static final String hsqldb_log_size       = "hsqldb.log_size";
     public static final String hsqldb_nio_data_file  = "hsqldb.nio_data_file";
     public static final String hsqldb_nio_max_size   = "hsqldb.nio_max_size";
+    public static final String hsqldb_parallel_degree =
+        "hsqldb.parallel_degree";
+    public static final String hsqldb_plan_cache_size =
+        "hsqldb.plan_cache_size";
     public static final String hsqldb_script_format  = "hsqldb.script_format";
+    public static final String hsqldb_script_load_threads =
+        "hsqldb.script_load_threads";
     public static final String hsqldb_temp_directory = "hsqldb.temp_directory";
     public static final String hsqldb_result_max_memory_rows =
         "hsqldb.result_max_memory_rows";
     public static final String hsqldb_write_delay = "hsqldb.write_delay";
     public static final String hsqldb_write_delay_millis =
         "hsqldb.write_delay_millis";
+    public static final String hsqldb_group_commit_wait_micros =
+        "hsqldb.group_commit_wait_micros";
     public static final String hsqldb_full_log_replay =
         "hsqldb.full_log_replay";
     public static final String hsqldb_large_data  = "hsqldb.large_data";
@@ -370,6 +383,10 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         dbMeta.put(hsqldb_log_data,
                    HsqlProperties.getMeta(hsqldb_log_data, SQL_PROPERTY,
                                           true));
+        // runtime setting, only read from the URL - see Logger.runtimeProperties
+        dbMeta.put(hsqldb_log_binary,
+                   HsqlProperties.getMeta(hsqldb_log_binary, SQL_PROPERTY,
+                                          false));
         dbMeta.put(hsqldb_nio_data_file,
                    HsqlProperties.getMeta(hsqldb_nio_data_file, SQL_PROPERTY,
                                           true));
@@ -469,6 +486,20 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         dbMeta.put(hsqldb_write_delay_millis,
                    HsqlProperties.getMeta(hsqldb_write_delay_millis,
                                           SQL_PROPERTY, 500, 0, 10000));
+        // runtime settings, only read from the URL each time the database is
+        // opened and not stored - see Logger.runtimeProperties
+        dbMeta.put(hsqldb_group_commit_wait_micros,
+                   HsqlProperties.getMeta(hsqldb_group_commit_wait_micros,
+                                          SQL_PROPERTY, 0, 0, 100000));
+        dbMeta.put(hsqldb_script_load_threads,
+                   HsqlProperties.getMeta(hsqldb_script_load_threads,
+                                          SQL_PROPERTY, 0, 0, 64));
+        dbMeta.put(hsqldb_parallel_degree,
+                   HsqlProperties.getMeta(hsqldb_parallel_degree,
+                                          SQL_PROPERTY, 1, 0, 64));
+        dbMeta.put(hsqldb_plan_cache_size,
+                   HsqlProperties.getMeta(hsqldb_plan_cache_size,
+                                          SQL_PROPERTY, 0, 0, 100000));
         dbMeta.put(hsqldb_applog,
                    HsqlProperties.getMeta(hsqldb_applog, SQL_PROPERTY, 0, 0,
                                           3));
@@ -515,6 +546,15 @@ public class HsqlDatabaseProperties extends HsqlProperties {
         dbMeta.put(hsqldb_cache_free_count,
                    HsqlProperties.getMeta(hsqldb_cache_free_count,
                                           SQL_PROPERTY, 512, 0, 4096));
+        // runtime settings, only read from the URL - see Logger.runtimeProperties
+        dbMeta.put(hsqldb_cache_write_back,
+                   HsqlProperties.getMeta(hsqldb_cache_write_back,
+                                          SQL_PROPERTY, 50, 0, 95));
+        dbMeta.put(hsqldb_cache_policy,
+                   HsqlProperties.getMeta(hsqldb_cache_policy, SQL_PROPERTY,
+                                          1, new int[] {
+            0, 1
+        }));
         dbMeta.put(hsqldb_result_max_memory_rows,
                    HsqlProperties.getMeta(hsqldb_result_max_memory_rows,
                                           SQL_PROPERTY, 0, 0,
@@ -120,13 +120,35 @@ public class Logger {
     int     propMaxFreeBlocks = 512;
     int     propCacheMaxRows;
     int     propCacheMaxSize;
+    int     propCachePolicy = Cache.POLICY_SEGMENTED_CLOCK;
+    int     propCacheWriteBack;
     int     propCacheDefragLimit;
     int     propDataFileScale;
     String  propTextSourceDefault = "";
     boolean propTextAllowFullPath;
     int     propWriteDelay;
+    int     propGroupCommitWait;
     int     propLogSize;
     boolean propLogData = true;
+    boolean propLogBinary;
+    int     propScriptLoadThreads;
+    int     propParallelDegree;
+    int     propPlanCacheSize;
+
+    /**
+     * Settings that are read from the URL properties each time the database
+     * is opened. They are not stored in the .properties or .script file.
+     */
+    static final String[] runtimeProperties = {
+        HsqlDatabaseProperties.hsqldb_cache_policy,
+        HsqlDatabaseProperties.hsqldb_cache_write_back,
+        HsqlDatabaseProperties.hsqldb_group_commit_wait_micros,
+        HsqlDatabaseProperties.hsqldb_log_binary,
+        HsqlDatabaseProperties.hsqldb_script_load_threads,
+        HsqlDatabaseProperties.hsqldb_parallel_degree,
+        HsqlDatabaseProperties.hsqldb_plan_cache_size
+    };
+    private HsqlArrayList rejectedProperties = new HsqlArrayList();
     int     propEventLogLevel;
     int     propSqlLogLevel;
     int     propGC;
@@ -350,6 +372,7 @@ public class Logger {
             }
         }
 
+        setRuntimeProperties();
         setVariables();
 
         String appLogPath = null;
@@ -366,6 +389,8 @@ public class Logger {
         database.setReferentialIntegrity(propRefIntegrity);
 
         if (!isFileDatabase()) {
+            logRejectedProperties();
+
             return;
         }
 
@@ -420,6 +445,63 @@ public class Logger {
         if (level >= 0) {
             setEventLogLevel(level, true);
         }
+
+        logRejectedProperties();
+    }
+
+    /**
+     * Copies the runtime settings from the URL properties to the database
+     * properties. A value that is not valid for the property is an error
+     * with check_props=true, otherwise it is reported in the event log once
+     * the log is open and the default is used.
+     */
+    private void setRuntimeProperties() {
+
+        boolean strict = database.urlProperties.isPropertyTrue(
+            HsqlDatabaseProperties.url_check_props, false);
+
+        for (int i = 0; i < runtimeProperties.length; i++) {
+            String name  = runtimeProperties[i];
+            String value = database.urlProperties.getProperty(name);
+
+            if (value == null) {
+                continue;
+            }
+
+            boolean valid;
+
+            try {
+                valid = database.databaseProperties.setDatabaseProperty(name,
+                        value.trim());
+            } catch (NumberFormatException e) {
+                valid = false;
+            }
+
+            if (!valid) {
+                HsqlException e = Error.error(ErrorCode.X_42556,
+                                              name + '=' + value);
+
+                if (strict) {
+                    throw e;
+                }
+
+                rejectedProperties.add(e);
+            }
+        }
+    }
+
+    /**
+     * Reports the runtime settings ignored by setRuntimeProperties(). This is
+     * done after the log level and the database unique name are known.
+     */
+    private void logRejectedProperties() {
+
+        for (int i = 0; i < rejectedProperties.size(); i++) {
+            logWarningEvent("property ignored",
+                            (Throwable) rejectedProperties.get(i));
+        }
+
+        rejectedProperties.clear();
     }
 
     private void setVariables() {
@@ -472,6 +554,21 @@ public class Logger {
         propMaxFreeBlocks = database.databaseProperties.getIntegerProperty(
             HsqlDatabaseProperties.hsqldb_cache_free_count);
         propMaxFreeBlocks = ArrayUtil.getTwoPowerFloor(propMaxFreeBlocks);
+        propScriptLoadThreads =
+            database.databaseProperties.getIntegerProperty(
+                HsqlDatabaseProperties.hsqldb_script_load_threads);
+        propParallelDegree = database.databaseProperties.getIntegerProperty(
+            HsqlDatabaseProperties.hsqldb_parallel_degree);
+        propPlanCacheSize = database.databaseProperties.getIntegerProperty(
+            HsqlDatabaseProperties.hsqldb_plan_cache_size);
+        propGroupCommitWait = database.databaseProperties.getIntegerProperty(
+            HsqlDatabaseProperties.hsqldb_group_commit_wait_micros);
+        propLogBinary = database.databaseProperties.isPropertyTrue(
+            HsqlDatabaseProperties.hsqldb_log_binary);
+        propCachePolicy = database.databaseProperties.getIntegerProperty(
+            HsqlDatabaseProperties.hsqldb_cache_policy);
+        propCacheWriteBack = database.databaseProperties.getIntegerProperty(
+            HsqlDatabaseProperties.hsqldb_cache_write_back);
 
         if (database.urlProperties.isPropertyTrue(
                 HsqlDatabaseProperties.hsqldb_large_data, false)) {
@@ -1001,6 +1098,24 @@ public class Logger {
         }
     }
 
+    /**
+     * Waits until the commit record written for the session has been synced
+     * to file. Called without holding any locks so that concurrent commits
+     * can be synced together.
+     */
+    public void syncCommit(Session session) {
+
+        ScriptWriterBase writer = session.logSyncWriter;
+
+        if (writer == null) {
+            return;
+        }
+
+        session.logSyncWriter = null;
+
+        writer.syncCommit(session.logSyncSequence);
+    }
+
     public synchronized void synchLog() {
 
         if (loggingEnabled) {
@@ -1123,6 +1238,39 @@ public class Logger {
         return propWriteDelay;
     }
 
+    public int getGroupCommitWait() {
+        return propGroupCommitWait;
+    }
+
+    /**
+     * Returns the number of threads used for loading the .script file, with
+     * the number of processors used when the property is 0.
+     */
+    public int getScriptLoadThreads() {
+
+        if (propScriptLoadThreads == 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        return propScriptLoadThreads;
+    }
+
+    /**
+     * Returns the default number of threads for parallel queries, 0 for the
+     * number of processors.
+     */
+    public int getParallelDegree() {
+        return propParallelDegree;
+    }
+
+    /**
+     * Returns the maximum number of entries in the shared plan cache, 0
+     * when the cache is not used.
+     */
+    public int getPlanCacheSize() {
+        return propPlanCacheSize;
+    }
+
     public int getLogSize() {
         return propLogSize;
     }
@@ -1545,6 +1693,14 @@ public class Logger {
             return String.valueOf(propCacheMaxSize / 1024);
         }
 
+        if (HsqlDatabaseProperties.hsqldb_cache_policy.equals(name)) {
+            return String.valueOf(propCachePolicy);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_cache_write_back.equals(name)) {
+            return String.valueOf(propCacheWriteBack);
+        }
+
         if (HsqlDatabaseProperties.hsqldb_default_table_type.equals(name)) {
             return database.schemaManager.getDefaultTableType()
                    == TableBase.CACHED_TABLE ? "cached"
@@ -1589,6 +1745,10 @@ public class Logger {
             return String.valueOf(propLogData);
         }
 
+        if (HsqlDatabaseProperties.hsqldb_log_binary.equals(name)) {
+            return String.valueOf(propLogBinary);
+        }
+
         if (HsqlDatabaseProperties.hsqldb_log_size.equals(name)) {
             return String.valueOf(propLogSize);
         }
@@ -1626,6 +1786,23 @@ public class Logger {
             return String.valueOf(propWriteDelay);
         }
 
+        if (HsqlDatabaseProperties.hsqldb_group_commit_wait_micros.equals(
+                name)) {
+            return String.valueOf(propGroupCommitWait);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_script_load_threads.equals(name)) {
+            return String.valueOf(propScriptLoadThreads);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_parallel_degree.equals(name)) {
+            return String.valueOf(propParallelDegree);
+        }
+
+        if (HsqlDatabaseProperties.hsqldb_plan_cache_size.equals(name)) {
+            return String.valueOf(propPlanCacheSize);
+        }
+
         if (HsqlDatabaseProperties.sql_avg_scale.equals(name)) {
             return String.valueOf(database.sqlAvgScale);
         }
@@ -34,8 +34,9 @@ package org.hsqldb.persist;
 import java.io.FileDescriptor;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
@@ -49,19 +50,25 @@ import org.hsqldb.lib.java.JavaSystem;
  * NIO version of ScaledRAFile. This class is used only for storing a CACHED
  * TABLE .data file and cannot be used for TEXT TABLE source files.
  *
- * Once the maximum data file size allowed for NIO is reached, an ordinary
- * ScaledRAFile is used for data access.
+ * The file is mapped as a list of fixed size buffers. When the file grows,
+ * new buffers are mapped for the added regions and existing buffers are
+ * kept. Only the part of the file up to the maximum mapped size is mapped.
+ * Any part of the file beyond this size, or beyond the point where a mapping
+ * could not be allocated, is accessed with ordinary file I/O.
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
  * @version  2.3.0
  * @since 1.8.0.5
  */
-final class RAFileNIO implements RandomAccessInterface {
+final class RAFileNIO
+implements RandomAccessInterface, RandomAccessPositional {
 
     private final Database   database;
     private final boolean    readOnly;
     private final long       maxLength;
     private long             fileLength;
+    private long             mappedLength;
+    private boolean          mapFailed;
     private RandomAccessFile file;
     private FileDescriptor   fileDescriptor;
     private MappedByteBuffer buffer;
@@ -70,6 +77,7 @@ final class RAFileNIO implements RandomAccessInterface {
     private long             currentPosition;
     private FileChannel      channel;
     private boolean          buffersModified;
+    private final ByteBuffer valueBuffer = ByteBuffer.allocate(8);
 
     //
     private MappedByteBuffer buffers[] = new MappedByteBuffer[]{};
@@ -83,11 +91,23 @@ final class RAFileNIO implements RandomAccessInterface {
     static final long largeBufferMask = 0xffffffffffffffffl
                                         << largeBufferScale;
 
+    //
+    private static final int UNMAP_NONE    = 0;
+    private static final int UNMAP_UNSAFE  = 1;
+    private static final int UNMAP_CLEANER = 2;
+    private static int       unmapMode;
+    private static Object    unmapTarget;
+    private static Method    unmapMethod;
+
+    static {
+        initUnmap();
+    }
+
     RAFileNIO(Database database, String name, boolean readOnly,
                     long requiredLength, long maxLength) throws IOException {
 
         this.database  = database;
-        this.maxLength = maxLength;
+        this.maxLength = maxLength & largeBufferMask;
 
         java.io.File tempFile = new java.io.File(name);
 
@@ -98,9 +118,11 @@ final class RAFileNIO implements RandomAccessInterface {
                 requiredLength = tempFile.length();
             }
 
-            requiredLength =
-                RAFile.getBinaryNormalisedCeiling(requiredLength,
-                    largeBufferScale);
+            if (requiredLength <= this.maxLength) {
+                requiredLength =
+                    RAFile.getBinaryNormalisedCeiling(requiredLength,
+                        largeBufferScale);
+            }
         }
 
         file                = new RandomAccessFile(name, readOnly ? "r"
@@ -108,8 +130,9 @@ final class RAFileNIO implements RandomAccessInterface {
         this.readOnly       = readOnly;
         this.channel        = file.getChannel();
         this.fileDescriptor = file.getFD();
+        this.fileLength     = file.length();
 
-        if (ensureLength(requiredLength)) {
+        if (ensureLength(requiredLength) && buffers.length > 0) {
             buffer          = buffers[0];
             bufferLength    = buffer.limit();
             bufferPosition  = 0;
@@ -148,7 +171,6 @@ final class RAFileNIO implements RandomAccessInterface {
 
         try {
             positionBufferSeek(newPos);
-            buffer.position((int) (newPos - bufferPosition));
         } catch (IllegalArgumentException e) {
             database.logger.logWarningEvent(JVM_ERROR, e);
 
@@ -184,9 +206,19 @@ final class RAFileNIO implements RandomAccessInterface {
     public int read() throws IOException {
 
         try {
-            int value = buffer.get();
+            int value;
+
+            if (currentPosition >= mappedLength) {
+                file.seek(currentPosition);
 
-            positionBufferMove(1);
+                value = file.read();
+
+                currentPosition++;
+            } else {
+                value = buffer.get();
+
+                positionBufferMove(1);
+            }
 
             return value;
         } catch (Throwable e) {
@@ -205,7 +237,16 @@ final class RAFileNIO implements RandomAccessInterface {
     public void read(byte[] b, int offset, int length) throws IOException {
 
         try {
-            while (true) {
+            while (length > 0) {
+                if (currentPosition >= mappedLength) {
+                    file.seek(currentPosition);
+                    file.readFully(b, offset, length);
+
+                    currentPosition += length;
+
+                    break;
+                }
+
                 long transferLength = bufferPosition + bufferLength
                                       - currentPosition;
 
@@ -218,10 +259,54 @@ final class RAFileNIO implements RandomAccessInterface {
 
                 length -= transferLength;
                 offset += transferLength;
+            }
+        } catch (Throwable t) {
+            database.logger.logWarningEvent(JVM_ERROR, t);
+
+            IOException io = JavaSystem.toIOException(t);
+
+            throw io;
+        }
+    }
+
+    public boolean isPositionalRead() {
+        return true;
+    }
+
+    /**
+     * Reads through duplicates of the mapped buffers so that the position of
+     * the shared buffers is not changed. The unmapped part of the file is
+     * read with the file lock held.
+     */
+    public void read(long position, byte[] b, int offset,
+                     int length) throws IOException {
+
+        try {
+            while (length > 0) {
+                if (position >= mappedLength) {
+                    synchronized (file) {
+                        file.seek(position);
+                        file.readFully(b, offset, length);
+                    }
 
-                if (length == 0) {
                     break;
                 }
+
+                int bufferIndex    = (int) (position >> largeBufferScale);
+                int bufferOffset   = (int) (position & ~largeBufferMask);
+                ByteBuffer source  = buffers[bufferIndex].duplicate();
+                int transferLength = source.limit() - bufferOffset;
+
+                if (transferLength > length) {
+                    transferLength = length;
+                }
+
+                source.position(bufferOffset);
+                source.get(b, offset, transferLength);
+
+                position += transferLength;
+                offset   += transferLength;
+                length   -= transferLength;
             }
         } catch (Throwable t) {
             database.logger.logWarningEvent(JVM_ERROR, t);
@@ -235,11 +320,19 @@ final class RAFileNIO implements RandomAccessInterface {
     public int readInt() throws IOException {
 
         try {
-            int value = buffer.getInt();
+            if (currentPosition + 4 <= bufferPosition + bufferLength) {
+                int value = buffer.getInt();
 
-            positionBufferMove(4);
+                positionBufferMove(4);
 
-            return value;
+                return value;
+            }
+
+            read(valueBuffer.array(), 0, 4);
+
+            return valueBuffer.getInt(0);
+        } catch (IOException e) {
+            throw e;
         } catch (Throwable t) {
             database.logger.logWarningEvent(JVM_ERROR, t);
 
@@ -252,11 +345,19 @@ final class RAFileNIO implements RandomAccessInterface {
     public long readLong() throws IOException {
 
         try {
-            long value = buffer.getLong();
+            if (currentPosition + 8 <= bufferPosition + bufferLength) {
+                long value = buffer.getLong();
 
-            positionBufferMove(8);
+                positionBufferMove(8);
 
-            return value;
+                return value;
+            }
+
+            read(valueBuffer.array(), 0, 8);
+
+            return valueBuffer.getLong(0);
+        } catch (IOException e) {
+            throw e;
         } catch (Throwable t) {
             database.logger.logWarningEvent(JVM_ERROR, t);
 
@@ -269,9 +370,22 @@ final class RAFileNIO implements RandomAccessInterface {
     public void write(byte[] b, int offset, int length) throws IOException {
 
         try {
-            buffersModified = true;
+            while (length > 0) {
+                if (currentPosition >= mappedLength) {
+                    file.seek(currentPosition);
+                    file.write(b, offset, length);
+
+                    currentPosition += length;
+
+                    if (currentPosition > fileLength) {
+                        fileLength = currentPosition;
+                    }
+
+                    break;
+                }
+
+                buffersModified = true;
 
-            while (true) {
                 long transferLength = bufferPosition + bufferLength
                                       - currentPosition;
 
@@ -284,10 +398,6 @@ final class RAFileNIO implements RandomAccessInterface {
 
                 length -= transferLength;
                 offset += transferLength;
-
-                if (length == 0) {
-                    break;
-                }
             }
         } catch (Throwable t) {
             database.logger.logWarningEvent(JVM_ERROR, t);
@@ -301,10 +411,19 @@ final class RAFileNIO implements RandomAccessInterface {
     public void writeInt(int i) throws IOException {
 
         try {
-            buffersModified = true;
+            if (currentPosition + 4 <= bufferPosition + bufferLength) {
+                buffersModified = true;
+
+                buffer.putInt(i);
+                positionBufferMove(4);
 
-            buffer.putInt(i);
-            positionBufferMove(4);
+                return;
+            }
+
+            valueBuffer.putInt(0, i);
+            write(valueBuffer.array(), 0, 4);
+        } catch (IOException e) {
+            throw e;
         } catch (Throwable t) {
             database.logger.logWarningEvent(JVM_ERROR, t);
 
@@ -317,10 +436,19 @@ final class RAFileNIO implements RandomAccessInterface {
     public void writeLong(long i) throws IOException {
 
         try {
-            buffersModified = true;
+            if (currentPosition + 8 <= bufferPosition + bufferLength) {
+                buffersModified = true;
 
-            buffer.putLong(i);
-            positionBufferMove(8);
+                buffer.putLong(i);
+                positionBufferMove(8);
+
+                return;
+            }
+
+            valueBuffer.putLong(0, i);
+            write(valueBuffer.array(), 0, 8);
+        } catch (IOException e) {
+            throw e;
         } catch (Throwable t) {
             database.logger.logWarningEvent(JVM_ERROR, t);
 
@@ -334,7 +462,8 @@ final class RAFileNIO implements RandomAccessInterface {
 
         try {
             database.logger.logDetailEvent("NIO file close, size: "
-                                           + fileLength);
+                                           + fileLength + " mapped: "
+                                           + mappedLength);
 
             buffer  = null;
             channel = null;
@@ -346,8 +475,6 @@ final class RAFileNIO implements RandomAccessInterface {
             }
 
             file.close();
-
-            // System.gc();
         } catch (Throwable t) {
             database.logger.logWarningEvent("NIO buffer close error", t);
 
@@ -361,54 +488,94 @@ final class RAFileNIO implements RandomAccessInterface {
         return readOnly;
     }
 
+    /**
+     * Maps new buffers up to the smaller of newLength and the maximum mapped
+     * size, then extends the file if newLength is larger than the mapped
+     * part.
+     */
     public boolean ensureLength(long newLength) {
 
-        if (newLength > maxLength) {
+        long mapLength = newLength < maxLength ? newLength
+                                               : maxLength;
+
+        while (mappedLength < mapLength && !mapFailed) {
+            if (!mapBuffer()) {
+                mapFailed = true;
+            }
+        }
+
+        if (newLength <= fileLength) {
+            return true;
+        }
+
+        if (readOnly) {
             return false;
         }
 
-        while (newLength > fileLength) {
-            if (!enlargeFile(newLength)) {
-                return false;
-            }
+        try {
+            file.setLength(newLength);
+
+            fileLength = newLength;
+
+            database.logger.logDetailEvent("NIO file enlarged, file size "
+                                           + fileLength + " mapped "
+                                           + mappedLength);
+        } catch (Throwable t) {
+            database.logger.logWarningEvent("NIO file enlarge failed", t);
+
+            return false;
         }
 
         return true;
     }
 
-    private boolean enlargeFile(long newFileLength) {
+    /**
+     * Maps the next region of the file. In read-write mode each region has
+     * the fixed buffer size and the file is extended if necessary. In
+     * read-only mode the last region ends at the end of the file.
+     */
+    private boolean mapBuffer() {
 
-        try {
-            long newBufferLength = newFileLength;
+        long newBufferLength = largeBufferSize;
 
-            if (!readOnly) {
-                newBufferLength = largeBufferSize;
-            }
+        if (readOnly && fileLength - mappedLength < newBufferLength) {
+            newBufferLength = fileLength - mappedLength;
+        }
 
+        if (mappedLength + newBufferLength > maxLength) {
+            return false;
+        }
+
+        try {
             MapMode mapMode = readOnly ? FileChannel.MapMode.READ_ONLY
                                        : FileChannel.MapMode.READ_WRITE;
 
-            if (!readOnly && file.length() < fileLength + newBufferLength) {
-                file.seek(fileLength + newBufferLength - 1);
+            if (!readOnly
+                    && file.length() < mappedLength + newBufferLength) {
+                file.seek(mappedLength + newBufferLength - 1);
                 file.writeByte(0);
             }
 
             MappedByteBuffer[] newBuffers =
                 new MappedByteBuffer[buffers.length + 1];
-            MappedByteBuffer newBuffer = channel.map(mapMode, fileLength,
+            MappedByteBuffer newBuffer = channel.map(mapMode, mappedLength,
                 newBufferLength);
 
             System.arraycopy(buffers, 0, newBuffers, 0, buffers.length);
 
             newBuffers[buffers.length] = newBuffer;
             buffers                    = newBuffers;
-            fileLength                 += newBufferLength;
+            mappedLength               += newBufferLength;
+
+            if (fileLength < mappedLength) {
+                fileLength = mappedLength;
+            }
 
             database.logger.logDetailEvent("NIO buffer instance, file size "
                                            + fileLength);
         } catch (Throwable e) {
             database.logger.logDetailEvent(
-                "NOI buffer allocate failed, file size " + newFileLength);
+                "NIO buffer allocate failed, file size " + fileLength);
 
             return false;
         }
@@ -419,7 +586,7 @@ final class RAFileNIO implements RandomAccessInterface {
     public boolean setLength(long newLength) {
 
         if (newLength > fileLength) {
-            return enlargeFile(newLength);
+            return ensureLength(newLength);
         } else {
             try {
                 seek(0);
@@ -480,16 +647,25 @@ final class RAFileNIO implements RandomAccessInterface {
         }
     }
 
+    /**
+     * Positions in the unmapped part of the file leave the current buffer
+     * unchanged, so that bufferPosition + bufferLength is always less than or
+     * equal to currentPosition.
+     */
     private void positionBufferSeek(long offset) {
 
+        currentPosition = offset;
+
+        if (offset >= mappedLength) {
+            return;
+        }
+
         if (offset < bufferPosition
                 || offset >= bufferPosition + bufferLength) {
             setCurrentBuffer(offset);
         }
 
         buffer.position((int) (offset - bufferPosition));
-
-        currentPosition = offset;
     }
 
     private void positionBufferMove(int relOffset) {
@@ -497,54 +673,80 @@ final class RAFileNIO implements RandomAccessInterface {
         long offset = currentPosition + relOffset;
 
         if (offset >= bufferPosition + bufferLength) {
-            setCurrentBuffer(offset);
+            positionBufferSeek(offset);
+        } else {
+            currentPosition = offset;
         }
-
-        buffer.position((int) (offset - bufferPosition));
-
-        currentPosition = offset;
     }
 
     private void setCurrentBuffer(long offset) {
 
         int bufferIndex = (int) (offset >> largeBufferScale);
 
-        // when moving to last position in file
-        if (bufferIndex == buffers.length) {
-            bufferIndex    = buffers.length - 1;
-            bufferPosition = largeBufferSize;
-            buffer         = buffers[bufferIndex];
-
-            return;
-        }
-
         buffer         = buffers[bufferIndex];
-        bufferPosition = offset &= largeBufferMask;
+        bufferPosition = offset & largeBufferMask;
+        bufferLength   = buffer.limit();
     }
 
     /**
      * Non-essential unmap method - see http://bugs.sun.com/view_bug.do?bug_id=4724038
      * reported by joel_turkel at users.sourceforge.net
+     *
+     * The method used depends on the JVM and is resolved once. If no method
+     * is available, the buffer is released when it is garbage collected.
      */
-    private void unmap(MappedByteBuffer buffer) throws IOException {
+    private static void initUnmap() {
+
+        try {
+            Class unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method method = unsafeClass.getMethod("invokeCleaner",
+                                                  ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+
+            field.setAccessible(true);
+
+            unmapTarget = field.get(null);
+            unmapMethod = method;
+            unmapMode   = UNMAP_UNSAFE;
+
+            return;
+        } catch (Throwable t) {}
+
+        try {
+            Class directBufferClass = Class.forName("sun.nio.ch.DirectBuffer");
+
+            unmapMethod = directBufferClass.getMethod("cleaner");
+            unmapMode   = UNMAP_CLEANER;
+        } catch (Throwable t) {
+            unmapMode = UNMAP_NONE;
+        }
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
 
         if (buffer == null) {
             return;
         }
 
         try {
-            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            switch (unmapMode) {
 
-            cleanerMethod.setAccessible(true);
+                case UNMAP_UNSAFE :
+                    unmapMethod.invoke(unmapTarget, buffer);
+                    break;
 
-            Object cleaner     = cleanerMethod.invoke(buffer);
-            Method clearMethod = cleaner.getClass().getMethod("clean");
+                case UNMAP_CLEANER : {
+                    Object cleaner = unmapMethod.invoke(buffer);
 
-            clearMethod.invoke(cleaner);
-        } catch (InvocationTargetException e) {}
-        catch (NoSuchMethodException e) {
+                    if (cleaner != null) {
+                        cleaner.getClass().getMethod("clean").invoke(cleaner);
+                    }
 
-            // Means we're not dealing with a Sun JVM?
+                    break;
+                }
+                case UNMAP_NONE :
+                default :
+            }
         } catch (Throwable e) {}
     }
 }
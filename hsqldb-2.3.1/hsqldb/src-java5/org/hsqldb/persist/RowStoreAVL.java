@@ -43,6 +43,7 @@ import org.hsqldb.RowAction;
 import org.hsqldb.Session;
 import org.hsqldb.Table;
 import org.hsqldb.TableBase;
+import org.hsqldb.TableStatistics;
 import org.hsqldb.TransactionManager;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
@@ -76,6 +77,9 @@ public abstract class RowStoreAVL implements PersistentStore {
     double[][]                searchCost;
     boolean                   isSchemaStore;
 
+    // rows are added to the primary index only, while loading the .script
+    volatile boolean deferIndexes;
+
     // for result tables
     // for INFORMATION SCHEMA tables
     private long timestamp;
@@ -208,10 +212,12 @@ public abstract class RowStoreAVL implements PersistentStore {
 
     public void indexRow(Session session, Row row) {
 
-        int i = 0;
+        int i     = 0;
+        int limit = deferIndexes ? 1
+                                 : indexList.length;
 
         try {
-            for (; i < indexList.length; i++) {
+            for (; i < limit; i++) {
                 indexList[i].insert(session, this, row);
             }
 
@@ -272,10 +278,51 @@ public abstract class RowStoreAVL implements PersistentStore {
             Row row = it.getNextRow();
 
             ((RowAVL) row).clearNonPrimaryNodes();
+        }
 
-            for (int i = 1; i < indexList.length; i++) {
-                indexList[i].insert(session, this, row);
-            }
+        for (int i = 1; i < indexList.length; i++) {
+            buildIndex(session, indexList[i]);
+        }
+    }
+
+    /**
+     * When set, indexRow() inserts into the primary index only. The other
+     * indexes are then built with indexRows(Session, int) before the store
+     * is used for anything other than inserts.
+     */
+    public final void setDeferIndexes(boolean mode) {
+        deferIndexes = mode;
+    }
+
+    /**
+     * Builds the index at the given position from the rows of the primary
+     * index. Different indexes of the store can be built concurrently by
+     * separate threads.
+     */
+    public final void indexRows(Session session, int position) {
+        buildIndex(session, indexList[position]);
+    }
+
+    /**
+     * Builds an index other than the primary index from the rows of the
+     * primary index. A sorted bulk build is used when possible, otherwise
+     * the rows are inserted one by one. The nodes of the rows for the index
+     * must not be linked to other nodes.
+     */
+    final void buildIndex(Session session, Index index) {
+
+        setAccessor(index, null);
+
+        if (((IndexAVL) index).insertSorted(session, this, indexList[0])) {
+            return;
+        }
+
+        RowIterator it = indexList[0].firstRow(this);
+
+        while (it.hasNext()) {
+            Row row = it.getNextRow();
+
+            index.insert(session, this, row);
         }
     }
 
@@ -391,6 +438,16 @@ public abstract class RowStoreAVL implements PersistentStore {
             return 1;
         }
 
+        TableStatistics statistics = table.getStatistics();
+
+        if (statistics != null) {
+            double rows = statistics.getIndexEqualRows(index, count);
+
+            if (rows >= 0) {
+                return rows;
+            }
+        }
+
         int position = index.getPosition();
 
         if (searchCost == null || searchCost.length <= position) {
@@ -480,6 +537,13 @@ public abstract class RowStoreAVL implements PersistentStore {
             oldtype = ((Table) other.getTable()).getColumnTypes()[colindex];
         }
 
+        // the other indexes are built after all the rows are added
+        boolean defer = indexList.length > 1 && !deferIndexes;
+
+        if (defer) {
+            deferIndexes = true;
+        }
+
         try {
             Table       table = (Table) this.table;
             RowIterator it    = other.rowIterator();
@@ -513,6 +577,14 @@ public abstract class RowStoreAVL implements PersistentStore {
                 indexRow(session, newrow);
             }
 
+            if (defer) {
+                deferIndexes = false;
+
+                for (int i = 1; i < indexList.length; i++) {
+                    buildIndex(session, indexList[i]);
+                }
+            }
+
             if (table.isTemp()) {
                 return;
             }
@@ -546,6 +618,10 @@ public abstract class RowStoreAVL implements PersistentStore {
             }
         } catch (java.lang.OutOfMemoryError e) {
             throw Error.error(ErrorCode.OUT_OF_MEMORY);
+        } finally {
+            if (defer) {
+                deferIndexes = false;
+            }
         }
     }
 
@@ -553,6 +629,10 @@ public abstract class RowStoreAVL implements PersistentStore {
 
         setAccessor(index, null);
 
+        if (((IndexAVL) index).insertSorted(session, this, indexList[0])) {
+            return;
+        }
+
         RowIterator it = table.rowIterator(this);
 
         while (it.hasNext()) {
@@ -603,13 +683,11 @@ public abstract class RowStoreAVL implements PersistentStore {
 
                 ((RowAVL) row).insertNode(position);
 
-                // count before inserting
                 rowCount++;
-
-                newIndex.insert(session, this, row);
             }
 
             it.release();
+            buildIndex(session, newIndex);
 
             return true;
         } catch (java.lang.OutOfMemoryError e) {
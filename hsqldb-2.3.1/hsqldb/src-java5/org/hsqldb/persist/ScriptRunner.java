@@ -52,6 +52,7 @@ import org.hsqldb.lib.StopWatch;
 import org.hsqldb.map.ValuePool;
 import org.hsqldb.result.Result;
 import org.hsqldb.scriptio.ScriptReaderBase;
+import org.hsqldb.scriptio.ScriptReaderBinaryLog;
 import org.hsqldb.scriptio.ScriptReaderDecode;
 import org.hsqldb.scriptio.ScriptReaderText;
 import org.hsqldb.types.Type;
@@ -100,7 +101,12 @@ public class ScriptRunner {
 
         try {
             if (crypto == null) {
-                scr = new ScriptReaderText(database, logFilename, false);
+                if (ScriptReaderBinaryLog.isBinaryLog(database,
+                                                      logFilename)) {
+                    scr = new ScriptReaderBinaryLog(database, logFilename);
+                } else {
+                    scr = new ScriptReaderText(database, logFilename, false);
+                }
             } else {
                 scr = new ScriptReaderDecode(database, logFilename, crypto,
                                              true);
@@ -259,6 +265,12 @@ public class ScriptRunner {
 
                         break;
                     }
+                    case ScriptReaderBase.SEQUENCE_STATEMENT : {
+                        scr.getCurrentSequence().setCurrentValueNoCheck(
+                            scr.getSequenceValue());
+
+                        break;
+                    }
                     case ScriptReaderBase.SESSION_ID : {
                         break;
                     }
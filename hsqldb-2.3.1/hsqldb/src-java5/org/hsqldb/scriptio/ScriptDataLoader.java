@@ -0,0 +1,447 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.scriptio;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.hsqldb.Database;
+import org.hsqldb.HsqlException;
+import org.hsqldb.Session;
+import org.hsqldb.Table;
+import org.hsqldb.error.Error;
+import org.hsqldb.error.ErrorCode;
+import org.hsqldb.lib.HashMap;
+import org.hsqldb.lib.HsqlArrayList;
+import org.hsqldb.lib.IntKeyHashMap;
+import org.hsqldb.persist.PersistentStore;
+import org.hsqldb.persist.RowStoreAVL;
+import org.hsqldb.persist.RowStoreAVLMemory;
+import org.hsqldb.rowio.RowInputTextLog;
+import org.hsqldb.types.Type;
+
+/**
+ * Pipelined loading of the INSERT statements of a .script file.<p>
+ *
+ * The reading thread passes the lines to this object, which groups them into
+ * batches for each table. A pool of threads decodes the batches. The rows of
+ * each table are inserted in the order of the file by whichever thread
+ * completes the next batch for the table, so different tables are loaded
+ * concurrently.<p>
+ *
+ * For MEMORY tables, the rows are added to the primary index only. The other
+ * indexes are built when all the rows have been loaded, each index by a
+ * separate task.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+final class ScriptDataLoader {
+
+    static final int batchSize = 1024;
+
+    final Database        database;
+    final Session         session;
+    final ExecutorService executor;
+    final int             maxPendingTasks;
+    final ThreadLocal     rowInLocal = new ThreadLocal();
+    final HashMap         loadMap    = new HashMap();
+    final HsqlArrayList   loadList   = new HsqlArrayList();
+
+    // used for inserts into stores that are not MEMORY
+    final Object cachedInsertLock = new Object();
+
+    // accessed by the reading thread only
+    TableLoad currentLoad;
+    String[]  lines;
+    int       lineCount;
+    int       firstLineNumber;
+
+    // guarded by this
+    int       pendingTasks;
+    Throwable error;
+
+    ScriptDataLoader(Database database, Session session, int threads) {
+
+        this.database   = database;
+        this.session    = session;
+        maxPendingTasks = threads * 4;
+        executor        = Executors.newFixedThreadPool(threads,
+                new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+
+                Thread thread = new Thread(r, "HSQLDB Script Loader");
+
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Sets the table for the lines that follow.
+     */
+    void setTable(Table table) {
+
+        if (currentLoad != null && currentLoad.table == table) {
+            return;
+        }
+
+        submitBatch();
+
+        currentLoad = (TableLoad) loadMap.get(table);
+
+        if (currentLoad == null) {
+            currentLoad = new TableLoad(table);
+
+            loadMap.put(table, currentLoad);
+            loadList.add(currentLoad);
+        }
+    }
+
+    /**
+     * Adds an INSERT statement for the current table.
+     */
+    void addLine(String line, int lineNumber) {
+
+        if (lines == null) {
+            lines           = new String[batchSize];
+            lineCount       = 0;
+            firstLineNumber = lineNumber;
+        }
+
+        lines[lineCount++] = line;
+
+        if (lineCount == batchSize) {
+            submitBatch();
+        }
+    }
+
+    /**
+     * Waits for all the rows to be inserted, then builds the deferred indexes.
+     * Throws the first exception thrown by any task.
+     */
+    void finish() {
+
+        submitBatch();
+        waitForTasks(0);
+
+        for (int i = 0; i < loadList.size(); i++) {
+            TableLoad load = (TableLoad) loadList.get(i);
+
+            if (!load.deferIndexes) {
+                continue;
+            }
+
+            RowStoreAVL store      = (RowStoreAVL) load.store;
+            int         indexCount = load.table.getIndexCount();
+
+            for (int j = 1; j < indexCount; j++) {
+                waitForTasks(maxPendingTasks - 1);
+                submit(new IndexTask(store, j));
+            }
+        }
+
+        waitForTasks(0);
+
+        for (int i = 0; i < loadList.size(); i++) {
+            TableLoad load = (TableLoad) loadList.get(i);
+
+            if (load.deferIndexes) {
+                ((RowStoreAVL) load.store).setDeferIndexes(false);
+            }
+        }
+    }
+
+    void close() {
+
+        executor.shutdownNow();
+
+        // leave the stores consistent for the serial code if loading failed
+        for (int i = 0; i < loadList.size(); i++) {
+            TableLoad load = (TableLoad) loadList.get(i);
+
+            if (load.deferIndexes) {
+                ((RowStoreAVL) load.store).setDeferIndexes(false);
+            }
+        }
+    }
+
+    private void submitBatch() {
+
+        if (lineCount == 0) {
+            return;
+        }
+
+        Batch batch = new Batch(currentLoad, currentLoad.batchCount++, lines,
+                                lineCount, firstLineNumber);
+
+        lines     = null;
+        lineCount = 0;
+
+        waitForTasks(maxPendingTasks - 1);
+        submit(batch);
+    }
+
+    private void submit(Runnable task) {
+
+        synchronized (this) {
+            pendingTasks++;
+        }
+
+        executor.execute(task);
+    }
+
+    private synchronized void waitForTasks(int limit) {
+
+        while (pendingTasks > limit && error == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                throw Error.error(e, ErrorCode.GENERAL_ERROR, null);
+            }
+        }
+
+        if (error != null) {
+            if (error instanceof HsqlException) {
+                throw (HsqlException) error;
+            }
+
+            throw Error.error(error, ErrorCode.GENERAL_ERROR, null);
+        }
+    }
+
+    synchronized void taskDone(int count) {
+
+        pendingTasks -= count;
+
+        notifyAll();
+    }
+
+    synchronized void setError(Throwable t) {
+
+        if (error == null) {
+            error = t;
+        }
+
+        notifyAll();
+    }
+
+    synchronized boolean hasError() {
+        return error != null;
+    }
+
+    RowInputTextLog getRowInput() {
+
+        RowInputTextLog rowIn = (RowInputTextLog) rowInLocal.get();
+
+        if (rowIn == null) {
+            rowIn = new RowInputTextLog();
+
+            rowInLocal.set(rowIn);
+        }
+
+        return rowIn;
+    }
+
+    final class TableLoad {
+
+        final Table           table;
+        final PersistentStore store;
+        final Type[]          colTypes;
+        final boolean         deferIndexes;
+
+        // accessed by the reading thread only
+        int batchCount;
+
+        // guarded by this
+        final IntKeyHashMap decodedBatches = new IntKeyHashMap();
+        int                 nextBatch;
+        boolean             isInserting;
+
+        TableLoad(Table table) {
+
+            this.table = table;
+            store      = database.persistentStoreCollection.getStore(table);
+            colTypes   = table.getColumnTypes();
+            deferIndexes = store instanceof RowStoreAVLMemory
+                           && table.getIndexCount() > 1;
+
+            if (deferIndexes) {
+                ((RowStoreAVL) store).setDeferIndexes(true);
+            }
+        }
+
+        /**
+         * Adds a decoded batch. If it is the next batch in sequence and
+         * no other thread is inserting rows into the table, inserts the
+         * batch and any following batches that have already been decoded.
+         */
+        void addBatch(Batch batch) {
+
+            synchronized (this) {
+                decodedBatches.put(batch.sequence, batch);
+
+                if (isInserting) {
+                    return;
+                }
+
+                isInserting = true;
+            }
+
+            while (true) {
+                synchronized (this) {
+                    batch = (Batch) decodedBatches.remove(nextBatch);
+
+                    if (batch == null) {
+                        isInserting = false;
+
+                        return;
+                    }
+
+                    nextBatch++;
+                }
+
+                try {
+                    if (!hasError()) {
+                        insertBatch(batch);
+                    }
+                } finally {
+                    taskDone(1);
+                }
+            }
+        }
+
+        void insertBatch(Batch batch) {
+
+            int i = 0;
+
+            try {
+                if (store.isMemory()) {
+                    for (; i < batch.count; i++) {
+                        table.insertFromScript(session, store,
+                                               batch.rows[i]);
+                    }
+                } else {
+                    synchronized (cachedInsertLock) {
+                        for (; i < batch.count; i++) {
+                            table.insertFromScript(session, store,
+                                                   batch.rows[i]);
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                setError(batch.getError(t, i));
+            }
+        }
+    }
+
+    final class Batch implements Runnable {
+
+        final TableLoad  load;
+        final int        sequence;
+        final String[]   lines;
+        final int        count;
+        final int        firstLineNumber;
+        final Object[][] rows;
+
+        Batch(TableLoad load, int sequence, String[] lines, int count,
+              int firstLineNumber) {
+
+            this.load            = load;
+            this.sequence        = sequence;
+            this.lines           = lines;
+            this.count           = count;
+            this.firstLineNumber = firstLineNumber;
+            this.rows            = new Object[count][];
+        }
+
+        public void run() {
+
+            int i = 0;
+
+            try {
+                if (!hasError()) {
+                    RowInputTextLog rowIn = getRowInput();
+
+                    for (; i < count; i++) {
+                        rowIn.setSource(lines[i]);
+
+                        rows[i]  = rowIn.readData(load.colTypes);
+                        lines[i] = null;
+                    }
+                }
+            } catch (Throwable t) {
+                setError(getError(t, i));
+            }
+
+            // the batch is counted as done once its rows are inserted
+            load.addBatch(this);
+        }
+
+        Throwable getError(Throwable t, int index) {
+
+            return Error.error(t, ErrorCode.ERROR_IN_SCRIPT_FILE,
+                               ErrorCode.M_DatabaseScriptReader_read,
+                               new Object[] {
+                new Integer(firstLineNumber + index), t.toString()
+            });
+        }
+    }
+
+    final class IndexTask implements Runnable {
+
+        final RowStoreAVL store;
+        final int         position;
+
+        IndexTask(RowStoreAVL store, int position) {
+            this.store    = store;
+            this.position = position;
+        }
+
+        public void run() {
+
+            try {
+                if (!hasError()) {
+                    store.indexRows(session, position);
+                }
+            } catch (Throwable t) {
+                setError(t);
+            } finally {
+                taskDone(1);
+            }
+        }
+    }
+}
@@ -42,6 +42,7 @@ import org.hsqldb.HsqlException;
 import org.hsqldb.Session;
 import org.hsqldb.Statement;
 import org.hsqldb.StatementTypes;
+import org.hsqldb.Table;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.lib.LineReader;
@@ -166,6 +167,17 @@ public class ScriptReaderText extends ScriptReaderBase {
             // fredt - needed for forward referencing FK constraints
             database.setReferentialIntegrity(false);
 
+            int threads = database.logger.getScriptLoadThreads();
+
+            if (threads > 1 && database.recoveryMode == 0
+                    && !database.databaseProperties.isVersion18()) {
+                readExistingDataParallel(session, threads);
+
+                database.setReferentialIntegrity(true);
+
+                return;
+            }
+
             for (; isInsert || readLoggedStatement(session);
                     isInsert = false) {
                 if (statementType == SET_SCHEMA_STATEMENT) {
@@ -210,25 +222,64 @@ public class ScriptReaderText extends ScriptReaderBase {
         }
     }
 
-    public boolean readLoggedStatement(Session session) {
+    /**
+     * The reading thread handles SET SCHEMA statements and resolves the table
+     * for each run of INSERT statements. The lines that follow with the same
+     * INSERT INTO prefix are passed to the loader without parsing.
+     */
+    private void readExistingDataParallel(Session session, int threads) {
 
-        if (!sessionChanged) {
+        ScriptDataLoader loader = new ScriptDataLoader(database, session,
+            threads);
 
-            //fredt temporary solution - should read bytes directly from buffer
-            try {
-                rawStatement = dataStreamIn.readLine();
-            } catch (EOFException e) {
-                return false;
-            } catch (IOException e) {
-                throw Error.error(e, ErrorCode.FILE_IO_ERROR, null);
+        try {
+            String prefix = null;
+
+            for (; isInsert || readStatementLine(); isInsert = false) {
+                if (prefix != null && statement.startsWith(prefix)) {
+                    loader.addLine(statement, lineCount);
+
+                    continue;
+                }
+
+                rowIn.setSource(statement);
+
+                statementType = rowIn.getStatementType();
+
+                if (statementType == SET_SCHEMA_STATEMENT) {
+                    currentSchema = rowIn.getSchemaName();
+                    prefix        = null;
+
+                    session.setSchema(currentSchema);
+
+                    continue;
+                } else if (statementType == INSERT_STATEMENT) {
+                    String schema = session.getSchemaName(currentSchema);
+                    Table table =
+                        database.schemaManager.getUserTable(session,
+                            rowIn.getTableName(), schema);
+
+                    prefix = "INSERT INTO " + table.getName().statementName
+                             + " VALUES(";
+
+                    loader.setTable(table);
+                    loader.addLine(statement, lineCount);
+                } else {
+                    throw Error.error(ErrorCode.ERROR_IN_SCRIPT_FILE,
+                                      statement);
+                }
             }
 
-            lineCount++;
+            loader.finish();
+        } finally {
+            loader.close();
+        }
+    }
 
-            //        System.out.println(lineCount);
-            statement = StringConverter.unicodeStringToString(rawStatement);
+    public boolean readLoggedStatement(Session session) {
 
-            if (statement == null) {
+        if (!sessionChanged) {
+            if (!readStatementLine()) {
                 return false;
             }
         }
@@ -238,6 +289,26 @@ public class ScriptReaderText extends ScriptReaderBase {
         return true;
     }
 
+    /**
+     * Reads the next line into rawStatement and statement without parsing.
+     */
+    boolean readStatementLine() {
+
+        try {
+            rawStatement = dataStreamIn.readLine();
+        } catch (EOFException e) {
+            return false;
+        } catch (IOException e) {
+            throw Error.error(e, ErrorCode.FILE_IO_ERROR, null);
+        }
+
+        lineCount++;
+
+        statement = StringConverter.unicodeStringToString(rawStatement);
+
+        return statement != null;
+    }
+
     void processStatement(Session session) {
 
         if (statement.startsWith("/*C")) {
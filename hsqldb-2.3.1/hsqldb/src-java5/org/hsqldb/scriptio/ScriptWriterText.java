@@ -297,7 +297,7 @@ public class ScriptWriterText extends ScriptWriterBase {
         needsSync = true;
 
         if (writeDelay == 0) {
-            sync();
+            setCommitSync(session);
         }
     }
 
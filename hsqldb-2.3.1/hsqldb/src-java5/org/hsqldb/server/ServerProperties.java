@@ -98,6 +98,7 @@ public class ServerProperties extends HsqlProperties {
     static final String sc_key_acl              = "server.acl";
     static final String sc_key_daemon           = "server.daemon";
     static final String sc_key_props            = "server.props";
+    static final String sc_key_virtual_threads  = "server.virtual_threads";
     static final String sc_key_system           = "system";
 
     // web server page defaults
@@ -316,6 +317,8 @@ public class ServerProperties extends HsqlProperties {
                  getMeta(sc_key_no_system_exit, SERVER_PROPERTY, false));
         meta.put(sc_key_daemon,
                  getMeta(sc_key_daemon, SERVER_PROPERTY, false));
+        meta.put(sc_key_virtual_threads,
+                 getMeta(sc_key_virtual_threads, SERVER_PROPERTY, false));
         meta.put(sc_key_address,
                  getMeta(sc_key_address, SERVER_PROPERTY, null));
         meta.put(sc_key_port, getMeta(sc_key_port, 0, 9001, 0, 65535));
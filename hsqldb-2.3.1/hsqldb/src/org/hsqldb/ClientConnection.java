@@ -36,16 +36,23 @@ import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.hsqldb.lib.DataOutputStream;
+import org.hsqldb.lib.DeflaterBlockOutputStream;
+import org.hsqldb.lib.HsqlDeque;
+import org.hsqldb.lib.InflaterBlockInputStream;
 import org.hsqldb.map.ValuePool;
 import org.hsqldb.navigator.RowSetNavigatorClient;
 import org.hsqldb.persist.HsqlProperties;
@@ -88,6 +95,15 @@ public class ClientConnection implements SessionInterface {
     public static final String NETWORK_COMPATIBILITY_VERSION     = "2.1.0.0";
     public static final int    NETWORK_COMPATIBILITY_VERSION_INT = -2010000;
 
+    /**
+     * Sent instead of NETWORK_COMPATIBILITY_VERSION_INT by clients that use
+     * compression. After the handshake, all the data is sent in blocks that
+     * are compressed when they are larger than the threshold. Older servers
+     * reject the connection as they do not recognise the version.
+     */
+    public static final int NETWORK_COMPRESSED_VERSION_INT = -2010001;
+    public static final int NETWORK_COMPRESSION_THRESHOLD  = 512;
+
     //
     static final int             BUFFER_SIZE = 0x1000;
     final byte[]                 mainBuffer  = new byte[BUFFER_SIZE];
@@ -95,12 +111,19 @@ public class ClientConnection implements SessionInterface {
     private Socket               socket;
     protected DataOutputStream   dataOutput;
     protected DataInputStream    dataInput;
+    private BufferedInputStream  socketInput;
     protected RowOutputInterface rowOut;
     protected RowInputBinary     rowIn;
     private Result               resultOut;
     private long                 sessionID;
     private long                 lobIDSequence = -1;
 
+    // requests sent by executeAsync() that are waiting for their response
+    static final int     maxPendingResults = 64;
+    static final int     maxPendingBytes   = 0x8000;
+    private HsqlDeque    pendingResults    = new HsqlDeque();
+    private int          pendingBytes;
+
     //
     private boolean  isReadOnlyDefault = false;
     private boolean  isAutoCommit      = true;
@@ -119,6 +142,7 @@ public class ClientConnection implements SessionInterface {
     String         database;
     boolean        isTLS;
     boolean        isTLSWrapper;
+    boolean        isCompressed;
     int            databaseID;
     String         clientPropertiesString;
     HsqlProperties clientProperties;
@@ -131,6 +155,19 @@ public class ClientConnection implements SessionInterface {
                             String database, boolean isTLS,
                             boolean isTLSWrapper, String user,
                             String password, int timeZoneSeconds) {
+        this(host, port, path, database, isTLS, isTLSWrapper, false, user,
+             password, timeZoneSeconds);
+    }
+
+    /**
+     * Establishes a connection to the server, with compression of the data
+     * if isCompressed is true.
+     */
+    public ClientConnection(String host, int port, String path,
+                            String database, boolean isTLS,
+                            boolean isTLSWrapper, boolean isCompressed,
+                            String user, String password,
+                            int timeZoneSeconds) {
 
         this.host         = host;
         this.port         = port;
@@ -138,6 +175,7 @@ public class ClientConnection implements SessionInterface {
         this.database     = database;
         this.isTLS        = isTLS;
         this.isTLSWrapper = isTLSWrapper;
+        this.isCompressed = isCompressed;
         this.zoneSeconds  = timeZoneSeconds;
         this.zoneString   = TimeZone.getDefault().getID();
 
@@ -191,11 +229,21 @@ public class ClientConnection implements SessionInterface {
 
             socket.setTcpNoDelay(true);
 
-            dataOutput = new DataOutputStream(socket.getOutputStream());
-            dataInput = new DataInputStream(
-                new BufferedInputStream(socket.getInputStream()));
+            dataOutput = new DataOutputStream(socket.getOutputStream(),
+                                              BUFFER_SIZE);
+            socketInput = new BufferedInputStream(socket.getInputStream());
+            dataInput   = new DataInputStream(socketInput);
 
             handshake();
+
+            if (isCompressed) {
+                dataOutput = new DataOutputStream(
+                    new DeflaterBlockOutputStream(
+                        socket.getOutputStream(),
+                        NETWORK_COMPRESSION_THRESHOLD), BUFFER_SIZE);
+                dataInput = new DataInputStream(
+                    new InflaterBlockInputStream(dataInput));
+            }
         } catch (Exception e) {
 
             // The details from "e" should not be thrown away here.  This is
@@ -222,6 +270,10 @@ public class ClientConnection implements SessionInterface {
             return Result.newErrorResult(Error.error(ErrorCode.X_08503));
         }
 
+        if (!pendingResults.isEmpty()) {
+            readPendingResults(null, 0);
+        }
+
         try {
             r.setSessionId(sessionID);
             r.setDatabaseId(databaseID);
@@ -233,6 +285,143 @@ public class ClientConnection implements SessionInterface {
         }
     }
 
+    /**
+     * Sends the request without waiting for the response. The server
+     * processes requests in the order they are received and sends the
+     * responses in the same order, so several requests can be sent before
+     * the first response is read.<p>
+     *
+     * The request object can be reused once this method returns. The
+     * responses are read when getResult() is called on the returned object,
+     * or before the next synchronous request is sent. The number of requests
+     * that wait for a response is limited, so that the server is never
+     * blocked by a client that is still sending.<p>
+     *
+     * Requests with LOB data are executed synchronously.
+     */
+    public synchronized PendingResult executeAsync(Result r) {
+
+        if (isClosed) {
+            return new PendingResult(
+                Result.newErrorResult(Error.error(ErrorCode.X_08503)));
+        }
+
+        if (r.getLobCount() > 0) {
+            return new PendingResult(execute(r));
+        }
+
+        while (pendingResults.size() >= maxPendingResults
+                || pendingBytes >= maxPendingBytes) {
+            readPendingResults((PendingResult) pendingResults.getFirst(), 0);
+        }
+
+        PendingResult pending = new PendingResult(null);
+
+        try {
+            r.setSessionId(sessionID);
+            r.setDatabaseId(databaseID);
+            write(r);
+
+            pending.requestSize = rowOut.size();
+
+            rowOut.reset(mainBuffer);
+            rowIn.resetRow(mainBuffer.length);
+        } catch (Throwable e) {
+            throw Error.error(ErrorCode.X_08006, e.toString());
+        }
+
+        pendingResults.add(pending);
+
+        pendingBytes += pending.requestSize;
+
+        return pending;
+    }
+
+    /**
+     * Reads the responses to pending requests in order, until the given
+     * request has its response, or all the responses have been read if
+     * the argument is null. After a failure, all pending requests get the
+     * same error result.<p>
+     *
+     * If deadline is not 0, returns when no response has started to arrive
+     * by that System.nanoTime() value. A response that has started to
+     * arrive is always read in full.
+     */
+    private void readPendingResults(PendingResult last, long deadline) {
+
+        while (!pendingResults.isEmpty()) {
+            if (last != null && last.result != null) {
+                break;
+            }
+
+            if (deadline != 0) {
+                try {
+                    if (!waitForInput(deadline)) {
+                        break;
+                    }
+                } catch (IOException e) {
+
+                    // the read below reports the failure
+                }
+            }
+
+            PendingResult pending =
+                (PendingResult) pendingResults.removeFirst();
+
+            pendingBytes -= pending.requestSize;
+
+            try {
+                pending.result = read();
+            } catch (Throwable e) {
+                Result error = Result.newErrorResult(
+                    Error.error(ErrorCode.X_08006, e.toString()));
+
+                pending.result = error;
+
+                while (!pendingResults.isEmpty()) {
+                    pending = (PendingResult) pendingResults.removeFirst();
+                    pending.result = error;
+                }
+
+                pendingBytes = 0;
+            }
+        }
+    }
+
+    /**
+     * Waits until there is data to read or the deadline is reached. Returns
+     * false if no data arrived before the deadline.
+     */
+    private boolean waitForInput(long deadline) throws IOException {
+
+        if (dataInput.available() > 0) {
+            return true;
+        }
+
+        long millis = (deadline - System.nanoTime()) / 1000000;
+
+        if (millis <= 0) {
+            return false;
+        }
+
+        int oldTimeout = socket.getSoTimeout();
+
+        socket.setSoTimeout((int) Math.min(millis, Integer.MAX_VALUE));
+        socketInput.mark(1);
+
+        try {
+            if (socketInput.read() >= 0) {
+                socketInput.reset();
+            }
+
+            return true;
+        } catch (SocketTimeoutException e) {
+            return false;
+        } finally {
+            socket.setSoTimeout(oldTimeout);
+        }
+    }
+
     public synchronized RowSetNavigatorClient getRows(long navigatorId,
             int offset, int size) {
 
@@ -250,6 +439,21 @@ public class ClientConnection implements SessionInterface {
         }
     }
 
+    /**
+     * Sends a request for a block of rows without waiting for the response.
+     * Used for reading ahead while the rows of the current block are read.
+     */
+    public synchronized PendingResult getRowsAsync(long navigatorId,
+            int offset, int size) {
+
+        resultOut.setResultType(ResultConstants.REQUESTDATA);
+        resultOut.setResultId(navigatorId);
+        resultOut.setUpdateCount(offset);
+        resultOut.setFetchSize(size);
+
+        return executeAsync(resultOut);
+    }
+
     public synchronized void closeNavigator(long navigatorId) {
 
         try {
@@ -662,8 +866,94 @@ public class ClientConnection implements SessionInterface {
         return sb.toString();
     }
 
+    /**
+     * The response to a request sent with executeAsync().
+     */
+    public final class PendingResult implements Future {
+
+        Result result;
+        int    requestSize;
+
+        PendingResult(Result result) {
+            this.result = result;
+        }
+
+        /**
+         * Returns the response, reading it and any earlier pending
+         * responses from the connection if necessary.
+         */
+        public Result getResult() {
+
+            synchronized (ClientConnection.this) {
+                if (result == null) {
+                    readPendingResults(this, 0);
+                }
+
+                return result;
+            }
+        }
+
+        /**
+         * Returns the response, or null if it has not started to arrive
+         * within the given time. Any earlier pending responses are read
+         * first, as with getResult().
+         */
+        public Result getResult(long timeout, TimeUnit unit) {
+
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+            if (deadline == 0) {
+                deadline = 1;
+            }
+
+            synchronized (ClientConnection.this) {
+                if (result == null) {
+                    readPendingResults(this, deadline);
+                }
+
+                return result;
+            }
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return false;
+        }
+
+        public boolean isDone() {
+
+            synchronized (ClientConnection.this) {
+                return result != null;
+            }
+        }
+
+        public Object get() {
+            return getResult();
+        }
+
+        /**
+         * Waits up to the given time for the response to start arriving.
+         * A response that has started to arrive is read in full.
+         */
+        public Object get(long timeout,
+                          TimeUnit unit) throws TimeoutException {
+
+            Result r = getResult(timeout, unit);
+
+            if (r == null) {
+                throw new TimeoutException();
+            }
+
+            return r;
+        }
+    }
+
     protected void handshake() throws IOException {
-        dataOutput.writeInt(NETWORK_COMPATIBILITY_VERSION_INT);
+        dataOutput.writeInt(isCompressed ? NETWORK_COMPRESSED_VERSION_INT
+                                         : NETWORK_COMPATIBILITY_VERSION_INT);
         dataOutput.flush();
     }
 }
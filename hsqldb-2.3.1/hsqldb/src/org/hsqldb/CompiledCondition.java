@@ -0,0 +1,706 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import org.hsqldb.RangeVariable.RangeIteratorMain;
+import org.hsqldb.types.Type;
+import org.hsqldb.types.Types;
+
+/**
+ * Condition tree specialised when a statement is compiled, used instead of
+ * the interpreted getValue() of the ExpressionLogical nodes.<p>
+ *
+ * AND, OR and NOT, IS [NOT] NULL of a column and comparisons between
+ * columns, constants and dynamic parameters are compiled. The comparisons
+ * are specialised on the type of the operands, so that INTEGER, BIGINT and
+ * DOUBLE values are compared as primitives and no Boolean object is
+ * created for each node. Other nodes are evaluated with getValue().<p>
+ *
+ * In batch mode, the condition is tested on a batch of rows of a range
+ * and reduces the selection of the batch. Comparisons between a column of
+ * the range and a value that does not change during the batch are then
+ * evaluated in a single loop over the rows.<p>
+ *
+ * The objects are immutable and are shared by all sessions that execute
+ * the statement.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+abstract class CompiledCondition {
+
+    static final int FALSE   = 0;
+    static final int TRUE    = 1;
+    static final int UNKNOWN = 2;
+
+    /**
+     * Returns TRUE, FALSE or UNKNOWN
+     */
+    abstract int test(Session session);
+
+    /**
+     * Tests the rows of the batch at the first count positions in selection,
+     * for the range of the iterator. Keeps the positions of the rows that
+     * pass in the same order and returns their count.
+     */
+    int testBatch(Session session, RangeIteratorMain iterator, Row[] rows,
+                  int[] selection, int count) {
+
+        int selected = 0;
+
+        for (int i = 0; i < count; i++) {
+            int pos = selection[i];
+
+            iterator.currentRow  = rows[pos];
+            iterator.currentData = rows[pos].getData();
+
+            if (test(session) == TRUE) {
+                selection[selected++] = pos;
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * Returns true if testBatch() for iterators of the range reads only
+     * the rows of the batch and values that are fixed during the execution
+     * of the statement. The method can then be called by several threads at
+     * the same time, with separate batches.
+     */
+    boolean isThreadSafe(RangeVariable range) {
+        return false;
+    }
+
+    /**
+     * Returns the compiled form of a condition, or null if no part of it
+     * can be compiled.
+     */
+    static CompiledCondition compile(Expression e) {
+
+        if (e == null || !(e instanceof ExpressionLogical)) {
+            return null;
+        }
+
+        CompiledCondition c = compileNode(e);
+
+        return c instanceof Interpreted ? null
+                                        : c;
+    }
+
+    private static CompiledCondition compileNode(Expression e) {
+
+        if (!(e instanceof ExpressionLogical)) {
+            return new Interpreted(e);
+        }
+
+        switch (e.opType) {
+
+            case OpTypes.AND :
+                return new And(compileNode(e.nodes[Expression.LEFT]),
+                               compileNode(e.nodes[Expression.RIGHT]));
+
+            case OpTypes.OR :
+                return new Or(compileNode(e.nodes[Expression.LEFT]),
+                              compileNode(e.nodes[Expression.RIGHT]));
+
+            case OpTypes.NOT :
+                return new Not(compileNode(e.nodes[Expression.LEFT]));
+
+            case OpTypes.IS_NULL :
+            case OpTypes.IS_NOT_NULL : {
+                Operand operand = getOperand(e.nodes[Expression.LEFT]);
+
+                if (operand == null) {
+                    break;
+                }
+
+                return new IsNull(operand, e.opType == OpTypes.IS_NOT_NULL);
+            }
+            case OpTypes.EQUAL :
+            case OpTypes.GREATER :
+            case OpTypes.GREATER_EQUAL :
+            case OpTypes.SMALLER_EQUAL :
+            case OpTypes.SMALLER :
+            case OpTypes.NOT_EQUAL : {
+                if (e.exprSubType == OpTypes.ANY_QUANTIFIED
+                        || e.exprSubType == OpTypes.ALL_QUANTIFIED) {
+                    break;
+                }
+
+                Type type = e.nodes[Expression.LEFT].dataType;
+
+                if (type == null || type.isArrayType() || type.isLobType()) {
+                    break;
+                }
+
+                Operand left  = getOperand(e.nodes[Expression.LEFT]);
+                Operand right = getOperand(e.nodes[Expression.RIGHT]);
+
+                if (left == null || right == null) {
+                    break;
+                }
+
+                switch (type.typeCode) {
+
+                    case Types.TINYINT :
+                    case Types.SQL_SMALLINT :
+                    case Types.SQL_INTEGER :
+                    case Types.SQL_BIGINT :
+                        return new CompareIntegral(left, right, e.opType,
+                                                   type);
+
+                    case Types.SQL_REAL :
+                    case Types.SQL_FLOAT :
+                    case Types.SQL_DOUBLE :
+                        return new CompareDouble(left, right, e.opType, type);
+
+                    default :
+                        return new Compare(left, right, e.opType, type);
+                }
+            }
+        }
+
+        return new Interpreted(e);
+    }
+
+    /**
+     * Returns an operand for a column with no type conversion, a constant or
+     * a dynamic parameter, or null for other expressions.
+     */
+    private static Operand getOperand(Expression e) {
+
+        switch (e.opType) {
+
+            case OpTypes.VALUE :
+                return new Value(e.valueData);
+
+            case OpTypes.DYNAMIC_PARAM :
+                return new Parameter(e.parameterIndex);
+
+            case OpTypes.SIMPLE_COLUMN :
+                return new SimpleColumn(e.rangePosition, e.columnIndex);
+
+            case OpTypes.COLUMN : {
+                if (!(e instanceof ExpressionColumn)) {
+                    return null;
+                }
+
+                ExpressionColumn column = (ExpressionColumn) e;
+
+                if (column.rangeVariable == null || column.column == null
+                        || column.dataType != column.column.dataType) {
+                    return null;
+                }
+
+                return new Column(column.rangeVariable, column.columnIndex);
+            }
+        }
+
+        return null;
+    }
+
+    static final class Interpreted extends CompiledCondition {
+
+        final Expression expression;
+
+        Interpreted(Expression expression) {
+            this.expression = expression;
+        }
+
+        int test(Session session) {
+
+            Object value = expression.getValue(session);
+
+            return value == null ? UNKNOWN
+                                 : ((Boolean) value).booleanValue() ? TRUE
+                                                                    : FALSE;
+        }
+    }
+
+    static final class And extends CompiledCondition {
+
+        final CompiledCondition left;
+        final CompiledCondition right;
+
+        And(CompiledCondition left, CompiledCondition right) {
+            this.left  = left;
+            this.right = right;
+        }
+
+        int test(Session session) {
+
+            int r1 = left.test(session);
+
+            if (r1 == FALSE) {
+                return FALSE;
+            }
+
+            int r2 = right.test(session);
+
+            if (r2 == FALSE) {
+                return FALSE;
+            }
+
+            return r1 == UNKNOWN || r2 == UNKNOWN ? UNKNOWN
+                                                  : TRUE;
+        }
+
+        int testBatch(Session session, RangeIteratorMain iterator,
+                      Row[] rows, int[] selection, int count) {
+
+            count = left.testBatch(session, iterator, rows, selection, count);
+
+            if (count == 0) {
+                return 0;
+            }
+
+            return right.testBatch(session, iterator, rows, selection, count);
+        }
+
+        boolean isThreadSafe(RangeVariable range) {
+            return left.isThreadSafe(range) && right.isThreadSafe(range);
+        }
+    }
+
+    static final class Or extends CompiledCondition {
+
+        final CompiledCondition left;
+        final CompiledCondition right;
+
+        Or(CompiledCondition left, CompiledCondition right) {
+            this.left  = left;
+            this.right = right;
+        }
+
+        int test(Session session) {
+
+            int r1 = left.test(session);
+
+            if (r1 == TRUE) {
+                return TRUE;
+            }
+
+            int r2 = right.test(session);
+
+            if (r2 == TRUE) {
+                return TRUE;
+            }
+
+            return r1 == UNKNOWN || r2 == UNKNOWN ? UNKNOWN
+                                                  : FALSE;
+        }
+
+        /**
+         * The right condition is tested only on the rows that fail the left
+         * one. The two selections are then merged in row order.
+         */
+        int testBatch(Session session, RangeIteratorMain iterator,
+                      Row[] rows, int[] selection, int count) {
+
+            int[] rest = new int[count];
+
+            System.arraycopy(selection, 0, rest, 0, count);
+
+            int leftCount = left.testBatch(session, iterator, rows,
+                                           selection, count);
+
+            if (leftCount == count) {
+                return count;
+            }
+
+            int restCount = 0;
+
+            for (int i = 0, j = 0; i < count; i++) {
+                if (j < leftCount && rest[i] == selection[j]) {
+                    j++;
+                } else {
+                    rest[restCount++] = rest[i];
+                }
+            }
+
+            restCount = right.testBatch(session, iterator, rows, rest,
+                                        restCount);
+
+            if (restCount == 0) {
+                return leftCount;
+            }
+
+            int[] passed = new int[leftCount];
+
+            System.arraycopy(selection, 0, passed, 0, leftCount);
+
+            int i = 0;
+            int j = 0;
+            int k = 0;
+
+            while (i < leftCount || j < restCount) {
+                if (j == restCount
+                        || (i < leftCount && passed[i] < rest[j])) {
+                    selection[k++] = passed[i++];
+                } else {
+                    selection[k++] = rest[j++];
+                }
+            }
+
+            return k;
+        }
+
+        boolean isThreadSafe(RangeVariable range) {
+            return left.isThreadSafe(range) && right.isThreadSafe(range);
+        }
+    }
+
+    static final class Not extends CompiledCondition {
+
+        final CompiledCondition operand;
+
+        Not(CompiledCondition operand) {
+            this.operand = operand;
+        }
+
+        int test(Session session) {
+
+            int r = operand.test(session);
+
+            return r == UNKNOWN ? UNKNOWN
+                                : TRUE - r;
+        }
+    }
+
+    static final class IsNull extends CompiledCondition {
+
+        final Operand operand;
+        final int     ifNull;
+
+        IsNull(Operand operand, boolean not) {
+            this.operand = operand;
+            this.ifNull  = not ? FALSE
+                               : TRUE;
+        }
+
+        int test(Session session) {
+            return operand.getValue(session) == null ? ifNull
+                                                     : TRUE - ifNull;
+        }
+
+        int testBatch(Session session, RangeIteratorMain iterator,
+                      Row[] rows, int[] selection, int count) {
+
+            if (!operand.isRangeColumn(iterator.rangeVar)) {
+                return super.testBatch(session, iterator, rows, selection,
+                                       count);
+            }
+
+            int index    = operand.getColumnIndex();
+            int selected = 0;
+
+            for (int i = 0; i < count; i++) {
+                int pos = selection[i];
+                int r   = rows[pos].getData()[index] == null ? ifNull
+                                                             : TRUE - ifNull;
+
+                if (r == TRUE) {
+                    selection[selected++] = pos;
+                }
+            }
+
+            return selected;
+        }
+
+        boolean isThreadSafe(RangeVariable range) {
+            return operand.isRangeColumn(range);
+        }
+    }
+
+    /**
+     * Comparison of any type, with the result for each sign of the
+     * comparison set when compiled.
+     */
+    static class Compare extends CompiledCondition {
+
+        final Operand left;
+        final Operand right;
+        final int     opType;
+        final Type    type;
+        final int     ifSmaller;
+        final int     ifEqual;
+        final int     ifGreater;
+
+        Compare(Operand left, Operand right, int opType, Type type) {
+
+            this.left   = left;
+            this.right  = right;
+            this.opType = opType;
+            this.type   = type;
+
+            boolean smaller = opType == OpTypes.SMALLER
+                              || opType == OpTypes.SMALLER_EQUAL
+                              || opType == OpTypes.NOT_EQUAL;
+            boolean equal = opType == OpTypes.EQUAL
+                            || opType == OpTypes.SMALLER_EQUAL
+                            || opType == OpTypes.GREATER_EQUAL;
+            boolean greater = opType == OpTypes.GREATER
+                              || opType == OpTypes.GREATER_EQUAL
+                              || opType == OpTypes.NOT_EQUAL;
+
+            ifSmaller = smaller ? TRUE
+                                : FALSE;
+            ifEqual = equal ? TRUE
+                            : FALSE;
+            ifGreater = greater ? TRUE
+                                : FALSE;
+        }
+
+        final int test(Session session) {
+
+            Object a = left.getValue(session);
+
+            if (a == null) {
+                return UNKNOWN;
+            }
+
+            Object b = right.getValue(session);
+
+            if (b == null) {
+                return UNKNOWN;
+            }
+
+            return compare(session, a, b);
+        }
+
+        final int testBatch(Session session, RangeIteratorMain iterator,
+                            Row[] rows, int[] selection, int count) {
+
+            if (!left.isRangeColumn(iterator.rangeVar)
+                    || right.isRangeColumn(iterator.rangeVar)) {
+                return super.testBatch(session, iterator, rows, selection,
+                                       count);
+            }
+
+            Object b = right.getValue(session);
+
+            if (b == null) {
+                return 0;
+            }
+
+            int index    = left.getColumnIndex();
+            int selected = 0;
+
+            for (int i = 0; i < count; i++) {
+                int    pos = selection[i];
+                Object a   = rows[pos].getData()[index];
+
+                if (a != null && compare(session, a, b) == TRUE) {
+                    selection[selected++] = pos;
+                }
+            }
+
+            return selected;
+        }
+
+        final boolean isThreadSafe(RangeVariable range) {
+            return left.isRangeColumn(range) && right.isFixed();
+        }
+
+        /**
+         * Returns the result for two values that are not null.
+         */
+        int compare(Session session, Object a, Object b) {
+            return getResult(type.compare(session, a, b, opType));
+        }
+
+        final int getResult(int compare) {
+            return compare < 0 ? ifSmaller
+                               : compare == 0 ? ifEqual
+                                              : ifGreater;
+        }
+    }
+
+    static final class CompareIntegral extends Compare {
+
+        CompareIntegral(Operand left, Operand right, int opType, Type type) {
+            super(left, right, opType, type);
+        }
+
+        int compare(Session session, Object a, Object b) {
+
+            if ((a instanceof Integer || a instanceof Long)
+                    && (b instanceof Integer || b instanceof Long)) {
+                long la = ((Number) a).longValue();
+                long lb = ((Number) b).longValue();
+
+                return la < lb ? ifSmaller
+                               : la == lb ? ifEqual
+                                          : ifGreater;
+            }
+
+            return getResult(type.compare(session, a, b, opType));
+        }
+    }
+
+    static final class CompareDouble extends Compare {
+
+        CompareDouble(Operand left, Operand right, int opType, Type type) {
+            super(left, right, opType, type);
+        }
+
+        int compare(Session session, Object a, Object b) {
+
+            if (a instanceof Double && b instanceof Double) {
+                double da = ((Double) a).doubleValue();
+                double db = ((Double) b).doubleValue();
+
+                // as NumberType.compare(), NaN is smaller than other values
+                if (da < db) {
+                    return ifSmaller;
+                }
+
+                if (da > db) {
+                    return ifGreater;
+                }
+
+                if (!Double.isNaN(da) && !Double.isNaN(db)) {
+                    return getResult(Double.compare(da, db));
+                }
+            }
+
+            return getResult(type.compare(session, a, b, opType));
+        }
+    }
+
+    abstract static class Operand {
+
+        abstract Object getValue(Session session);
+
+        /**
+         * Returns true if the operand is a column of the range.
+         */
+        boolean isRangeColumn(RangeVariable rangeVar) {
+            return false;
+        }
+
+        int getColumnIndex() {
+            return -1;
+        }
+
+        /**
+         * Returns true if the value does not change during the execution of
+         * the statement.
+         */
+        boolean isFixed() {
+            return false;
+        }
+    }
+
+    static final class Value extends Operand {
+
+        final Object value;
+
+        Value(Object value) {
+            this.value = value;
+        }
+
+        Object getValue(Session session) {
+            return value;
+        }
+
+        boolean isFixed() {
+            return true;
+        }
+    }
+
+    static final class Parameter extends Operand {
+
+        final int index;
+
+        Parameter(int index) {
+            this.index = index;
+        }
+
+        Object getValue(Session session) {
+            return session.sessionContext.dynamicArguments[index];
+        }
+
+        boolean isFixed() {
+            return true;
+        }
+    }
+
+    static final class Column extends Operand {
+
+        final RangeVariable range;
+        final int           index;
+
+        Column(RangeVariable range, int index) {
+            this.range = range;
+            this.index = index;
+        }
+
+        Object getValue(Session session) {
+            return session.sessionContext.rangeIterators[range.rangePosition]
+                .getCurrent(index);
+        }
+
+        boolean isRangeColumn(RangeVariable rangeVar) {
+            return rangeVar == range;
+        }
+
+        int getColumnIndex() {
+            return index;
+        }
+    }
+
+    static final class SimpleColumn extends Operand {
+
+        final int position;
+        final int index;
+
+        SimpleColumn(int position, int index) {
+            this.position = position;
+            this.index    = index;
+        }
+
+        Object getValue(Session session) {
+            return session.sessionContext.rangeIterators[position].getCurrent(
+                index);
+        }
+
+        boolean isRangeColumn(RangeVariable rangeVar) {
+            return rangeVar.rangePosition == position;
+        }
+
+        int getColumnIndex() {
+            return index;
+        }
+    }
+}
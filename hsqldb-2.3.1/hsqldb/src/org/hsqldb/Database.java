@@ -138,6 +138,9 @@ public class Database {
     // schema objects
     public SchemaManager schemaManager;
 
+    // shared plan cache, null when not used
+    PlanCache planCache;
+
     //
     public PersistentStoreCollectionDatabase persistentStoreCollection;
 
@@ -254,6 +257,10 @@ public class Database {
             lobManager.open();
             dbInfo.setWithContent(true);
 
+            if (logger.getPlanCacheSize() > 0) {
+                planCache = new PlanCache(this, logger.getPlanCacheSize());
+            }
+
             checkpointRunner = new CheckpointRunner();
             timeoutRunner    = new TimeoutRunner();
         } catch (Throwable e) {
@@ -298,11 +305,19 @@ public class Database {
         nameManager      = null;
         schemaManager    = null;
         sessionManager   = null;
+        planCache        = null;
         dbInfo           = null;
         checkpointRunner = null;
         timeoutRunner    = null;
     }
 
+    /**
+     *  Returns the shared plan cache, or null if it is not used.
+     */
+    public PlanCache getPlanCache() {
+        return planCache;
+    }
+
     /**
      *  Returns the database ID.
      */
@@ -396,6 +396,7 @@ public class FunctionCustom extends FunctionSQL {
 
     private int                   extractSpec;
     private Pattern               pattern;
+    private int                   simplePatternType;
     private IntKeyIntValueHashMap charLookup;
 
     public static FunctionSQL newCustomFunction(String token, int tokenType) {
@@ -1824,11 +1825,27 @@ public class FunctionCustom extends FunctionSQL {
                 }
 
                 Pattern currentPattern = pattern;
+                String  matchPattern   = (String) data[1];
 
-                if (currentPattern == null) {
-                    String matchPattern = (String) data[1];
+                if (funcType == FUNC_REGEXP_MATCHES) {
+                    int type = currentPattern == null
+                               ? getSimplePatternType(matchPattern)
+                               : simplePatternType;
+
+                    if (type != Like.SIMPLE_NONE) {
+                        Boolean match = matchesSimplePattern(matchPattern,
+                                                             type,
+                                                             (String) data[0]);
+
+                        if (match != null) {
+                            return match;
+                        }
+                    }
+                }
 
-                    currentPattern = Pattern.compile(matchPattern);
+                if (currentPattern == null) {
+                    currentPattern =
+                        session.sessionData.getPattern(matchPattern);
                 }
 
                 Matcher matcher = currentPattern.matcher((String) data[0]);
@@ -3054,10 +3071,12 @@ public class FunctionCustom extends FunctionSQL {
                     throw Error.error(ErrorCode.X_42561);
                 }
 
-                if (nodes[1].exprSubType == OpTypes.VALUE) {
+                if (nodes[1].opType == OpTypes.VALUE
+                        && nodes[1].valueData != null) {
                     String matchPattern = (String) nodes[1].getValue(session);
 
-                    pattern = Pattern.compile(matchPattern);
+                    pattern           = Pattern.compile(matchPattern);
+                    simplePatternType = getSimplePatternType(matchPattern);
                 }
 
                 switch (funcType) {
@@ -3828,4 +3847,88 @@ public class FunctionCustom extends FunctionSQL {
 
         return sb.toString();
     }
+
+    /**
+     * Returns the Like.SIMPLE_XXX type of a REGEXP_MATCHES pattern that is a
+     * literal string, with or without .* at the start or the end.
+     */
+    static int getSimplePatternType(String regex) {
+
+        int length = regex.length();
+        int start  = regex.startsWith(".*") ? 2
+                                            : 0;
+        int end    = length;
+
+        if (length - start >= 2 && regex.endsWith(".*")) {
+            end -= 2;
+        }
+
+        for (int i = start; i < end; i++) {
+            if ("\\^$.|?*+()[]{}".indexOf(regex.charAt(i)) >= 0) {
+                return Like.SIMPLE_NONE;
+            }
+        }
+
+        if (start == 0) {
+            return end == length ? Like.SIMPLE_EQUALS
+                                 : Like.SIMPLE_PREFIX;
+        } else {
+            return end == length ? Like.SIMPLE_SUFFIX
+                                 : Like.SIMPLE_CONTAINS;
+        }
+    }
+
+    /**
+     * Matches a string against a simple pattern without a regular
+     * expression. Returns null when .* must not match a line terminator in
+     * the string and the pattern must be used.
+     */
+    static Boolean matchesSimplePattern(String regex, int type, String s) {
+
+        int     literalLength = regex.length();
+        boolean match;
+
+        if (type != Like.SIMPLE_EQUALS) {
+            literalLength -= type == Like.SIMPLE_CONTAINS ? 4
+                                                          : 2;
+
+            for (int i = 0; i < s.length(); i++) {
+                switch (s.charAt(i)) {
+
+                    case '\n' :
+                    case '\r' :
+                    case '\u0085' :
+                    case '\u2028' :
+                    case '\u2029' :
+                        return null;
+                }
+            }
+        }
+
+        switch (type) {
+
+            case Like.SIMPLE_EQUALS :
+                match = s.equals(regex);
+                break;
+
+            case Like.SIMPLE_PREFIX :
+                match = s.regionMatches(0, regex, 0, literalLength);
+                break;
+
+            case Like.SIMPLE_SUFFIX :
+                match = s.regionMatches(s.length() - literalLength, regex, 2,
+                                        literalLength);
+                break;
+
+            case Like.SIMPLE_CONTAINS :
+                match = s.indexOf(regex.substring(2, 2 + literalLength)) >= 0;
+                break;
+
+            default :
+                return null;
+        }
+
+        return match ? Boolean.TRUE
+                     : Boolean.FALSE;
+    }
 }
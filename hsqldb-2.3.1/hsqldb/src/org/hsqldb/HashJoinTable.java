@@ -0,0 +1,339 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import org.hsqldb.RangeVariable.RangeIteratorMain;
+import org.hsqldb.lib.ArrayUtil;
+import org.hsqldb.navigator.RowIterator;
+import org.hsqldb.persist.PersistentStore;
+import org.hsqldb.types.TimeData;
+import org.hsqldb.types.TimestampData;
+
+/**
+ * Hash table of the rows of the inner range of a join, used for equality
+ * join conditions that cannot use an index.<p>
+ *
+ * The rows of the range are read once and hashed on the values of the key
+ * expressions. For each row of the outer ranges, the probe expressions are
+ * evaluated and only the rows with the same hash are returned. The join
+ * condition is still tested on each returned row, so the hash of a value
+ * can be coarser than the comparison of the condition, e.g. all numbers are
+ * hashed as double values and all strings without case and trailing
+ * spaces.<p>
+ *
+ * The rows of MEMORY stores are kept in the table. For other stores only the
+ * row positions are kept and the rows are read from the store when
+ * returned.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+final class HashJoinTable {
+
+    final Expression[]    keys;
+    final Expression[]    probes;
+    final PersistentStore store;
+    final boolean         isMemory;
+    final HashRowIterator iterator = new HashRowIterator();
+
+    //
+    int   rowCount;
+    int   mask;
+    int[] bucketStart;
+    int[] hashes;
+
+    // one of the two is used
+    Row[]  rows;
+    long[] positions;
+
+    //
+    int currentHash;
+
+    HashJoinTable(Expression[] keys, Expression[] probes,
+                  PersistentStore store) {
+
+        this.keys     = keys;
+        this.probes   = probes;
+        this.store    = store;
+        this.isMemory = store.isMemory();
+    }
+
+    /**
+     * Reads all the rows returned by the source and hashes the values of
+     * the key expressions. Rows with a null key value are not added as they
+     * cannot satisfy the join condition.
+     */
+    void build(Session session, RangeIteratorMain range, RowIterator source) {
+
+        int[]    tempHashes    = new int[64];
+        Row[]    tempRows      = isMemory ? new Row[64]
+                                          : null;
+        long[]   tempPositions = isMemory ? null
+                                          : new long[64];
+        int      count         = 0;
+        Row      savedRow      = range.currentRow;
+        Object[] savedData     = range.currentData;
+
+        try {
+            while (true) {
+                Row row = source.getNextRow();
+
+                if (row == null) {
+                    break;
+                }
+
+                range.currentRow  = row;
+                range.currentData = row.getData();
+
+                if (!setHash(session, keys)) {
+                    continue;
+                }
+
+                if (count == tempHashes.length) {
+                    tempHashes = (int[]) ArrayUtil.resizeArray(tempHashes,
+                            count * 2);
+
+                    if (isMemory) {
+                        tempRows = (Row[]) ArrayUtil.resizeArray(tempRows,
+                                count * 2);
+                    } else {
+                        tempPositions =
+                            (long[]) ArrayUtil.resizeArray(tempPositions,
+                                                           count * 2);
+                    }
+                }
+
+                tempHashes[count] = currentHash;
+
+                if (isMemory) {
+                    tempRows[count] = row;
+                } else {
+                    tempPositions[count] = row.getPos();
+                }
+
+                count++;
+            }
+        } finally {
+            source.release();
+
+            range.currentRow  = savedRow;
+            range.currentData = savedData;
+        }
+
+        int bucketCount = 1;
+
+        while (bucketCount < count) {
+            bucketCount <<= 1;
+        }
+
+        rowCount    = count;
+        mask        = bucketCount - 1;
+        bucketStart = new int[bucketCount + 1];
+        hashes      = new int[count];
+
+        if (isMemory) {
+            rows = new Row[count];
+        } else {
+            positions = new long[count];
+        }
+
+        for (int i = 0; i < count; i++) {
+            bucketStart[(tempHashes[i] & mask) + 1]++;
+        }
+
+        for (int i = 0; i < bucketCount; i++) {
+            bucketStart[i + 1] += bucketStart[i];
+        }
+
+        int[] next = (int[]) ArrayUtil.duplicateArray(bucketStart);
+
+        for (int i = 0; i < count; i++) {
+            int target = next[tempHashes[i] & mask]++;
+
+            hashes[target] = tempHashes[i];
+
+            if (isMemory) {
+                rows[target] = tempRows[i];
+            } else {
+                positions[target] = tempPositions[i];
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator on the rows with the same hash as the current
+     * values of the probe expressions.
+     */
+    RowIterator getIterator(Session session) {
+
+        if (setHash(session, probes)) {
+            int bucket = currentHash & mask;
+
+            iterator.reset(bucketStart[bucket], bucketStart[bucket + 1],
+                           currentHash);
+        } else {
+            iterator.reset(0, 0, 0);
+        }
+
+        return iterator;
+    }
+
+    private boolean setHash(Session session, Expression[] exprs) {
+
+        int hash = 0;
+
+        for (int i = 0; i < exprs.length; i++) {
+            Object value = exprs[i].getValue(session);
+
+            if (value == null) {
+                return false;
+            }
+
+            hash = 31 * hash + getHashCode(value);
+        }
+
+        currentHash = hash ^ (hash >>> 16);
+
+        return true;
+    }
+
+    static int getHashCode(Object value) {
+
+        if (value instanceof Number) {
+
+            // adding 0 turns -0.0 into 0.0
+            double d    = ((Number) value).doubleValue() + 0.0;
+            long   bits = Double.doubleToLongBits(d);
+
+            return (int) (bits ^ (bits >>> 32));
+        }
+
+        if (value instanceof String) {
+            String s   = (String) value;
+            int    end = s.length();
+
+            while (end > 0 && s.charAt(end - 1) == ' ') {
+                end--;
+            }
+
+            int hash = 0;
+
+            for (int i = 0; i < end; i++) {
+                char c = Character.toLowerCase(
+                    Character.toUpperCase(s.charAt(i)));
+
+                hash = 31 * hash + c;
+            }
+
+            return hash;
+        }
+
+        if (value instanceof TimestampData) {
+            TimestampData ts = (TimestampData) value;
+            long          s  = ts.getSeconds();
+
+            return (int) (s ^ (s >>> 32)) ^ ts.getNanos();
+        }
+
+        if (value instanceof TimeData) {
+            TimeData t = (TimeData) value;
+
+            return t.getSeconds() ^ t.getNanos();
+        }
+
+        return value.hashCode();
+    }
+
+    class HashRowIterator implements RowIterator {
+
+        int position;
+        int end;
+        int hash;
+        Row currentRow;
+
+        void reset(int position, int end, int hash) {
+
+            this.position = position;
+            this.end      = end;
+            this.hash     = hash;
+            currentRow    = null;
+        }
+
+        public Row getNextRow() {
+
+            while (position < end) {
+                int i = position++;
+
+                if (hashes[i] != hash) {
+                    continue;
+                }
+
+                if (isMemory) {
+                    currentRow = rows[i];
+                } else {
+                    currentRow = (Row) store.get(positions[i], false);
+                }
+
+                return currentRow;
+            }
+
+            currentRow = null;
+
+            return null;
+        }
+
+        public Object[] getNext() {
+
+            Row row = getNextRow();
+
+            return row == null ? null
+                               : row.getData();
+        }
+
+        public boolean hasNext() {
+            return position < end;
+        }
+
+        public void removeCurrent() {}
+
+        public boolean setRowColumns(boolean[] columns) {
+            return false;
+        }
+
+        public void release() {}
+
+        public long getRowId() {
+            return currentRow == null ? 0L
+                                      : currentRow.getPos();
+        }
+    }
+}
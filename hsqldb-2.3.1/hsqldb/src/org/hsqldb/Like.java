@@ -113,6 +113,19 @@ class Like implements Cloneable {
     boolean          isBinary        = false;
     Type             dataType;
 
+    // simple patterns compared with String methods
+    static final int SIMPLE_NONE     = 0;
+    static final int SIMPLE_EQUALS   = 1;
+    static final int SIMPLE_PREFIX   = 2;
+    static final int SIMPLE_SUFFIX   = 3;
+    static final int SIMPLE_CONTAINS = 4;
+    private int      simpleType;
+    private String   simpleString;
+
+    // last variable pattern, reused when the next one is the same
+    private String lastPattern;
+    private String lastEscape;
+
     Like() {}
 
     void setParams(boolean collation) {
@@ -176,6 +189,9 @@ class Like implements Cloneable {
         if (o instanceof ClobData) {
             o = ((ClobData) o).getChars(session, 0,
                                         (int) ((ClobData) o).length(session));
+        } else if (simpleType != SIMPLE_NONE && o instanceof String) {
+            return compareSimple((String) o) ? Boolean.TRUE
+                                             : Boolean.FALSE;
         }
 
         return compareAt(session, o, 0, 0, iLen, length, cLike, wildCardType)
@@ -183,6 +199,27 @@ class Like implements Cloneable {
                : Boolean.FALSE;
     }
 
+    private boolean compareSimple(String s) {
+
+        switch (simpleType) {
+
+            case SIMPLE_EQUALS :
+                return s.equals(simpleString);
+
+            case SIMPLE_PREFIX :
+                return s.startsWith(simpleString);
+
+            case SIMPLE_SUFFIX :
+                return s.endsWith(simpleString);
+
+            case SIMPLE_CONTAINS :
+                return s.indexOf(simpleString) >= 0;
+
+            default :
+                return false;
+        }
+    }
+
     char getChar(Session session, Object o, int i) {
 
         char c;
@@ -264,7 +301,18 @@ class Like implements Cloneable {
     void setPattern(Session session, Object pattern, Object escape,
                     boolean hasEscape) {
 
-        isNull = pattern == null;
+        if (isVariable && pattern instanceof String && lastPattern != null) {
+            if (pattern.equals(lastPattern)
+                    && (escape == null ? lastEscape == null
+                                       : escape.equals(lastEscape))) {
+                return;
+            }
+        }
+
+        lastPattern = null;
+        lastEscape  = null;
+        simpleType  = SIMPLE_NONE;
+        isNull      = pattern == null;
 
         if (!hasEscape) {
             escapeChar = -1;
@@ -358,6 +406,50 @@ class Like implements Cloneable {
                 wildCardType[i + 1] = PERCENT_CHAR;
             }
         }
+
+        if (!isBinary) {
+            setSimplePattern();
+        }
+
+        if (isVariable && pattern instanceof String
+                && (escape == null || escape instanceof String)) {
+            lastPattern = (String) pattern;
+            lastEscape  = (String) escape;
+        }
+    }
+
+    /**
+     * Sets the simple type when the only wildcards are a percent sign at
+     * the start or at the end of the pattern.
+     */
+    private void setSimplePattern() {
+
+        int start = 0;
+        int end   = iLen;
+
+        if (iLen > 0 && wildCardType[0] == PERCENT_CHAR) {
+            start++;
+        }
+
+        if (end > start && wildCardType[end - 1] == PERCENT_CHAR) {
+            end--;
+        }
+
+        for (int i = start; i < end; i++) {
+            if (wildCardType[i] != 0) {
+                return;
+            }
+        }
+
+        if (start == 0) {
+            simpleType = end == iLen ? SIMPLE_EQUALS
+                                     : SIMPLE_PREFIX;
+        } else {
+            simpleType = end == iLen ? SIMPLE_SUFFIX
+                                     : SIMPLE_CONTAINS;
+        }
+
+        simpleString = new String(cLike, start, end - start);
     }
 
     boolean isEquivalentToUnknownPredicate() {
@@ -419,7 +419,7 @@ public final class NumberSequence implements SchemaObject {
         increment = value;
     }
 
-    synchronized void setCurrentValueNoCheck(long value) {
+    public synchronized void setCurrentValueNoCheck(long value) {
 
         checkInTypeRange(value);
 
@@ -35,6 +35,7 @@ import org.hsqldb.HsqlNameManager.HsqlName;
 import org.hsqldb.HsqlNameManager.SimpleName;
 import org.hsqldb.ParserDQL.CompileContext;
 import org.hsqldb.RangeGroup.RangeGroupSimple;
+import org.hsqldb.RangeVariable.RangeIteratorMain;
 import org.hsqldb.RangeVariable.RangeIteratorRight;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
@@ -1460,6 +1461,12 @@ public class QuerySpecification extends QueryExpression {
             limitCount = limits[1];
         }
 
+        int topLimit = sortAndSlice.getTopLimit(session, this, limits);
+
+        if (topLimit > 0) {
+            navigator.setTopLimit(topLimit);
+        }
+
         if (this.isSimpleCount) {
             Object[] data  = new Object[indexLimitData];
             Table    table = rangeVariables[0].getTable();
@@ -1484,9 +1491,38 @@ public class QuerySpecification extends QueryExpression {
             rangeIterators[i] = rangeVariables[i].getIterator(session);
         }
 
+        // the other ranges are restarted for each row of the first one
+        if (session.getBatchRowCount() > 0 && rangeIterators.length > 0
+                && rangeIterators[0] instanceof RangeIteratorMain) {
+            ((RangeIteratorMain) rangeIterators[0]).setBatchRowCount(
+                session.getBatchRowCount());
+        }
+
+        GroupSpill   spill        = null;
+        ParallelScan parallelScan = ParallelScan.newParallelScan(session,
+            this, rangeIterators);
+
+        if (parallelScan != null) {
+            Object[] states = parallelScan.execute();
+
+            if (states != null) {
+                Object[] data = new Object[indexLimitData];
+
+                for (int i = 0; i < indexStartAggregates; i++) {
+                    if (!aggregateCheck[i]) {
+                        data[i] = exprColumns[i].getValue(session);
+                    }
+                }
+
+                System.arraycopy(states, 0, data, indexStartAggregates,
+                                 states.length);
+                navigator.add(data);
+            }
+        }
+
         session.sessionContext.rownum = 1;
 
-        for (int currentIndex = 0; ; ) {
+        for (int currentIndex = 0; parallelScan == null; ) {
             if (currentIndex < fullJoinIndex) {
 
                 // finished current span
@@ -1567,6 +1603,10 @@ public class QuerySpecification extends QueryExpression {
 
                 if (groupData != null) {
                     data = groupData;
+                } else if (spill != null) {
+                    spill.add(data);
+
+                    continue;
                 }
             }
 
@@ -1590,6 +1630,9 @@ public class QuerySpecification extends QueryExpression {
                         navigator);
 
                 result.setNavigator(navigator);
+            } else if (rowCount == session.resultMaxMemoryRows
+                       && spill == null && GroupSpill.isSupported(this)) {
+                spill = new GroupSpill(session, this, 0);
             }
 
             if (isAggregated || resultGrouped) {
@@ -1613,39 +1656,40 @@ public class QuerySpecification extends QueryExpression {
             return result;
         }
 
-        if (isAggregated) {
-            if (!resultGrouped && navigator.getSize() == 0) {
-                Object[] data = new Object[exprColumns.length];
+        if (spill != null) {
+            setAggregatedValues(session, navigator);
 
-                for (int i = 0; i < indexStartAggregates; i++) {
-                    if (!aggregateCheck[i]) {
-                        data[i] = exprColumns[i].getValue(session);
-                    }
-                }
+            RowSetNavigatorDataTable table =
+                new RowSetNavigatorDataTable(session, this);
 
-                navigator.add(data);
+            // all the rows are complete when added
+            table.store.setMemory(false);
+            navigator.reset();
+
+            while (navigator.hasNext()) {
+                table.add(navigator.getNext());
             }
 
-            navigator.reset();
-            session.sessionContext.setRangeIterator(navigator);
+            navigator.release();
+            spill.finish(table);
 
-            while (navigator.next()) {
-                Object[] data = navigator.getCurrent();
+            navigator = table;
 
-                for (int i = indexStartAggregates; i < indexLimitExpressions;
-                        i++) {
-                    data[i] = exprColumns[i].getAggregatedValue(session,
-                            data[i]);
-                }
+            result.setNavigator(navigator);
+        } else if (isAggregated) {
+            if (!resultGrouped && navigator.getSize() == 0) {
+                Object[] data = new Object[exprColumns.length];
 
                 for (int i = 0; i < indexStartAggregates; i++) {
-                    if (aggregateCheck[i]) {
+                    if (!aggregateCheck[i]) {
                         data[i] = exprColumns[i].getValue(session);
                     }
                 }
+
+                navigator.add(data);
             }
 
-            session.sessionContext.unsetRangeIterator(navigator);
+            setAggregatedValues(session, navigator);
         }
 
         navigator.reset();
@@ -1666,6 +1710,33 @@ public class QuerySpecification extends QueryExpression {
         return result;
     }
 
+    /**
+     * Replaces the SetFunction objects in the rows of the navigator with the
+     * aggregated values and evaluates the columns that contain aggregates.
+     */
+    void setAggregatedValues(Session session, RowSetNavigatorData navigator) {
+
+        navigator.reset();
+        session.sessionContext.setRangeIterator(navigator);
+
+        while (navigator.next()) {
+            Object[] data = navigator.getCurrent();
+
+            for (int i = indexStartAggregates; i < indexLimitExpressions;
+                    i++) {
+                data[i] = exprColumns[i].getAggregatedValue(session, data[i]);
+            }
+
+            for (int i = 0; i < indexStartAggregates; i++) {
+                if (aggregateCheck[i]) {
+                    data[i] = exprColumns[i].getValue(session);
+                }
+            }
+        }
+
+        session.sessionContext.unsetRangeIterator(navigator);
+    }
+
     void setReferenceableColumns() {
 
         accessibleColumns = new boolean[indexLimitVisible];
@@ -1971,6 +2042,14 @@ public class QuerySpecification extends QueryExpression {
         sb.append(b).append("isGrouped=[").append(isGrouped).append("]\n");
         sb.append(b).append("isAggregated=[").append(isAggregated).append(
             "]\n");
+
+        int parallelDegree = ParallelScan.getDegree(session, this);
+
+        if (parallelDegree > 1) {
+            sb.append(b).append("parallelDegree=[").append(
+                parallelDegree).append("]\n");
+        }
+
         sb.append(b).append("columns=[");
 
         for (int i = 0; i < indexLimitVisible; i++) {
@@ -47,6 +47,7 @@ import org.hsqldb.lib.MultiValueHashMap;
 import org.hsqldb.lib.OrderedHashSet;
 import org.hsqldb.lib.OrderedIntHashSet;
 import org.hsqldb.persist.PersistentStore;
+import org.hsqldb.types.Type;
 
 /**
  * Determines how JOIN and WHERE expressions are used in query
@@ -264,6 +265,32 @@ public class RangeVariableResolver {
         if (expandInExpression && inExpressionCount != 0) {
             setInConditionsAsTables();
         }
+
+        if (select != null) {
+            setHashJoinConditions();
+        }
+
+        compileConditions();
+    }
+
+    /**
+     * Compiles the conditions that are tested on each row of the ranges.
+     */
+    void compileConditions() {
+
+        for (int i = 0; i < rangeVariables.length; i++) {
+            RangeVariable range = rangeVariables[i];
+
+            for (int j = 0; j < range.joinConditions.length; j++) {
+                ExpressionLogical.compileCondition(
+                    range.joinConditions[j].nonIndexCondition);
+            }
+
+            for (int j = 0; j < range.whereConditions.length; j++) {
+                ExpressionLogical.compileCondition(
+                    range.whereConditions[j].nonIndexCondition);
+            }
+        }
     }
 
     /**
@@ -641,9 +668,110 @@ public class RangeVariableResolver {
             return;
         }
 
-        int           position = -1;
         RangeVariable range    = null;
-        double        cost     = 1024;
+        int           position = getStartRangeByStatistics(starts);
+
+        if (position < 0) {
+            position = getStartRangeByIndexes(starts);
+        }
+
+        if (position < 0) {
+            return;
+        }
+
+        if (position == 0 && firstLeftJoinIndex == 2) {
+            return;
+        }
+
+        RangeVariable[] newRanges = new RangeVariable[rangeVariables.length];
+
+        ArrayUtil.copyArray(rangeVariables, newRanges, rangeVariables.length);
+
+        range               = newRanges[position];
+        newRanges[position] = newRanges[0];
+        newRanges[0]        = range;
+        position            = 1;
+
+        for (; position < firstLeftJoinIndex; position++) {
+            boolean found = false;
+
+            for (int i = 0; i < joins.size(); i++) {
+                Expression e = (Expression) joins.get(i);
+
+                if (e == null) {
+                    continue;
+                }
+
+                int newPosition = getJoinedRangePosition(e, position,
+                    newRanges);
+
+                if (newPosition >= position) {
+                    range                  = newRanges[position];
+                    newRanges[position]    = newRanges[newPosition];
+                    newRanges[newPosition] = range;
+
+                    joins.set(i, null);
+
+                    found = true;
+
+                    break;
+                }
+            }
+
+            if (found) {
+                continue;
+            }
+
+            for (int i = 0; i < starts.size(); i++) {
+                Table table = newRanges[i].rangeTable;
+
+                collectIndexableColumns(newRanges[i], starts);
+
+                IndexUse[] indexes = table.getIndexForColumns(session,
+                    colIndexSetEqual, OpTypes.EQUAL, false);
+
+                if (indexes.length > 0) {
+                    found = true;
+
+                    break;
+                }
+            }
+
+            if (!found) {
+                break;
+            }
+        }
+
+        if (position != firstLeftJoinIndex) {
+            return;
+        }
+
+        ArrayUtil.copyArray(newRanges, rangeVariables, rangeVariables.length);
+        joins.clear();
+
+        for (int i = 0; i < firstLeftJoinIndex; i++) {
+            HsqlArrayList tempJoins = tempJoinExpressions[i];
+
+            joins.addAll(tempJoins);
+            tempJoins.clear();
+        }
+
+        tempJoinExpressions[firstLeftJoinIndex - 1].addAll(joins);
+        rangeVarSet.clear();
+
+        for (int i = 0; i < rangeVariables.length; i++) {
+            rangeVarSet.add(rangeVariables[i]);
+        }
+    }
+
+    /**
+     * Returns the position of the first range that has an index for the
+     * conditions, or of a later range if the index is more selective.
+     */
+    private int getStartRangeByIndexes(HsqlArrayList starts) {
+
+        int    position = -1;
+        double cost     = 1024;
 
         for (int i = 0; i < firstLeftJoinIndex; i++) {
             Table table = rangeVariables[i].rangeTable;
@@ -703,93 +831,165 @@ public class RangeVariableResolver {
             }
         }
 
-        if (position < 0) {
-            return;
-        }
+        return position;
+    }
 
-        if (position == 0 && firstLeftJoinIndex == 2) {
-            return;
+    /**
+     * Returns the position of the range with the smallest estimated number
+     * of rows read with the conditions, or -1 if a table has no statistics.
+     */
+    private int getStartRangeByStatistics(HsqlArrayList starts) {
+
+        int    position = -1;
+        double cost     = Double.MAX_VALUE;
+
+        for (int i = 0; i < firstLeftJoinIndex; i++) {
+            Table table = rangeVariables[i].rangeTable;
+
+            if (table instanceof TableDerived
+                    || table.getStatistics() == null) {
+                return -1;
+            }
+
+            double rows = getEstimatedRows(rangeVariables[i], starts);
+
+            if (rows < cost) {
+                cost     = rows;
+                position = i;
+            }
         }
 
-        RangeVariable[] newRanges = new RangeVariable[rangeVariables.length];
+        return position;
+    }
 
-        ArrayUtil.copyArray(rangeVariables, newRanges, rangeVariables.length);
+    /**
+     * Estimates the number of rows of the range that are read using an index
+     * for one of the single column conditions. Conditions on the same
+     * column that set the lower and upper bounds of the range are combined.
+     */
+    private double getEstimatedRows(RangeVariable range, HsqlList starts) {
 
-        range               = newRanges[position];
-        newRanges[position] = newRanges[0];
-        newRanges[0]        = range;
-        position            = 1;
+        Table           table      = range.rangeTable;
+        TableStatistics statistics = table.getStatistics();
+        double          rows       = statistics.getRowCount();
+        double[]        low        = new double[table.getColumnCount()];
+        double[]        high       = new double[table.getColumnCount()];
 
-        for (; position < firstLeftJoinIndex; position++) {
-            boolean found = false;
+        ArrayUtil.fillArray(high, 1);
 
-            for (int i = 0; i < joins.size(); i++) {
-                Expression e = (Expression) joins.get(i);
+        for (int i = 0; i < starts.size(); i++) {
+            Expression e = (Expression) starts.get(i);
 
-                if (e == null) {
-                    continue;
-                }
+            if (!e.isSingleColumnCondition) {
+                continue;
+            }
 
-                int newPosition = getJoinedRangePosition(e, position,
-                    newRanges);
+            Expression column = e.getLeftNode();
+            Expression value  = e.getRightNode();
+            int        opType = e.getType();
 
-                if (newPosition >= position) {
-                    range                  = newRanges[position];
-                    newRanges[position]    = newRanges[newPosition];
-                    newRanges[newPosition] = range;
+            if (value.getRangeVariable() == range) {
+                column = value;
+                value  = e.getLeftNode();
 
-                    joins.set(i, null);
+                switch (opType) {
 
-                    found = true;
+                    case OpTypes.GREATER :
+                        opType = OpTypes.SMALLER;
+                        break;
 
-                    break;
+                    case OpTypes.GREATER_EQUAL :
+                        opType = OpTypes.SMALLER_EQUAL;
+                        break;
+
+                    case OpTypes.SMALLER :
+                        opType = OpTypes.GREATER;
+                        break;
+
+                    case OpTypes.SMALLER_EQUAL :
+                        opType = OpTypes.GREATER_EQUAL;
+                        break;
                 }
+            } else if (column.getRangeVariable() != range) {
+                continue;
             }
 
-            if (found) {
+            int colIndex = column.getColumnIndex();
+
+            if (table.getIndexForColumn(session, colIndex) == null) {
                 continue;
             }
 
-            for (int i = 0; i < starts.size(); i++) {
-                Table table = newRanges[i].rangeTable;
+            switch (opType) {
 
-                collectIndexableColumns(newRanges[i], starts);
+                case OpTypes.EQUAL : {
+                    rows = Math.min(rows, statistics.getEqualRows(colIndex));
 
-                IndexUse[] indexes = table.getIndexForColumns(session,
-                    colIndexSetEqual, OpTypes.EQUAL, false);
+                    break;
+                }
+                case OpTypes.GREATER :
+                case OpTypes.GREATER_EQUAL : {
+                    double fraction = getFractionBelow(range, colIndex, value);
 
-                if (indexes.length > 0) {
-                    found = true;
+                    low[colIndex] = Math.max(low[colIndex], fraction < 0 ? 0.5
+                                                                         : fraction);
 
                     break;
                 }
-            }
+                case OpTypes.SMALLER :
+                case OpTypes.SMALLER_EQUAL : {
+                    double fraction = getFractionBelow(range, colIndex, value);
 
-            if (!found) {
-                break;
+                    high[colIndex] = Math.min(high[colIndex], fraction < 0
+                                                              ? 0.5
+                                                              : fraction);
+
+                    break;
+                }
             }
         }
 
-        if (position != firstLeftJoinIndex) {
-            return;
+        for (int i = 0; i < low.length; i++) {
+            double fraction = high[i] - low[i];
+
+            if (fraction >= 1) {
+                continue;
+            }
+
+            double nonNull = statistics.getRowCount()
+                             - statistics.getNullCount(i);
+
+            // at least one bucket when the bounds are in the same bucket
+            fraction = Math.max(fraction, 0.5 / TableStatistics.histogramSize);
+            rows     = Math.min(rows, fraction * nonNull);
         }
 
-        ArrayUtil.copyArray(newRanges, rangeVariables, rangeVariables.length);
-        joins.clear();
+        return rows;
+    }
 
-        for (int i = 0; i < firstLeftJoinIndex; i++) {
-            HsqlArrayList tempJoins = tempJoinExpressions[i];
+    /**
+     * Returns the fraction of the values of the column that are smaller than
+     * a constant value, or -1 if it cannot be estimated.
+     */
+    private double getFractionBelow(RangeVariable range, int colIndex,
+                                    Expression value) {
 
-            joins.addAll(tempJoins);
-            tempJoins.clear();
+        if (value.getType() != OpTypes.VALUE
+                || value.getDataType() == null) {
+            return -1;
         }
 
-        tempJoinExpressions[firstLeftJoinIndex - 1].addAll(joins);
-        rangeVarSet.clear();
+        Type   type = range.rangeTable.getColumnTypes()[colIndex];
+        Object data = value.getValue(session);
 
-        for (int i = 0; i < rangeVariables.length; i++) {
-            rangeVarSet.add(rangeVariables[i]);
+        try {
+            data = type.convertToType(session, data, value.getDataType());
+        } catch (HsqlException e) {
+            return -1;
         }
+
+        return range.rangeTable.getStatistics().getFractionBelow(session,
+                type, colIndex, data);
     }
 
     int getJoinedRangePosition(Expression e, int position,
@@ -1483,6 +1683,191 @@ public class RangeVariableResolver {
         }
     }
 
+    /**
+     * For each range that is scanned in full for every row of the preceding
+     * ranges, sets the equality join conditions between expressions of the
+     * range and expressions of the preceding ranges as the keys of a hash
+     * join. The conditions are kept and tested on each row found.
+     */
+    void setHashJoinConditions() {
+
+        for (int i = 1; i < rangeVariables.length; i++) {
+            RangeVariable range = rangeVariables[i];
+
+            if (range.isLateral || range.joinConditions.length != 1
+                    || range.whereConditions.length != 1) {
+                continue;
+            }
+
+            RangeVariableConditions conditions = range.joinConditions[0];
+
+            if (conditions.isFalse || conditions.nonIndexCondition == null
+                    || conditions.hasIndexCondition()
+                    || range.whereConditions[0].hasIndexCondition()) {
+                continue;
+            }
+
+            if (range.rangeTable instanceof TableDerived
+                    && ((TableDerived) range.rangeTable).isCorrelated()) {
+                continue;
+            }
+
+            HsqlArrayList keys   = new HsqlArrayList();
+            HsqlArrayList probes = new HsqlArrayList();
+
+            collectHashJoinKeys(conditions.nonIndexCondition, i, keys,
+                                probes);
+
+            if (keys.size() == 0 || isNestedLoopCheaper(i)) {
+                continue;
+            }
+
+            conditions.hashKeys   = new Expression[keys.size()];
+            conditions.hashProbes = new Expression[probes.size()];
+
+            keys.toArray(conditions.hashKeys);
+            probes.toArray(conditions.hashProbes);
+        }
+    }
+
+    /**
+     * Returns true if the statistics of the tables show that the first range
+     * returns so few rows that scanning the second table for each row costs
+     * less than building and probing a hash table.
+     */
+    private boolean isNestedLoopCheaper(int position) {
+
+        if (position != 1) {
+            return false;
+        }
+
+        Table outer = rangeVariables[0].rangeTable;
+        Table inner = rangeVariables[1].rangeTable;
+
+        if (outer instanceof TableDerived || outer.getStatistics() == null
+                || inner.getStatistics() == null) {
+            return false;
+        }
+
+        RangeVariableConditions conditions =
+            rangeVariables[0].joinConditions[0];
+
+        if (!conditions.hasIndexCondition()) {
+            conditions = rangeVariables[0].whereConditions[0];
+        }
+
+        double outerRows = outer.getStatistics().getRowCount();
+        double innerRows = inner.getStatistics().getRowCount();
+
+        if (conditions.hasIndexCondition()
+                && conditions.opType == OpTypes.EQUAL) {
+            PersistentStore store = outer.getRowStore(session);
+
+            outerRows = store.searchCost(session, conditions.rangeIndex,
+                                         conditions.indexedColumnCount,
+                                         OpTypes.EQUAL);
+        }
+
+        // building the hash table costs a few comparisons for each row
+        return outerRows * innerRows <= innerRows * 4 + outerRows;
+    }
+
+    private void collectHashJoinKeys(Expression e, int position,
+                                     HsqlList keys, HsqlList probes) {
+
+        if (e.getType() == OpTypes.AND) {
+            collectHashJoinKeys(e.getLeftNode(), position, keys, probes);
+            collectHashJoinKeys(e.getRightNode(), position, keys, probes);
+
+            return;
+        }
+
+        if (e.getType() != OpTypes.EQUAL
+                || e.exprSubType == OpTypes.ANY_QUANTIFIED
+                || e.exprSubType == OpTypes.ALL_QUANTIFIED) {
+            return;
+        }
+
+        Expression left  = e.getLeftNode();
+        Expression right = e.getRightNode();
+
+        if (!isHashJoinComparison(left.getDataType(), right.getDataType())) {
+            return;
+        }
+
+        if (isHashJoinOperand(left, position, true)
+                && isHashJoinOperand(right, position, false)) {
+            keys.add(left);
+            probes.add(right);
+        } else if (isHashJoinOperand(right, position, true)
+                   && isHashJoinOperand(left, position, false)) {
+            keys.add(right);
+            probes.add(left);
+        }
+    }
+
+    /**
+     * Returns true if the expression references only the range at the
+     * position (the key side), or only ranges before the position (the
+     * probe side), and has no subquery or non-deterministic function.
+     */
+    private boolean isHashJoinOperand(Expression e, int position,
+                                      boolean isKey) {
+
+        if (e.getType() == OpTypes.ROW || e.getSubqueries() != null
+                || e.hasNonDeterministicFunction()) {
+            return false;
+        }
+
+        OrderedHashSet set = e.collectRangeVariables(null);
+
+        if (set == null) {
+            return false;
+        }
+
+        for (int i = 0; i < set.size(); i++) {
+            int index = ArrayUtil.find(rangeVariables, set.get(i));
+
+            if (isKey ? index != position
+                      : index < 0 || index >= position) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns true if values of the two types that are equal in comparison
+     * always have the same hash code in HashJoinTable.
+     */
+    private static boolean isHashJoinComparison(Type left, Type right) {
+
+        if (left == null || right == null) {
+            return false;
+        }
+
+        if (left.isNumberType() && right.isNumberType()) {
+            return true;
+        }
+
+        if (left.isCharacterType() && right.isCharacterType()) {
+            return !left.isLobType() && !right.isLobType()
+                   && left.getCollation().isCharacterCompare()
+                   && right.getCollation().isCharacterCompare();
+        }
+
+        if (left.isBooleanType() && right.isBooleanType()) {
+            return true;
+        }
+
+        if (left.isDateTimeType() && right.isDateTimeType()) {
+            return left.typeCode == right.typeCode;
+        }
+
+        return false;
+    }
+
     /**
      * Converts an IN conditions into a JOIN
      */
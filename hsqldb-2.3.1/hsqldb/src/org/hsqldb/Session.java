@@ -65,6 +65,7 @@ import org.hsqldb.result.ResultLob;
 import org.hsqldb.result.ResultProperties;
 import org.hsqldb.rights.Grantee;
 import org.hsqldb.rights.User;
+import org.hsqldb.scriptio.ScriptWriterBase;
 import org.hsqldb.types.BlobDataID;
 import org.hsqldb.types.ClobDataID;
 import org.hsqldb.types.TimeData;
@@ -120,6 +121,7 @@ public class Session implements SessionInterface {
     final int          sessionTimeZoneSeconds;
     int                timeZoneSeconds;
     boolean            isNetwork;
+    boolean            isResultBlocks;
     private int        sessionMaxRows;
     private final long sessionId;
     int                sessionTxId = -1;
@@ -135,12 +137,18 @@ public class Session implements SessionInterface {
     public HsqlName currentSchema;
     public HsqlName loggedSchema;
 
+    // group commit
+    public ScriptWriterBase logSyncWriter;
+    public long             logSyncSequence;
+
     // query processing
     ParserCommand         parser;
     boolean               isProcessingScript;
     boolean               isProcessingLog;
     public SessionContext sessionContext;
     int                   resultMaxMemoryRows;
+    int                   batchRowCount;
+    int                   parallelDegree = -1;
 
     //
     public SessionData sessionData;
@@ -569,6 +577,7 @@ public class Session implements SessionInterface {
         }
 
         endTransaction(true, chain);
+        database.logger.syncCommit(this);
 
         if (database != null && !sessionUser.isSystem()
                 && database.logger.needsCheckpointReset()) {
@@ -1176,6 +1185,14 @@ public class Session implements SessionInterface {
         return result;
     }
 
+    /**
+     * Set for sessions of HSQL protocol connections. Large results are then
+     * sent in blocks also when the client does not set a fetch size.
+     */
+    public void setResultBlocks(boolean mode) {
+        isResultBlocks = mode;
+    }
+
     public RowSetNavigatorClient getRows(long navigatorId, int offset,
                                          int blockSize) {
         return sessionData.getRowSetSlice(navigatorId, offset, blockSize);
@@ -1200,6 +1217,15 @@ public class Session implements SessionInterface {
             sessionMaxRows                = 0;
         }
 
+        if (database.planCache != null && !isProcessingScript
+                && !isProcessingLog) {
+            Result result = database.planCache.execute(this, cmd);
+
+            if (result != null) {
+                return result;
+            }
+        }
+
         try {
             list = parser.compileStatements(sql, cmd);
         } catch (Throwable e) {
@@ -1990,6 +2016,49 @@ public class Session implements SessionInterface {
         }
     }
 
+    /**
+     * Rows read in each batch by the scans of a query, or 0 to read one
+     * row at a time.
+     */
+    public int getBatchRowCount() {
+        return batchRowCount;
+    }
+
+    public void setBatchRowCount(int count) {
+
+        if (count < 0) {
+            count = 0;
+        }
+
+        batchRowCount = count;
+    }
+
+    /**
+     * Number of threads used to scan and aggregate the rows of a large
+     * MEMORY table. The database setting applies until the session sets its
+     * own. 0 stands for the number of processors, 1 for serial execution.
+     */
+    public int getParallelDegree() {
+
+        int degree = parallelDegree < 0 ? database.logger.getParallelDegree()
+                                        : parallelDegree;
+
+        if (degree == 0) {
+            degree = Runtime.getRuntime().availableProcessors();
+        }
+
+        return degree;
+    }
+
+    public void setParallelDegree(int degree) {
+
+        if (degree < 0 || degree > 64) {
+            throw Error.error(ErrorCode.X_42556);
+        }
+
+        parallelDegree = degree;
+    }
+
     // warnings
     HsqlDeque sqlWarnings;
 
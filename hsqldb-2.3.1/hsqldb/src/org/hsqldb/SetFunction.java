@@ -34,6 +34,7 @@ package org.hsqldb;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.MathContext;
 
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
@@ -122,6 +123,18 @@ public class SetFunction implements Serializable {
                 typeCode = Types.SQL_INTERVAL;
             }
         }
+
+        switch (setType) {
+
+            case OpTypes.STDDEV_POP :
+            case OpTypes.STDDEV_SAMP :
+            case OpTypes.VAR_POP :
+            case OpTypes.VAR_SAMP :
+                exact = type.isExactNumberType();
+                break;
+
+            default :
+        }
     }
 
     void add(Session session, Object item) {
@@ -281,6 +294,131 @@ public class SetFunction implements Serializable {
         }
     }
 
+    /**
+     * Adds the values accumulated by another SetFunction of the same kind,
+     * which was used for a different set of rows. Not supported for DISTINCT
+     * and user-defined aggregates.
+     */
+    void merge(Session session, SetFunction other) {
+
+        if (isDistinct || setType == OpTypes.USER_AGGREGATE) {
+            throw Error.runtimeError(ErrorCode.U_S0500, "SetFunction");
+        }
+
+        hasNull |= other.hasNull;
+
+        if (other.count == 0) {
+            return;
+        }
+
+        count += other.count;
+
+        switch (setType) {
+
+            case OpTypes.COUNT :
+                return;
+
+            case OpTypes.AVG :
+            case OpTypes.SUM : {
+                switch (typeCode) {
+
+                    case Types.TINYINT :
+                    case Types.SQL_SMALLINT :
+                    case Types.SQL_INTEGER :
+                        currentLong += other.currentLong;
+
+                        return;
+
+                    case Types.SQL_INTERVAL :
+                    case Types.SQL_DATE :
+                    case Types.SQL_TIMESTAMP :
+                    case Types.SQL_TIMESTAMP_WITH_TIME_ZONE : {
+                        hi          += other.hi;
+                        lo          += other.lo;
+                        currentLong += other.currentLong;
+
+                        if (Math.abs(currentLong)
+                                >= DTIType.nanoScaleFactors[0]) {
+                            addLong(currentLong / DTIType.nanoScaleFactors[0]);
+
+                            currentLong %= DTIType.nanoScaleFactors[0];
+                        }
+
+                        if (typeCode != Types.SQL_INTERVAL) {
+                            currentDouble = other.currentDouble;
+                        }
+
+                        return;
+                    }
+                    case Types.SQL_BIGINT :
+                        hi += other.hi;
+                        lo += other.lo;
+
+                        return;
+
+                    case Types.SQL_REAL :
+                    case Types.SQL_FLOAT :
+                    case Types.SQL_DOUBLE :
+                        currentDouble += other.currentDouble;
+
+                        return;
+
+                    case Types.SQL_NUMERIC :
+                    case Types.SQL_DECIMAL :
+                        if (currentBigDecimal == null) {
+                            currentBigDecimal = other.currentBigDecimal;
+                        } else if (other.currentBigDecimal != null) {
+                            currentBigDecimal =
+                                currentBigDecimal.add(other.currentBigDecimal);
+                        }
+
+                        return;
+
+                    default :
+                        throw Error.error(ErrorCode.X_42563);
+                }
+            }
+            case OpTypes.MIN :
+                if (currentValue == null
+                        || type.compare(session, currentValue,
+                                        other.currentValue) > 0) {
+                    currentValue = other.currentValue;
+                }
+
+                return;
+
+            case OpTypes.MAX :
+                if (currentValue == null
+                        || type.compare(session, currentValue,
+                                        other.currentValue) < 0) {
+                    currentValue = other.currentValue;
+                }
+
+                return;
+
+            case OpTypes.EVERY :
+                every = every && other.every;
+
+                return;
+
+            case OpTypes.SOME :
+                some = some || other.some;
+
+                return;
+
+            case OpTypes.STDDEV_POP :
+            case OpTypes.STDDEV_SAMP :
+            case OpTypes.VAR_POP :
+            case OpTypes.VAR_SAMP :
+                mergeDataPoints(other);
+
+                return;
+
+            default :
+                throw Error.runtimeError(ErrorCode.U_S0500, "SetFunction");
+        }
+    }
+
     Object getValue(Session session) {
 
         if (hasNull) {
@@ -623,6 +761,20 @@ public class SetFunction implements Serializable {
     private boolean initialized;
     private boolean sample;
 
+    // low order parts of sk and vk lost when partial results are merged
+    private double skError;
+    private double vkError;
+
+    // exact sums of values and of squares for INTEGER, BIGINT and DECIMAL
+    // values smaller than 2^31 are added to the long sums first
+    static final long  smallValueLimit = 1L << 31;
+    static final long  longSumLimit    = 1L << 62;
+    private boolean    exact;
+    private long       longSum;
+    private long       longSumSquares;
+    private BigDecimal exactSum        = BigDecimal.ZERO;
+    private BigDecimal exactSumSquares = BigDecimal.ZERO;
+
     private void addDataPoint(Number x) {    // optimized
 
         double xi;
@@ -633,6 +785,12 @@ public class SetFunction implements Serializable {
             return;
         }
 
+        if (exact) {
+            addExactDataPoint(x);
+
+            return;
+        }
+
         xi = x.doubleValue();
 
         if (!initialized) {
@@ -652,15 +810,144 @@ public class SetFunction implements Serializable {
         sk  += xi;
     }
 
+    private void addExactDataPoint(Number x) {
+
+        if (x instanceof BigDecimal) {
+            BigDecimal value = (BigDecimal) x;
+
+            exactSum        = exactSum.add(value);
+            exactSumSquares = exactSumSquares.add(value.multiply(value));
+        } else {
+            long value = x.longValue();
+
+            if (value > -smallValueLimit && value < smallValueLimit) {
+                long square = value * value;
+
+                if (longSumSquares > Long.MAX_VALUE - square
+                        || longSum > longSumLimit
+                        || longSum < -longSumLimit) {
+                    addLongSums();
+                }
+
+                longSum        += value;
+                longSumSquares += square;
+            } else {
+                BigDecimal decimal = BigDecimal.valueOf(value);
+
+                exactSum        = exactSum.add(decimal);
+                exactSumSquares = exactSumSquares.add(decimal.multiply(decimal));
+            }
+        }
+
+        n++;
+
+        initialized = true;
+    }
+
+    private void addLongSums() {
+
+        exactSum        = exactSum.add(BigDecimal.valueOf(longSum));
+        exactSumSquares =
+            exactSumSquares.add(BigDecimal.valueOf(longSumSquares));
+        longSum        = 0;
+        longSumSquares = 0;
+    }
+
+    /**
+     * Combines the statistics of two sets of data points. The exact sums
+     * are added. For approximate numbers, the sums of squared deviations
+     * are combined and the additions are compensated, so that the result
+     * does not depend on how the rows were split more than a serial scan
+     * depends on the order of the rows.
+     */
+    private void mergeDataPoints(SetFunction other) {
+
+        if (!other.initialized) {
+            return;
+        }
+
+        if (exact) {
+            addLongSums();
+
+            exactSum = exactSum.add(other.exactSum).add(
+                BigDecimal.valueOf(other.longSum));
+            exactSumSquares = exactSumSquares.add(other.exactSumSquares).add(
+                BigDecimal.valueOf(other.longSumSquares));
+            n           += other.n;
+            initialized = true;
+
+            return;
+        }
+
+        if (!initialized) {
+            n           = other.n;
+            sk          = other.sk;
+            vk          = other.vk;
+            skError     = other.skError;
+            vkError     = other.vkError;
+            initialized = true;
+
+            return;
+        }
+
+        double delta = (other.sk + other.skError) / other.n
+                       - (sk + skError) / n;
+        long   total = n + other.n;
+        double deviations = other.vk + other.vkError
+                            + delta * delta * ((double) n * other.n / total);
+        double sum;
+
+        // Neumaier summation
+        sum = vk + deviations;
+        vkError += Math.abs(vk) >= Math.abs(deviations)
+                   ? (vk - sum) + deviations
+                   : (deviations - sum) + vk;
+        vk      = sum;
+        sum     = sk + other.sk;
+        skError += other.skError
+                   + (Math.abs(sk) >= Math.abs(other.sk) ? (sk - sum) + other.sk
+                                                         : (other.sk - sum)
+                                                           + sk);
+        sk = sum;
+        n  = total;
+    }
+
+    /**
+     * Returns the variance of exact values, computed from the exact sums
+     * as (n * sum of squares - sum * sum) / (n * (n - 1)) for samples or
+     * / (n * n) for populations.
+     */
+    private double getExactVariance() {
+
+        addLongSums();
+
+        BigDecimal count = BigDecimal.valueOf(n);
+        BigDecimal numerator = count.multiply(exactSumSquares).subtract(
+            exactSum.multiply(exactSum));
+        BigDecimal denominator = sample
+                                 ? count.multiply(BigDecimal.valueOf(n - 1))
+                                 : count.multiply(count);
+
+        return numerator.divide(denominator,
+                                MathContext.DECIMAL128).doubleValue();
+    }
+
     private Number getVariance() {
 
         if (!initialized) {
             return null;
         }
 
-        return sample ? (n == 1) ? null    // NULL (not NaN) is correct in this case
-                                 : new Double(vk / (double) (n - 1))
-                      : new Double(vk / (double) (n));
+        if (sample && n == 1) {
+            return null;    // NULL (not NaN) is correct in this case
+        }
+
+        if (exact) {
+            return new Double(getExactVariance());
+        }
+
+        return sample ? new Double((vk + vkError) / (double) (n - 1))
+                      : new Double((vk + vkError) / (double) (n));
     }
 
     private Number getStdDev() {
@@ -669,9 +956,16 @@ public class SetFunction implements Serializable {
             return null;
         }
 
-        return sample ? (n == 1) ? null    // NULL (not NaN) is correct in this case
-                                 : new Double(Math.sqrt(vk / (double) (n - 1)))
-                      : new Double(Math.sqrt(vk / (double) (n)));
+        if (sample && n == 1) {
+            return null;    // NULL (not NaN) is correct in this case
+        }
+
+        if (exact) {
+            return new Double(Math.sqrt(getExactVariance()));
+        }
+
+        return sample ? new Double(Math.sqrt((vk + vkError) / (double) (n - 1)))
+                      : new Double(Math.sqrt((vk + vkError) / (double) (n)));
     }
 
     // end statistics support
@@ -185,11 +185,17 @@ public class StatementCommand extends Statement {
                 break;
 
             case StatementTypes.SET_TABLE_INDEX :
+            case StatementTypes.SET_TABLE_STATISTICS :
                 group                  = StatementTypes.X_HSQLDB_SETTING;
                 isTransactionStatement = false;
                 isLogged               = false;
                 break;
 
+            case StatementTypes.ANALYZE_TABLE :
+                group    = StatementTypes.X_HSQLDB_DATABASE_OPERATION;
+                isLogged = false;
+                break;
+
             case StatementTypes.SET_USER_LOCAL :
             case StatementTypes.SET_USER_INITIAL_SCHEMA :
             case StatementTypes.SET_USER_PASSWORD :
@@ -1003,6 +1009,47 @@ public class StatementCommand extends Statement {
                     return Result.newErrorResult(e, sql);
                 }
             }
+            case StatementTypes.SET_TABLE_STATISTICS : {
+                try {
+                    HsqlName name  = (HsqlName) parameters[0];
+                    String   value = (String) parameters[1];
+                    Table table =
+                        session.database.schemaManager.getTable(session,
+                            name.name, name.schema.name);
+
+                    if (session.isProcessingScript()
+                            || session.isProcessingLog()) {
+                        table.setStatistics(
+                            TableStatistics.newStatistics(table, value));
+                    }
+
+                    return Result.updateZeroResult;
+                } catch (HsqlException e) {
+                    return Result.newErrorResult(e, sql);
+                }
+            }
+            case StatementTypes.ANALYZE_TABLE : {
+                try {
+                    HsqlName name = (HsqlName) parameters[0];
+                    Table table =
+                        session.database.schemaManager.getTable(session,
+                            name.name, name.schema.name);
+
+                    StatementSchema.checkSchemaUpdateAuthorisation(session,
+                            table.getSchemaName());
+                    table.setStatistics(TableStatistics.analyze(session,
+                            table));
+
+                    // cached statements are compiled again with the statistics
+                    session.database.schemaManager.setSchemaChangeTimestamp();
+                    session.database.logger.writeOtherStatement(session,
+                            table.getSQLForStatistics());
+
+                    return Result.updateZeroResult;
+                } catch (HsqlException e) {
+                    return Result.newErrorResult(e, sql);
+                }
+            }
             case StatementTypes.SET_TABLE_READONLY : {
                 try {
                     HsqlName name = (HsqlName) parameters[0];
@@ -516,6 +516,22 @@ public class Table extends TableBase implements SchemaObject {
         }
     }
 
+    public String getSQLForStatistics() {
+
+        if (statistics == null) {
+            return null;
+        }
+
+        StringBuffer sb = new StringBuffer(128);
+
+        sb.append(Tokens.T_SET).append(' ').append(Tokens.T_TABLE).append(' ');
+        sb.append(getName().getSchemaQualifiedStatementName());
+        sb.append(' ').append(Tokens.T_STATISTICS).append(' ');
+        sb.append('\'').append(statistics.getHexString(this)).append('\'');
+
+        return sb.toString();
+    }
+
     public String[] getSQLForTextSource(boolean withHeader) {
 
         // readonly for TEXT tables only
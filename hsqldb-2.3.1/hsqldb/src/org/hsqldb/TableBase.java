@@ -109,6 +109,7 @@ public class TableBase {
     protected boolean isLogged;
     private boolean   isTransactional = true;
     boolean           hasLobColumn;
+    TableStatistics   statistics;                 // set by ANALYZE TABLE
 
     //
     TableBase() {}
@@ -233,6 +234,17 @@ public class TableBase {
         return indexList;
     }
 
+    /**
+     *  Returns the statistics gathered by ANALYZE TABLE, or null
+     */
+    public final TableStatistics getStatistics() {
+        return statistics;
+    }
+
+    public final void setStatistics(TableStatistics statistics) {
+        this.statistics = statistics;
+    }
+
     /**
      * Returns empty boolean array.
      */
@@ -0,0 +1,540 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.hsqldb.index.Index;
+import org.hsqldb.lib.HyperLogLog;
+import org.hsqldb.lib.StringConverter;
+import org.hsqldb.navigator.RowIterator;
+import org.hsqldb.persist.PersistentStore;
+import org.hsqldb.rowio.RowInputBinary;
+import org.hsqldb.rowio.RowOutputBinary;
+import org.hsqldb.types.Type;
+
+/**
+ * Statistics of the data in a table, gathered by ANALYZE TABLE and used by
+ * the query optimiser.<p>
+ *
+ * For each column, the number of null values, an estimate of the number of
+ * distinct values and, for number, character and datetime columns, an
+ * equi-depth histogram built from a sample of the rows. For each index, the
+ * number of distinct keys for each leading subset of the index columns.<p>
+ *
+ * The statistics are persisted with a SET TABLE STATISTICS statement in the
+ * .script and .log files.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class TableStatistics {
+
+    static final int formatVersion = 1;
+    static final int histogramSize = 16;
+    static final int sampleSize    = 8192;
+
+    //
+    final long       analyzeTime;
+    final long       rowCount;
+    final long[]     distinctCounts;
+    final long[]     nullCounts;
+    final Object[][] histograms;
+    final String[]   indexNames;
+    final long[][]   indexDistinctCounts;
+
+    private TableStatistics(long analyzeTime, long rowCount,
+                            long[] distinctCounts, long[] nullCounts,
+                            Object[][] histograms, String[] indexNames,
+                            long[][] indexDistinctCounts) {
+
+        this.analyzeTime         = analyzeTime;
+        this.rowCount            = rowCount;
+        this.distinctCounts      = distinctCounts;
+        this.nullCounts          = nullCounts;
+        this.histograms          = histograms;
+        this.indexNames          = indexNames;
+        this.indexDistinctCounts = indexDistinctCounts;
+    }
+
+    /**
+     * Reads the rows of the table that are visible to the session and
+     * returns the statistics.
+     */
+    static TableStatistics analyze(Session session, Table table) {
+
+        PersistentStore store       = table.getRowStore(session);
+        Type[]          colTypes    = table.getColumnTypes();
+        int             columnCount = table.getColumnCount();
+        long[]          nullCounts  = new long[columnCount];
+        HyperLogLog[]   estimators  = new HyperLogLog[columnCount];
+        boolean[]       hasHistogram = new boolean[columnCount];
+        Object[][]      sample      = new Object[sampleSize][];
+        Random          random      = new Random(columnCount);
+        long            rowCount    = 0;
+
+        for (int i = 0; i < columnCount; i++) {
+            estimators[i]   = new HyperLogLog();
+            hasHistogram[i] = colTypes[i].isNumberType()
+                              || colTypes[i].isCharacterType()
+                              || colTypes[i].isDateTimeType();
+        }
+
+        RowIterator it = table.getPrimaryIndex().firstRow(session, store, 0);
+
+        try {
+            while (true) {
+                Object[] data = it.getNext();
+
+                if (data == null) {
+                    break;
+                }
+
+                for (int i = 0; i < columnCount; i++) {
+                    Object value = data[i];
+
+                    if (value == null) {
+                        nullCounts[i]++;
+                    } else {
+                        estimators[i].add(hashCode(value));
+                    }
+                }
+
+                // reservoir sample for the histograms
+                if (rowCount < sampleSize) {
+                    sample[(int) rowCount] = data;
+                } else {
+                    long pos = (long) (random.nextDouble() * (rowCount + 1));
+
+                    if (pos < sampleSize) {
+                        sample[(int) pos] = data;
+                    }
+                }
+
+                rowCount++;
+            }
+        } finally {
+            it.release();
+        }
+
+        long[]     distinctCounts = new long[columnCount];
+        Object[][] histograms     = new Object[columnCount][];
+        int        sampleCount    = (int) Math.min(rowCount, sampleSize);
+
+        for (int i = 0; i < columnCount; i++) {
+            long nonNull = rowCount - nullCounts[i];
+
+            distinctCounts[i] = Math.min(estimators[i].estimate(), nonNull);
+
+            if (distinctCounts[i] == 0 && nonNull > 0) {
+                distinctCounts[i] = 1;
+            }
+
+            if (hasHistogram[i]) {
+                histograms[i] = getHistogram(session, colTypes[i], sample,
+                                             sampleCount, i);
+            }
+        }
+
+        int        indexCount          = table.getIndexCount();
+        String[]   indexNames          = new String[indexCount];
+        long[][]   indexDistinctCounts = new long[indexCount][];
+
+        for (int i = 0; i < indexCount; i++) {
+            Index index = table.getIndex(i);
+
+            indexNames[i]          = index.getName().name;
+            indexDistinctCounts[i] = getIndexDistinctCounts(session, store,
+                    index);
+        }
+
+        return new TableStatistics(System.currentTimeMillis(), rowCount,
+                                   distinctCounts, nullCounts, histograms,
+                                   indexNames, indexDistinctCounts);
+    }
+
+    private static long hashCode(Object value) {
+
+        if (value instanceof Object[]) {
+            return Arrays.deepHashCode((Object[]) value);
+        }
+
+        return value.hashCode();
+    }
+
+    /**
+     * Returns the bounds of equal-depth buckets of the non-null values of
+     * the column in the sample, or null if all the values are null.
+     */
+    private static Object[] getHistogram(final Session session,
+                                         final Type type, Object[][] sample,
+                                         int sampleCount, int column) {
+
+        Object[] values = new Object[sampleCount];
+        int      count  = 0;
+
+        for (int i = 0; i < sampleCount; i++) {
+            Object value = sample[i][column];
+
+            if (value != null) {
+                values[count++] = value;
+            }
+        }
+
+        if (count == 0) {
+            return null;
+        }
+
+        Arrays.sort(values, 0, count, new Comparator() {
+
+            public int compare(Object a, Object b) {
+                return type.compare(session, a, b);
+            }
+        });
+
+        int      size   = Math.min(histogramSize, count);
+        Object[] bounds = new Object[size + 1];
+
+        for (int i = 0; i <= size; i++) {
+            bounds[i] = values[(int) ((long) i * (count - 1) / size)];
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Counts the distinct keys of the index for each leading subset of
+     * its columns, reading the rows in index order.
+     */
+    private static long[] getIndexDistinctCounts(Session session,
+            PersistentStore store, Index index) {
+
+        int      columnCount = index.getColumnCount();
+        long[]   counts      = new long[columnCount];
+        Object[] previous    = null;
+
+        if (columnCount == 0) {
+            return counts;
+        }
+
+        RowIterator it = index.firstRow(session, store, 0);
+
+        try {
+            while (true) {
+                Object[] data = it.getNext();
+
+                if (data == null) {
+                    break;
+                }
+
+                int first = 0;
+
+                if (previous != null) {
+                    for (; first < columnCount; first++) {
+                        if (index.compareRowNonUnique(
+                                session, previous, data, first + 1) != 0) {
+                            break;
+                        }
+                    }
+                }
+
+                for (int i = first; i < columnCount; i++) {
+                    counts[i]++;
+                }
+
+                previous = data;
+            }
+        } finally {
+            it.release();
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns the statistics encoded as a hexadecimal string for the SET
+     * TABLE STATISTICS statement.
+     */
+    String getHexString(Table table) {
+
+        RowOutputBinary out      = new RowOutputBinary(1024, 1);
+        Type[]          colTypes = table.getColumnTypes();
+
+        out.writeInt(formatVersion);
+        out.writeLong(analyzeTime);
+        out.writeLong(rowCount);
+        out.writeInt(distinctCounts.length);
+
+        for (int i = 0; i < distinctCounts.length; i++) {
+            out.writeLong(distinctCounts[i]);
+            out.writeLong(nullCounts[i]);
+
+            Object[] bounds = histograms[i];
+
+            if (bounds == null) {
+                out.writeInt(0);
+
+                continue;
+            }
+
+            out.writeInt(bounds.length);
+
+            for (int j = 0; j < bounds.length; j++) {
+                out.writeData(colTypes[i], bounds[j]);
+            }
+        }
+
+        out.writeInt(indexNames.length);
+
+        for (int i = 0; i < indexNames.length; i++) {
+            out.writeString(indexNames[i]);
+            out.writeInt(indexDistinctCounts[i].length);
+
+            for (int j = 0; j < indexDistinctCounts[i].length; j++) {
+                out.writeLong(indexDistinctCounts[i][j]);
+            }
+        }
+
+        byte[] bytes = new byte[out.size()];
+
+        System.arraycopy(out.getBuffer(), 0, bytes, 0, bytes.length);
+
+        return StringConverter.byteArrayToHexString(bytes);
+    }
+
+    /**
+     * Decodes the string returned by getHexString(). Returns null if the
+     * string does not match the columns of the table.
+     */
+    static TableStatistics newStatistics(Table table, String hex) {
+
+        try {
+            RowInputBinary in =
+                new RowInputBinary(StringConverter.hexStringToByteArray(hex));
+            Type[] colTypes = table.getColumnTypes();
+
+            if (in.readInt() != formatVersion) {
+                return null;
+            }
+
+            long analyzeTime = in.readLong();
+            long rowCount    = in.readLong();
+            int  columnCount = in.readInt();
+
+            if (columnCount != table.getColumnCount()) {
+                return null;
+            }
+
+            long[]     distinctCounts = new long[columnCount];
+            long[]     nullCounts     = new long[columnCount];
+            Object[][] histograms     = new Object[columnCount][];
+
+            for (int i = 0; i < columnCount; i++) {
+                distinctCounts[i] = in.readLong();
+                nullCounts[i]     = in.readLong();
+
+                int size = in.readInt();
+
+                if (size == 0) {
+                    continue;
+                }
+
+                histograms[i] = new Object[size];
+
+                for (int j = 0; j < size; j++) {
+                    histograms[i][j] = in.readData(colTypes[i]);
+                }
+            }
+
+            int      indexCount          = in.readInt();
+            String[] indexNames          = new String[indexCount];
+            long[][] indexDistinctCounts = new long[indexCount][];
+
+            for (int i = 0; i < indexCount; i++) {
+                indexNames[i]          = in.readString();
+                indexDistinctCounts[i] = new long[in.readInt()];
+
+                for (int j = 0; j < indexDistinctCounts[i].length; j++) {
+                    indexDistinctCounts[i][j] = in.readLong();
+                }
+            }
+
+            return new TableStatistics(analyzeTime, rowCount, distinctCounts,
+                                       nullCounts, histograms, indexNames,
+                                       indexDistinctCounts);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public long getAnalyzeTime() {
+        return analyzeTime;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getDistinctCount(int column) {
+        return distinctCounts[column];
+    }
+
+    public long getNullCount(int column) {
+        return nullCounts[column];
+    }
+
+    public Object[] getHistogram(int column) {
+        return histograms[column];
+    }
+
+    /**
+     * Returns the number of distinct keys for the first count columns of
+     * the index, or -1 if the index was not analyzed.
+     */
+    public long getIndexDistinctCount(Index index, int count) {
+
+        String name = index.getName().name;
+
+        for (int i = 0; i < indexNames.length; i++) {
+            if (indexNames[i].equals(name)) {
+                if (indexDistinctCounts[i].length != index.getColumnCount()) {
+                    return -1;
+                }
+
+                return indexDistinctCounts[i][count - 1];
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the estimated number of rows for each distinct key of the first
+     * count columns of the index, or -1 if the index was not analyzed.
+     */
+    public double getIndexEqualRows(Index index, int count) {
+
+        long distinct = getIndexDistinctCount(index, count);
+
+        if (distinct < 0) {
+            return -1;
+        }
+
+        if (distinct == 0) {
+            return 1;
+        }
+
+        return Math.max(1, (double) rowCount / distinct);
+    }
+
+    /**
+     * Returns the estimated number of rows with the same non-null value in
+     * the column.
+     */
+    public double getEqualRows(int column) {
+
+        long nonNull = rowCount - nullCounts[column];
+
+        if (distinctCounts[column] == 0) {
+            return nonNull == 0 ? 0
+                                : 1;
+        }
+
+        return Math.max(1, (double) nonNull / distinctCounts[column]);
+    }
+
+    /**
+     * Returns the estimated fraction of the non-null values of the column
+     * that are smaller than the value, or -1 if there is no histogram.
+     */
+    public double getFractionBelow(Session session, Type type, int column,
+                                   Object value) {
+
+        Object[] bounds = histograms[column];
+
+        if (bounds == null || value == null) {
+            return -1;
+        }
+
+        int buckets = bounds.length - 1;
+
+        if (type.compare(session, value, bounds[0]) <= 0) {
+            return 0;
+        }
+
+        if (type.compare(session, value, bounds[buckets]) > 0) {
+            return 1;
+        }
+
+        int low  = 0;
+        int high = buckets;
+
+        // bounds[low] < value <= bounds[high]
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+
+            if (type.compare(session, value, bounds[mid]) <= 0) {
+                high = mid;
+            } else {
+                low = mid;
+            }
+        }
+
+        return (low + 0.5) / buckets;
+    }
+
+    /**
+     * Returns the histogram bounds as a list of SQL literals.
+     */
+    public String getHistogramSQL(Type type, int column) {
+
+        Object[] bounds = histograms[column];
+
+        if (bounds == null) {
+            return null;
+        }
+
+        StringBuffer sb = new StringBuffer();
+
+        for (int i = 0; i < bounds.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+
+            sb.append(type.convertToSQLString(bounds[i]));
+        }
+
+        return sb.toString();
+    }
+}
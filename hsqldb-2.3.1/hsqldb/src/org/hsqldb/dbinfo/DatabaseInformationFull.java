@@ -46,6 +46,7 @@ import org.hsqldb.HsqlException;
 import org.hsqldb.HsqlNameManager;
 import org.hsqldb.HsqlNameManager.HsqlName;
 import org.hsqldb.NumberSequence;
+import org.hsqldb.PlanCache;
 import org.hsqldb.Routine;
 import org.hsqldb.RoutineSchema;
 import org.hsqldb.Schema;
@@ -56,10 +57,12 @@ import org.hsqldb.SqlInvariants;
 import org.hsqldb.Statement;
 import org.hsqldb.Table;
 import org.hsqldb.TableBase;
+import org.hsqldb.TableStatistics;
 import org.hsqldb.TextTable;
 import org.hsqldb.Tokens;
 import org.hsqldb.TriggerDef;
 import org.hsqldb.View;
+import org.hsqldb.index.Index;
 import org.hsqldb.lib.ArrayUtil;
 import org.hsqldb.lib.FileUtil;
 import org.hsqldb.lib.HashMappedList;
@@ -193,6 +196,15 @@ extends org.hsqldb.dbinfo.DatabaseInformationMain {
             case SYSTEM_TABLESTATS :
                 return SYSTEM_TABLESTATS(session, store);
 
+            case SYSTEM_COLUMN_STATISTICS :
+                return SYSTEM_COLUMN_STATISTICS(session, store);
+
+            case SYSTEM_INDEX_STATISTICS :
+                return SYSTEM_INDEX_STATISTICS(session, store);
+
+            case SYSTEM_PLAN_CACHE :
+                return SYSTEM_PLAN_CACHE(session, store);
+
             // SQL views
             case ADMINISTRABLE_ROLE_AUTHORIZATIONS :
                 return ADMINISTRABLE_ROLE_AUTHORIZATIONS(session, store);
@@ -423,6 +435,9 @@ extends org.hsqldb.dbinfo.DatabaseInformationMain {
      * FREE_BYTES          BIGINT   total bytes in available file allocation units
      * FREE_COUNT          BIGINT   total # of allocation units available
      * FREE_POS            BIGINT   largest file position allocated + 1
+     * CACHE_HITS          BIGINT   number of lookups found in the cache
+     * CACHE_MISSES        BIGINT   number of lookups read from the file
+     * CACHE_EVICTIONS     BIGINT   number of rows evicted from the cache
      * </pre> <p>
      *
      * <b>Notes:</b> <p>
@@ -457,6 +472,9 @@ extends org.hsqldb.dbinfo.DatabaseInformationMain {
             addColumn(t, "CACHE_BYTES", CARDINAL_NUMBER);        // not null
             addColumn(t, "FILE_LOST_BYTES", CARDINAL_NUMBER);    // not null
             addColumn(t, "FILE_FREE_POS", CARDINAL_NUMBER);      // not null
+            addColumn(t, "CACHE_HITS", CARDINAL_NUMBER);         // not null
+            addColumn(t, "CACHE_MISSES", CARDINAL_NUMBER);       // not null
+            addColumn(t, "CACHE_EVICTIONS", CARDINAL_NUMBER);    // not null
 
             HsqlName name = HsqlNameManager.newInfoSchemaObjectName(
                 sysTableHsqlNames[SYSTEM_CACHEINFO].name, false,
@@ -475,6 +493,9 @@ extends org.hsqldb.dbinfo.DatabaseInformationMain {
         final int icache_length    = 4;
         final int ilost_bytes      = 5;
         final int ifree_pos        = 6;
+        final int icache_hits      = 7;
+        final int icache_misses    = 8;
+        final int icache_evictions = 9;
 
         //
         DataFileCache cache = null;
@@ -523,6 +544,10 @@ extends org.hsqldb.dbinfo.DatabaseInformationMain {
                 ValuePool.getLong(cache.getTotalCachedBlockSize());
             row[ilost_bytes] = ValuePool.getLong(cache.getLostBlockSize());
             row[ifree_pos]   = ValuePool.getLong(cache.getFileFreePos());
+            row[icache_hits] = ValuePool.getLong(cache.getCacheHitCount());
+            row[icache_misses] = ValuePool.getLong(cache.getCacheMissCount());
+            row[icache_evictions] =
+                ValuePool.getLong(cache.getCacheEvictCount());
 
             t.insertSys(session, store, row);
         }
@@ -883,6 +908,8 @@ extends org.hsqldb.dbinfo.DatabaseInformationMain {
      * CURRENT STATEMENT   current SQL statement
      * DATABASE            the name of the database
      * DATABASE READONLY   TRUE / FALSE (database is in read-only mode or not)
+     * GROUP SPILL COUNT   times GROUP BY rows were written to disk partitions
+     * GROUP SPILL ROWS    rows written to GROUP BY disk partitions
      * IDENTITY            the last identity value used by calling session
      * IGNORECASE          IGNORECASE property for new VARCHAR columns
      * ISOLATION_LEVEL     transaction isolation level of session
@@ -997,6 +1024,18 @@ extends org.hsqldb.dbinfo.DatabaseInformationMain {
 
         t.insertSys(session, store, row);
 
+        row    = t.getEmptyRowData();
+        row[0] = "GROUP SPILL COUNT";
+        row[1] = String.valueOf(session.sessionData.getGroupSpillCount());
+
+        t.insertSys(session, store, row);
+
+        row    = t.getEmptyRowData();
+        row[0] = "GROUP SPILL ROWS";
+        row[1] = String.valueOf(session.sessionData.getGroupSpillRowCount());
+
+        t.insertSys(session, store, row);
+
         return t;
     }
 
@@ -1380,6 +1419,251 @@ extends org.hsqldb.dbinfo.DatabaseInformationMain {
         return t;
     }
 
+    /**
+     * Returns the column statistics gathered by ANALYZE TABLE for the
+     * accessible tables.
+     */
+    Table SYSTEM_COLUMN_STATISTICS(Session session, PersistentStore store) {
+
+        Table t = sysTables[SYSTEM_COLUMN_STATISTICS];
+
+        if (t == null) {
+            t = createBlankTable(sysTableHsqlNames[SYSTEM_COLUMN_STATISTICS]);
+
+            addColumn(t, "TABLE_CATALOG", SQL_IDENTIFIER);
+            addColumn(t, "TABLE_SCHEMA", SQL_IDENTIFIER);
+            addColumn(t, "TABLE_NAME", SQL_IDENTIFIER);
+            addColumn(t, "COLUMN_NAME", SQL_IDENTIFIER);
+            addColumn(t, "ROW_COUNT", CARDINAL_NUMBER);
+            addColumn(t, "DISTINCT_COUNT", CARDINAL_NUMBER);
+            addColumn(t, "NULL_COUNT", CARDINAL_NUMBER);
+            addColumn(t, "NULL_FRACTION", Type.SQL_DOUBLE);
+            addColumn(t, "HISTOGRAM", CHARACTER_DATA);
+            addColumn(t, "ANALYZED", TIME_STAMP);
+
+            //
+            HsqlName name = HsqlNameManager.newInfoSchemaObjectName(
+                sysTableHsqlNames[SYSTEM_COLUMN_STATISTICS].name, false,
+                SchemaObject.INDEX);
+
+            t.createPrimaryKeyConstraint(name, new int[] {
+                0, 1, 2, 3
+            }, false);
+
+            return t;
+        }
+
+        // intermediate holders
+        Iterator        tables;
+        Table           table;
+        TableStatistics statistics;
+        Object[]        row;
+        final int       table_catalog  = 0;
+        final int       table_schema   = 1;
+        final int       table_name     = 2;
+        final int       column_name    = 3;
+        final int       row_count      = 4;
+        final int       distinct_count = 5;
+        final int       null_count     = 6;
+        final int       null_fraction  = 7;
+        final int       histogram      = 8;
+        final int       analyzed       = 9;
+
+        // Initialization
+        tables = allTables();
+
+        // Do it.
+        while (tables.hasNext()) {
+            table      = (Table) tables.next();
+            statistics = table.getStatistics();
+
+            if (statistics == null || !isAccessibleTable(session, table)) {
+                continue;
+            }
+
+            Type[] colTypes = table.getColumnTypes();
+
+            for (int i = 0; i < table.getColumnCount(); i++) {
+                long rows  = statistics.getRowCount();
+                long nulls = statistics.getNullCount(i);
+
+                row                 = t.getEmptyRowData();
+                row[table_catalog]  = database.getCatalogName().name;
+                row[table_schema]   = table.getSchemaName().name;
+                row[table_name]     = table.getName().name;
+                row[column_name]    = table.getColumn(i).getName().name;
+                row[row_count]      = Long.valueOf(rows);
+                row[distinct_count] =
+                    Long.valueOf(statistics.getDistinctCount(i));
+                row[null_count]    = Long.valueOf(nulls);
+                row[null_fraction] = new Double(rows == 0 ? 0
+                                                          : (double) nulls
+                                                          / rows);
+                row[histogram] = statistics.getHistogramSQL(colTypes[i], i);
+                row[analyzed] = new TimestampData(statistics.getAnalyzeTime()
+                                                  / 1000);
+
+                t.insertSys(session, store, row);
+            }
+        }
+
+        return t;
+    }
+
+    /**
+     * Returns the index statistics gathered by ANALYZE TABLE for the
+     * accessible tables, with the number of distinct keys for each leading
+     * subset of the index columns.
+     */
+    Table SYSTEM_INDEX_STATISTICS(Session session, PersistentStore store) {
+
+        Table t = sysTables[SYSTEM_INDEX_STATISTICS];
+
+        if (t == null) {
+            t = createBlankTable(sysTableHsqlNames[SYSTEM_INDEX_STATISTICS]);
+
+            addColumn(t, "TABLE_CATALOG", SQL_IDENTIFIER);
+            addColumn(t, "TABLE_SCHEMA", SQL_IDENTIFIER);
+            addColumn(t, "TABLE_NAME", SQL_IDENTIFIER);
+            addColumn(t, "INDEX_NAME", SQL_IDENTIFIER);
+            addColumn(t, "COLUMN_COUNT", CARDINAL_NUMBER);
+            addColumn(t, "ROW_COUNT", CARDINAL_NUMBER);
+            addColumn(t, "DISTINCT_COUNT", CARDINAL_NUMBER);
+
+            //
+            HsqlName name = HsqlNameManager.newInfoSchemaObjectName(
+                sysTableHsqlNames[SYSTEM_INDEX_STATISTICS].name, false,
+                SchemaObject.INDEX);
+
+            t.createPrimaryKeyConstraint(name, new int[] {
+                0, 1, 2, 3, 4
+            }, false);
+
+            return t;
+        }
+
+        // intermediate holders
+        Iterator        tables;
+        Table           table;
+        TableStatistics statistics;
+        Object[]        row;
+        final int       table_catalog  = 0;
+        final int       table_schema   = 1;
+        final int       table_name     = 2;
+        final int       index_name     = 3;
+        final int       column_count   = 4;
+        final int       row_count      = 5;
+        final int       distinct_count = 6;
+
+        // Initialization
+        tables = allTables();
+
+        // Do it.
+        while (tables.hasNext()) {
+            table      = (Table) tables.next();
+            statistics = table.getStatistics();
+
+            if (statistics == null || !isAccessibleTable(session, table)) {
+                continue;
+            }
+
+            for (int i = 0; i < table.getIndexCount(); i++) {
+                Index index = table.getIndex(i);
+
+                for (int j = 1; j <= index.getColumnCount(); j++) {
+                    long count = statistics.getIndexDistinctCount(index, j);
+
+                    if (count < 0) {
+                        break;
+                    }
+
+                    row                 = t.getEmptyRowData();
+                    row[table_catalog]  = database.getCatalogName().name;
+                    row[table_schema]   = table.getSchemaName().name;
+                    row[table_name]     = table.getName().name;
+                    row[index_name]     = index.getName().name;
+                    row[column_count]   = Long.valueOf(j);
+                    row[row_count] = Long.valueOf(statistics.getRowCount());
+                    row[distinct_count] = Long.valueOf(count);
+
+                    t.insertSys(session, store, row);
+                }
+            }
+        }
+
+        return t;
+    }
+
+    /**
+     * Returns the statements in the shared plan cache, with the number of
+     * executions that used each cached statement and the time taken to
+     * compile it. Each statement is shown with its literals replaced by
+     * parameter markers. Only an admin can see the statements of other
+     * users.
+     */
+    Table SYSTEM_PLAN_CACHE(Session session, PersistentStore store) {
+
+        Table t = sysTables[SYSTEM_PLAN_CACHE];
+
+        if (t == null) {
+            t = createBlankTable(sysTableHsqlNames[SYSTEM_PLAN_CACHE]);
+
+            addColumn(t, "USER_NAME", SQL_IDENTIFIER);
+            addColumn(t, "SCHEMA_NAME", SQL_IDENTIFIER);
+            addColumn(t, "STATEMENT_SQL", CHARACTER_DATA);
+            addColumn(t, "PARAMETER_COUNT", CARDINAL_NUMBER);
+            addColumn(t, "HIT_COUNT", CARDINAL_NUMBER);
+            addColumn(t, "COMPILE_NANOS", CARDINAL_NUMBER);
+
+            //
+            HsqlName name = HsqlNameManager.newInfoSchemaObjectName(
+                sysTableHsqlNames[SYSTEM_PLAN_CACHE].name, false,
+                SchemaObject.INDEX);
+
+            t.createPrimaryKeyConstraint(name, null, false);
+
+            return t;
+        }
+
+        // intermediate holders
+        PlanCache         cache = database.getPlanCache();
+        PlanCache.Entry[] entries;
+        Object[]          row;
+        final int         user_name       = 0;
+        final int         schema_name     = 1;
+        final int         statement_sql   = 2;
+        final int         parameter_count = 3;
+        final int         hit_count       = 4;
+        final int         compile_nanos   = 5;
+
+        if (cache == null) {
+            return t;
+        }
+
+        entries = cache.getEntries();
+
+        for (int i = 0; i < entries.length; i++) {
+            PlanCache.Entry entry = entries[i];
+
+            if (!session.isAdmin()
+                    && !entry.getUserName().equals(session.getUsername())) {
+                continue;
+            }
+
+            row                  = t.getEmptyRowData();
+            row[user_name]       = entry.getUserName();
+            row[schema_name]     = entry.getSchemaName();
+            row[statement_sql]   = entry.getSQL();
+            row[parameter_count] = Long.valueOf(entry.getParameterCount());
+            row[hit_count]       = Long.valueOf(entry.getHitCount());
+            row[compile_nanos]   = Long.valueOf(entry.getCompileNanos());
+
+            t.insertSys(session, store, row);
+        }
+
+        return t;
+    }
+
 //------------------------------------------------------------------------------
 // SQL SCHEMATA VIEWS
 
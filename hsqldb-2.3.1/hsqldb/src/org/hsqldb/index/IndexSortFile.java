@@ -0,0 +1,378 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.hsqldb.index.IndexAVL.SortKey;
+import org.hsqldb.lib.ArrayUtil;
+import org.hsqldb.rowio.RowInputBinary;
+import org.hsqldb.rowio.RowOutputBinary;
+import org.hsqldb.types.Type;
+
+/**
+ * External merge sort of the SortKey objects of an index that is built from
+ * more rows than can be sorted in memory.<p>
+ *
+ * The keys are collected in runs of a fixed size. Each run is sorted in
+ * memory and written sequentially to a temporary file, with the index
+ * column values and the row position of each key. The runs are then read
+ * back in parallel and merged, returning the keys one by one in index
+ * order. The merge can be repeated until the file is closed.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+final class IndexSortFile {
+
+    static final int blockSize = 1 << 16;
+
+    //
+    final int[]      colIndex;
+    final Type[]     colTypes;
+    final int        columnCount;
+    final Comparator comparator;
+    final String     directory;
+
+    //
+    SortKey[]        runKeys;
+    int              runCount;
+    File             file;
+    DataOutputStream dataOut;
+    long             fileLength;
+    long[]           runStarts = new long[8];
+    int              runs;
+    RowOutputBinary  rowOut;
+
+    //
+    RandomAccessFile dataIn;
+    Run[]            heap;
+    int              heapSize;
+
+    IndexSortFile(String directory, int[] colIndex, Type[] colTypes,
+                  int columnCount, Comparator comparator, int runSize) {
+
+        this.directory   = directory;
+        this.colIndex    = colIndex;
+        this.colTypes    = colTypes;
+        this.columnCount = columnCount;
+        this.comparator  = comparator;
+        runKeys          = new SortKey[runSize < 1024 ? 1024
+                                                      : runSize];
+        rowOut           = new RowOutputBinary(256, 1);
+    }
+
+    void add(SortKey key) throws IOException {
+
+        if (runCount == runKeys.length) {
+            writeRun();
+        }
+
+        runKeys[runCount++] = key;
+    }
+
+    /**
+     * Writes the last run and prepares the file for merging.
+     */
+    void finishRuns() throws IOException {
+
+        writeRun();
+
+        runKeys = null;
+
+        if (dataOut != null) {
+            dataOut.close();
+
+            dataOut = null;
+        }
+    }
+
+    private void writeRun() throws IOException {
+
+        if (runCount == 0) {
+            return;
+        }
+
+        // merge sort takes advantage of runs that are already in order
+        Arrays.sort(runKeys, 0, runCount, comparator);
+
+        if (dataOut == null) {
+            File dir = new File(directory);
+
+            dir.mkdirs();
+
+            file    = File.createTempFile("sort_", ".tmp", dir);
+            dataOut = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), blockSize));
+        }
+
+        if (runs == runStarts.length) {
+            runStarts = (long[]) ArrayUtil.resizeArray(runStarts, runs * 2);
+        }
+
+        runStarts[runs++] = fileLength;
+
+        for (int i = 0; i < runCount; i++) {
+            SortKey key = runKeys[i];
+
+            rowOut.reset();
+
+            for (int j = 0; j < colIndex.length; j++) {
+                rowOut.writeData(colTypes[j], key.data[colIndex[j]]);
+            }
+
+            rowOut.writeLong(key.pos);
+            dataOut.writeInt(rowOut.size());
+            dataOut.write(rowOut.getBuffer(), 0, rowOut.size());
+
+            fileLength += 4 + rowOut.size();
+            runKeys[i] = null;
+        }
+
+        runCount = 0;
+    }
+
+    /**
+     * Starts a new merge of all the runs.
+     */
+    void beginMerge() throws IOException {
+
+        if (dataIn == null) {
+            dataIn = new RandomAccessFile(file, "r");
+        }
+
+        // smaller read buffers when there are many runs
+        int size = blockSize / (runs < 16 ? 1
+                                          : runs / 16);
+
+        heap     = new Run[runs];
+        heapSize = 0;
+
+        for (int i = 0; i < runs; i++) {
+            long end = i + 1 < runs ? runStarts[i + 1]
+                                    : fileLength;
+            Run  run = new Run(runStarts[i], end, size);
+
+            if (run.next()) {
+                heap[heapSize++] = run;
+            }
+        }
+
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Returns the next key in index order, or null when all the runs have
+     * been read.
+     */
+    SortKey next() throws IOException {
+
+        if (heapSize == 0) {
+            return null;
+        }
+
+        Run     run = heap[0];
+        SortKey key = run.current;
+
+        if (!run.next()) {
+            heap[0]        = heap[--heapSize];
+            heap[heapSize] = null;
+        }
+
+        if (heapSize > 0) {
+            siftDown(0);
+        }
+
+        return key;
+    }
+
+    private void siftDown(int i) {
+
+        Run run = heap[i];
+
+        while (true) {
+            int child = 2 * i + 1;
+
+            if (child >= heapSize) {
+                break;
+            }
+
+            if (child + 1 < heapSize
+                    && comparator.compare(heap[child + 1].current,
+                                          heap[child].current) < 0) {
+                child++;
+            }
+
+            if (comparator.compare(heap[child].current, run.current) >= 0) {
+                break;
+            }
+
+            heap[i] = heap[child];
+            i       = child;
+        }
+
+        heap[i] = run;
+    }
+
+    /**
+     * Closes and deletes the temporary file.
+     */
+    void close() {
+
+        try {
+            if (dataOut != null) {
+                dataOut.close();
+            }
+        } catch (IOException e) {}
+
+        try {
+            if (dataIn != null) {
+                dataIn.close();
+            }
+        } catch (IOException e) {}
+
+        dataOut = null;
+        dataIn  = null;
+        heap    = null;
+        runKeys = null;
+
+        if (file != null) {
+            file.delete();
+
+            file = null;
+        }
+    }
+
+    /**
+     * Sequential reader of one run of the file.
+     */
+    final class Run {
+
+        long           filePos;
+        final long     endPos;
+        byte[]         block;
+        int            blockPos;
+        int            blockLimit;
+        RowInputBinary rowIn = new RowInputBinary(new byte[256]);
+        SortKey        current;
+
+        Run(long start, long end, int size) {
+
+            filePos = start;
+            endPos  = end;
+            block   = new byte[size];
+        }
+
+        boolean next() throws IOException {
+
+            if (!fill(4)) {
+                current = null;
+
+                return false;
+            }
+
+            int length = ((block[blockPos] & 0xff) << 24)
+                         + ((block[blockPos + 1] & 0xff) << 16)
+                         + ((block[blockPos + 2] & 0xff) << 8)
+                         + (block[blockPos + 3] & 0xff);
+
+            blockPos += 4;
+
+            if (!fill(length)) {
+                throw new IOException("sort file truncated");
+            }
+
+            rowIn.resetBlock(0, length);
+            System.arraycopy(block, blockPos, rowIn.getBuffer(), 0, length);
+
+            blockPos += length;
+
+            Object[] data = new Object[columnCount];
+
+            for (int j = 0; j < colIndex.length; j++) {
+                data[colIndex[j]] = rowIn.readData(colTypes[j]);
+            }
+
+            current = new SortKey(data, rowIn.readLong());
+
+            return true;
+        }
+
+        /**
+         * Makes at least the given number of bytes available in the block,
+         * returns false at the end of the run.
+         */
+        private boolean fill(int required) throws IOException {
+
+            int remaining = blockLimit - blockPos;
+
+            if (remaining >= required) {
+                return true;
+            }
+
+            if (remaining + endPos - filePos < required) {
+                return false;
+            }
+
+            if (block.length < required) {
+                byte[] newBlock = new byte[required];
+
+                System.arraycopy(block, blockPos, newBlock, 0, remaining);
+
+                block = newBlock;
+            } else {
+                System.arraycopy(block, blockPos, block, 0, remaining);
+            }
+
+            int length = (int) Math.min(block.length - remaining,
+                                        endPos - filePos);
+
+            dataIn.seek(filePos);
+            dataIn.readFully(block, remaining, length);
+
+            filePos    += length;
+            blockPos   = 0;
+            blockLimit = remaining + length;
+
+            return true;
+        }
+    }
+}
@@ -2867,7 +2867,9 @@ public class JDBCConnection implements Connection {
         if (this.isInternal) {
             return true;
         } else if (!this.isNetConn) {
-            return !this.isClosed();
+
+            // the session is closed when the database is shut down
+            return !this.isClosed() && !sessionProxy.isClosed();
         } else if (this.isClosed()) {
             return false;
         }
@@ -3571,6 +3573,9 @@ public class JDBCConnection implements Connection {
 
         isTLSWrapper &= isTLS;
 
+        boolean isCompressed =
+            props.isPropertyTrue(HsqlDatabaseProperties.url_compress, false);
+
         if (user == null) {
             user = "SA";
         }
@@ -3595,7 +3600,8 @@ public class JDBCConnection implements Connection {
             } else if (connType == DatabaseURL.S_HSQL
                        || connType == DatabaseURL.S_HSQLS) {
                 sessionProxy = new ClientConnection(host, port, path,
-                        database, isTLS, isTLSWrapper, user, password, zoneSeconds);
+                        database, isTLS, isTLSWrapper, isCompressed, user,
+                        password, zoneSeconds);
                 isNetConn = true;
             } else if (connType == DatabaseURL.S_HTTP
                        || connType == DatabaseURL.S_HTTPS) {
@@ -37,7 +37,12 @@ import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Wrapper;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.Properties;
 
 import javax.sql.StatementEventListener;
@@ -53,8 +58,10 @@ import javax.sql.ConnectionEvent;
 import javax.sql.DataSource;
 import javax.sql.PooledConnection;
 
+import org.hsqldb.error.ErrorCode;
 import org.hsqldb.jdbc.pool.JDBCPooledDataSource;
 import org.hsqldb.jdbc.pool.JDBCPooledConnection;
+import org.hsqldb.lib.HsqlDeque;
 import org.hsqldb.persist.HsqlDatabaseProperties;
 
 /**
@@ -71,6 +78,18 @@ import org.hsqldb.persist.HsqlDatabaseProperties;
  * {@link JDBCCommonDataSource} are used to specify the database URL, user,
  * password, and / or connection properties.<p>
  *
+ * Idle connections are kept on a lock-free stack. When all the connections
+ * are in use, callers of {@link #getConnection()} wait in FIFO order and
+ * each connection that is closed by the user is handed directly to the
+ * longest waiting caller. The wait is limited by the login timeout, or 30
+ * seconds if it is not set.<p>
+ *
+ * Connections are opened when needed, up to the maximum size of the pool.
+ * If an idle timeout is set, connections that have been idle for longer
+ * are closed, but the minimum size is kept open. Connections can be
+ * validated before they are returned by getConnection(). Histograms of the
+ * wait time and of the time connections are in use are also available.<p>
+ *
  * </div>
  * <!-- end Release-specific documentation -->
  * @author Fred Toussi (fredt@users dot sourceforge.net)
@@ -91,46 +110,37 @@ public class JDBCPool extends JDBCCommonDataSource implements DataSource,
      */
     public Connection getConnection() throws SQLException {
 
-        int retries = 300;
-
-        if (source.loginTimeout != 0){
-            retries = source.loginTimeout * 10;
-        }
-
         if (closed) {
             throw new SQLException("connection pool is closed");
         }
 
-        for (int count = 0; count < retries; count++) {
-            for (int i = 0; i < states.length(); i++) {
-                if (states.compareAndSet(i, RefState.available,
-                                        RefState.allocated)) {
-                    return connections[i].getConnection();
-                }
+        long timeout = source.loginTimeout == 0 ? 30
+                                                : source.loginTimeout;
+        long start    = System.nanoTime();
+        long deadline = start + timeout * 1000000000L;
 
-                if (states.compareAndSet(i, RefState.empty,
-                                        RefState.allocated)) {
-                    try {
-                        JDBCPooledConnection connection =
-                            (JDBCPooledConnection) source.getPooledConnection();
+        evictIdleConnections();
 
-                        connection.addConnectionEventListener(this);
-                        connection.addStatementEventListener(this);
-                        connections[i] = connection;
+        while (true) {
+            int slot = popIdle();
 
-                        return connections[i].getConnection();
-                    } catch (SQLException e) {
-                        states.set(i, RefState.empty);
-                    }
-                }
+            if (slot < 0) {
+                slot = allocateEmpty();
             }
 
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {}
-        }
+            if (slot < 0) {
+                slot = awaitSlot(deadline);
+            }
+
+            Connection connection = lease(slot);
 
-        throw JDBCUtil.invalidArgument();
+            if (connection != null) {
+                addToHistogram(waitHistogram,
+                               (System.nanoTime() - start) / 1000000);
+
+                return connection;
+            }
+        }
     }
 
     /**
@@ -222,28 +232,33 @@ public class JDBCPool extends JDBCCommonDataSource implements DataSource,
 
     // ------------------------ event listener ------------------------
     public void connectionClosed(ConnectionEvent event) {
-        PooledConnection connection = (PooledConnection) event.getSource();
 
-        for (int i = 0; i < connections.length; i++) {
-            if (connections[i] == connection) {
-                states.set(i, RefState.available);
+        int slot = getSlot((PooledConnection) event.getSource());
 
-                break;
-            }
+        if (slot < 0) {
+            return;
         }
+
+        addToHistogram(usageHistogram,
+                       System.currentTimeMillis() - lastUsed[slot]);
+
+        lastUsed[slot] = System.currentTimeMillis();
+
+        freeSlot(slot, RefState.available);
+        evictIdleConnections();
     }
 
     public void connectionErrorOccurred(ConnectionEvent event) {
-        PooledConnection connection = (PooledConnection) event.getSource();
 
-        for (int i = 0; i < connections.length; i++) {
-            if (connections[i] == connection) {
-                states.set(i, RefState.allocated);
-                connections[i] = null;
-                states.set(i, RefState.empty);
-                break;
-            }
+        int slot = getSlot((PooledConnection) event.getSource());
+
+        if (slot < 0) {
+            return;
         }
+
+        connections[slot] = null;
+
+        freeSlot(slot, RefState.empty);
     }
 
     public void statementClosed(StatementEvent event) {}
@@ -471,7 +486,7 @@ public class JDBCPool extends JDBCCommonDataSource implements DataSource,
     // ------------------------ custom public methods ------------------------
 
     /**
-     * Creates a connection pool with the maximum size of 8. The database and
+     * Creates a connection pool with the maximum size of 10. The database and
      * connection settings are made before the {@link #getConnection()} is called.
      */
     public JDBCPool() {
@@ -485,9 +500,12 @@ public class JDBCPool extends JDBCCommonDataSource implements DataSource,
      * @param size int maximum size of the pool
      */
     public JDBCPool(int size) {
-        source = new JDBCPooledDataSource();
+
+        source      = new JDBCPooledDataSource();
         connections = new JDBCPooledConnection[size];
-        states = new AtomicIntegerArray(size);    }
+        states      = new AtomicIntegerArray(size);
+        lastUsed    = new long[size];
+    }
 
     /**
      * Closes the pool immediately. Waits the given number of seconds before
@@ -507,6 +525,19 @@ public class JDBCPool extends JDBCCommonDataSource implements DataSource,
 
         closed = true;
 
+        lock.lock();
+
+        try {
+            while (!waiters.isEmpty()) {
+                Waiter waiter = (Waiter) waiters.removeFirst();
+
+                waiting.decrementAndGet();
+                waiter.handOff(Waiter.closedSlot);
+            }
+        } finally {
+            lock.unlock();
+        }
+
         try {
             Thread.sleep(1000 * wait);
         } catch (Throwable t) {}
@@ -522,6 +553,87 @@ public class JDBCPool extends JDBCCommonDataSource implements DataSource,
         }
 
     }
+
+    /**
+     * Sets the number of connections that are kept open when idle
+     * connections are closed after the idle timeout. The default is 0.
+     *
+     * @param size int minimum number of open connections
+     */
+    public void setMinSize(int size) {
+
+        if (size < 0 || size > connections.length) {
+            throw new IllegalArgumentException("size: " + size);
+        }
+
+        minSize = size;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * Sets the number of seconds after which an idle connection is closed.
+     * The check is performed when connections are requested or returned to
+     * the pool. The default is 0, which keeps all connections open.
+     *
+     * @param seconds int idle timeout
+     */
+    public void setIdleTimeout(int seconds) {
+
+        if (seconds < 0) {
+            throw new IllegalArgumentException("seconds: " + seconds);
+        }
+
+        idleTimeout = seconds;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets whether Connection.isValid() is checked before a connection is
+     * returned by getConnection(). An invalid connection is closed and
+     * another one is used. The default is false.
+     *
+     * @param validate boolean
+     * @param timeout int seconds allowed for the check
+     */
+    public void setValidateOnBorrow(boolean validate, int timeout) {
+        validationTimeout = validate ? Math.max(timeout, 1)
+                                     : 0;
+    }
+
+    public boolean isValidateOnBorrow() {
+        return validationTimeout > 0;
+    }
+
+    /**
+     * Returns the number of calls to getConnection() by the time they waited
+     * for a connection. The element at index 0 counts waits shorter than 1
+     * millisecond and the element at index i counts waits from 2 to the
+     * power (i - 1) milliseconds to less than twice that time. The last
+     * element counts all longer waits.
+     *
+     * @return long[] wait time histogram
+     */
+    public long[] getWaitTimeHistogram() {
+        return getHistogram(waitHistogram);
+    }
+
+    /**
+     * Returns the number of connection leases by the time the connection
+     * was in use before it was closed, with the same time ranges as
+     * {@link #getWaitTimeHistogram()}.
+     *
+     * @return long[] usage time histogram
+     */
+    public long[] getUsageTimeHistogram() {
+        return getHistogram(usageHistogram);
+    }
+
     // ------------------------ internal ------------------------
     interface RefState {
         int empty     = 0;
@@ -529,9 +641,362 @@ public class JDBCPool extends JDBCCommonDataSource implements DataSource,
         int allocated = 2;
     }
 
+    /**
+     * Element of the stack of idle connection slots. A slot may be on the
+     * stack after its connection was closed, in which case its state is no
+     * longer available and it is skipped.
+     */
+    static final class IdleNode {
+
+        final int      slot;
+        final IdleNode next;
+
+        IdleNode(int slot, IdleNode next) {
+            this.slot = slot;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A caller of getConnection() waiting for a slot.
+     */
+    static final class Waiter {
+
+        static final int closedSlot = -2;
+
+        //
+        final Thread thread = Thread.currentThread();
+        volatile int slot   = -1;
+
+        void handOff(int slot) {
+            this.slot = slot;
+
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private int popIdle() {
+
+        while (true) {
+            IdleNode head = (IdleNode) idle.get();
+
+            if (head == null) {
+                return -1;
+            }
+
+            if (idle.compareAndSet(head, head.next)) {
+                if (states.compareAndSet(head.slot, RefState.available,
+                                         RefState.allocated)) {
+                    return head.slot;
+                }
+            }
+        }
+    }
+
+    private void pushIdle(int slot) {
+
+        while (true) {
+            IdleNode head = (IdleNode) idle.get();
+
+            if (idle.compareAndSet(head, new IdleNode(slot, head))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reserves a slot that has no connection.
+     */
+    private int allocateEmpty() {
+
+        if (openCount.get() >= connections.length) {
+            return -1;
+        }
+
+        for (int i = 0; i < connections.length; i++) {
+            if (states.compareAndSet(i, RefState.empty, RefState.allocated)) {
+                openCount.incrementAndGet();
+
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Waits in FIFO order until a slot is handed over by freeSlot().
+     */
+    private int awaitSlot(long deadline) throws SQLException {
+
+        Waiter waiter = new Waiter();
+
+        lock.lock();
+
+        try {
+            waiting.incrementAndGet();
+            waiters.add(waiter);
+
+            // a slot may have been freed before waiting was incremented
+            int slot = popIdle();
+
+            if (slot < 0) {
+                slot = allocateEmpty();
+            }
+
+            if (slot >= 0) {
+                waiters.remove(waiters.indexOf(waiter));
+                waiting.decrementAndGet();
+
+                return slot;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        while (waiter.slot == -1) {
+            long    remaining   = deadline - System.nanoTime();
+            boolean interrupted = Thread.interrupted();
+
+            if (remaining <= 0 || interrupted) {
+                lock.lock();
+
+                try {
+                    if (waiter.slot == -1) {
+                        waiters.remove(waiters.indexOf(waiter));
+                        waiting.decrementAndGet();
+
+                        if (interrupted) {
+                            Thread.currentThread().interrupt();
+
+                            throw JDBCUtil.sqlException(ErrorCode.X_08001,
+                                                        "interrupted");
+                        }
+
+                        throw JDBCUtil.sqlException(ErrorCode.X_08001,
+                                                    "connection pool timeout");
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+
+                break;
+            }
+
+            LockSupport.parkNanos(this, remaining);
+        }
+
+        if (waiter.slot == Waiter.closedSlot) {
+            throw new SQLException("connection pool is closed");
+        }
+
+        return waiter.slot;
+    }
+
+    /**
+     * Makes a slot available after its connection is closed by the user or
+     * has failed. The slot is handed to the first waiting caller if there is
+     * one.
+     */
+    private void freeSlot(int slot, int state) {
+
+        if (waiting.get() > 0) {
+            lock.lock();
+
+            try {
+                if (!waiters.isEmpty()) {
+                    Waiter waiter = (Waiter) waiters.removeFirst();
+
+                    waiting.decrementAndGet();
+                    waiter.handOff(slot);
+
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        if (state == RefState.empty) {
+            openCount.decrementAndGet();
+        }
+
+        states.set(slot, state);
+
+        if (state == RefState.available) {
+            pushIdle(slot);
+        }
+
+        // a caller may have started waiting after waiting was checked
+        if (waiting.get() > 0) {
+            lock.lock();
+
+            try {
+                while (!waiters.isEmpty()) {
+                    int freeSlot = popIdle();
+
+                    if (freeSlot < 0) {
+                        freeSlot = allocateEmpty();
+                    }
+
+                    if (freeSlot < 0) {
+                        break;
+                    }
+
+                    Waiter waiter = (Waiter) waiters.removeFirst();
+
+                    waiting.decrementAndGet();
+                    waiter.handOff(freeSlot);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns a connection for an allocated slot, opening a new one if
+     * necessary, or null if validation fails.
+     */
+    private Connection lease(int slot) throws SQLException {
+
+        JDBCPooledConnection pooled = connections[slot];
+
+        if (pooled == null) {
+            try {
+                pooled =
+                    (JDBCPooledConnection) source.getPooledConnection();
+            } catch (SQLException e) {
+                freeSlot(slot, RefState.empty);
+
+                throw e;
+            }
+
+            pooled.addConnectionEventListener(this);
+            pooled.addStatementEventListener(this);
+
+            connections[slot] = pooled;
+        }
+
+        Connection connection = pooled.getConnection();
+        int        timeout    = validationTimeout;
+
+        if (timeout > 0 && !connection.isValid(timeout)) {
+            connections[slot] = null;
+
+            pooled.release();
+            freeSlot(slot, RefState.empty);
+
+            return null;
+        }
+
+        lastUsed[slot] = System.currentTimeMillis();
+
+        return connection;
+    }
+
+    private int getSlot(PooledConnection connection) {
+
+        for (int i = 0; i < connections.length; i++) {
+            if (connections[i] == connection) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Closes connections that have been idle for longer than the idle
+     * timeout, at most once a second.
+     */
+    private void evictIdleConnections() {
+
+        if (idleTimeout == 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (now - lastEviction < 1000) {
+            return;
+        }
+
+        lastEviction = now;
+
+        for (int i = 0; i < connections.length; i++) {
+            if (openCount.get() <= minSize) {
+                break;
+            }
+
+            if (states.get(i) == RefState.available
+                    && now - lastUsed[i] > idleTimeout * 1000L
+                    && states.compareAndSet(i, RefState.available,
+                                            RefState.allocated)) {
+                JDBCPooledConnection pooled = connections[i];
+
+                connections[i] = null;
+
+                if (pooled != null) {
+                    pooled.release();
+                }
+
+                freeSlot(i, RefState.empty);
+            }
+        }
+    }
+
+    private static void addToHistogram(AtomicLongArray histogram,
+                                       long millis) {
+
+        int index = millis <= 0 ? 0
+                                : 64 - Long.numberOfLeadingZeros(millis);
+
+        if (index >= histogram.length()) {
+            index = histogram.length() - 1;
+        }
+
+        histogram.incrementAndGet(index);
+    }
+
+    private static long[] getHistogram(AtomicLongArray histogram) {
 
+        long[] values = new long[histogram.length()];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = histogram.get(i);
+        }
+
+        return values;
+    }
+
+    static final int histogramSize = 20;
+
+    //
     AtomicIntegerArray       states;
     JDBCPooledConnection[]   connections;
     JDBCPooledDataSource     source;
     volatile boolean         closed;
+
+    //
+    final AtomicReference idle      = new AtomicReference();
+    final AtomicInteger   openCount = new AtomicInteger();
+    final AtomicInteger   waiting   = new AtomicInteger();
+    final HsqlDeque       waiters   = new HsqlDeque();
+    final ReentrantLock   lock      = new ReentrantLock();
+    long[]                lastUsed;
+    volatile long         lastEviction;
+
+    //
+    volatile int minSize;
+    volatile int idleTimeout;
+    volatile int validationTimeout;
+
+    //
+    final AtomicLongArray waitHistogram  = new AtomicLongArray(histogramSize);
+    final AtomicLongArray usageHistogram = new AtomicLongArray(histogramSize);
 }
@@ -53,6 +53,10 @@ import java.sql.SQLWarning;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.Calendar;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 //#ifdef JAVA4
 import java.sql.ParameterMetaData;
@@ -65,6 +69,7 @@ import java.sql.RowId;
 import java.sql.SQLXML;
 
 //#endif JAVA6
+import org.hsqldb.ClientConnection;
 import org.hsqldb.HsqlDateTime;
 import org.hsqldb.HsqlException;
 import org.hsqldb.SchemaObject;
@@ -77,6 +82,7 @@ import org.hsqldb.lib.CharArrayWriter;
 import org.hsqldb.lib.CountdownInputStream;
 import org.hsqldb.lib.HsqlByteArrayOutputStream;
 import org.hsqldb.lib.StringConverter;
+import org.hsqldb.map.ValuePool;
 import org.hsqldb.navigator.RowSetNavigator;
 import org.hsqldb.result.Result;
 import org.hsqldb.result.ResultConstants;
@@ -312,6 +318,85 @@ public class JDBCPreparedStatement extends JDBCStatementBase implements Prepared
         return resultIn.getUpdateCount();
     }
 
+    /**
+     * Executes the SQL statement in this <code>PreparedStatement</code>
+     * object, which must return an update count, without waiting for the
+     * result.<p>
+     *
+     * <div class="ReleaseSpecificDocumentation">
+     * <h3>HSQLDB-Specific Information:</h3> <p>
+     *
+     * This is an HSQLDB extension to JDBC. With a network connection, the
+     * request is sent to the server and the method returns immediately. The
+     * parameters can then be set for the next execution. Several executions
+     * (of this or other statements of the same connection) can be sent in
+     * this way before the first result arrives, so the network round trips
+     * are overlapped.<p>
+     *
+     * The server executes the requests of a connection in the order they
+     * are sent and returns the results in the same order. The requests
+     * carry no identifier, so a result is read only after the results of
+     * all the earlier requests of the connection: <code>get()</code> on
+     * one of the returned objects also reads the results of all the
+     * executions sent before it, which then complete. All the pending
+     * results are read before the next synchronous call on the
+     * connection.<p>
+     *
+     * <code>get(timeout, unit)</code> throws <code>TimeoutException</code>
+     * if no response has started to arrive within the time. A response
+     * that has started to arrive is read in full.<p>
+     *
+     * The <code>get()</code> method of the returned object returns the
+     * update count as an <code>Integer</code>, or throws an
+     * <code>ExecutionException</code> with the <code>SQLException</code> for
+     * the execution as its cause. Generated keys and warnings are not
+     * reported for executions of this kind.<p>
+     *
+     * With an in-process connection, or when the statement has LOB
+     * parameters, the statement is executed before the method returns.
+     * </div>
+     *
+     * @return a <code>Future</code> for the update count
+     * @exception SQLException if a database access error occurs,
+     * this method is called on a closed  <code>PreparedStatement</code>
+     * or the SQL statement returns a <code>ResultSet</code> object
+     * @since 2.3.2
+     */
+    public synchronized Future executeUpdateAsync() throws SQLException {
+
+        if (statementRetType != StatementTypes.RETURN_COUNT) {
+            checkStatementType(StatementTypes.RETURN_COUNT);
+        }
+
+        if (isResult || hasLOBs || !(session instanceof ClientConnection)) {
+            try {
+                return new UpdateCountFuture(
+                    ValuePool.getInt(executeUpdate()));
+            } catch (SQLException e) {
+                return new UpdateCountFuture(e);
+            }
+        }
+
+        if (isClosed || connection.isClosed) {
+            checkClosed();
+        }
+        closeResultData();
+        checkParametersSet();
+
+        if (isBatch) {
+            throw JDBCUtil.sqlExceptionSQL(ErrorCode.X_07505);
+        }
+        resultOut.setPreparedExecuteProperties(parameterValues, maxRows,
+                fetchSize, rsProperties, queryTimeout);
+
+        try {
+            return new UpdateCountFuture(
+                ((ClientConnection) session).executeAsync(resultOut));
+        } catch (HsqlException e) {
+            throw JDBCUtil.sqlException(e);
+        }
+    }
+
     /**
      * <!-- start generic documentation -->
      * Sets the designated parameter to SQL <code>NULL</code>.
@@ -4683,6 +4768,98 @@ public class JDBCPreparedStatement extends JDBCStatementBase implements Prepared
         super.performPostExecute();
     }
 
+    /**
+     * The update count of an execution with executeUpdateAsync().
+     */
+    static final class UpdateCountFuture implements Future {
+
+        private ClientConnection.PendingResult pending;
+        private Object                         value;
+
+        UpdateCountFuture(ClientConnection.PendingResult pending) {
+            this.pending = pending;
+        }
+
+        UpdateCountFuture(Object value) {
+            this.value = value;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return false;
+        }
+
+        public synchronized boolean isDone() {
+            return value != null || pending.isDone();
+        }
+
+        public synchronized Object get() throws ExecutionException {
+
+            if (value == null) {
+                setValue(pending.getResult());
+            }
+
+            return getValue();
+        }
+
+        /**
+         * Waits up to the given time for the response to start arriving.
+         * A response that has started to arrive is read in full.
+         */
+        public synchronized Object get(long timeout,
+                                       TimeUnit unit)
+                                       throws ExecutionException,
+                                              TimeoutException {
+
+            if (value == null) {
+                Result result = pending.getResult(timeout, unit);
+
+                if (result == null) {
+                    throw new TimeoutException();
+                }
+
+                setValue(result);
+            }
+
+            return getValue();
+        }
+
+        private void setValue(Result result) {
+
+            if (result.mode == ResultConstants.ERROR) {
+                value = JDBCUtil.sqlException(result);
+            } else {
+                value = ValuePool.getInt(result.getUpdateCount());
+            }
+
+            pending = null;
+        }
+
+        private Object getValue() throws ExecutionException {
+
+            if (value instanceof SQLException) {
+                throw new UpdateException((SQLException) value);
+            }
+
+            return value;
+        }
+    }
+
+    /**
+     * The constructors of ExecutionException are not public in Java 5.
+     */
+    static final class UpdateException extends ExecutionException {
+
+        static final long serialVersionUID = 4920174213058723361L;
+
+        UpdateException(SQLException cause) {
+            super(cause);
+        }
+    }
+
     /** The parameter values for the next non-batch execution. */
     protected Object[] parameterValues;
 
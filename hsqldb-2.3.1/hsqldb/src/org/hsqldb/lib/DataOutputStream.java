@@ -54,6 +54,14 @@ implements DataOutput {
         super(stream, 8);
     }
 
+    /**
+     * Used for network streams, so that each message is sent in as few
+     * packets as possible when the stream is flushed.
+     */
+    public DataOutputStream(OutputStream stream, int size) {
+        super(stream, size);
+    }
+
     public final void writeByte(int v) throws IOException {
         write(v);
     }
@@ -33,10 +33,12 @@ package org.hsqldb.navigator;
 
 import java.io.IOException;
 
+import org.hsqldb.ClientConnection;
 import org.hsqldb.HsqlException;
 import org.hsqldb.Row;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
+import org.hsqldb.result.Result;
 import org.hsqldb.result.ResultMetaData;
 import org.hsqldb.rowio.RowInputInterface;
 import org.hsqldb.rowio.RowOutputInterface;
@@ -61,6 +63,10 @@ public class RowSetNavigatorClient extends RowSetNavigator {
     //
     Object[][] table;
 
+    // read-ahead of the next block over a network connection
+    ClientConnection.PendingResult nextBlock;
+    int                            nextBlockOffset;
+
     //
     public RowSetNavigatorClient() {
         table = emptyTable;
@@ -114,8 +120,19 @@ public class RowSetNavigatorClient extends RowSetNavigator {
             return null;
         }
 
-        if (currentPos == currentOffset + table.length) {
-            getBlock(currentOffset + table.length);
+        if (currentPos >= currentOffset + table.length) {
+            getBlock(currentPos);
+        } else if (currentPos < currentOffset) {
+
+            // moving backwards, the block ends with the row
+            int offset = currentPos - baseBlockSize + 1;
+
+            getBlock(offset < 0 ? 0
+                                : offset);
+        }
+
+        if (currentPos == currentOffset) {
+            readAhead();
         }
 
         return table[currentPos - currentOffset];
@@ -145,11 +162,15 @@ public class RowSetNavigatorClient extends RowSetNavigator {
     public void clear() {
         setData(emptyTable);
         reset();
+
+        nextBlock = null;
     }
 
     public void release() {
         setData(emptyTable);
         reset();
+
+        nextBlock = null;
     }
 
     public boolean absolute(int position) {
@@ -251,14 +272,43 @@ public class RowSetNavigatorClient extends RowSetNavigator {
     void getBlock(int offset) {
 
         try {
-            RowSetNavigatorClient source = session.getRows(id, offset,
-                baseBlockSize);
+            RowSetNavigatorClient source;
+
+            if (nextBlock != null && nextBlockOffset == offset) {
+                Result result = nextBlock.getResult();
 
+                source = (RowSetNavigatorClient) result.getNavigator();
+            } else {
+                source = session.getRows(id, offset, baseBlockSize);
+            }
+
+            nextBlock     = null;
             table         = source.table;
             currentOffset = source.currentOffset;
         } catch (HsqlException e) {}
     }
 
+    /**
+     * Requests the block after the current one from a network connection,
+     * so that the server sends it while the rows of the current block are
+     * read. Any response that is not used is discarded by the connection.
+     */
+    private void readAhead() {
+
+        int offset = currentOffset + table.length;
+
+        if (nextBlock != null || offset >= size
+                || !(session instanceof ClientConnection)) {
+            return;
+        }
+
+        try {
+            nextBlock = ((ClientConnection) session).getRowsAsync(id, offset,
+                    baseBlockSize);
+            nextBlockOffset = offset;
+        } catch (HsqlException e) {}
+    }
+
     private void ensureCapacity() {
 
         if (size == table.length) {
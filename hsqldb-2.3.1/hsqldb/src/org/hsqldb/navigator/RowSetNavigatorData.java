@@ -58,7 +58,7 @@ import org.hsqldb.rowio.RowOutputInterface;
  * @since 1.9.0
  */
 public class RowSetNavigatorData extends RowSetNavigator
-implements Comparator {
+implements Comparator<Object[]> {
 
     public static final Object[][] emptyTable = new Object[0][];
 
@@ -80,6 +80,9 @@ implements Comparator {
     //
     private Index mainIndex;
 
+    // when not 0, only the first rows in ORDER BY order are kept
+    int topLimit;
+
     //
     TreeMap        rowMap;
     LongKeyHashMap idMap;
@@ -156,6 +159,12 @@ implements Comparator {
 
     public void add(Object[] data) {
 
+        if (topLimit > 0) {
+            addTop(data);
+
+            return;
+        }
+
         ensureCapacity();
 
         table[size] = data;
@@ -638,6 +647,75 @@ implements Comparator {
         }
     }
 
+    /**
+     * From now on, keep only the given number of rows that come first in
+     * the order of the ORDER BY index. Rows that come after all the kept
+     * rows are discarded when added. The result must be sorted with
+     * sortOrder() before use.
+     */
+    public void setTopLimit(int limit) {
+
+        topLimit  = limit;
+        mainIndex = queryExpression.orderIndex;
+    }
+
+    /**
+     * The kept rows form a heap with the last row in order at position 0.
+     */
+    private void addTop(Object[] data) {
+
+        if (size < topLimit) {
+            ensureCapacity();
+
+            int i = size;
+
+            size++;
+
+            while (i > 0) {
+                int parent = (i - 1) >> 1;
+
+                if (compare(data, table[parent]) <= 0) {
+                    break;
+                }
+
+                table[i] = table[parent];
+                i        = parent;
+            }
+
+            table[i] = data;
+
+            return;
+        }
+
+        if (compare(data, table[0]) >= 0) {
+            return;
+        }
+
+        int i = 0;
+
+        while (true) {
+            int child = 2 * i + 1;
+
+            if (child >= size) {
+                break;
+            }
+
+            if (child + 1 < size
+                    && compare(table[child + 1], table[child]) > 0) {
+                child++;
+            }
+
+            if (compare(table[child], data) <= 0) {
+                break;
+            }
+
+            table[i] = table[child];
+            i        = child;
+        }
+
+        table[i] = data;
+    }
+
     private void ensureCapacity() {
 
         if (size == table.length) {
@@ -695,7 +773,7 @@ implements Comparator {
         }
     }
 
-    public int compare(Object a, Object b) {
-        return mainIndex.compareRow(session, (Object[]) a, (Object[]) b);
+    public int compare(Object[] a, Object[] b) {
+        return mainIndex.compareRow(session, a, b);
     }
 }
@@ -43,6 +43,7 @@ import org.hsqldb.TableBase;
 import org.hsqldb.index.Index;
 import org.hsqldb.lib.ArrayUtil;
 import org.hsqldb.persist.PersistentStore;
+import org.hsqldb.persist.RowStoreAVL;
 import org.hsqldb.result.ResultMetaData;
 import org.hsqldb.rowio.RowInputInterface;
 import org.hsqldb.rowio.RowOutputInterface;
@@ -71,6 +72,7 @@ public class RowSetNavigatorDataTable extends RowSetNavigatorData {
 
     //
     boolean reindexTable;
+    boolean deferIndexes;
 
     //
     private Index mainIndex;
@@ -100,6 +102,11 @@ public class RowSetNavigatorDataTable extends RowSetNavigatorData {
         groupIndex        = select.groupIndex;
         idIndex           = select.idIndex;
         tempRowData       = new Object[1];
+
+        // no lookup is made while the rows are added
+        if (!select.isAggregated && !select.isGrouped) {
+            setDeferIndexes();
+        }
     }
 
     public RowSetNavigatorDataTable(Session session,
@@ -128,6 +135,8 @@ public class RowSetNavigatorDataTable extends RowSetNavigatorData {
                 true);
         mainIndex = queryExpression.mainIndex;
         fullIndex = queryExpression.fullIndex;
+
+        setDeferIndexes();
     }
 
     public RowSetNavigatorDataTable(Session session, TableBase table) {
@@ -146,8 +155,44 @@ public class RowSetNavigatorDataTable extends RowSetNavigatorData {
         reset();
     }
 
+    /**
+     * Rows are added to the primary index only, until another index is
+     * used. The other indexes are then built in one pass each, with the
+     * rows sorted in memory, or for large disk results, sorted externally.
+     */
+    private void setDeferIndexes() {
+
+        if (table.getIndexCount() > 1) {
+            deferIndexes = true;
+
+            ((RowStoreAVL) store).setDeferIndexes(true);
+        }
+    }
+
+    /**
+     * Builds the indexes deferred while the rows were added.
+     */
+    private void indexRows() {
+
+        if (!deferIndexes) {
+            return;
+        }
+
+        RowStoreAVL rowStore = (RowStoreAVL) store;
+
+        deferIndexes = false;
+
+        rowStore.setDeferIndexes(false);
+
+        for (int i = 1; i < table.getIndexCount(); i++) {
+            rowStore.indexRows(session, i);
+        }
+    }
+
     public void sortFull(Session session) {
 
+        indexRows();
+
         if (reindexTable) {
             store.indexRows(session);
         }
@@ -164,6 +209,8 @@ public class RowSetNavigatorDataTable extends RowSetNavigatorData {
     public void sortOrder(Session session) {
 
         if (orderIndex != null) {
+            indexRows();
+
             if (reindexTable) {
                 store.indexRows(session);
             }
@@ -181,6 +228,8 @@ public class RowSetNavigatorDataTable extends RowSetNavigatorData {
     public void sortOrderUnion(Session session, SortAndSlice sortAndSlice) {
 
         if (sortAndSlice.index != null) {
+            indexRows();
+
             mainIndex = sortAndSlice.index;
 
             reset();
@@ -222,6 +271,8 @@ public class RowSetNavigatorDataTable extends RowSetNavigatorData {
             return;
         }
 
+        indexRows();
+
         RowIterator it = groupIndex.findFirstRow(session, store, oldData);
 
         if (it.hasNext()) {
@@ -260,6 +311,7 @@ public class RowSetNavigatorDataTable extends RowSetNavigatorData {
     public void removeCurrent() {
 
         if (currentRow != null) {
+            indexRows();
             iterator.removeCurrent();
 
             currentRow = null;
@@ -329,6 +381,8 @@ public class RowSetNavigatorDataTable extends RowSetNavigatorData {
 
     public Object[] getData(Long rowId) {
 
+        indexRows();
+
         tempRowData[0] = rowId;
 
         RowIterator it = idIndex.findFirstRow(session, store, tempRowData,
@@ -615,6 +669,8 @@ public class RowSetNavigatorDataTable extends RowSetNavigatorData {
 
     boolean containsRow(Object[] data) {
 
+        indexRows();
+
         RowIterator it     = mainIndex.findFirstRow(session, store, data);
         boolean     result = it.hasNext();
 
@@ -624,6 +680,9 @@ public class RowSetNavigatorDataTable extends RowSetNavigatorData {
     }
 
     RowIterator findFirstRow(Object[] data) {
+
+        indexRows();
+
         return mainIndex.findFirstRow(session, store, data);
     }
 }
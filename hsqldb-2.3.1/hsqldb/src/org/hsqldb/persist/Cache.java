@@ -40,8 +40,19 @@ import org.hsqldb.map.BaseHashMap;
 /**
  * New implementation of row caching for CACHED tables.<p>
  *
- * Manages memory for the cache map and its contents based on least recently
- * used clearup.<p>
+ * Manages memory for the cache map and its contents based on one of two
+ * eviction policies.<p>
+ *
+ * POLICY_ACCESS_COUNT is the original least recently used clearup, which
+ * removes about half the rows with the lowest access count in one sweep of
+ * the whole cache.<p>
+ *
+ * POLICY_SEGMENTED_CLOCK (the default) keeps rows in a probationary and a
+ * protected segment and uses a persistent clock hand to evict small batches.
+ * A newly loaded row is probationary and is promoted only when it is accessed
+ * again after a correlation window has passed. Rows touched repeatedly by a
+ * single large scan are therefore evicted before the working set.<p>
+ *
  * Also provides services for selecting rows to be saved and passing them
  * to DataFileCache.<p>
  *
@@ -51,6 +62,10 @@ import org.hsqldb.map.BaseHashMap;
  */
 public class Cache extends BaseHashMap {
 
+    static final int POLICY_ACCESS_COUNT    = 0;
+    static final int POLICY_SEGMENTED_CLOCK = 1;
+
+    //
     final DataFileCache                        dataFileCache;
     private int                                capacity;         // number of Rows
     private long                               bytesCapacity;    // number of bytes
@@ -63,6 +78,22 @@ public class Cache extends BaseHashMap {
     private CachedObject[] rowTable;
     long                   cacheBytesLength;
 
+    // segmented clock
+    private final int policy;
+    private int[]     clockTable;        // access count when last examined
+    private boolean[] protectedTable;
+    private int       clockHand;
+    private int       protectedCount;
+    private int       protectedCapacity;
+    private int       correlationWindow;
+    private int       evictRowsTarget;
+    private long      evictBytesTarget;
+
+    // statistics - hit count is updated without exclusive lock
+    long hitCount;
+    long missCount;
+    long evictCount;
+
     // for testing
     StopWatch saveAllTimer = new StopWatch(false);
     StopWatch sortTimer    = new StopWatch(false);
@@ -83,6 +114,16 @@ public class Cache extends BaseHashMap {
         objectIterator   = new BaseHashIterator(true);
         updateAccess     = true;
         comparator       = rowComparator;
+        policy           = dfc.database.logger.propCachePolicy;
+
+        if (policy == POLICY_SEGMENTED_CLOCK) {
+            clockTable        = new int[accessTable.length];
+            protectedTable    = new boolean[accessTable.length];
+            protectedCapacity = capacity - capacity / 4;
+            correlationWindow = capacity / 4;
+            evictRowsTarget   = capacity - (capacity >> 5) - 1;
+            evictBytesTarget  = bytesCapacity - (bytesCapacity >> 5);
+        }
     }
 
     /**
@@ -101,9 +142,7 @@ public class Cache extends BaseHashMap {
     public CachedObject get(long pos) {
 
         if (accessCount > ACCESS_MAX && updateAccess) {
-            updateAccessCounts();
-            resetAccessCount();
-            updateObjectAccessCounts();
+            resetAccessCounts();
         }
 
         int lookup = getObjectLookup(pos);
@@ -114,6 +153,8 @@ public class Cache extends BaseHashMap {
 
         accessTable[lookup] = ++accessCount;
 
+        hitCount++;
+
         CachedObject object = (CachedObject) objectKeyTable[lookup];
 
         return object;
@@ -140,15 +181,21 @@ public class Cache extends BaseHashMap {
         }
 
         if (accessCount > ACCESS_MAX && updateAccess) {
-            updateAccessCounts();
-            resetAccessCount();
-            updateObjectAccessCounts();
+            resetAccessCounts();
         }
 
         super.addOrRemoveObject(row, row.getPos(), false);
         row.setInMemory(true);
 
         cacheBytesLength += storageSize;
+
+        if (clockTable != null) {
+            int lookup = getObjectLookup(row.getPos());
+
+            releaseSlot(lookup);
+
+            clockTable[lookup] = accessCount;
+        }
     }
 
     /**
@@ -156,6 +203,16 @@ public class Cache extends BaseHashMap {
      */
     CachedObject release(long pos) {
 
+        if (clockTable != null) {
+            int lookup = getObjectLookup(pos);
+
+            if (lookup == -1) {
+                return null;
+            }
+
+            releaseSlot(lookup);
+        }
+
         CachedObject r = (CachedObject) super.addOrRemoveObject(null, pos,
             true);
 
@@ -180,6 +237,34 @@ public class Cache extends BaseHashMap {
         objectKeyTable[lookup] = row;
     }
 
+    /**
+     * Rebases the access counts when they approach the maximum int value.
+     * The clock stamps are rebased by the same amount as the access table.
+     */
+    private void resetAccessCounts() {
+
+        updateAccessCounts();
+
+        if (clockTable != null) {
+            int base = accessMin;
+
+            if (base < Integer.MAX_VALUE - (1 << 24)) {
+                base = Integer.MAX_VALUE - (1 << 24);
+            }
+
+            for (int i = 0; i < clockTable.length; i++) {
+                if (clockTable[i] <= base) {
+                    clockTable[i] = 0;
+                } else {
+                    clockTable[i] -= base;
+                }
+            }
+        }
+
+        resetAccessCount();
+        updateObjectAccessCounts();
+    }
+
     private void updateAccessCounts() {
 
         CachedObject r;
@@ -217,15 +302,24 @@ public class Cache extends BaseHashMap {
     /**
      * Reduces the number of rows held in this Cache object. <p>
      *
-     * Cleanup is done by checking the accessCount of the Rows and removing
-     * the rows with the lowest access count.
-     *
      * Index operations require that up to 5 recently accessed rows remain
      * in the cache. This is ensured by prior calling keepInMemory().
-     *
      */
     private void cleanUp(boolean all) {
 
+        if (policy == POLICY_SEGMENTED_CLOCK) {
+            evict(all);
+        } else {
+            cleanUpByAccessCount(all);
+        }
+    }
+
+    /**
+     * Cleanup is done by checking the accessCount of the Rows and removing
+     * the rows with the lowest access count.
+     */
+    private void cleanUpByAccessCount(boolean all) {
+
         if (updateAccess) {
             updateAccessCounts();
         }
@@ -271,6 +365,7 @@ public class Cache extends BaseHashMap {
                     cacheBytesLength -= row.getStorageSize();
 
                     removeCount--;
+                    evictCount++;
                 }
             }
 
@@ -288,6 +383,130 @@ public class Cache extends BaseHashMap {
                                     / dataFileCache.dataFileScale;
     }
 
+    /**
+     * Evicts a small batch of rows, resuming the clock sweep from where the
+     * previous call stopped.<p>
+     *
+     * A protected row that has been accessed since the hand last passed stays
+     * protected, otherwise it is moved to the probationary segment. A
+     * probationary row is promoted if it has been accessed after the
+     * correlation window since it was loaded or demoted. Otherwise it is
+     * evicted once it is older than the window. If two full rounds do not
+     * free enough space, the third round evicts any row that is not kept in
+     * memory.
+     */
+    private void evict(boolean all) {
+
+        int  rowsTarget  = all ? 0
+                               : evictRowsTarget;
+        long bytesTarget = all ? 0
+                               : evictBytesTarget;
+        int  limit       = objectKeyTable.length;
+        int  maxScan     = limit * 3;
+        int  savecount   = 0;
+
+        for (int scanned = 0; scanned < maxScan; scanned++) {
+            if (size() <= rowsTarget && cacheBytesLength <= bytesTarget) {
+                break;
+            }
+
+            if (clockHand >= limit) {
+                clockHand = 0;
+            }
+
+            int          lookup = clockHand++;
+            CachedObject row    = (CachedObject) objectKeyTable[lookup];
+
+            if (row == null) {
+                continue;
+            }
+
+            int stamp = row.getAccessCount();
+
+            if (stamp > accessTable[lookup]) {
+                accessTable[lookup] = stamp;
+            } else {
+                stamp = accessTable[lookup];
+            }
+
+            boolean force = all || scanned >= limit * 2;
+
+            if (!force) {
+                int lastStamp = clockTable[lookup];
+
+                if (protectedTable[lookup]) {
+                    if (stamp <= lastStamp
+                            || protectedCount > protectedCapacity) {
+                        protectedTable[lookup] = false;
+
+                        protectedCount--;
+                    }
+
+                    clockTable[lookup] = accessCount;
+
+                    continue;
+                }
+
+                if (stamp - lastStamp > correlationWindow) {
+                    protectedTable[lookup] = true;
+                    clockTable[lookup]     = accessCount;
+
+                    protectedCount++;
+
+                    continue;
+                }
+
+                if (accessCount - lastStamp <= correlationWindow) {
+                    continue;
+                }
+            }
+
+            synchronized (row) {
+                if (row.isKeepInMemory()) {
+                    continue;
+                }
+
+                if (row.hasChanged()) {
+                    rowTable[savecount++] = row;
+                }
+
+                releaseSlot(lookup);
+                row.setInMemory(false);
+                super.addOrRemoveObject(null, row.getPos(), true);
+
+                cacheBytesLength -= row.getStorageSize();
+
+                evictCount++;
+            }
+
+            if (savecount == rowTable.length) {
+                saveRows(savecount);
+
+                savecount = 0;
+            }
+        }
+
+        saveRows(savecount);
+
+        this.maxPositionOnCleanup = dataFileCache.fileFreePosition
+                                    / dataFileCache.dataFileScale;
+    }
+
+    /**
+     * Resets the segment state of a slot that is about to be reused or
+     * removed.
+     */
+    private void releaseSlot(int lookup) {
+
+        if (protectedTable[lookup]) {
+            protectedTable[lookup] = false;
+
+            protectedCount--;
+        }
+
+        clockTable[lookup] = 0;
+    }
+
     void clearUnchanged() {
 
         objectIterator.reset();
@@ -297,10 +516,16 @@ public class Cache extends BaseHashMap {
 
             synchronized (row) {
                 if (!row.isKeepInMemory() && !row.hasChanged()) {
+                    if (clockTable != null) {
+                        releaseSlot(objectIterator.getLookup());
+                    }
+
                     row.setInMemory(false);
                     objectIterator.remove();
 
                     cacheBytesLength -= row.getStorageSize();
+
+                    evictCount++;
                 }
             }
         }
@@ -328,6 +553,57 @@ public class Cache extends BaseHashMap {
         logSaveRowsEvent(count, startTime);
     }
 
+    /**
+     * Returns the number of rows that have changed since they were last
+     * saved.
+     */
+    int getChangedCount() {
+
+        int count = 0;
+
+        objectIterator.reset();
+
+        for (; objectIterator.hasNext(); ) {
+            CachedObject r = (CachedObject) objectIterator.next();
+
+            if (r.hasChanged()) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes out up to count modified rows that are not in use, in the order
+     * of their file positions. The rows remain in the cache so that later
+     * eviction can drop them without writing. Returns the number written.
+     */
+    int saveChanged(int count) {
+
+        int savecount = 0;
+
+        if (count > rowTable.length) {
+            count = rowTable.length;
+        }
+
+        objectIterator.reset();
+
+        for (; objectIterator.hasNext() && savecount < count; ) {
+            CachedObject r = (CachedObject) objectIterator.next();
+
+            synchronized (r) {
+                if (r.hasChanged() && !r.isKeepInMemory()) {
+                    rowTable[savecount++] = r;
+                }
+            }
+        }
+
+        saveRows(savecount);
+
+        return savecount;
+    }
+
     /**
      * Writes out all modified cached Rows.
      */
@@ -382,6 +658,16 @@ public class Cache extends BaseHashMap {
         super.clear();
 
         cacheBytesLength = 0;
+
+        if (clockTable != null) {
+            for (int i = 0; i < clockTable.length; i++) {
+                clockTable[i]     = 0;
+                protectedTable[i] = false;
+            }
+
+            protectedCount = 0;
+            clockHand      = 0;
+        }
     }
 
     public Iterator getIterator() {
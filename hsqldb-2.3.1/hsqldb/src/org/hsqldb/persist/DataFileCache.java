@@ -32,16 +32,18 @@
 package org.hsqldb.persist;
 
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.hsqldb.Database;
+import org.hsqldb.DatabaseManager;
 import org.hsqldb.HsqlException;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.lib.FileAccess;
 import org.hsqldb.lib.FileArchiver;
 import org.hsqldb.lib.FileUtil;
+import org.hsqldb.lib.HsqlTimer;
 import org.hsqldb.lib.Iterator;
 import org.hsqldb.map.BitMap;
 import org.hsqldb.rowio.RowInputBinary180;
@@ -132,9 +134,19 @@ public class DataFileCache {
     private RAShadowFile shadowFile;
 
     //
-    ReadWriteLock lock      = new ReentrantReadWriteLock();
-    Lock          readLock  = lock.readLock();
-    Lock          writeLock = lock.writeLock();
+    ReentrantReadWriteLock lock      = new ReentrantReadWriteLock();
+    Lock                   readLock  = lock.readLock();
+    Lock                   writeLock = lock.writeLock();
+
+    // background write-back of changed rows
+    static final int writeBackInterval  = 500;
+    static final int writeBackBatchSize = 1024;
+    private Object   writeBackTask;
+
+    // striped latches and buffers for concurrent loading of rows
+    static final int            loadStripeCount = 16;
+    private Lock[]              loadLocks;
+    private RowInputInterface[] loadRowIn;
 
     public DataFileCache(Database db, String baseFileName) {
 
@@ -386,6 +398,7 @@ public class DataFileCache {
                 spaceManager = new DataSpaceManagerSimple(this);
             }
 
+            startWriteBack();
             logInfoEvent("dataFileCache open end");
         } catch (Throwable t) {
             logSevereEvent("DataFileCache.open", t);
@@ -653,6 +666,7 @@ public class DataFileCache {
      */
     public void release() {
 
+        stopWriteBack();
         writeLock.lock();
 
         try {
@@ -683,6 +697,7 @@ public class DataFileCache {
      */
     public void close() {
 
+        stopWriteBack();
         writeLock.lock();
 
         try {
@@ -716,6 +731,108 @@ public class DataFileCache {
         }
     }
 
+    /**
+     * Starts the periodic write-back of changed rows, if enabled by the
+     * hsqldb.cache_write_back property.
+     */
+    void startWriteBack() {
+
+        if (cacheReadonly || database.logger.propCacheWriteBack == 0) {
+            return;
+        }
+
+        stopWriteBack();
+
+        writeBackTask =
+            DatabaseManager.getTimer().schedulePeriodicallyAfter(0,
+                writeBackInterval, new Runnable() {
+
+            public void run() {
+                writeBack();
+            }
+        }, false);
+    }
+
+    void stopWriteBack() {
+
+        Object task = writeBackTask;
+
+        if (task != null) {
+            HsqlTimer.cancel(task);
+
+            writeBackTask = null;
+        }
+    }
+
+    /**
+     * Writes changed rows ahead of eviction, so that eviction can mostly drop
+     * unchanged rows.<p>
+     *
+     * When the proportion of changed rows exceeds the high watermark set by
+     * hsqldb.cache_write_back, rows are written in small batches sorted by
+     * file position until the proportion falls below half that value. Each
+     * batch goes through saveRows(), so rows are copied to the incremental
+     * backup before they are overwritten. The write lock is released between
+     * batches and no batch is written while a checkpoint or backup is in
+     * progress or before the shadow file is reopened after a checkpoint.
+     */
+    void writeBack() {
+
+        int highCount = (int) ((long) maxCacheRows
+                               * database.logger.propCacheWriteBack / 100);
+        int lowCount = highCount / 2;
+        int changed;
+
+        readLock.lock();
+
+        try {
+            if (dataFile == null) {
+                return;
+            }
+
+            changed = cache.getChangedCount();
+        } finally {
+            readLock.unlock();
+        }
+
+        if (changed <= highCount) {
+            return;
+        }
+
+        while (changed > lowCount) {
+            if (!writeLock.tryLock()) {
+                return;
+            }
+
+            try {
+                if (dataFile == null || cacheReadonly
+                        || database.logger.backupState.get()
+                           != Logger.stateNormal) {
+                    return;
+                }
+
+                if (database.logger.propIncrementBackup
+                        && shadowFile == null) {
+                    return;
+                }
+
+                int saved = cache.saveChanged(writeBackBatchSize);
+
+                if (saved == 0) {
+                    return;
+                }
+
+                changed -= saved;
+            } catch (Throwable t) {
+                logSevereEvent("DataFileCache.writeBack", t);
+
+                return;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
     protected void clear() {
 
         writeLock.lock();
@@ -822,15 +939,30 @@ public class DataFileCache {
         }
 
         if (rowIn == null) {
-            if (is180) {
-                rowIn = new RowInputBinary180(new byte[initIOBufferSize]);
-            } else {
-                rowIn = new RowInputBinaryDecode(database.logger.getCrypto(),
-                                                 new byte[initIOBufferSize]);
+            rowIn = newRowInput();
+        }
+
+        if (loadLocks == null) {
+            loadLocks = new Lock[loadStripeCount];
+            loadRowIn = new RowInputInterface[loadStripeCount];
+
+            for (int i = 0; i < loadStripeCount; i++) {
+                loadLocks[i] = new ReentrantLock();
+                loadRowIn[i] = newRowInput();
             }
         }
     }
 
+    private RowInputInterface newRowInput() {
+
+        if (is180) {
+            return new RowInputBinary180(new byte[initIOBufferSize]);
+        } else {
+            return new RowInputBinaryDecode(database.logger.getCrypto(),
+                                            new byte[initIOBufferSize]);
+        }
+    }
+
     DataFileDefrag defrag() {
 
         writeLock.lock();
@@ -1040,9 +1172,101 @@ public class DataFileCache {
         return getFromFile(pos, store, keep);
     }
 
+    /**
+     * Returns true if rows can be read from the file while holding only the
+     * read lock. Not used when the current thread holds the write lock, as
+     * waiting for a load latch could then deadlock.
+     */
+    private boolean isConcurrentRead() {
+
+        RandomAccessInterface file = dataFile;
+
+        return loadLocks != null && file instanceof RandomAccessPositional
+               && ((RandomAccessPositional) file).isPositionalRead()
+               && !lock.isWriteLockedByCurrentThread();
+    }
+
+    /**
+     * Loads a row while other threads load rows at different positions.<p>
+     *
+     * A latch for the stripe of the position prevents duplicate loads of
+     * the same row and guards the stripe's input buffer. The file read and
+     * the decoding of the row take place under the read lock. Only adding
+     * the row to the cache requires the write lock.
+     */
+    private CachedObject getFromFileConcurrent(long pos,
+            PersistentStore store, boolean keep) {
+
+        int               stripe   = (int) pos & (loadStripeCount - 1);
+        Lock              loadLock = loadLocks[stripe];
+        RowInputInterface in       = loadRowIn[stripe];
+        CachedObject      object;
+
+        loadLock.lock();
+
+        try {
+            readLock.lock();
+
+            try {
+                object = cache.get(pos);
+
+                if (object == null) {
+                    readObject(pos, in);
+
+                    object = store.get(in);
+                }
+            } catch (OutOfMemoryError err) {
+                logSevereEvent(dataFileName + " getFromFile out of mem "
+                               + pos, err);
+
+                HsqlException ex = Error.error(ErrorCode.OUT_OF_MEMORY, err);
+
+                ex.info = in;
+
+                throw ex;
+            } catch (HsqlException e) {
+                logSevereEvent(dataFileName + " getFromFile failed " + pos,
+                               e);
+
+                throw e;
+            } finally {
+                readLock.unlock();
+            }
+
+            writeLock.lock();
+
+            try {
+                CachedObject existing = cache.get(pos);
+
+                if (existing == null) {
+                    cache.missCount++;
+
+                    cache.put(object);
+                    store.set(object);
+                } else {
+                    object = existing;
+                }
+
+                if (keep) {
+                    object.keepInMemory(true);
+                }
+
+                return object;
+            } finally {
+                writeLock.unlock();
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
     private CachedObject getFromFile(long pos, PersistentStore store,
                                      boolean keep) {
 
+        if (isConcurrentRead()) {
+            return getFromFileConcurrent(pos, store, keep);
+        }
+
         CachedObject object = null;
 
         writeLock.lock();
@@ -1058,6 +1282,8 @@ public class DataFileCache {
                 return object;
             }
 
+            cache.missCount++;
+
             for (int j = 0; j < 2; j++) {
                 try {
                     readObject(pos);
@@ -1129,6 +1355,8 @@ public class DataFileCache {
                 return object;
             }
 
+            cache.missCount++;
+
             for (int j = 0; j < 2; j++) {
                 try {
                     readObject(pos, size);
@@ -1222,6 +1450,40 @@ public class DataFileCache {
         }
     }
 
+    /**
+     * Reads a row using a positional read, leaving the shared file pointer
+     * and rowIn unchanged.
+     */
+    private void readObject(long pos, RowInputInterface in) {
+
+        RandomAccessPositional file = (RandomAccessPositional) dataFile;
+        long                   filePos = pos * dataFileScale;
+
+        try {
+            byte[] buffer = in.getBuffer();
+
+            file.read(filePos, buffer, 0, 4);
+
+            int size = ((buffer[0] & 0xff) << 24) | ((buffer[1] & 0xff) << 16)
+                       | ((buffer[2] & 0xff) << 8) | (buffer[3] & 0xff);
+
+            in.resetRow(pos, size);
+            file.read(filePos + 4, in.getBuffer(), 4, size - 4);
+        } catch (Throwable t) {
+            logSevereEvent("DataFileCache.readObject", t, pos);
+
+            HsqlException ex = Error.error(ErrorCode.DATA_FILE_ERROR, t);
+
+            if (in.getPos() != pos) {
+                in.resetRow(pos, 0);
+            }
+
+            ex.info = in;
+
+            throw ex;
+        }
+    }
+
     protected void readObject(long pos, int size) {
 
         try {
@@ -1569,6 +1831,18 @@ public class DataFileCache {
         return fileFreePosition;
     }
 
+    public long getCacheHitCount() {
+        return cache.hitCount;
+    }
+
+    public long getCacheMissCount() {
+        return cache.missCount;
+    }
+
+    public long getCacheEvictCount() {
+        return cache.evictCount;
+    }
+
     public int getCachedObjectCount() {
         return cache.size();
     }
@@ -50,6 +50,7 @@ import org.hsqldb.scriptio.ScriptReaderBase;
 import org.hsqldb.scriptio.ScriptReaderDecode;
 import org.hsqldb.scriptio.ScriptReaderText;
 import org.hsqldb.scriptio.ScriptWriterBase;
+import org.hsqldb.scriptio.ScriptWriterBinaryLog;
 import org.hsqldb.scriptio.ScriptWriterEncode;
 import org.hsqldb.scriptio.ScriptWriterText;
 
@@ -699,8 +700,13 @@ public class Log {
 
         try {
             if (crypto == null) {
-                dbLogWriter = new ScriptWriterText(database, logFileName,
-                                                   false, false, false);
+                if (database.logger.propLogBinary) {
+                    dbLogWriter = new ScriptWriterBinaryLog(database,
+                            logFileName);
+                } else {
+                    dbLogWriter = new ScriptWriterText(database, logFileName,
+                                                       false, false, false);
+                }
             } else {
                 dbLogWriter = new ScriptWriterEncode(database, logFileName,
                                                      crypto);
@@ -54,7 +54,8 @@ import org.hsqldb.lib.Storage;
  * @version 2.3.0
  * @since  1.7.2
  */
-final class RAFile implements RandomAccessInterface {
+final class RAFile
+implements RandomAccessInterface, RandomAccessPositional {
 
     static final int DATA_FILE_RAF    = 0;
     static final int DATA_FILE_NIO    = 1;
@@ -149,13 +150,6 @@ final class RAFile implements RandomAccessInterface {
         } else if (type == DATA_FILE_RAF) {
             return new RAFile(database, name, readonly, true, false);
         } else {
-            java.io.File fi     = new java.io.File(name);
-            long         length = fi.length();
-
-            if (length > database.logger.propNioMaxSize) {
-                return new RAFile(database, name, readonly, true, false);
-            }
-
             try {
                 Class.forName("java.nio.MappedByteBuffer");
 
@@ -328,6 +322,27 @@ final class RAFile implements RandomAccessInterface {
         }
     }
 
+    public boolean isPositionalRead() {
+        return true;
+    }
+
+    /**
+     * Reads directly from the file, bypassing the buffer. Concurrent
+     * calls are serialized on the file only for the duration of the read.
+     */
+    public void read(long position, byte[] b, int offset,
+                     int length) throws IOException {
+
+        if (position + length > fileLength) {
+            throw new EOFException();
+        }
+
+        synchronized (file) {
+            file.seek(position);
+            file.readFully(b, offset, length);
+        }
+    }
+
     public void write(byte[] b, int off, int length) throws IOException {
 
         try {
@@ -44,11 +44,16 @@ import org.hsqldb.Database;
  * channel of fixed size. After reaching this size, the file and channel are
  * closed and a new one opened, up to the maximum size.
  *
+ * The NIO store maps the file up to the maximum mapped size and accesses the
+ * rest with file I/O. An ordinary RAFile is used only when the NIO store
+ * cannot be opened or extended.
+ *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
  * @version 2.3.0
  * @since 1.7.2
  */
-public final class RAFileHybrid implements RandomAccessInterface {
+public final class RAFileHybrid
+implements RandomAccessInterface, RandomAccessPositional {
 
     final Database        database;
     final String          fileName;
@@ -93,6 +98,16 @@ public final class RAFileHybrid implements RandomAccessInterface {
         store.read(b, offset, length);
     }
 
+    public boolean isPositionalRead() {
+        return store instanceof RandomAccessPositional
+               && ((RandomAccessPositional) store).isPositionalRead();
+    }
+
+    public void read(long position, byte[] b, int offset,
+                     int length) throws IOException {
+        ((RandomAccessPositional) store).read(position, b, offset, length);
+    }
+
     public void write(byte[] b, int offset, int length) throws IOException {
         store.write(b, offset, length);
     }
@@ -159,7 +174,7 @@ public final class RAFileHybrid implements RandomAccessInterface {
         long currentPosition = 0;
 
         if (store == null) {
-            preNio = requiredPosition <= database.logger.propNioMaxSize;
+            preNio = true;
         } else {
             currentPosition = store.getFilePointer();
 
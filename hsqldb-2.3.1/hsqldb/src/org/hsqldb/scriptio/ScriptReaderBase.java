@@ -52,6 +52,7 @@ public abstract class ScriptReaderBase {
     public static final int COMMIT_STATEMENT     = 4;
     public static final int SESSION_ID           = 5;
     public static final int SET_SCHEMA_STATEMENT = 6;
+    public static final int SEQUENCE_STATEMENT   = 7;
     Database                database;
     int                     lineCount;
 
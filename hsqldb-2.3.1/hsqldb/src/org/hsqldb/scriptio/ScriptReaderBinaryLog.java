@@ -0,0 +1,316 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.scriptio;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+import org.hsqldb.Database;
+import org.hsqldb.Session;
+import org.hsqldb.Table;
+import org.hsqldb.error.Error;
+import org.hsqldb.error.ErrorCode;
+import org.hsqldb.lib.IntKeyHashMap;
+import org.hsqldb.rowio.RowInputBinary;
+import org.hsqldb.types.Type;
+
+/**
+ * Reads a .log file written by ScriptWriterBinaryLog.<p>
+ *
+ * Rows are decoded directly from the binary records. Only RECORD_STATEMENT
+ * records are returned as SQL text for compilation.<p>
+ *
+ * An incomplete record at the end of the file, or a last record that fails
+ * the checksum, is the result of a write that was interrupted and ends the
+ * replay. A record that fails the checksum before the end of the file is
+ * reported as an error.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class ScriptReaderBinaryLog extends ScriptReaderBase {
+
+    DataInputStream dataStreamIn;
+    RowInputBinary  rowIn;
+    CRC32           crc;
+    IntKeyHashMap   tables;
+    long            filePosition;
+    String          fileName;
+
+    public ScriptReaderBinaryLog(Database db,
+                                 String fileName) throws IOException {
+
+        super(db);
+
+        this.fileName = fileName;
+
+        InputStream inputStream =
+            database.logger.getFileAccess().openInputStreamElement(fileName);
+
+        dataStreamIn = new DataInputStream(new BufferedInputStream(inputStream,
+                1 << 16));
+        rowIn  = new RowInputBinary(new byte[256]);
+        crc    = new CRC32();
+        tables = new IntKeyHashMap();
+
+        if (!readHeader(dataStreamIn)) {
+            dataStreamIn.close();
+
+            throw new IOException("not a binary log file: " + fileName);
+        }
+
+        filePosition = ScriptWriterBinaryLog.MAGIC.length + 4;
+    }
+
+    /**
+     * Returns true if the file starts with the binary log header.
+     */
+    public static boolean isBinaryLog(Database db, String fileName) {
+
+        DataInputStream in = null;
+
+        try {
+            in = new DataInputStream(
+                db.logger.getFileAccess().openInputStreamElement(fileName));
+
+            return readHeader(in);
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {}
+            }
+        }
+    }
+
+    private static boolean readHeader(DataInputStream in) throws IOException {
+
+        byte[] magic = new byte[ScriptWriterBinaryLog.MAGIC.length];
+
+        try {
+            in.readFully(magic);
+
+            for (int i = 0; i < magic.length; i++) {
+                if (magic[i] != ScriptWriterBinaryLog.MAGIC[i]) {
+                    return false;
+                }
+            }
+
+            return in.readInt() == ScriptWriterBinaryLog.VERSION;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    protected void readDDL(Session session) {
+        throw Error.runtimeError(ErrorCode.U_S0500, "ScriptReaderBinaryLog");
+    }
+
+    protected void readExistingData(Session session) {
+        throw Error.runtimeError(ErrorCode.U_S0500, "ScriptReaderBinaryLog");
+    }
+
+    public boolean readLoggedStatement(Session session) {
+
+        try {
+            while (readRecord()) {
+                if (processRecord()) {
+                    return true;
+                }
+            }
+
+            return false;
+        } catch (IOException e) {
+            throw Error.error(e, ErrorCode.FILE_IO_ERROR, null);
+        }
+    }
+
+    /**
+     * Reads the next complete record into rowIn. Returns false at the end of
+     * the file or at an interrupted record at the end of the file.
+     */
+    private boolean readRecord() throws IOException {
+
+        int length;
+        int checksum;
+
+        try {
+            length = dataStreamIn.readInt();
+        } catch (EOFException e) {
+            return false;
+        }
+
+        try {
+            checksum = dataStreamIn.readInt();
+
+            if (length < 9 || length > 1 << 30) {
+                throw new EOFException();
+            }
+
+            rowIn.resetBlock(filePosition, length);
+            dataStreamIn.readFully(rowIn.getBuffer(), 0, length);
+        } catch (EOFException e) {
+            logTruncated();
+
+            return false;
+        }
+
+        crc.reset();
+        crc.update(rowIn.getBuffer(), 0, length);
+
+        if ((int) crc.getValue() != checksum) {
+            if (dataStreamIn.read() == -1) {
+                logTruncated();
+
+                return false;
+            }
+
+            throw Error.error(ErrorCode.ERROR_IN_SCRIPT_FILE,
+                              "checksum error in " + fileName
+                              + " at position " + filePosition);
+        }
+
+        filePosition += ScriptWriterBinaryLog.HEADER_SIZE + length;
+
+        lineCount++;
+
+        return true;
+    }
+
+    private void logTruncated() {
+        database.logger.logInfoEvent("incomplete record at end of log "
+                                     + fileName + " position "
+                                     + filePosition);
+    }
+
+    /**
+     * Returns false for RECORD_TABLE records, which are not passed on.
+     */
+    private boolean processRecord() throws IOException {
+
+        int type = rowIn.readByte();
+
+        sessionNumber = (int) rowIn.readLong();
+        rowData       = null;
+        currentTable  = null;
+
+        switch (type) {
+
+            case ScriptWriterBinaryLog.RECORD_TABLE : {
+                int    id     = rowIn.readInt();
+                String schema = rowIn.readString();
+                String name   = rowIn.readString();
+                Table table = database.schemaManager.getUserTable(
+                    database.sessionManager.getSysSession(), name, schema);
+
+                tables.put(id, table);
+
+                return false;
+            }
+            case ScriptWriterBinaryLog.RECORD_INSERT : {
+                currentTable = getTable(rowIn.readInt());
+                rowData      = rowIn.readData(currentTable.getColumnTypes());
+                statementType = INSERT_STATEMENT;
+
+                break;
+            }
+            case ScriptWriterBinaryLog.RECORD_DELETE : {
+                currentTable = getTable(rowIn.readInt());
+
+                Type[] colTypes = currentTable.hasPrimaryKey()
+                                  ? currentTable.getPrimaryKeyTypes()
+                                  : currentTable.getColumnTypes();
+
+                rowData       = rowIn.readData(colTypes);
+                statementType = DELETE_STATEMENT;
+
+                break;
+            }
+            case ScriptWriterBinaryLog.RECORD_COMMIT :
+                statementType = COMMIT_STATEMENT;
+                break;
+
+            case ScriptWriterBinaryLog.RECORD_SCHEMA :
+                currentSchema = rowIn.readString();
+                statementType = SET_SCHEMA_STATEMENT;
+                break;
+
+            case ScriptWriterBinaryLog.RECORD_SEQUENCE : {
+                String schema = rowIn.readString();
+                String name   = rowIn.readString();
+
+                currentSequence = database.schemaManager.getSequence(name,
+                        schema, true);
+                sequenceValue = rowIn.readLong();
+                statementType = SEQUENCE_STATEMENT;
+
+                break;
+            }
+            case ScriptWriterBinaryLog.RECORD_STATEMENT :
+                statement     = rowIn.readString();
+                statementType = ANY_STATEMENT;
+                break;
+
+            default :
+                throw Error.error(ErrorCode.ERROR_IN_SCRIPT_FILE,
+                                  "record type " + type + " in " + fileName
+                                  + " at position " + filePosition);
+        }
+
+        return true;
+    }
+
+    private Table getTable(int id) {
+
+        Table table = (Table) tables.get(id);
+
+        if (table == null) {
+            throw Error.error(ErrorCode.ERROR_IN_SCRIPT_FILE,
+                              "table id " + id + " in " + fileName);
+        }
+
+        return table;
+    }
+
+    public void close() {
+
+        try {
+            dataStreamIn.close();
+        } catch (Exception e) {}
+    }
+}
@@ -34,6 +34,7 @@ package org.hsqldb.scriptio;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.locks.LockSupport;
 
 import org.hsqldb.Database;
 import org.hsqldb.DatabaseManager;
@@ -83,7 +84,13 @@ import org.hsqldb.result.Result;
  * process or done as a result of the SCRIPT command. In this case, the
  * DATA block contains the CACHED table data as well.<p>
  *
- * DatabaseScriptReader and its subclasses read back the data at startup time.
+ * DatabaseScriptReader and its subclasses read back the data at startup time.<p>
+ *
+ * When the write delay is 0, commits use group commit. Each commit is given a
+ * sequence number when its record is written. The committing session then
+ * calls syncCommit() after it has released the engine locks. The first
+ * waiting session performs one file sync for all the commits written up to
+ * that point, while the others wait for it to complete.
  *
  * @author Fred Toussi (fredt@users dot sourceforge.net)
  * @version 2.1.1
@@ -114,6 +121,17 @@ public abstract class ScriptWriterBase implements Runnable {
     long             lineCount;
     volatile boolean needsSync;
     private int      syncCount;
+
+    // group commit
+    private final Object syncLock = new Object();
+    private long         writtenSequence;
+    private long         syncedSequence;
+    private boolean      syncInProgress;
+    private long         groupSyncCount;
+    private long         groupSyncCommitCount;
+    private long         groupSyncMaxBatch;
+    private long         groupSyncNanos;
+    private long         groupSyncMaxNanos;
     static final int INSERT             = 0;
     static final int INSERT_WITH_SCHEMA = 1;
 
@@ -204,7 +222,11 @@ public abstract class ScriptWriterBase implements Runnable {
 
         needsSync = false;
 
+        long sequence;
+
         synchronized (fileStreamOut) {
+            sequence = writtenSequence;
+
             try {
                 fileStreamOut.flush();
                 outDescriptor.sync();
@@ -220,6 +242,147 @@ public abstract class ScriptWriterBase implements Runnable {
                                                 e);
             }
         }
+
+        synchronized (syncLock) {
+            if (sequence > syncedSequence) {
+                syncedSequence = sequence;
+            }
+
+            syncLock.notifyAll();
+        }
+    }
+
+    /**
+     * Called after writing a commit record when the write delay is 0. The
+     * session calls syncCommit() with the returned sequence once it has
+     * released the locks held for the commit.
+     */
+    public void setCommitSync(Session session) {
+
+        synchronized (fileStreamOut) {
+            session.logSyncSequence = ++writtenSequence;
+        }
+
+        session.logSyncWriter = this;
+    }
+
+    /**
+     * Returns when the commit with the given sequence has been synced. If no
+     * sync is in progress, the caller performs the sync for all the commits
+     * written so far, after waiting for the configured time to allow other
+     * commits to join the batch.
+     */
+    public void syncCommit(long sequence) {
+
+        synchronized (syncLock) {
+            while (true) {
+                if (syncedSequence >= sequence || isClosed) {
+                    return;
+                }
+
+                if (!syncInProgress) {
+                    break;
+                }
+
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {}
+            }
+
+            syncInProgress = true;
+        }
+
+        long target = syncedSequence;
+        long start  = 0;
+
+        try {
+            int waitMicros = database.logger.getGroupCommitWait();
+
+            if (waitMicros > 0) {
+                LockSupport.parkNanos(waitMicros * 1000L);
+            }
+
+            FileAccess.FileSync descriptor;
+
+            synchronized (this) {
+                OutputStream out = fileStreamOut;
+
+                if (out == null) {
+                    return;
+                }
+
+                synchronized (out) {
+                    if (isClosed) {
+                        return;
+                    }
+
+                    needsSync  = false;
+                    target     = writtenSequence;
+                    descriptor = outDescriptor;
+
+                    out.flush();
+                }
+            }
+
+            start = System.nanoTime();
+
+            descriptor.sync();
+        } catch (IOException e) {
+            if (!isClosed) {
+                database.logger.logWarningEvent("ScriptWriter synch error: ",
+                                                e);
+            }
+        } finally {
+            synchronized (syncLock) {
+                if (start != 0) {
+                    long nanos = System.nanoTime() - start;
+                    long batch = target - syncedSequence;
+
+                    if (batch > 0) {
+                        groupSyncCount++;
+
+                        groupSyncCommitCount += batch;
+                        groupSyncNanos       += nanos;
+
+                        if (batch > groupSyncMaxBatch) {
+                            groupSyncMaxBatch = batch;
+                        }
+
+                        if (nanos > groupSyncMaxNanos) {
+                            groupSyncMaxNanos = nanos;
+                        }
+                    }
+                }
+
+                if (target > syncedSequence) {
+                    syncedSequence = target;
+                }
+
+                syncInProgress = false;
+
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    public long getGroupSyncCount() {
+        return groupSyncCount;
+    }
+
+    public long getGroupSyncCommitCount() {
+        return groupSyncCommitCount;
+    }
+
+    public long getGroupSyncMaxBatch() {
+        return groupSyncMaxBatch;
+    }
+
+    public long getGroupSyncMicros() {
+        return groupSyncNanos / 1000;
+    }
+
+    public long getGroupSyncMaxMicros() {
+        return groupSyncMaxNanos / 1000;
     }
 
     public void close() {
@@ -231,19 +394,38 @@ public abstract class ScriptWriterBase implements Runnable {
         }
 
         try {
-            synchronized (fileStreamOut) {
-                finishStream();
-                forceSync();
-                fileStreamOut.close();
-
-                fileStreamOut = null;
-                outDescriptor = null;
-                isClosed      = true;
+            synchronized (this) {
+                synchronized (fileStreamOut) {
+                    finishStream();
+                    forceSync();
+                    fileStreamOut.close();
+
+                    fileStreamOut = null;
+                    outDescriptor = null;
+                    isClosed      = true;
+                }
             }
         } catch (IOException e) {
             throw Error.error(ErrorCode.FILE_IO_ERROR);
         }
 
+        synchronized (syncLock) {
+            syncLock.notifyAll();
+        }
+
+        if (groupSyncCount > 0) {
+            database.logger.logDetailEvent("group commit syncs: "
+                                           + groupSyncCount + " commits: "
+                                           + groupSyncCommitCount
+                                           + " max batch: "
+                                           + groupSyncMaxBatch
+                                           + " average sync micros: "
+                                           + getGroupSyncMicros()
+                                             / groupSyncCount
+                                           + " max sync micros: "
+                                           + getGroupSyncMaxMicros());
+        }
+
         byteCount = 0;
         lineCount = 0;
     }
@@ -0,0 +1,268 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.scriptio;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+import org.hsqldb.Database;
+import org.hsqldb.HsqlNameManager.HsqlName;
+import org.hsqldb.NumberSequence;
+import org.hsqldb.Row;
+import org.hsqldb.Session;
+import org.hsqldb.Table;
+import org.hsqldb.error.Error;
+import org.hsqldb.error.ErrorCode;
+import org.hsqldb.lib.HashMap;
+import org.hsqldb.lib.LongKeyHashMap;
+import org.hsqldb.rowio.RowOutputBinary;
+
+/**
+ * Writes the .log file in binary format.<p>
+ *
+ * The file starts with a header consisting of MAGIC and the format version.
+ * Each following record consists of the length of the record body, the CRC32
+ * checksum of the body and the body. The body starts with the record type
+ * and the session id.<p>
+ *
+ * Inserted and deleted rows are written as binary row images with the
+ * numeric id of the table. A RECORD_TABLE record maps the id to the schema
+ * and table names the first time a table is used in the file. Other
+ * statements are written as SQL text.<p>
+ *
+ * The .script file is still written by ScriptWriterText.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class ScriptWriterBinaryLog extends ScriptWriterBase {
+
+    static final byte[] MAGIC = new byte[] {
+        'H', 'S', 'Q', 'L', 'B', 'L', 'O', 'G'
+    };
+    static final int    VERSION          = 1;
+    static final int    HEADER_SIZE      = 8;
+    static final int    RECORD_TABLE     = 1;
+    static final int    RECORD_INSERT    = 2;
+    static final int    RECORD_DELETE    = 3;
+    static final int    RECORD_COMMIT    = 4;
+    static final int    RECORD_SCHEMA    = 5;
+    static final int    RECORD_SEQUENCE  = 6;
+    static final int    RECORD_STATEMENT = 7;
+
+    //
+    RowOutputBinary rowOut;
+    CRC32           crc;
+    HashMap         tableIds;
+    LongKeyHashMap  sessionSchemas;
+    int             tableCount;
+
+    public ScriptWriterBinaryLog(Database db, String file) {
+
+        super(db, file, false, false, false);
+
+        try {
+            rowOut.reset();
+            rowOut.write(MAGIC);
+            rowOut.writeInt(VERSION);
+            writeRowOutToFile();
+        } catch (IOException e) {
+            throw Error.error(e, ErrorCode.FILE_IO_ERROR,
+                              ErrorCode.M_Message_Pair, new Object[] {
+                e.toString(), outFile
+            });
+        }
+    }
+
+    protected void initBuffers() {
+
+        rowOut         = new RowOutputBinary(256, 1);
+        crc            = new CRC32();
+        tableIds       = new HashMap();
+        sessionSchemas = new LongKeyHashMap();
+    }
+
+    protected void writeDataTerm() throws IOException {}
+
+    /**
+     * Writes a RECORD_SCHEMA record when the current schema of the session
+     * is not the one last written for the session in this file.
+     */
+    protected void writeSessionIdAndSchema(Session session)
+    throws IOException {
+
+        if (session == null) {
+            return;
+        }
+
+        HsqlName schema = session.currentSchema;
+
+        if (sessionSchemas.get(session.getId()) == schema) {
+            return;
+        }
+
+        startRecord(session, RECORD_SCHEMA);
+        rowOut.writeString(schema.name);
+        writeRecord();
+        sessionSchemas.put(session.getId(), schema);
+    }
+
+    public void writeLogStatement(Session session,
+                                  String s) throws IOException {
+
+        writeSessionIdAndSchema(session);
+        startRecord(session, RECORD_STATEMENT);
+        rowOut.writeString(s);
+        writeRecord();
+
+        needsSync = true;
+    }
+
+    public void writeOtherStatement(Session session,
+                                    String s) throws IOException {
+
+        writeLogStatement(session, s);
+
+        if (writeDelay == 0) {
+            sync();
+        }
+    }
+
+    public void writeRow(Session session, Row row,
+                         Table table) throws IOException {
+
+        int tableId = getTableId(session, table);
+
+        startRecord(session, RECORD_INSERT);
+        rowOut.writeInt(tableId);
+        rowOut.writeData(row, table.getColumnTypes());
+        writeRecord();
+    }
+
+    public void writeInsertStatement(Session session, Row row,
+                                     Table table) throws IOException {
+        writeRow(session, row, table);
+    }
+
+    /**
+     * Only the primary key columns are written for tables with a primary
+     * key, as in the text format.
+     */
+    public void writeDeleteStatement(Session session, Table table,
+                                     Object[] data) throws IOException {
+
+        int tableId = getTableId(session, table);
+
+        startRecord(session, RECORD_DELETE);
+        rowOut.writeInt(tableId);
+        rowOut.writeData(table.getColumnCount(), table.getColumnTypes(), data,
+                         null, table.getPrimaryKey());
+        writeRecord();
+    }
+
+    public void writeSequenceStatement(Session session,
+                                       NumberSequence seq) throws IOException {
+
+        startRecord(session, RECORD_SEQUENCE);
+        rowOut.writeString(seq.getSchemaName().name);
+        rowOut.writeString(seq.getName().name);
+        rowOut.writeLong(seq.peek());
+        writeRecord();
+
+        needsSync = true;
+    }
+
+    public void writeCommitStatement(Session session) throws IOException {
+
+        startRecord(session, RECORD_COMMIT);
+        writeRecord();
+
+        needsSync = true;
+
+        if (writeDelay == 0) {
+            setCommitSync(session);
+        }
+    }
+
+    private int getTableId(Session session,
+                           Table table) throws IOException {
+
+        Integer id = (Integer) tableIds.get(table);
+
+        if (id != null) {
+            return id.intValue();
+        }
+
+        id = Integer.valueOf(++tableCount);
+
+        startRecord(session, RECORD_TABLE);
+        rowOut.writeInt(id.intValue());
+        rowOut.writeString(table.getName().schema.name);
+        rowOut.writeString(table.getName().name);
+        writeRecord();
+        tableIds.put(table, id);
+
+        return id.intValue();
+    }
+
+    private void startRecord(Session session, int type) {
+
+        rowOut.reset();
+        rowOut.writeInt(0);
+        rowOut.writeInt(0);
+        rowOut.writeByte(type);
+        rowOut.writeLong(session == null ? 0
+                                         : session.getId());
+    }
+
+    private void writeRecord() throws IOException {
+
+        int length = rowOut.size() - HEADER_SIZE;
+
+        crc.reset();
+        crc.update(rowOut.getBuffer(), HEADER_SIZE, length);
+        rowOut.writeIntData(length, 0);
+        rowOut.writeIntData((int) crc.getValue(), 4);
+        writeRowOutToFile();
+    }
+
+    void writeRowOutToFile() throws IOException {
+
+        synchronized (fileStreamOut) {
+            fileStreamOut.write(rowOut.getBuffer(), 0, rowOut.size());
+
+            byteCount += rowOut.size();
+
+            lineCount++;
+        }
+    }
+}
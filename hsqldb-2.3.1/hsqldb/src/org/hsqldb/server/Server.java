@@ -34,6 +34,7 @@ package org.hsqldb.server;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.lang.reflect.Method;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
@@ -253,6 +254,9 @@ public class Server implements HsqlSocketRequestHandler {
 //
     HashSet serverConnSet;
 
+// compression statistics of closed connections, guarded by serverConnSet
+    private long[] compressionTotals = new long[3];
+
 //  As of HSQLDB 1.9.0, the following arrays are used starting from 0.
 //  The indexes do not correspond to the user-specified indexes.
     protected String[]         dbAlias;
@@ -283,9 +287,18 @@ public class Server implements HsqlSocketRequestHandler {
     private volatile boolean   isSilent;
     protected volatile boolean isRemoteOpen;
     protected boolean          isDaemon;
+    protected boolean          isVirtualThreads;
     private PrintWriter        logWriter;
     private PrintWriter        errWriter;
     private ServerAcl          acl = null;    // null means no access tests
+
+    // set on first use when server.virtual_threads is true
+    private Object             virtualThreadBuilder;
+    private Method             virtualThreadName;
+    private Method             virtualThreadUnstarted;
+
+    // virtual connection threads are not in serverConnectionThreadGroup
+    private final HashSet      virtualConnectionThreads = new HashSet();
     private volatile boolean   isShuttingDown;
 
 //
@@ -772,12 +785,133 @@ public class Server implements HsqlSocketRequestHandler {
             ctn = ((WebServerConnection) r).getConnectionThreadName();
         }
 
-        t = new Thread(serverConnectionThreadGroup, r, ctn);
+        t = null;
+
+        if (isVirtualThreads) {
+            t = newVirtualThread(r, ctn);
+        }
+
+        if (t != null) {
+            synchronized (virtualConnectionThreads) {
+                virtualConnectionThreads.add(t);
+            }
+        }
+
+        if (t == null) {
+            t = new Thread(serverConnectionThreadGroup, r, ctn);
+        }
 
         t.start();
         printWithThread("handleConnection() exited");
     }
 
+    /**
+     * Returns an unstarted virtual thread for a connection, or null if the
+     * JVM does not support virtual threads. The methods are found by
+     * reflection, as the code is compiled for older JVMs.
+     */
+    private Thread newVirtualThread(Runnable r, String name) {
+
+        try {
+            if (virtualThreadBuilder == null) {
+                Class builderClass = Class.forName("java.lang.Thread$Builder");
+
+                virtualThreadBuilder = Thread.class.getMethod("ofVirtual",
+                        new Class[0]).invoke(null, new Object[0]);
+                virtualThreadName = builderClass.getMethod("name",
+                        new Class[]{ String.class });
+                virtualThreadUnstarted = builderClass.getMethod("unstarted",
+                        new Class[]{ Runnable.class });
+            }
+
+            final Runnable target = r;
+
+            r = new Runnable() {
+
+                public void run() {
+
+                    try {
+                        target.run();
+                    } finally {
+                        synchronized (virtualConnectionThreads) {
+                            virtualConnectionThreads.remove(
+                                Thread.currentThread());
+                        }
+                    }
+                }
+            };
+
+            Object builder = virtualThreadName.invoke(virtualThreadBuilder,
+                new Object[]{ name });
+
+            return (Thread) virtualThreadUnstarted.invoke(builder,
+                    new Object[]{ r });
+        } catch (Throwable t) {
+            printError("virtual threads not supported, using platform threads: "
+                       + t);
+
+            isVirtualThreads = false;
+
+            return null;
+        }
+    }
+
+    /**
+     * Retrieves the statistics for connections that use compression. The
+     * array contains the number of bytes before compression, the number of
+     * bytes sent and received over the network, and the time in nanoseconds
+     * spent in compression and decompression. The ratio of the first two
+     * values is the compression ratio achieved.
+     *
+     * @return the statistics for the current and closed connections
+     *
+     * @jmx.managed-attribute
+     *  access="read-only"
+     *  description="Bytes before compression, network bytes, nanoseconds"
+     */
+    public long[] getCompressionStatistics() {
+
+        HashSet connections = serverConnSet;
+        long[]  totals;
+
+        if (connections == null) {
+            return (long[]) compressionTotals.clone();
+        }
+
+        synchronized (connections) {
+            totals = (long[]) compressionTotals.clone();
+
+            Iterator it = connections.iterator();
+
+            while (it.hasNext()) {
+                long[] counts =
+                    ((ServerConnection) it.next()).getCompressionStatistics();
+
+                addCounts(totals, counts);
+            }
+        }
+
+        return totals;
+    }
+
+    /**
+     * Called with the lock on serverConnSet when a connection is closed.
+     */
+    void addCompressionStatistics(long[] counts) {
+        addCounts(compressionTotals, counts);
+    }
+
+    private static void addCounts(long[] totals, long[] counts) {
+
+        if (counts == null) {
+            return;
+        }
+
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] += counts[i];
+        }
+    }
+
     /**
      * Retrieves whether this server calls System.exit() when shutdown.
      *
@@ -1188,6 +1322,25 @@ public class Server implements HsqlSocketRequestHandler {
         serverProperties.setProperty(ServerProperties.sc_key_daemon, daemon);
     }
 
+    /**
+     * Sets whether a virtual thread is used for each connection, when the
+     * JVM supports virtual threads. Used before starting. The default is
+     * false.
+     *
+     * @param virtual if true, use virtual threads for connections
+     *
+     * @jmx.managed-attribute
+     */
+    public void setVirtualThreads(boolean virtual) {
+
+        checkRunning(false);
+        printWithThread("setVirtualThreads(" + virtual + ")");
+        serverProperties.setProperty(ServerProperties.sc_key_virtual_threads,
+                                     virtual);
+
+        isVirtualThreads = virtual;
+    }
+
     /**
      * Sets the path of the root directory from which web content is served.
      *
@@ -1248,6 +1401,8 @@ public class Server implements HsqlSocketRequestHandler {
             ServerProperties.sc_key_remote_open_db);
         isDaemon =
             serverProperties.isPropertyTrue(ServerProperties.sc_key_daemon);
+        isVirtualThreads = serverProperties.isPropertyTrue(
+            ServerProperties.sc_key_virtual_threads);
 
         String aclFilepath =
             serverProperties.getProperty(ServerProperties.sc_key_acl);
@@ -2374,6 +2529,19 @@ public class Server implements HsqlSocketRequestHandler {
             serverConnectionThreadGroup = null;
         }
 
+        // wait in the same way for virtual connection threads
+        Object[] threads;
+
+        synchronized (virtualConnectionThreads) {
+            threads = virtualConnectionThreads.toArray();
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            try {
+                ((Thread) threads[i]).join(100);
+            } catch (Exception e) {}
+        }
+
         serverThread = null;
 
         setState(ServerConstants.SERVER_STATE_SHUTDOWN);
@@ -88,6 +88,8 @@ import org.hsqldb.StatementTypes;
 import org.hsqldb.error.Error;
 import org.hsqldb.error.ErrorCode;
 import org.hsqldb.lib.DataOutputStream;
+import org.hsqldb.lib.DeflaterBlockOutputStream;
+import org.hsqldb.lib.InflaterBlockInputStream;
 import org.hsqldb.navigator.RowSetNavigator;
 import org.hsqldb.persist.HsqlDatabaseProperties;
 import org.hsqldb.resources.ResourceBundleHandler;
@@ -136,6 +138,10 @@ class ServerConnection implements Runnable {
     private Server           server;
     private DataInputStream  dataInput;
     private DataOutputStream dataOutput;
+
+    // set when the client uses compression
+    private DeflaterBlockOutputStream compressedOutput;
+    private InflaterBlockInputStream  compressedInput;
     private int              mThread;
     static final int         BUFFER_SIZE = 0x1000;
     final byte[]             mainBuffer  = new byte[BUFFER_SIZE];
@@ -249,6 +255,7 @@ class ServerConnection implements Runnable {
 
         synchronized (server.serverConnSet) {
             server.serverConnSet.remove(this);
+            server.addCompressionStatistics(getCompressionStatistics());
         }
 
         try {
@@ -256,6 +263,24 @@ class ServerConnection implements Runnable {
         } catch (Throwable t) {}
     }
 
+    /**
+     * Returns the uncompressed and compressed byte counts and the time spent
+     * in compression and decompression for this connection, or null if it
+     * does not use compression.
+     */
+    long[] getCompressionStatistics() {
+
+        if (compressedOutput == null) {
+            return null;
+        }
+
+        return new long[] {
+            compressedOutput.getRawBytes() + compressedInput.getRawBytes(),
+            compressedOutput.getWireBytes() + compressedInput.getWireBytes(),
+            compressedOutput.getNanos() + compressedInput.getNanos()
+        };
+    }
+
     /**
      * Initializes this connection.
      * <p>
@@ -279,9 +304,14 @@ class ServerConnection implements Runnable {
             switch (streamProtocol) {
 
                 case HSQL_STREAM_PROTOCOL :
+                    boolean isCompressed =
+                        firstInt
+                        == ClientConnection.NETWORK_COMPRESSED_VERSION_INT;
+
                     if (firstInt
                             != ClientConnection
-                                .NETWORK_COMPATIBILITY_VERSION_INT) {
+                                .NETWORK_COMPATIBILITY_VERSION_INT
+                            && !isCompressed) {
                         if (firstInt == -1900000) {
                             firstInt = -2000000;
                         }
@@ -296,6 +326,22 @@ class ServerConnection implements Runnable {
                         });
                     }
 
+                    // each response is written with a single flush, also
+                    // when the client sends several requests without waiting
+                    if (isCompressed) {
+                        compressedOutput = new DeflaterBlockOutputStream(
+                            socket.getOutputStream(),
+                            ClientConnection.NETWORK_COMPRESSION_THRESHOLD);
+                        compressedInput =
+                            new InflaterBlockInputStream(dataInput);
+                        dataOutput = new DataOutputStream(compressedOutput,
+                                                          BUFFER_SIZE);
+                        dataInput  = new DataInputStream(compressedInput);
+                    } else {
+                        dataOutput = new DataOutputStream(
+                            socket.getOutputStream(), BUFFER_SIZE);
+                    }
+
                     Result resultIn = Result.newResult(dataInput, rowIn);
 
                     resultIn.readAdditionalResults(session, dataInput, rowIn);
@@ -1579,6 +1625,8 @@ class ServerConnection implements Runnable {
                                                  resultIn.getZoneString(),
                                                  resultIn.getUpdateCount());
 
+            session.setResultBlocks(true);
+
             if (!server.isSilent()) {
                 server.printWithThread(mThread + ":Connected user '" + user
                                        + "'");
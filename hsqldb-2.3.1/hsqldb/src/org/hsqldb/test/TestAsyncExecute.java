@@ -0,0 +1,274 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.hsqldb.jdbc.JDBCPreparedStatement;
+import org.hsqldb.server.Server;
+import org.hsqldb.server.ServerConstants;
+
+import junit.framework.TestCase;
+import junit.framework.TestResult;
+
+/**
+ * Tests JDBCPreparedStatement.executeUpdateAsync() with a network
+ * connection: the results arrive in the order the executions were sent,
+ * errors are reported by the returned objects and get() with a timeout
+ * returns or times out.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class TestAsyncExecute extends TestBase {
+
+    Connection connection;
+
+    public TestAsyncExecute(String name) {
+        super(name);
+    }
+
+    protected void setUp() {
+
+        super.setUp();
+
+        try {
+            connection = newConnection();
+
+            Statement st = connection.createStatement();
+
+            st.execute("DROP TABLE T IF EXISTS");
+            st.execute("CREATE TABLE T (ID INT PRIMARY KEY, V INT)");
+            st.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e.getMessage());
+        }
+    }
+
+    protected void tearDown() {
+
+        Server stopped = server;
+
+        try {
+            connection.close();
+        } catch (Exception e) {}
+
+        super.tearDown();
+
+        // stop() is asynchronous, the next test starts a new server
+        for (int i = 0; i < 100; i++) {
+            if (stopped.getState() == ServerConstants.SERVER_STATE_SHUTDOWN) {
+                break;
+            }
+
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {}
+        }
+    }
+
+    /**
+     * get() on a later execution reads the results of all the earlier
+     * executions of the connection, which are then done.
+     */
+    public void testOrder() throws Exception {
+
+        JDBCPreparedStatement ps = (JDBCPreparedStatement) connection
+            .prepareStatement("INSERT INTO T VALUES (?, ?)");
+        JDBCPreparedStatement pu = (JDBCPreparedStatement) connection
+            .prepareStatement("UPDATE T SET V = V + 1 WHERE ID < ?");
+        Future[] futures = new Future[40];
+
+        for (int i = 0; i < futures.length; i += 2) {
+            ps.setInt(1, i);
+            ps.setInt(2, 0);
+
+            futures[i] = ps.executeUpdateAsync();
+
+            pu.setInt(1, 10);
+
+            futures[i + 1] = pu.executeUpdateAsync();
+        }
+
+        assertEquals(new Integer(5), futures[futures.length - 1].get());
+
+        for (int i = 0; i < futures.length; i++) {
+            assertTrue(futures[i].isDone());
+
+            if (i % 2 == 0) {
+                assertEquals(new Integer(1), futures[i].get());
+            } else {
+                assertEquals(new Integer(Math.min(i / 2 + 1, 5)),
+                             futures[i].get());
+            }
+        }
+
+        Statement st = connection.createStatement();
+        ResultSet rs =
+            st.executeQuery("SELECT COUNT(*), SUM(V) FROM T WHERE ID < 10");
+
+        rs.next();
+        assertEquals(5, rs.getInt(1));
+
+        // rows 0, 2, ... 8 are updated by the updates sent after them
+        assertEquals(20 + 19 + 18 + 17 + 16, rs.getInt(2));
+        ps.close();
+        pu.close();
+        st.close();
+    }
+
+    /**
+     * A failed execution is reported by its own result and does not affect
+     * the executions sent after it. A synchronous call reads the pending
+     * results first.
+     */
+    public void testError() throws Exception {
+
+        JDBCPreparedStatement ps = (JDBCPreparedStatement) connection
+            .prepareStatement("INSERT INTO T VALUES (?, 0)");
+
+        ps.setInt(1, 1);
+
+        Future first = ps.executeUpdateAsync();
+        Future duplicate = ps.executeUpdateAsync();
+
+        ps.setInt(1, 2);
+
+        Future last = ps.executeUpdateAsync();
+
+        Statement st = connection.createStatement();
+        ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM T");
+
+        assertTrue(first.isDone());
+        assertTrue(duplicate.isDone());
+        assertTrue(last.isDone());
+        assertEquals(new Integer(1), first.get());
+        assertEquals(new Integer(1), last.get());
+
+        try {
+            duplicate.get();
+            fail("duplicate key not reported");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+
+        rs.next();
+        assertEquals(2, rs.getInt(1));
+        ps.close();
+        st.close();
+    }
+
+    /**
+     * get() with a timeout throws TimeoutException while the execution is
+     * blocked by the lock of another session, then returns when the lock
+     * is released.
+     */
+    public void testTimeout() throws Exception {
+
+        Statement st = connection.createStatement();
+
+        st.execute("INSERT INTO T VALUES (1, 0)");
+
+        Connection other = newConnection();
+
+        other.setAutoCommit(false);
+
+        Statement otherSt = other.createStatement();
+
+        otherSt.execute("UPDATE T SET V = 10 WHERE ID = 1");
+
+        JDBCPreparedStatement ps = (JDBCPreparedStatement) connection
+            .prepareStatement("UPDATE T SET V = V + 1 WHERE ID = ?");
+
+        ps.setInt(1, 1);
+
+        Future future = ps.executeUpdateAsync();
+        long   start  = System.currentTimeMillis();
+
+        try {
+            future.get(200, TimeUnit.MILLISECONDS);
+            fail("no timeout");
+        } catch (TimeoutException e) {}
+
+        assertTrue(System.currentTimeMillis() - start >= 150);
+        assertFalse(future.isDone());
+        other.commit();
+        assertEquals(new Integer(1), future.get(10, TimeUnit.SECONDS));
+        assertTrue(future.isDone());
+
+        // a result that has been read is returned without waiting
+        assertEquals(new Integer(1), future.get(0, TimeUnit.SECONDS));
+
+        ResultSet rs = st.executeQuery("SELECT V FROM T WHERE ID = 1");
+
+        rs.next();
+        assertEquals(11, rs.getInt(1));
+        ps.close();
+        st.close();
+        other.close();
+    }
+
+    public static void main(String[] argv) {
+
+        TestResult result = new TestResult();
+        TestCase   testA  = new TestAsyncExecute("testOrder");
+        TestCase   testB  = new TestAsyncExecute("testError");
+        TestCase   testC  = new TestAsyncExecute("testTimeout");
+
+        testA.run(result);
+        testB.run(result);
+        testC.run(result);
+        System.out.println("TestAsyncExecute error count: "
+                           + result.failureCount() + " "
+                           + result.errorCount());
+
+        java.util.Enumeration e = result.failures();
+
+        while (e.hasMoreElements()) {
+            System.out.println(e.nextElement());
+        }
+
+        e = result.errors();
+
+        while (e.hasMoreElements()) {
+            System.out.println(e.nextElement());
+        }
+    }
+}
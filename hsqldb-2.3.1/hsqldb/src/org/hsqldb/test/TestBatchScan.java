@@ -0,0 +1,186 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.hsqldb.lib.StopWatch;
+import org.hsqldb.persist.HsqlProperties;
+
+/**
+ * Compares the row at a time scan of a MEMORY table with batch mode, set
+ * with SET SESSION BATCH ROWS, for filter queries. Each query is run with
+ * both settings and the results must be the same.<p>
+ *
+ * Arguments: -rows, -repeat and -batch.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class TestBatchScan {
+
+    int rows   = 1000000;
+    int repeat = 5;
+    int batch  = 1024;
+
+    //
+    static final String[] queries = {
+        "SELECT COUNT(*) FROM TEST WHERE A > 100 AND B < 50000",
+        "SELECT COUNT(*) FROM TEST WHERE D >= 100.5 OR B = 7919",
+        "SELECT COUNT(*) FROM TEST WHERE B IS NOT NULL AND S > 'v2'",
+        "SELECT SUM(A), MAX(D) FROM TEST WHERE B <> A AND A < 900",
+        "SELECT A, S FROM TEST WHERE A = 17 AND D < 10",
+        "SELECT COUNT(*) FROM TEST T1 JOIN SMALL T2 ON T1.A = T2.A "
+        + "WHERE T1.B > 1000"
+    };
+
+    Connection conn;
+
+    void fillUp() throws Exception {
+
+        conn = DriverManager.getConnection("jdbc:hsqldb:mem:testbatchscan",
+                                           "SA", "");
+
+        Statement st = conn.createStatement();
+
+        st.execute("DROP TABLE TEST IF EXISTS");
+        st.execute("DROP TABLE SMALL IF EXISTS");
+        st.execute("CREATE MEMORY TABLE TEST (ID INT PRIMARY KEY, A INT, "
+                   + "B BIGINT, D DOUBLE, S VARCHAR(20))");
+        st.execute("CREATE MEMORY TABLE SMALL (A INT PRIMARY KEY)");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO TEST VALUES (?, ?, ?, ?, ?)");
+
+        for (int i = 0; i < rows; i++) {
+            ps.setInt(1, i);
+            ps.setInt(2, i % 1000);
+
+            if (i % 11 == 0) {
+                ps.setNull(3, java.sql.Types.BIGINT);
+            } else {
+                ps.setLong(3, (i * 7919L) % 100000);
+            }
+
+            ps.setDouble(4, (i % 977) / 3.0);
+            ps.setString(5, "v" + (i % 300));
+            ps.addBatch();
+
+            if (i % 1000 == 999) {
+                ps.executeBatch();
+            }
+        }
+
+        if (rows % 1000 != 0) {
+            ps.executeBatch();
+        }
+
+        for (int i = 0; i < 100; i++) {
+            st.execute("INSERT INTO SMALL VALUES (" + i * 7 + ")");
+        }
+    }
+
+    /**
+     * Returns the time in ms to run the query repeat times, and stores the
+     * result of the last run.
+     */
+    long run(String sql, int batchRows, String[] result) throws Exception {
+
+        Statement st = conn.createStatement();
+
+        st.execute("SET SESSION BATCH ROWS " + batchRows);
+
+        PreparedStatement ps = conn.prepareStatement(sql);
+        StopWatch         sw = new StopWatch();
+
+        for (int i = 0; i < repeat; i++) {
+            ResultSet    rs      = ps.executeQuery();
+            int          columns = rs.getMetaData().getColumnCount();
+            StringBuffer sb      = new StringBuffer();
+
+            while (rs.next()) {
+                for (int j = 1; j <= columns; j++) {
+                    sb.append(rs.getString(j)).append(',');
+                }
+            }
+
+            rs.close();
+
+            result[0] = sb.toString();
+        }
+
+        long time = sw.elapsedTime();
+
+        ps.close();
+        st.close();
+
+        return time;
+    }
+
+    public static void main(String[] argv) throws Exception {
+
+        TestBatchScan  test  = new TestBatchScan();
+        HsqlProperties props = HsqlProperties.argArrayToProps(argv, "test");
+
+        test.rows   = props.getIntegerProperty("test.rows", test.rows);
+        test.repeat = props.getIntegerProperty("test.repeat", test.repeat);
+        test.batch  = props.getIntegerProperty("test.batch", test.batch);
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        test.fillUp();
+
+        String[] rowResult   = new String[1];
+        String[] batchResult = new String[1];
+
+        for (int i = 0; i < queries.length; i++) {
+
+            // warm up both paths
+            test.run(queries[i], 0, rowResult);
+            test.run(queries[i], test.batch, batchResult);
+
+            long rowTime   = test.run(queries[i], 0, rowResult);
+            long batchTime = test.run(queries[i], test.batch, batchResult);
+
+            System.out.println(queries[i]);
+            System.out.println("  row at a time " + rowTime + " ms, batch "
+                               + batchTime + " ms"
+                               + (rowResult[0].equals(batchResult[0]) ? ""
+                                                                      : " RESULTS DIFFER"));
+        }
+
+        test.conn.createStatement().execute("SHUTDOWN");
+    }
+}
@@ -0,0 +1,180 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Random;
+
+import org.hsqldb.lib.FileUtil;
+import org.hsqldb.lib.StopWatch;
+import org.hsqldb.persist.HsqlProperties;
+
+/**
+ * Measures random primary key reads from a CACHED table that is much larger
+ * than the row cache, with increasing numbers of reader threads. The
+ * database is closed and reopened before each run so that every run
+ * starts with a cold cache.<p>
+ *
+ * Arguments: -rows, -reads (per thread), -maxthreads, -nio and -path.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class TestCacheConcurrentRead {
+
+    String  filepath   = "/hsql/testconcurrentread/test";
+    int     rows       = 200000;
+    int     reads      = 20000;
+    int     maxThreads = 64;
+    boolean nioMode    = true;
+
+    String getURL() {
+        return "jdbc:hsqldb:file:" + filepath
+               + ";hsqldb.cache_rows=10000;hsqldb.nio_data_file=" + nioMode;
+    }
+
+    void fillUp() throws Exception {
+
+        FileUtil.getFileUtil().deleteOrRenameDatabaseFiles(filepath);
+
+        Connection conn = DriverManager.getConnection(getURL(), "SA", "");
+        Statement  st   = conn.createStatement();
+
+        st.execute("DROP TABLE TEST IF EXISTS");
+        st.execute(
+            "CREATE CACHED TABLE TEST (ID INT PRIMARY KEY, V VARCHAR(200))");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO TEST VALUES (?, ?)");
+
+        for (int i = 0; i < rows; i++) {
+            ps.setInt(1, i);
+            ps.setString(2, "row data for concurrent read test " + i);
+            ps.executeUpdate();
+        }
+
+        st.execute("SHUTDOWN");
+        conn.close();
+    }
+
+    long run(int threadCount) throws Exception {
+
+        Connection conn = DriverManager.getConnection(getURL(), "SA", "");
+        Thread[]   threads = new Thread[threadCount];
+        final int[] errors = new int[1];
+
+        for (int i = 0; i < threadCount; i++) {
+            final int seed = i;
+
+            threads[i] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        Connection c = DriverManager.getConnection(getURL(),
+                            "SA", "");
+                        PreparedStatement ps = c.prepareStatement(
+                            "SELECT V FROM TEST WHERE ID = ?");
+                        Random random = new Random(seed);
+
+                        for (int j = 0; j < reads; j++) {
+                            ps.setInt(1, random.nextInt(rows));
+
+                            ResultSet rs = ps.executeQuery();
+
+                            rs.next();
+                            rs.close();
+                        }
+
+                        c.close();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+
+                        synchronized (errors) {
+                            errors[0]++;
+                        }
+                    }
+                }
+            };
+        }
+
+        StopWatch sw = new StopWatch();
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i].join();
+        }
+
+        long time = sw.elapsedTime();
+
+        conn.createStatement().execute("SHUTDOWN");
+
+        if (errors[0] > 0) {
+            System.out.println("errors: " + errors[0]);
+        }
+
+        return time;
+    }
+
+    public static void main(String[] argv) throws Exception {
+
+        TestCacheConcurrentRead test  = new TestCacheConcurrentRead();
+        HsqlProperties          props = HsqlProperties.argArrayToProps(argv,
+            "test");
+
+        test.rows  = props.getIntegerProperty("test.rows", test.rows);
+        test.reads = props.getIntegerProperty("test.reads", test.reads);
+        test.maxThreads = props.getIntegerProperty("test.maxthreads",
+                test.maxThreads);
+        test.nioMode  = props.isPropertyTrue("test.nio", test.nioMode);
+        test.filepath = props.getProperty("test.path", test.filepath);
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        test.fillUp();
+
+        for (int threads = 1; threads <= test.maxThreads; threads *= 2) {
+            long time = test.run(threads);
+            long total = (long) threads * test.reads;
+
+            System.out.println("threads " + threads + " reads " + total
+                               + " time " + time + " ms, reads/s "
+                               + (total * 1000 / Math.max(time, 1)));
+        }
+    }
+}
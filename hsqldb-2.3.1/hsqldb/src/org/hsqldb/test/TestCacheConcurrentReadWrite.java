@@ -0,0 +1,286 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Random;
+
+import org.hsqldb.lib.FileUtil;
+import org.hsqldb.lib.HsqlArrayList;
+
+import junit.framework.TestCase;
+
+/**
+ * Reads rows of a CACHED table from several threads while another thread
+ * updates, inserts and deletes rows in the same table. The row cache is
+ * kept at its minimum size so that most reads load the row from the .data
+ * file. Each row read is checked against its own contents. The test is run
+ * with the nio and the RandomAccessFile access to the .data file.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class TestCacheConcurrentReadWrite extends TestCase {
+
+    static final int rows        = 2000;
+    static final int readers     = 4;
+    static final int reads       = 3000;
+    static final int writes      = 2000;
+    String           filepath    = System.getProperty("java.io.tmpdir")
+                                   + "/hsqldb_testconcurrentrw/test";
+    boolean          nioMode;
+    int[]            versions    = new int[rows];
+    HsqlArrayList    failures    = new HsqlArrayList();
+
+    public TestCacheConcurrentReadWrite(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    }
+
+    protected void tearDown() {
+        FileUtil.getFileUtil().deleteOrRenameDatabaseFiles(filepath);
+    }
+
+    String getURL() {
+        return "jdbc:hsqldb:file:" + filepath
+               + ";hsqldb.tx=mvcc;hsqldb.cache_rows=100;hsqldb.cache_size=100"
+               + ";hsqldb.nio_data_file=" + nioMode;
+    }
+
+    static String getValue(int id, int version) {
+        return "row " + id + " version " + version
+               + " of the concurrent read write test";
+    }
+
+    public void testNIO() throws Exception {
+
+        nioMode = true;
+
+        checkConcurrentAccess();
+    }
+
+    public void testRandomAccessFile() throws Exception {
+
+        nioMode = false;
+
+        checkConcurrentAccess();
+    }
+
+    void checkConcurrentAccess() throws Exception {
+
+        FileUtil.getFileUtil().deleteOrRenameDatabaseFiles(filepath);
+
+        Connection conn = DriverManager.getConnection(getURL(), "SA", "");
+        Statement  st   = conn.createStatement();
+
+        st.execute("CREATE CACHED TABLE TEST (ID INT PRIMARY KEY, "
+                   + "N INT NOT NULL, V VARCHAR(200) NOT NULL)");
+
+        PreparedStatement ps =
+            conn.prepareStatement("INSERT INTO TEST VALUES (?, ?, ?)");
+
+        for (int i = 0; i < rows; i++) {
+            ps.setInt(1, i);
+            ps.setInt(2, 0);
+            ps.setString(3, getValue(i, 0));
+            ps.executeUpdate();
+        }
+
+        ps.close();
+
+        // start with the rows in the .data file and an empty cache
+        st.execute("SHUTDOWN");
+        conn.close();
+
+        conn = DriverManager.getConnection(getURL(), "SA", "");
+
+        Thread[] threads = new Thread[readers + 1];
+
+        for (int i = 0; i < readers; i++) {
+            threads[i] = new Reader(i);
+        }
+
+        threads[readers] = new Writer();
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+
+        if (!failures.isEmpty()) {
+            fail(failures.size() + " failures, first: " + failures.get(0));
+        }
+
+        checkContents(conn);
+        conn.createStatement().execute("SHUTDOWN");
+        conn.close();
+
+        conn = DriverManager.getConnection(getURL(), "SA", "");
+
+        checkContents(conn);
+        conn.createStatement().execute("SHUTDOWN");
+        conn.close();
+    }
+
+    void checkContents(Connection conn) throws Exception {
+
+        Statement st = conn.createStatement();
+        ResultSet rs = st.executeQuery("SELECT ID, N, V FROM TEST ORDER BY ID");
+        int       count = 0;
+
+        while (rs.next()) {
+            int id = rs.getInt(1);
+
+            assertEquals(count, id);
+            assertEquals(versions[id], rs.getInt(2));
+            assertEquals(getValue(id, versions[id]), rs.getString(3));
+
+            count++;
+        }
+
+        assertEquals(rows, count);
+        rs.close();
+        st.close();
+    }
+
+    void addFailure(Object failure) {
+
+        synchronized (failures) {
+            failures.add(failure);
+        }
+    }
+
+    class Reader extends Thread {
+
+        int seed;
+
+        Reader(int seed) {
+            this.seed = seed;
+        }
+
+        public void run() {
+
+            try {
+                Connection conn = DriverManager.getConnection(getURL(), "SA",
+                    "");
+                PreparedStatement ps = conn.prepareStatement(
+                    "SELECT N, V FROM TEST WHERE ID = ?");
+                Random random = new Random(seed);
+
+                for (int i = 0; i < reads; i++) {
+                    int id = random.nextInt(rows);
+
+                    ps.setInt(1, id);
+
+                    ResultSet rs = ps.executeQuery();
+
+                    if (!rs.next()) {
+                        addFailure("row " + id + " not found");
+                    } else {
+                        int    version = rs.getInt(1);
+                        String value   = rs.getString(2);
+
+                        if (!getValue(id, version).equals(value)) {
+                            addFailure("row " + id + " read as: " + value);
+                        }
+                    }
+
+                    rs.close();
+                }
+
+                conn.close();
+            } catch (Exception e) {
+                addFailure(e);
+            }
+        }
+    }
+
+    /**
+     * Updates random rows. Rows outside the range that is read are
+     * inserted and deleted so that the space in the .data file is reused.
+     */
+    class Writer extends Thread {
+
+        public void run() {
+
+            try {
+                Connection conn = DriverManager.getConnection(getURL(), "SA",
+                    "");
+                PreparedStatement update = conn.prepareStatement(
+                    "UPDATE TEST SET N = ?, V = ? WHERE ID = ?");
+                PreparedStatement insert =
+                    conn.prepareStatement("INSERT INTO TEST VALUES (?, 0, ?)");
+                PreparedStatement delete =
+                    conn.prepareStatement("DELETE FROM TEST WHERE ID >= ?");
+                Random random = new Random(rows);
+
+                for (int i = 0; i < writes; i++) {
+                    int id      = random.nextInt(rows);
+                    int version = versions[id] + 1;
+
+                    update.setInt(1, version);
+                    update.setString(2, getValue(id, version));
+                    update.setInt(3, id);
+                    update.executeUpdate();
+
+                    versions[id] = version;
+
+                    insert.setInt(1, rows + i);
+                    insert.setString(2, getValue(rows + i, 0));
+                    insert.executeUpdate();
+
+                    if (i % 100 == 99) {
+                        delete.setInt(1, rows);
+                        delete.executeUpdate();
+                    }
+                }
+
+                delete.setInt(1, rows);
+                delete.executeUpdate();
+                conn.close();
+            } catch (Exception e) {
+                addFailure(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hsqldb.jdbc.JDBCPool;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the contract of JDBCPool: the maximum size, the reset of returned
+ * connections, the eviction of invalid connections and closing the pool.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class TestJDBCPool extends TestCase {
+
+    static final String url = "jdbc:hsqldb:mem:testjdbcpool";
+
+    JDBCPool pool;
+
+    public TestJDBCPool(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+        Connection c  = DriverManager.getConnection(url, "SA", "");
+        Statement  st = c.createStatement();
+
+        st.execute("DROP SCHEMA S IF EXISTS CASCADE");
+        st.execute("DROP TABLE T IF EXISTS");
+        st.execute("CREATE TABLE T (ID INT PRIMARY KEY)");
+        st.execute("CREATE SCHEMA S");
+        c.close();
+
+        pool = new JDBCPool(3);
+
+        pool.setUrl(url);
+        pool.setUser("SA");
+        pool.setPassword("");
+        pool.setLoginTimeout(1);
+    }
+
+    protected void tearDown() throws Exception {
+
+        pool.close(0);
+
+        Connection c = DriverManager.getConnection(url, "SA", "");
+
+        c.createStatement().execute("SHUTDOWN");
+    }
+
+    public void testMaxSize() throws Exception {
+
+        Connection[] connections = new Connection[3];
+
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = pool.getConnection();
+        }
+
+        assertTrue(getSessionId(connections[0])
+                   != getSessionId(connections[1]));
+        assertTrue(getSessionId(connections[1])
+                   != getSessionId(connections[2]));
+
+        long start = System.currentTimeMillis();
+
+        try {
+            pool.getConnection();
+            fail("connection beyond the maximum size");
+        } catch (SQLException e) {
+            assertEquals("08001", e.getSQLState());
+        }
+
+        assertTrue(System.currentTimeMillis() - start >= 900);
+        connections[1].close();
+
+        Connection c = pool.getConnection();
+
+        c.close();
+
+        for (int i = 0; i < connections.length; i++) {
+            connections[i].close();
+        }
+    }
+
+    public void testMaxSizeConcurrent() throws Exception {
+
+        final AtomicInteger inUse    = new AtomicInteger();
+        final AtomicInteger maxInUse = new AtomicInteger();
+        final AtomicInteger errors   = new AtomicInteger();
+        Thread[]            threads  = new Thread[8];
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        for (int j = 0; j < 50; j++) {
+                            Connection c     = pool.getConnection();
+                            int        count = inUse.incrementAndGet();
+
+                            while (true) {
+                                int max = maxInUse.get();
+
+                                if (count <= max
+                                        || maxInUse.compareAndSet(max,
+                                            count)) {
+                                    break;
+                                }
+                            }
+
+                            getSessionId(c);
+                            Thread.yield();
+                            inUse.decrementAndGet();
+                            c.close();
+                        }
+                    } catch (Throwable t) {
+                        errors.incrementAndGet();
+                        t.printStackTrace();
+                    }
+                }
+            };
+
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+
+        assertEquals(0, errors.get());
+        assertTrue(maxInUse.get() <= 3);
+    }
+
+    public void testReturnAndReset() throws Exception {
+
+        Connection[] connections = new Connection[3];
+
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = pool.getConnection();
+        }
+
+        Connection c  = connections[0];
+        int        id = getSessionId(c);
+
+        connections[1].close();
+        connections[2].close();
+        c.setAutoCommit(false);
+
+        Statement st = c.createStatement();
+
+        st.execute("INSERT INTO T VALUES 1");
+        st.execute("SET SCHEMA S");
+        c.close();
+        assertTrue(c.isClosed());
+
+        // the pool opens no new connection for the released ones
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = pool.getConnection();
+        }
+
+        c = null;
+
+        for (int i = 0; i < connections.length; i++) {
+            if (getSessionId(connections[i]) == id) {
+                c = connections[i];
+            }
+        }
+
+        assertNotNull(c);
+        assertTrue(c.getAutoCommit());
+
+        st = c.createStatement();
+
+        ResultSet rs = st.executeQuery(
+            "VALUES (CURRENT_SCHEMA, (SELECT COUNT(*) FROM PUBLIC.T))");
+
+        rs.next();
+        assertEquals("PUBLIC", rs.getString(1));
+        assertEquals(0, rs.getInt(2));
+
+        for (int i = 0; i < connections.length; i++) {
+            connections[i].close();
+        }
+    }
+
+    public void testEvictInvalid() throws Exception {
+
+        pool.setValidateOnBorrow(true, 1);
+
+        Connection c  = pool.getConnection();
+        int        id = getSessionId(c);
+
+        c.close();
+
+        // closes the sessions of the pooled connections
+        Connection other = DriverManager.getConnection(url, "SA", "");
+
+        other.createStatement().execute("SHUTDOWN");
+
+        c = pool.getConnection();
+
+        assertFalse(c.isClosed());
+        assertTrue(getSessionId(c) != id);
+
+        Connection[] connections = new Connection[2];
+
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = pool.getConnection();
+
+            assertFalse(connections[i].isClosed());
+        }
+
+        c.close();
+
+        for (int i = 0; i < connections.length; i++) {
+            connections[i].close();
+        }
+    }
+
+    public void testCloseWithCheckedOut() throws Exception {
+
+        final Connection[] connections = new Connection[3];
+
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = pool.getConnection();
+        }
+
+        pool.setLoginTimeout(30);
+
+        final SQLException[] waitError = new SQLException[1];
+        Thread               waiter    = new Thread() {
+
+            public void run() {
+
+                try {
+                    pool.getConnection();
+                } catch (SQLException e) {
+                    waitError[0] = e;
+                }
+            }
+        };
+
+        waiter.start();
+
+        while (waiter.getState() != Thread.State.WAITING
+                && waiter.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(10);
+        }
+
+        long start = System.currentTimeMillis();
+
+        pool.close(0);
+        waiter.join(10000);
+        assertFalse(waiter.isAlive());
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        assertNotNull(waitError[0]);
+
+        for (int i = 0; i < connections.length; i++) {
+            assertTrue(connections[i].isClosed());
+            connections[i].close();
+        }
+
+        try {
+            pool.getConnection();
+            fail("connection from a closed pool");
+        } catch (SQLException e) {}
+    }
+
+    static int getSessionId(Connection c) throws SQLException {
+
+        Statement st = c.createStatement();
+        ResultSet rs = st.executeQuery("CALL SESSION_ID()");
+
+        rs.next();
+
+        int id = rs.getInt(1);
+
+        st.close();
+
+        return id;
+    }
+}
@@ -0,0 +1,164 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.hsqldb.jdbc.JDBCPool;
+import org.hsqldb.lib.StopWatch;
+import org.hsqldb.persist.HsqlProperties;
+
+/**
+ * Measures JDBCPool borrow and return throughput with increasing numbers of
+ * threads sharing a pool that is smaller than the number of threads. Each
+ * borrowed connection runs a short query before it is returned. The wait
+ * time and usage time histograms of the pool are printed after each run.<p>
+ *
+ * Arguments: -poolsize, -borrows (per thread), -maxthreads and -validate.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class TestJDBCPoolBenchmark {
+
+    int     poolSize   = 8;
+    int     borrows    = 2000;
+    int     maxThreads = 256;
+    boolean validate   = false;
+
+    long run(int threadCount) throws Exception {
+
+        final JDBCPool pool = new JDBCPool(poolSize);
+
+        pool.setUrl("jdbc:hsqldb:mem:testpool");
+        pool.setUser("SA");
+        pool.setPassword("");
+        pool.setValidateOnBorrow(validate, 1);
+
+        Thread[]    threads = new Thread[threadCount];
+        final int[] errors  = new int[1];
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread() {
+
+                public void run() {
+
+                    try {
+                        for (int j = 0; j < borrows; j++) {
+                            Connection c  = pool.getConnection();
+                            Statement  st = c.createStatement();
+                            ResultSet  rs = st.executeQuery(
+                                "VALUES CURRENT_TIMESTAMP");
+
+                            rs.next();
+                            rs.close();
+                            st.close();
+                            c.close();
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+
+                        synchronized (errors) {
+                            errors[0]++;
+                        }
+                    }
+                }
+            };
+        }
+
+        StopWatch sw = new StopWatch();
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threadCount; i++) {
+            threads[i].join();
+        }
+
+        long time = sw.elapsedTime();
+
+        if (errors[0] > 0) {
+            System.out.println("errors: " + errors[0]);
+        }
+
+        System.out.println("wait time   "
+                           + toString(pool.getWaitTimeHistogram()));
+        System.out.println("usage time  "
+                           + toString(pool.getUsageTimeHistogram()));
+        pool.close(0);
+
+        return time;
+    }
+
+    static String toString(long[] histogram) {
+
+        StringBuffer sb = new StringBuffer();
+
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] == 0) {
+                continue;
+            }
+
+            sb.append(i == 0 ? "<1"
+                             : "<" + (1L << i));
+            sb.append("ms:").append(histogram[i]).append(' ');
+        }
+
+        return sb.toString();
+    }
+
+    public static void main(String[] argv) throws Exception {
+
+        TestJDBCPoolBenchmark test  = new TestJDBCPoolBenchmark();
+        HsqlProperties        props = HsqlProperties.argArrayToProps(argv,
+            "test");
+
+        test.poolSize = props.getIntegerProperty("test.poolsize",
+                test.poolSize);
+        test.borrows  = props.getIntegerProperty("test.borrows", test.borrows);
+        test.maxThreads = props.getIntegerProperty("test.maxthreads",
+                test.maxThreads);
+        test.validate = props.isPropertyTrue("test.validate", test.validate);
+
+        for (int threads = 1; threads <= test.maxThreads; threads *= 2) {
+            long time  = test.run(threads);
+            long total = (long) threads * test.borrows;
+
+            System.out.println("threads " + threads + " borrows " + total
+                               + " time " + time + " ms, borrows/s "
+                               + (total * 1000 / Math.max(time, 1)));
+        }
+    }
+}
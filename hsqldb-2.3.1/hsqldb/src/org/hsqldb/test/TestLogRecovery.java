@@ -0,0 +1,166 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.hsqldb.lib.FileUtil;
+import org.hsqldb.lib.StopWatch;
+import org.hsqldb.persist.HsqlProperties;
+
+/**
+ * Compares the time to recover from the .log file in text and binary
+ * format. For each format, rows are inserted, deleted and updated in MEMORY
+ * and CACHED tables, the database is closed with SHUTDOWN IMMEDIATELY and
+ * the time to reopen it is measured. The contents before and after recovery
+ * are compared.<p>
+ *
+ * Arguments: -rows and -path.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class TestLogRecovery {
+
+    String filepath = "/hsql/testlogrecovery/test";
+    int    rows     = 100000;
+
+    String getURL(boolean binary) {
+        return "jdbc:hsqldb:file:" + filepath
+               + ";hsqldb.log_size=0;hsqldb.log_binary=" + binary;
+    }
+
+    String fillUp(boolean binary) throws Exception {
+
+        FileUtil.getFileUtil().deleteOrRenameDatabaseFiles(filepath);
+
+        Connection conn = DriverManager.getConnection(getURL(binary), "SA",
+            "");
+        Statement st = conn.createStatement();
+
+        st.execute("CREATE SEQUENCE SEQ START WITH 1");
+        st.execute("CREATE MEMORY TABLE M (ID INT PRIMARY KEY, "
+                   + "V VARCHAR(100), D DECIMAL(10,2), T TIMESTAMP)");
+        st.execute(
+            "CREATE CACHED TABLE C (ID INT PRIMARY KEY, V VARCHAR(100))");
+        conn.setAutoCommit(false);
+
+        PreparedStatement psm = conn.prepareStatement(
+            "INSERT INTO M VALUES (NEXT VALUE FOR SEQ, ?, ?, CURRENT_TIMESTAMP)");
+        PreparedStatement psc =
+            conn.prepareStatement("INSERT INTO C VALUES (?, ?)");
+
+        for (int i = 0; i < rows; i++) {
+            psm.setString(1, "memory row " + i);
+            psm.setBigDecimal(2, new java.math.BigDecimal(i + ".25"));
+            psm.executeUpdate();
+            psc.setInt(1, i);
+            psc.setString(2, "cached row " + i);
+            psc.executeUpdate();
+
+            if (i % 10 == 9) {
+                conn.commit();
+            }
+        }
+
+        conn.commit();
+        st.execute("DELETE FROM M WHERE MOD(ID, 3) = 0");
+        st.execute("DELETE FROM C WHERE MOD(ID, 5) = 0");
+        st.execute("UPDATE M SET V = V || '*' WHERE MOD(ID, 4) = 0");
+        st.execute("ALTER TABLE M ADD COLUMN X INT DEFAULT 7");
+        st.execute("INSERT INTO M (ID, V) VALUES (-1, 'after alter')");
+        conn.commit();
+
+        String summary = getSummary(conn);
+
+        st.execute("SHUTDOWN IMMEDIATELY");
+        conn.close();
+
+        return summary;
+    }
+
+    String getSummary(Connection conn) throws Exception {
+
+        ResultSet rs = conn.createStatement().executeQuery(
+            "SELECT COUNT(*), SUM(ID), SUM(LENGTH(V)), SUM(D), SUM(X), "
+            + "(SELECT COUNT(*) || '/' || SUM(ID) FROM C) FROM M");
+
+        rs.next();
+
+        StringBuffer sb = new StringBuffer();
+
+        for (int i = 1; i <= 6; i++) {
+            sb.append(rs.getString(i)).append(' ');
+        }
+
+        rs.close();
+
+        return sb.toString();
+    }
+
+    void run(boolean binary) throws Exception {
+
+        String    expected = fillUp(binary);
+        StopWatch sw       = new StopWatch();
+        Connection conn = DriverManager.getConnection(getURL(binary), "SA",
+            "");
+        long   time   = sw.elapsedTime();
+        String actual = getSummary(conn);
+
+        conn.createStatement().execute("SHUTDOWN");
+        conn.close();
+        System.out.println((binary ? "binary"
+                                   : "text") + " log recovery time " + time
+                                             + " ms, data "
+                                             + (expected.equals(actual)
+                                                ? "matches"
+                                                : "differs: " + expected
+                                                  + " / " + actual));
+    }
+
+    public static void main(String[] argv) throws Exception {
+
+        TestLogRecovery test  = new TestLogRecovery();
+        HsqlProperties  props = HsqlProperties.argArrayToProps(argv, "test");
+
+        test.rows     = props.getIntegerProperty("test.rows", test.rows);
+        test.filepath = props.getProperty("test.path", test.filepath);
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+        test.run(false);
+        test.run(true);
+    }
+}
@@ -0,0 +1,335 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.hsqldb.server.Server;
+import org.hsqldb.server.ServerConstants;
+
+import junit.framework.TestCase;
+import junit.framework.TestResult;
+
+/**
+ * Tests results, updates and LOBs sent over a network connection with
+ * compress=true, with different fetch sizes. The values read are compared
+ * with the values inserted and with the results of a connection without
+ * compression.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class TestNetworkCompression extends TestBase {
+
+    static final int rowCount = 2000;
+    static final int[] fetchSizes = {
+        0, 1, 7, 100, 1000, rowCount + 1
+    };
+    Connection connection;
+
+    public TestNetworkCompression(String name) {
+        super(name);
+    }
+
+    protected void setUp() {
+
+        super.setUp();
+
+        try {
+            connection = newCompressedConnection();
+
+            Statement st = connection.createStatement();
+
+            st.execute("DROP TABLE T IF EXISTS");
+            st.execute("CREATE TABLE T (ID INT PRIMARY KEY, "
+                       + "V VARCHAR(1000), B VARBINARY(1000))");
+
+            PreparedStatement ps =
+                connection.prepareStatement("INSERT INTO T VALUES (?, ?, ?)");
+
+            for (int i = 0; i < rowCount; i++) {
+                ps.setInt(1, i);
+                ps.setString(2, getString(i));
+                ps.setBytes(3, getBytes(i, 100));
+                ps.addBatch();
+
+                if (i % 100 == 99 || i == rowCount - 1) {
+                    ps.executeBatch();
+                }
+            }
+
+            ps.close();
+            st.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e.getMessage());
+        }
+    }
+
+    protected void tearDown() {
+
+        Server stopped = server;
+
+        try {
+            connection.close();
+        } catch (Exception e) {}
+
+        super.tearDown();
+
+        // stop() is asynchronous, the next test starts a new server
+        for (int i = 0; i < 100; i++) {
+            if (stopped.getState() == ServerConstants.SERVER_STATE_SHUTDOWN) {
+                break;
+            }
+
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {}
+        }
+    }
+
+    Connection newCompressedConnection() throws Exception {
+        return DriverManager.getConnection(url + ";compress=true", user,
+                                           password);
+    }
+
+    /**
+     * Repetitive text that compresses well.
+     */
+    static String getString(int id) {
+
+        StringBuffer sb = new StringBuffer();
+
+        for (int i = 0; i < 20; i++) {
+            sb.append("row ").append(id).append(" part ").append(i % 4);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Random bytes that do not compress.
+     */
+    static byte[] getBytes(int id, int length) {
+
+        byte[] bytes = new byte[length];
+
+        new Random(id).nextBytes(bytes);
+
+        return bytes;
+    }
+
+    public void testFetchSizes() throws Exception {
+
+        for (int i = 0; i < fetchSizes.length; i++) {
+            checkForwardOnly(fetchSizes[i]);
+        }
+    }
+
+    void checkForwardOnly(int fetchSize) throws Exception {
+
+        Statement st = connection.createStatement();
+
+        st.setFetchSize(fetchSize);
+
+        ResultSet rs    = st.executeQuery("SELECT ID, V, B FROM T ORDER BY ID");
+        int       count = 0;
+
+        while (rs.next()) {
+            assertEquals(count, rs.getInt(1));
+            assertEquals(getString(count), rs.getString(2));
+            assertTrue("fetch size " + fetchSize + " row " + count,
+                       Arrays.equals(getBytes(count, 100), rs.getBytes(3)));
+
+            count++;
+        }
+
+        assertEquals("fetch size " + fetchSize, rowCount, count);
+        rs.close();
+        st.close();
+    }
+
+    public void testScrollableWithFetchSize() throws Exception {
+
+        Statement st =
+            connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE,
+                                       ResultSet.CONCUR_READ_ONLY);
+
+        st.setFetchSize(7);
+
+        ResultSet rs = st.executeQuery("SELECT ID, V FROM T ORDER BY ID");
+
+        assertTrue(rs.last());
+        assertEquals(rowCount - 1, rs.getInt(1));
+        assertEquals(getString(rowCount - 1), rs.getString(2));
+        assertTrue(rs.absolute(rowCount / 2));
+        assertEquals(getString(rowCount / 2 - 1), rs.getString(2));
+
+        for (int i = rowCount / 2 - 2; i >= 0; i--) {
+            assertTrue(rs.previous());
+            assertEquals(getString(i), rs.getString(2));
+        }
+
+        assertFalse(rs.previous());
+        rs.close();
+        st.close();
+    }
+
+    public void testSameAsUncompressed() throws Exception {
+
+        Connection plain = newConnection();
+
+        try {
+            Statement st1 = connection.createStatement();
+            Statement st2 = plain.createStatement();
+
+            st1.setFetchSize(100);
+
+            ResultSet rs1 = st1.executeQuery(
+                "SELECT ID, V, B FROM T WHERE MOD(ID, 3) = 0 ORDER BY V");
+            ResultSet rs2 = st2.executeQuery(
+                "SELECT ID, V, B FROM T WHERE MOD(ID, 3) = 0 ORDER BY V");
+
+            while (rs2.next()) {
+                assertTrue(rs1.next());
+                assertEquals(rs2.getInt(1), rs1.getInt(1));
+                assertEquals(rs2.getString(2), rs1.getString(2));
+                assertTrue(Arrays.equals(rs2.getBytes(3), rs1.getBytes(3)));
+            }
+
+            assertFalse(rs1.next());
+        } finally {
+            plain.close();
+        }
+    }
+
+    public void testUpdatesAndLobs() throws Exception {
+
+        Statement st = connection.createStatement();
+
+        st.execute("DROP TABLE L IF EXISTS");
+        st.execute("CREATE TABLE L (ID INT PRIMARY KEY, D BLOB)");
+
+        PreparedStatement ps =
+            connection.prepareStatement("INSERT INTO L VALUES (?, ?)");
+
+        for (int i = 0; i < 3; i++) {
+            ps.setInt(1, i);
+            ps.setBytes(2, getBytes(i, 300 * 1024));
+            ps.executeUpdate();
+        }
+
+        assertEquals(rowCount / 2,
+                     st.executeUpdate("UPDATE T SET V = V || 'x' "
+                                      + "WHERE MOD(ID, 2) = 0"));
+
+        Connection plain = newConnection();
+
+        try {
+            ResultSet rs = plain.createStatement().executeQuery(
+                "SELECT COUNT(*) FROM T WHERE V LIKE '%x'");
+
+            rs.next();
+            assertEquals(rowCount / 2, rs.getInt(1));
+
+            rs = plain.createStatement().executeQuery(
+                "SELECT ID, D FROM L ORDER BY ID");
+
+            for (int i = 0; i < 3; i++) {
+                assertTrue(rs.next());
+                assertTrue(Arrays.equals(getBytes(i, 300 * 1024),
+                                         rs.getBytes(2)));
+            }
+
+            rs = st.executeQuery("SELECT ID, D FROM L ORDER BY ID");
+
+            for (int i = 0; i < 3; i++) {
+                assertTrue(rs.next());
+
+                Blob blob = rs.getBlob(2);
+
+                assertTrue(Arrays.equals(getBytes(i, 300 * 1024),
+                                         blob.getBytes(1,
+                                             (int) blob.length())));
+            }
+        } finally {
+            plain.close();
+        }
+    }
+
+    public void testStatistics() throws Exception {
+
+        checkForwardOnly(0);
+
+        long[] counts = server.getCompressionStatistics();
+
+        assertTrue(counts[1] > 0);
+        assertTrue(counts[0] > counts[1]);
+    }
+
+    public static void main(String[] argv) {
+
+        String[] names = {
+            "testFetchSizes", "testScrollableWithFetchSize",
+            "testSameAsUncompressed", "testUpdatesAndLobs", "testStatistics"
+        };
+        TestResult result = new TestResult();
+
+        for (int i = 0; i < names.length; i++) {
+            new TestNetworkCompression(names[i]).run(result);
+        }
+
+        System.out.println("TestNetworkCompression error count: "
+                           + result.failureCount() + " "
+                           + result.errorCount());
+
+        java.util.Enumeration e = result.failures();
+
+        while (e.hasMoreElements()) {
+            System.out.println(e.nextElement());
+        }
+
+        e = result.errors();
+
+        while (e.hasMoreElements()) {
+            System.out.println(e.nextElement());
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.hsqldb.server.Server;
+import org.hsqldb.server.ServerConstants;
+
+import junit.framework.TestCase;
+import junit.framework.TestResult;
+
+/**
+ * Tests navigation in large results that the server sends to a network
+ * client in blocks, with and without a fetch size set by the client.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class TestNetworkResultBlocks extends TestBase {
+
+    static final int rowCount = 5000;
+
+    Connection connection;
+
+    public TestNetworkResultBlocks(String name) {
+        super(name);
+    }
+
+    protected void setUp() {
+
+        super.setUp();
+
+        try {
+            connection = newConnection();
+
+            Statement st = connection.createStatement();
+
+            st.execute("DROP TABLE T IF EXISTS");
+            st.execute(
+                "CREATE TABLE T (ID INT PRIMARY KEY, V VARCHAR(1000))");
+
+            PreparedStatement ps =
+                connection.prepareStatement("INSERT INTO T VALUES (?, ?)");
+            StringBuffer sb = new StringBuffer();
+
+            for (int i = 0; i < 500; i++) {
+                sb.append('x');
+            }
+
+            for (int i = 0; i < rowCount; i++) {
+                ps.setInt(1, i);
+                ps.setString(2, sb.toString() + i);
+                ps.executeUpdate();
+            }
+
+            ps.close();
+            st.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail(e.getMessage());
+        }
+    }
+
+    protected void tearDown() {
+
+        Server stopped = server;
+
+        try {
+            connection.close();
+        } catch (Exception e) {}
+
+        super.tearDown();
+
+        // stop() is asynchronous, the next test starts a new server
+        for (int i = 0; i < 100; i++) {
+            if (stopped.getState() == ServerConstants.SERVER_STATE_SHUTDOWN) {
+                break;
+            }
+
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {}
+        }
+    }
+
+    public void testForwardOnly() throws Exception {
+
+        Statement st = connection.createStatement();
+        ResultSet rs = st.executeQuery("SELECT ID, V FROM T ORDER BY ID");
+        int       count = 0;
+
+        while (rs.next()) {
+            assertEquals(count, rs.getInt(1));
+
+            count++;
+        }
+
+        assertEquals(rowCount, count);
+        rs.close();
+        st.close();
+    }
+
+    public void testScrollable() throws Exception {
+        checkScrollable(0);
+    }
+
+    public void testScrollableWithFetchSize() throws Exception {
+        checkScrollable(100);
+    }
+
+    void checkScrollable(int fetchSize) throws Exception {
+
+        Statement st =
+            connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE,
+                                       ResultSet.CONCUR_READ_ONLY);
+
+        st.setFetchSize(fetchSize);
+
+        ResultSet rs = st.executeQuery("SELECT ID, V FROM T ORDER BY ID");
+
+        assertTrue(rs.last());
+        assertEquals(rowCount - 1, rs.getInt(1));
+        assertTrue(rs.previous());
+        assertEquals(rowCount - 2, rs.getInt(1));
+        assertTrue(rs.absolute(rowCount / 2));
+        assertEquals(rowCount / 2 - 1, rs.getInt(1));
+
+        for (int i = rowCount / 2 - 2; i >= 0; i--) {
+            assertTrue(rs.previous());
+            assertEquals(i, rs.getInt(1));
+        }
+
+        assertFalse(rs.previous());
+        assertTrue(rs.absolute(-1));
+        assertEquals(rowCount - 1, rs.getInt(1));
+        assertTrue(rs.first());
+        assertEquals(0, rs.getInt(1));
+        assertTrue(rs.relative(rowCount - 2));
+        assertEquals(rowCount - 2, rs.getInt(1));
+        assertTrue(rs.next());
+        assertFalse(rs.next());
+        rs.close();
+        st.close();
+    }
+
+    public static void main(String[] argv) {
+
+        TestResult result = new TestResult();
+        TestCase   testA  = new TestNetworkResultBlocks("testForwardOnly");
+        TestCase   testB  = new TestNetworkResultBlocks("testScrollable");
+        TestCase   testC  =
+            new TestNetworkResultBlocks("testScrollableWithFetchSize");
+
+        testA.run(result);
+        testB.run(result);
+        testC.run(result);
+        System.out.println("TestNetworkResultBlocks error count: "
+                           + result.failureCount() + " "
+                           + result.errorCount());
+
+        java.util.Enumeration e = result.failures();
+
+        while (e.hasMoreElements()) {
+            System.out.println(e.nextElement());
+        }
+
+        e = result.errors();
+
+        while (e.hasMoreElements()) {
+            System.out.println(e.nextElement());
+        }
+    }
+}
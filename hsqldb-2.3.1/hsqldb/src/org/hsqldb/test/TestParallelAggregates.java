@@ -0,0 +1,203 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Compares the results of aggregate selects executed with SET SESSION
+ * PARALLEL 4 and executed serially. The results for INTEGER, BIGINT and
+ * DECIMAL columns must be the same. The variance of DOUBLE values may
+ * differ only in the last digits, as it does when the rows of a serial
+ * scan are in a different order.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class TestParallelAggregates extends TestCase {
+
+    static final int rowCount = 100000;
+    static final int degree   = 4;
+    String           url      = "jdbc:hsqldb:mem:testparallel";
+    Connection       connection;
+
+    public TestParallelAggregates(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+
+        connection = DriverManager.getConnection(url, "SA", "");
+
+        Statement st = connection.createStatement();
+
+        st.execute("DROP TABLE P IF EXISTS");
+        st.execute("CREATE TABLE P (ID INT PRIMARY KEY, I INT, B BIGINT, "
+                   + "D DECIMAL(20,4), F DOUBLE)");
+
+        PreparedStatement ps =
+            connection.prepareStatement("INSERT INTO P VALUES (?, ?, ?, ?, ?)");
+        Random random = new Random(0);
+
+        for (int i = 0; i < rowCount; i++) {
+            ps.setInt(1, i);
+
+            if (i % 101 == 0) {
+                ps.setNull(2, java.sql.Types.INTEGER);
+                ps.setNull(3, java.sql.Types.BIGINT);
+                ps.setNull(4, java.sql.Types.DECIMAL);
+                ps.setNull(5, java.sql.Types.DOUBLE);
+            } else {
+
+                // large values with a small spread lose digits as doubles
+                ps.setInt(2, random.nextInt());
+                ps.setLong(3, 1000000000000000L + random.nextInt(1000));
+                ps.setBigDecimal(4, new java.math.BigDecimal(
+                    random.nextLong()).movePointLeft(4));
+                ps.setDouble(5, random.nextGaussian() * 1000);
+            }
+
+            ps.executeUpdate();
+        }
+
+        ps.close();
+        st.close();
+    }
+
+    protected void tearDown() {
+
+        try {
+            connection.createStatement().execute("SHUTDOWN");
+        } catch (Exception e) {}
+    }
+
+    Object[] getRow(int parallelDegree, String sql) throws Exception {
+
+        Statement st = connection.createStatement();
+
+        st.execute("SET SESSION PARALLEL " + parallelDegree);
+
+        ResultSet rs = st.executeQuery(sql);
+
+        assertTrue(rs.next());
+
+        int      count = rs.getMetaData().getColumnCount();
+        Object[] row   = new Object[count];
+
+        for (int i = 0; i < count; i++) {
+            row[i] = rs.getObject(i + 1);
+        }
+
+        rs.close();
+        st.close();
+
+        return row;
+    }
+
+    void checkParallelPlan(String sql) throws Exception {
+
+        Statement st = connection.createStatement();
+
+        st.execute("SET SESSION PARALLEL " + degree);
+
+        ResultSet    rs = st.executeQuery("EXPLAIN PLAN FOR " + sql);
+        StringBuffer sb = new StringBuffer();
+
+        while (rs.next()) {
+            sb.append(rs.getString(1)).append('\n');
+        }
+
+        rs.close();
+        st.close();
+        assertTrue(sb.toString(),
+                   sb.toString().indexOf("parallelDegree=[" + degree + "]")
+                   >= 0);
+    }
+
+    void checkSameResults(String sql) throws Exception {
+
+        checkParallelPlan(sql);
+
+        Object[] serial   = getRow(1, sql);
+        Object[] parallel = getRow(degree, sql);
+
+        for (int i = 0; i < serial.length; i++) {
+            assertEquals(sql + " column " + (i + 1), serial[i], parallel[i]);
+        }
+    }
+
+    public void testExactVariance() throws Exception {
+
+        checkSameResults("SELECT VAR_SAMP(I), VAR_POP(I), STDDEV_SAMP(I), "
+                         + "STDDEV_POP(I) FROM P");
+        checkSameResults("SELECT VAR_SAMP(B), VAR_POP(B), STDDEV_SAMP(B), "
+                         + "STDDEV_POP(B) FROM P");
+        checkSameResults("SELECT VAR_SAMP(D), VAR_POP(D), STDDEV_SAMP(D), "
+                         + "STDDEV_POP(D) FROM P");
+        checkSameResults("SELECT VAR_SAMP(B), STDDEV_POP(D) FROM P "
+                         + "WHERE I > 0 AND F < 500");
+    }
+
+    public void testExactSums() throws Exception {
+        checkSameResults("SELECT COUNT(*), COUNT(I), SUM(I), SUM(B), SUM(D), "
+                         + "AVG(B), AVG(D), MIN(D), MAX(B) FROM P");
+    }
+
+    public void testDoubleVariance() throws Exception {
+
+        String sql = "SELECT VAR_SAMP(F), VAR_POP(F), STDDEV_SAMP(F), "
+                     + "STDDEV_POP(F) FROM P";
+
+        checkParallelPlan(sql);
+
+        Object[] serial   = getRow(1, sql);
+        Object[] parallel = getRow(degree, sql);
+
+        for (int i = 0; i < serial.length; i++) {
+            double expected = ((Number) serial[i]).doubleValue();
+            double actual   = ((Number) parallel[i]).doubleValue();
+
+            assertEquals(sql + " column " + (i + 1), expected, actual,
+                         Math.abs(expected) * 1e-12);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/* Copyright (c) 2001-2011, The HSQL Development Group
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * Neither the name of the HSQL Development Group nor the names of its
+ * contributors may be used to endorse or promote products derived from this
+ * software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL HSQL DEVELOPMENT GROUP, HSQLDB.ORG,
+ * OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+
+package org.hsqldb.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import junit.framework.TestCase;
+
+/**
+ * Compares the errors reported for directly executed statements with the
+ * plan cache on and off.
+ *
+ * @version 2.3.2
+ * @since 2.3.2
+ */
+public class TestPlanCacheErrors extends TestCase {
+
+    static final String createTable =
+        "create table p (id int, n smallint, d decimal(3,1), v varchar(3),"
+        + " t timestamp(0), b bigint)";
+    static final String[] statements = {
+        "insert into p values (1, 1, 1, 'a', null, 1)",
+        "insert into p values (1, 100000, 1, 'a', null, 1)",
+        "insert into p values (1, 1, 1234.5, 'a', null, 1)",
+        "insert into p values (1, 1, 12345.6, 'a', null, 1)",
+        "insert into p values (1, 1, 1, 'abcd', null, 1)",
+        "insert into p values (1, 1, 1, 'a', null, 1),"
+        + " (2, 100000, 1, 'a', null, 1)",
+        "insert into p values (1, 1, 1, 'a', null, 1),"
+        + " (2, 1, 1234.5, 'a', null, 1)",
+        "insert into p values (1, 1, 1, 'a', null, 1),"
+        + " (2, 1, 1, 'abcd', null, 1)",
+        "insert into p (id, n) values (2, 70000)",
+        "insert into p (id, d) values (2, 100)",
+        "insert into p (id, v) values (2, 'xxxx')",
+        "insert into p (id, n) values (2, 7e4)",
+        "insert into p (id, n) values (2, 70000.5)",
+        "insert into p (id, b) values (2, 99999999999999999999)",
+        "insert into p (id, n) select 3, 70000 from p",
+        "insert into p (id, d) select 3, 100 from p",
+        "update p set d = 1234.5", "update p set n = 40000 where id = 1",
+        "update p set v = 'abcde'", "update p set n = n + 100000",
+        "update p set n = 32767 + id", "update p set d = d + 100",
+        "update p set v = v || 'abcd'",
+        "update p set n = 40000, d = 1 where id = 1",
+        "merge into p using (values (1, 70000)) as s(a, b) on p.id = s.a"
+        + " when matched then update set n = s.b",
+        "merge into p using (values (9, 70000)) as s(a, b) on p.id = s.a"
+        + " when not matched then insert (id, n) values (s.a, s.b)",
+        "merge into p using (values (9)) as s(a) on p.id = s.a"
+        + " when not matched then insert (id, n) values (s.a, 70000)",
+        "select cast(70000 as smallint) from p",
+        "select n + 70000 from p where n = 70000",
+        "select count(*) from p"
+    };
+
+    public TestPlanCacheErrors(String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    }
+
+    public void testErrorText() throws Exception {
+
+        Connection uncached =
+            DriverManager.getConnection("jdbc:hsqldb:mem:planuncached", "sa",
+                                        "");
+        Connection cached = DriverManager.getConnection(
+            "jdbc:hsqldb:mem:plancached;hsqldb.plan_cache_size=100", "sa",
+            "");
+
+        try {
+            execute(uncached, createTable);
+            execute(cached, createTable);
+
+            // each statement is executed twice to use the cached plan
+            for (int i = 0; i < statements.length; i++) {
+                for (int j = 0; j < 2; j++) {
+                    assertEquals(statements[i],
+                                 execute(uncached, statements[i]),
+                                 execute(cached, statements[i]));
+                }
+            }
+
+            // the column is reported in the same statements
+            assertTrue(execute(cached, statements[4]).indexOf(
+                "table: P column: V") > 0);
+            assertTrue(execute(cached, statements[7]).indexOf(
+                "table: P column: V") > 0);
+
+            Statement st = cached.createStatement();
+            ResultSet rs = st.executeQuery(
+                "select count(*) from information_schema.system_plan_cache");
+
+            rs.next();
+            assertTrue(rs.getInt(1) > 0);
+            st.close();
+        } finally {
+            uncached.createStatement().execute("shutdown");
+            cached.createStatement().execute("shutdown");
+        }
+    }
+
+    static String execute(Connection c, String sql) {
+
+        try {
+            Statement st = c.createStatement();
+
+            try {
+                if (st.execute(sql)) {
+                    ResultSet    rs = st.getResultSet();
+                    StringBuffer sb = new StringBuffer();
+
+                    while (rs.next()) {
+                        sb.append(rs.getString(1)).append(' ');
+                    }
+
+                    return sb.toString();
+                }
+
+                return "u " + st.getUpdateCount();
+            } finally {
+                st.close();
+            }
+        } catch (SQLException e) {
+            return e.getSQLState() + " " + e.getMessage();
+        }
+    }
+}
@@ -414,6 +414,14 @@ public class Collation implements SchemaObject {
         return isUpperCaseCompare;
     }
 
+    /**
+     * true if strings are compared character by character, with or without
+     * case, rather than with a language Collator
+     */
+    public boolean isCharacterCompare() {
+        return collator == null;
+    }
+
     public boolean isCaseSensitive() {
 
         // add support for case-sensitive language collations
@@ -4,6 +4,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -27,6 +28,7 @@ import com.j256.ormlite.stmt.StatementBuilder.StatementType;
 import com.j256.ormlite.stmt.StatementExecutor;
 import com.j256.ormlite.stmt.UpdateBuilder;
 import com.j256.ormlite.stmt.Where;
+import com.j256.ormlite.support.BatchDatabaseConnection;
 import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.support.DatabaseConnection;
 import com.j256.ormlite.support.DatabaseResults;
@@ -56,6 +58,9 @@ import com.j256.ormlite.table.TableInfo;
  */
 public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 
+	/** default number of rows sent to the database in one batch, see {@link #setBatchSize(int)} */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
 	private boolean initialized;
 
 	protected StatementExecutor<T, ID> statementExecutor;
@@ -76,6 +81,7 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 			};
 	private static ReferenceObjectCache defaultObjectCache;
 	private ObjectCache objectCache;
+	private int batchSize = DEFAULT_BATCH_SIZE;
 
 	/**
 	 * Construct our base DAO using Spring type wiring. The {@link ConnectionSource} must be set with the
@@ -313,6 +319,47 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		}
 	}
 
+	/**
+	 * Create new rows in the database from a collection of objects. This works like calling {@link #create(Object)} on
+	 * each of the objects but the insert statement is compiled once and the rows are sent to the database in batches.
+	 * See {@link #setBatchSize(int)}. If auto-commit is enabled, it is disabled while the objects are created like
+	 * {@link #callBatchTasks(Callable)}.
+	 * 
+	 * <p>
+	 * <b>NOTE:</b> If the objects use {@link DatabaseField#generatedId()} and the database type cannot return the
+	 * generated keys of a batch then the objects are inserted one at a time so their ids can be set. They are also
+	 * inserted one at a time if the connection is not a {@link BatchDatabaseConnection}.
+	 * </p>
+	 * 
+	 * @param datas
+	 *            The collection of data items that we are creating in the database.
+	 * @return The number of rows updated in the database. This should be the size() of the collection.
+	 */
+	public int createBatch(Collection<T> datas) throws SQLException {
+		checkForInitialized();
+		final List<T> dataList = new ArrayList<T>(datas.size());
+		for (T data : datas) {
+			// ignore creating a null object
+			if (data == null) {
+				continue;
+			}
+			if (data instanceof BaseDaoEnabled) {
+				@SuppressWarnings("unchecked")
+				BaseDaoEnabled<T, ID> daoEnabled = (BaseDaoEnabled<T, ID>) data;
+				daoEnabled.setDao(this);
+			}
+			dataList.add(data);
+		}
+		if (dataList.isEmpty()) {
+			return 0;
+		}
+		return runBatchTask(new BatchTask() {
+			public Integer call(DatabaseConnection connection) throws SQLException {
+				return statementExecutor.createBatch(connection, dataList, objectCache, batchSize);
+			}
+		});
+	}
+
 	public T createIfNotExists(T data) throws SQLException {
 		if (data == null) {
 			return null;
@@ -341,6 +388,87 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		}
 	}
 
+	/**
+	 * Same as {@link #createOrUpdate(Object)} but for a collection of objects. The ids that already exist are looked up
+	 * with a query for each batch and the objects are then created like {@link #createBatch(Collection)} or updated
+	 * like {@link #updateBatch(Collection)}. The queries, inserts and updates are run on one connection with
+	 * auto-commit disabled like {@link #callBatchTasks(Callable)}. If the same id is in the collection more than once
+	 * then the first object is created, if its id does not exist yet, and the others are updated.
+	 * 
+	 * @return Status object with the number of rows changed and whether any inserts or updates were performed.
+	 */
+	public CreateOrUpdateStatus createOrUpdateBatch(Collection<T> datas) throws SQLException {
+		checkForInitialized();
+		final FieldType idField = tableInfo.getIdField();
+		if (idField == null) {
+			throw new SQLException("Class " + dataClass + " must have an id field to createOrUpdate");
+		}
+		final List<T> creates = new ArrayList<T>();
+		final List<T> withIds = new ArrayList<T>();
+		for (T data : datas) {
+			if (data == null) {
+				continue;
+			}
+			if (data instanceof BaseDaoEnabled) {
+				@SuppressWarnings("unchecked")
+				BaseDaoEnabled<T, ID> daoEnabled = (BaseDaoEnabled<T, ID>) data;
+				daoEnabled.setDao(this);
+			}
+			// assume we need to create it if there is no id
+			if (extractId(data) == null) {
+				creates.add(data);
+			} else {
+				withIds.add(data);
+			}
+		}
+		if (creates.isEmpty() && withIds.isEmpty()) {
+			return new CreateOrUpdateStatus(false, false, 0);
+		}
+		final List<T> updates = new ArrayList<T>(withIds.size());
+		/*
+		 * The lookup of the existing ids, the inserts and the updates all run on the same connection with auto-commit
+		 * disabled so another thread cannot insert one of the ids between the query and the batches.
+		 */
+		int numRows = runBatchTask(new BatchTask() {
+			public Integer call(DatabaseConnection connection) throws SQLException {
+				HashSet<ID> existingIds = new HashSet<ID>();
+				for (int start = 0; start < withIds.size(); start += batchSize) {
+					List<T> chunk = withIds.subList(start, Math.min(start + batchSize, withIds.size()));
+					List<ID> ids = new ArrayList<ID>(chunk.size());
+					for (T data : chunk) {
+						ids.add(extractId(data));
+					}
+					// find out which of the ids already exist with one query, this uses the saved connection
+					QueryBuilder<T, ID> qb = queryBuilder();
+					qb.selectColumns(idField.getColumnName()).where().in(idField.getColumnName(), ids);
+					for (T existing : qb.query()) {
+						existingIds.add(extractId(existing));
+					}
+					for (T data : chunk) {
+						/*
+						 * If the same id is in the collection more than once then the first object creates the row and
+						 * the others update it like calling createOrUpdate(Object) on each of them would.
+						 */
+						if (existingIds.add(extractId(data))) {
+							creates.add(data);
+						} else {
+							updates.add(data);
+						}
+					}
+				}
+				int rowC = 0;
+				if (!creates.isEmpty()) {
+					rowC += statementExecutor.createBatch(connection, creates, objectCache, batchSize);
+				}
+				if (!updates.isEmpty()) {
+					rowC += statementExecutor.updateBatch(connection, updates, objectCache, batchSize);
+				}
+				return rowC;
+			}
+		});
+		return new CreateOrUpdateStatus(!creates.isEmpty(), !updates.isEmpty(), numRows);
+	}
+
 	public int update(T data) throws SQLException {
 		checkForInitialized();
 		// ignore updating a null object
@@ -356,6 +484,40 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		}
 	}
 
+	/**
+	 * Store the fields from a collection of objects to the database rows corresponding to their ids. This works like
+	 * calling {@link #update(Object)} on each of the objects but the update statement is compiled once and the rows
+	 * are sent to the database in batches. See {@link #setBatchSize(int)}.
+	 * 
+	 * <p>
+	 * NOTE: Some JDBC drivers do not return the number of rows changed by each update of a batch. Those updates are not
+	 * counted in the returned number, their version fields are not moved forward, and they are removed from the object
+	 * cache.
+	 * </p>
+	 * 
+	 * @param datas
+	 *            The collection of data items that we are updating in the database.
+	 * @return The number of rows updated in the database. This should be the size() of the collection.
+	 */
+	public int updateBatch(Collection<T> datas) throws SQLException {
+		checkForInitialized();
+		final List<T> dataList = new ArrayList<T>(datas.size());
+		for (T data : datas) {
+			// ignore updating a null object
+			if (data != null) {
+				dataList.add(data);
+			}
+		}
+		if (dataList.isEmpty()) {
+			return 0;
+		}
+		return runBatchTask(new BatchTask() {
+			public Integer call(DatabaseConnection connection) throws SQLException {
+				return statementExecutor.updateBatch(connection, dataList, objectCache, batchSize);
+			}
+		});
+	}
+
 	public int updateId(T data, ID newId) throws SQLException {
 		checkForInitialized();
 		// ignore updating a null object
@@ -637,6 +799,24 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		}
 	}
 
+	/**
+	 * Run a batch task on a read-write connection with auto-commit disabled like {@link #callBatchTasks(Callable)}.
+	 */
+	private int runBatchTask(final BatchTask task) throws SQLException {
+		final DatabaseConnection connection = connectionSource.getReadWriteConnection();
+		try {
+			boolean saved = connectionSource.saveSpecialConnection(connection);
+			return statementExecutor.callBatchTasks(connection, saved, new Callable<Integer>() {
+				public Integer call() throws SQLException {
+					return task.call(connection);
+				}
+			});
+		} finally {
+			connectionSource.clearSpecialConnection(connection);
+			connectionSource.releaseConnection(connection);
+		}
+	}
+
 	public String objectToString(T data) {
 		checkForInitialized();
 		return tableInfo.objectToString(data);
@@ -773,6 +953,17 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		return objectCache;
 	}
 
+	/**
+	 * Set the maximum number of rows that are sent to the database in one batch by {@link #createBatch(Collection)},
+	 * {@link #updateBatch(Collection)} and {@link #createOrUpdateBatch(Collection)}. Default is 1000.
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1, was " + batchSize);
+		}
+		this.batchSize = batchSize;
+	}
+
 	public void clearObjectCache() {
 		if (objectCache != null) {
 			objectCache.clear(dataClass);
@@ -1010,4 +1201,11 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 			return qb.query();
 		}
 	}
+
+	/**
+	 * Task that is run by the batch methods on the connection that has auto-commit disabled.
+	 */
+	private interface BatchTask {
+		public Integer call(DatabaseConnection connection) throws SQLException;
+	}
 }
@@ -452,6 +452,24 @@ public abstract class BaseDatabaseType implements DatabaseType {
 		return false;
 	}
 
+	/**
+	 * Returns true if the driver returns the generated keys of all of the rows after a batch of inserts, in the order
+	 * of the rows. Default is false in which case objects with generated-ids are inserted one at a time by
+	 * {@link com.j256.ormlite.dao.BaseDaoImpl#createBatch(java.util.Collection)}.
+	 */
+	public boolean isBatchGeneratedKeysSupported() {
+		return false;
+	}
+
+	/**
+	 * Returns true if the database supports inserting multiple rows with a single INSERT INTO xxx VALUES (...), (...)
+	 * statement. This is used by {@link com.j256.ormlite.dao.BaseDaoImpl#createBatch(java.util.Collection)}. Default is
+	 * false.
+	 */
+	public boolean isMultiRowInsertSupported() {
+		return false;
+	}
+
 	public boolean isTruncateSupported() {
 		return false;
 	}
@@ -19,6 +19,14 @@ import com.j256.ormlite.dao.ForeignCollection;
 import com.j256.ormlite.dao.LazyForeignCollection;
 import com.j256.ormlite.dao.ObjectCache;
 import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.field.types.BooleanType;
+import com.j256.ormlite.field.types.ByteType;
+import com.j256.ormlite.field.types.CharType;
+import com.j256.ormlite.field.types.DoubleType;
+import com.j256.ormlite.field.types.FloatType;
+import com.j256.ormlite.field.types.IntType;
+import com.j256.ormlite.field.types.LongType;
+import com.j256.ormlite.field.types.ShortType;
 import com.j256.ormlite.field.types.VoidType;
 import com.j256.ormlite.misc.SqlExceptionUtil;
 import com.j256.ormlite.stmt.mapped.MappedQueryForId;
@@ -70,6 +78,7 @@ public class FieldType {
 	private Object dataTypeConfigObj;
 
 	private FieldConverter fieldConverter;
+	private Class<?> directPrimitiveClass;
 	private FieldType foreignIdField;
 	private TableInfo<?, ?> foreignTableInfo;
 	private FieldType foreignFieldType;
@@ -815,6 +824,14 @@ public class FieldType {
 			dbColumnPos = results.findColumn(columnName);
 			columnPositions.put(columnName, dbColumnPos);
 		}
+		return resultToJava(results, dbColumnPos);
+	}
+
+	/**
+	 * Get the result object from the results at a column position that has already been looked up. A call through to
+	 * {@link FieldConverter#resultToJava}.
+	 */
+	public <T> T resultToJava(DatabaseResults results, int dbColumnPos) throws SQLException {
 		@SuppressWarnings("unchecked")
 		T converted = (T) fieldConverter.resultToJava(this, results, dbColumnPos);
 		if (fieldConfig.isForeign()) {
@@ -838,6 +855,53 @@ public class FieldType {
 		return converted;
 	}
 
+	/**
+	 * Return true if this is a primitive field which is handled by one of the standard primitive persisters and which
+	 * is accessed directly instead of through get/set methods. These fields can be assigned with
+	 * {@link #assignPrimitiveResult} which avoids boxing the value.
+	 */
+	public boolean isDirectPrimitive() {
+		return directPrimitiveClass != null;
+	}
+
+	/**
+	 * Get the primitive value from the results at the column position and assign it to the field in the data object.
+	 * This is the same as calling {@link #resultToJava} and {@link #assignField} but the value is not boxed on the way.
+	 * This should only be called if {@link #isDirectPrimitive()} returns true.
+	 */
+	public void assignPrimitiveResult(Object data, DatabaseResults results, int dbColumnPos) throws SQLException {
+		Class<?> clazz = directPrimitiveClass;
+		try {
+			if (clazz == int.class) {
+				field.setInt(data, results.getInt(dbColumnPos));
+			} else if (clazz == long.class) {
+				field.setLong(data, results.getLong(dbColumnPos));
+			} else if (clazz == boolean.class) {
+				field.setBoolean(data, results.getBoolean(dbColumnPos));
+			} else if (clazz == double.class) {
+				field.setDouble(data, results.getDouble(dbColumnPos));
+			} else if (clazz == float.class) {
+				field.setFloat(data, results.getFloat(dbColumnPos));
+			} else if (clazz == short.class) {
+				field.setShort(data, results.getShort(dbColumnPos));
+			} else if (clazz == byte.class) {
+				field.setByte(data, results.getByte(dbColumnPos));
+			} else if (clazz == char.class) {
+				field.setChar(data, results.getChar(dbColumnPos));
+			} else {
+				throw new SQLException("Field " + this + " is not a direct primitive field");
+			}
+		} catch (IllegalArgumentException e) {
+			throw SqlExceptionUtil.create("Could not assign result to field " + this, e);
+		} catch (IllegalAccessException e) {
+			throw SqlExceptionUtil.create("Could not assign result to field " + this, e);
+		}
+		if (fieldConfig.isThrowIfNull() && results.wasNull(dbColumnPos)) {
+			throw new SQLException("Results value for primitive field '" + field.getName()
+					+ "' was an invalid null value");
+		}
+	}
+
 	/**
 	 * Call through to {@link DataPersister#isSelfGeneratedId()}
 	 */
@@ -1020,6 +1084,32 @@ public class FieldType {
 		throw new SQLException(sb.toString());
 	}
 
+	/**
+	 * Return the primitive class of the field if its value can be read from the results and assigned to the field
+	 * without going through the converter or boxing, otherwise null. The persister has to be one of the standard
+	 * primitive persisters and not a sub-class which may change the conversion.
+	 */
+	private Class<?> findDirectPrimitiveClass() {
+		if (fieldConfig.isForeign() || fieldConfig.isForeignCollection() || fieldConfig.isUseGetSet()
+				|| fieldConverter != dataPersister) {
+			return null;
+		}
+		Class<?> fieldClass = field.getType();
+		Class<?> persisterClass = dataPersister.getClass();
+		if ((fieldClass == int.class && persisterClass == IntType.class)
+				|| (fieldClass == long.class && persisterClass == LongType.class)
+				|| (fieldClass == boolean.class && persisterClass == BooleanType.class)
+				|| (fieldClass == double.class && persisterClass == DoubleType.class)
+				|| (fieldClass == float.class && persisterClass == FloatType.class)
+				|| (fieldClass == short.class && persisterClass == ShortType.class)
+				|| (fieldClass == byte.class && persisterClass == ByteType.class)
+				|| (fieldClass == char.class && persisterClass == CharType.class)) {
+			return fieldClass;
+		} else {
+			return null;
+		}
+	}
+
 	/**
 	 * Configure our data persister and any dependent fields. We have to do this here because both the constructor and
 	 * {@link #configDaoInformation} method can set the data-type.
@@ -1035,6 +1125,7 @@ public class FieldType {
 			return;
 		}
 		this.fieldConverter = databaseType.getFieldConverter(dataPersister);
+		this.directPrimitiveClass = findDirectPrimitiveClass();
 		if (this.isGeneratedId && !dataPersister.isValidGeneratedType()) {
 			StringBuilder sb = new StringBuilder();
 			sb.append("Generated-id field '").append(field.getName());
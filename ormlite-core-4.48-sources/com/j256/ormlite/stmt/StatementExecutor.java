@@ -450,6 +450,17 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 		return mappedInsert.insert(databaseType, databaseConnection, data, objectCache);
 	}
 
+	/**
+	 * Create new entries in the database from a collection of objects using batches of batchSize.
+	 */
+	public int createBatch(DatabaseConnection databaseConnection, Collection<T> datas, ObjectCache objectCache,
+			int batchSize) throws SQLException {
+		if (mappedInsert == null) {
+			mappedInsert = MappedCreate.build(databaseType, tableInfo);
+		}
+		return mappedInsert.insertBatch(databaseType, databaseConnection, datas, objectCache, batchSize);
+	}
+
 	/**
 	 * Update an object in the database.
 	 */
@@ -460,6 +471,17 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 		return mappedUpdate.update(databaseConnection, data, objectCache);
 	}
 
+	/**
+	 * Update a collection of objects in the database using batches of batchSize.
+	 */
+	public int updateBatch(DatabaseConnection databaseConnection, Collection<T> datas, ObjectCache objectCache,
+			int batchSize) throws SQLException {
+		if (mappedUpdate == null) {
+			mappedUpdate = MappedUpdate.build(databaseType, tableInfo);
+		}
+		return mappedUpdate.updateBatch(databaseConnection, datas, objectCache, batchSize);
+	}
+
 	/**
 	 * Update an object in the database to change its id to the newId parameter.
 	 */
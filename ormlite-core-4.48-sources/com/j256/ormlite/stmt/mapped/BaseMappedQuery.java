@@ -21,6 +21,8 @@ public abstract class BaseMappedQuery<T, ID> extends BaseMappedStatement<T, ID>
 	protected final FieldType[] resultsFieldTypes;
 	// cache of column names to results position
 	private Map<String, Integer> columnPositions = null;
+	// results position of each of the resultsFieldTypes, resolved on the first row
+	private int[] resultsColumnPositions = null;
 	private Object parent = null;
 	private Object parentId = null;
 
@@ -38,6 +40,11 @@ public abstract class BaseMappedQuery<T, ID> extends BaseMappedStatement<T, ID>
 			colPosMap = columnPositions;
 		}
 
+		int[] colPositions = resultsColumnPositions;
+		if (colPositions == null) {
+			colPositions = findColumnPositions(results, colPosMap);
+		}
+
 		ObjectCache objectCache = results.getObjectCache();
 		if (objectCache != null) {
 			Object id = idField.resultToJava(results, colPosMap);
@@ -53,11 +60,15 @@ public abstract class BaseMappedQuery<T, ID> extends BaseMappedStatement<T, ID>
 		// populate its fields
 		Object id = null;
 		boolean foreignCollections = false;
-		for (FieldType fieldType : resultsFieldTypes) {
+		for (int i = 0; i < resultsFieldTypes.length; i++) {
+			FieldType fieldType = resultsFieldTypes[i];
 			if (fieldType.isForeignCollection()) {
 				foreignCollections = true;
+			} else if (fieldType.isDirectPrimitive() && fieldType != idField) {
+				// primitives can't match the parent or be foreign so we assign them directly without boxing
+				fieldType.assignPrimitiveResult(instance, results, colPositions[i]);
 			} else {
-				Object val = fieldType.resultToJava(results, colPosMap);
+				Object val = fieldType.resultToJava(results, colPositions[i]);
 				/*
 				 * This is pretty subtle. We introduced multiple foreign fields to the same type which use the {@link
 				 * ForeignCollectionField} foreignColumnName field. The bug that was created was that all the fields
@@ -93,9 +104,35 @@ public abstract class BaseMappedQuery<T, ID> extends BaseMappedStatement<T, ID>
 		if (columnPositions == null) {
 			columnPositions = colPosMap;
 		}
+		if (resultsColumnPositions == null) {
+			resultsColumnPositions = colPositions;
+		}
 		return instance;
 	}
 
+	/**
+	 * Look up the results position of each of our results fields once so we don't have to go through the column-name
+	 * map for every field of every row. Foreign collections have no column and get a position of -1.
+	 */
+	private int[] findColumnPositions(DatabaseResults results, Map<String, Integer> colPosMap) throws SQLException {
+		int[] colPositions = new int[resultsFieldTypes.length];
+		for (int i = 0; i < resultsFieldTypes.length; i++) {
+			FieldType fieldType = resultsFieldTypes[i];
+			if (fieldType.isForeignCollection()) {
+				colPositions[i] = -1;
+				continue;
+			}
+			String columnName = fieldType.getColumnName();
+			Integer dbColumnPos = colPosMap.get(columnName);
+			if (dbColumnPos == null) {
+				dbColumnPos = results.findColumn(columnName);
+				colPosMap.put(columnName, dbColumnPos);
+			}
+			colPositions[i] = dbColumnPos;
+		}
+		return colPositions;
+	}
+
 	/**
 	 * If we have a foreign collection object then this sets the value on the foreign object in the class.
 	 */
@@ -1,12 +1,18 @@
 package com.j256.ormlite.stmt.mapped;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.db.BaseDatabaseType;
 import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.field.FieldType;
 import com.j256.ormlite.logger.Log.Level;
 import com.j256.ormlite.misc.SqlExceptionUtil;
+import com.j256.ormlite.support.BatchDatabaseConnection;
 import com.j256.ormlite.support.DatabaseConnection;
 import com.j256.ormlite.support.GeneratedKeyHolder;
 import com.j256.ormlite.table.TableInfo;
@@ -18,6 +24,9 @@ import com.j256.ormlite.table.TableInfo;
  */
 public class MappedCreate<T, ID> extends BaseMappedStatement<T, ID> {
 
+	/** maximum number of arguments in a multi-row insert statement, kept under the limits of the common databases */
+	private static final int MAX_MULTI_ROW_ARGUMENTS = 999;
+
 	private final String queryNextSequenceStmt;
 	private String dataClassName;
 	private int versionFieldTypeIndex;
@@ -63,28 +72,10 @@ public class MappedCreate<T, ID> extends BaseMappedStatement<T, ID> {
 
 		try {
 			// implement {@link DatabaseField#foreignAutoCreate()}, need to do this _before_ getFieldObjects() below
-			if (tableInfo.isForeignAutoCreate()) {
-				for (FieldType fieldType : tableInfo.getFieldTypes()) {
-					if (!fieldType.isForeignAutoCreate()) {
-						continue;
-					}
-					// get the field value
-					Object foreignObj = fieldType.extractRawJavaFieldValue(data);
-					if (foreignObj != null && fieldType.getForeignIdField().isObjectsFieldValueDefault(foreignObj)) {
-						fieldType.createWithForeignDao(foreignObj);
-					}
-				}
-			}
+			createForeignObjects(data);
 
 			Object[] args = getFieldObjects(data);
-			Object versionDefaultValue = null;
-			// implement {@link DatabaseField#version()}
-			if (versionFieldTypeIndex >= 0 && args[versionFieldTypeIndex] == null) {
-				// if the version is null then we need to initialize it before create
-				FieldType versionFieldType = argFieldTypes[versionFieldTypeIndex];
-				versionDefaultValue = versionFieldType.moveToNextValue(null);
-				args[versionFieldTypeIndex] = versionFieldType.convertJavaFieldToSqlArgValue(versionDefaultValue);
-			}
+			Object versionDefaultValue = initVersionArg(args);
 
 			int rowC;
 			try {
@@ -104,30 +95,8 @@ public class MappedCreate<T, ID> extends BaseMappedStatement<T, ID> {
 				logger.trace("insert arguments: {}", (Object) args);
 			}
 			if (rowC > 0) {
-				if (versionDefaultValue != null) {
-					argFieldTypes[versionFieldTypeIndex].assignField(data, versionDefaultValue, false, null);
-				}
-				if (keyHolder != null) {
-					// assign the key returned by the database to the object's id field after it was inserted
-					Number key = keyHolder.getKey();
-					if (key == null) {
-						// may never happen but let's be careful out there
-						throw new SQLException("generated-id key was not set by the update call");
-					}
-					if (key.longValue() == 0L) {
-						// sanity check because the generated-key returned is 0 by default, may never happen
-						throw new SQLException("generated-id key must not be 0 value");
-					}
-					assignIdValue(data, key, "keyholder", objectCache);
-				}
-				/*
-				 * If we have a cache and if all of the foreign-collection fields have been assigned then add to cache.
-				 * However, if one of the foreign collections has not be assigned then don't add it to the cache.
-				 */
-				if (objectCache != null && foreignCollectionsAreAssigned(tableInfo.getForeignCollections(), data)) {
-					Object id = idField.extractJavaFieldValue(data);
-					objectCache.put(clazz, id, data);
-				}
+				afterInsert(data, versionDefaultValue, keyHolder == null ? null : keyHolder.getKey(),
+						keyHolder != null, objectCache);
 			}
 
 			return rowC;
@@ -136,6 +105,93 @@ public class MappedCreate<T, ID> extends BaseMappedStatement<T, ID> {
 		}
 	}
 
+	/**
+	 * Create a collection of objects in the database. The insert statement is compiled once and the rows are sent to
+	 * the database in batches of batchSize. If the database supports it, a number of rows are also inserted with each
+	 * multi-row INSERT statement. Objects which need their generated-id returned by the database are inserted one at a
+	 * time unless the database can return the keys of a batch. If the connection is not a
+	 * {@link BatchDatabaseConnection} then all of the objects are inserted one at a time.
+	 */
+	public int insertBatch(DatabaseType databaseType, DatabaseConnection databaseConnection, Collection<T> datas,
+			ObjectCache objectCache, int batchSize) throws SQLException {
+		boolean oneAtATime = !(databaseConnection instanceof BatchDatabaseConnection);
+		boolean returnKeys = false;
+		if (idField != null && idField.isGeneratedId() && !idField.isSelfGeneratedId()
+				&& !(idField.isGeneratedIdSequence() && databaseType.isSelectSequenceBeforeInsert())) {
+			if (idField.isAllowGeneratedIdInsert() || !isBatchGeneratedKeysSupported(databaseType)) {
+				// we can't match up the returned keys with the rows so insert them one at a time
+				oneAtATime = true;
+			}
+			returnKeys = true;
+		}
+		if (oneAtATime) {
+			int rowC = 0;
+			for (T data : datas) {
+				rowC += insert(databaseType, databaseConnection, data, objectCache);
+			}
+			return rowC;
+		}
+		BatchDatabaseConnection batchConnection = (BatchDatabaseConnection) databaseConnection;
+
+		List<T> dataList = new ArrayList<T>(datas);
+		List<Object[]> argsList = new ArrayList<Object[]>(dataList.size());
+		Object[] versionDefaultValues = new Object[dataList.size()];
+		for (int i = 0; i < dataList.size(); i++) {
+			T data = dataList.get(i);
+			if (idField != null && !returnKeys
+					&& !(idField.isAllowGeneratedIdInsert() && !idField.isObjectsFieldValueDefault(data))) {
+				if (idField.isSelfGeneratedId() && idField.isGeneratedId()) {
+					idField.assignField(data, idField.generateId(), false, objectCache);
+				} else if (idField.isGeneratedIdSequence() && databaseType.isSelectSequenceBeforeInsert()) {
+					assignSequenceId(databaseConnection, data, objectCache);
+				}
+			}
+			createForeignObjects(data);
+			Object[] args = getFieldObjects(data);
+			versionDefaultValues[i] = initVersionArg(args);
+			argsList.add(args);
+		}
+
+		BatchKeyHolder keyHolder = null;
+		if (returnKeys) {
+			keyHolder = new BatchKeyHolder(dataList.size());
+		}
+		int[] rowCounts;
+		try {
+			if (!returnKeys && isMultiRowInsertSupported(databaseType) && argFieldTypes.length > 0
+					&& dataList.size() > 1) {
+				rowCounts = insertMultiRow(batchConnection, argsList, batchSize);
+			} else {
+				rowCounts = batchConnection.executeBatch(statement, argsList, argFieldTypes, keyHolder, batchSize);
+			}
+		} catch (SQLException e) {
+			logger.debug("batch insert of {} objects with statement '{}' threw exception: {}", dataList.size(),
+					statement, e);
+			throw SqlExceptionUtil.create("Unable to run batch insert stmt on " + dataList.size() + " objects: "
+					+ statement, e);
+		}
+		logger.debug("batch insert of {} objects with statement '{}'", dataList.size(), statement);
+		if (returnKeys && keyHolder.keys.size() != dataList.size()) {
+			throw new SQLException("generated-id keys returned for " + keyHolder.keys.size() + " rows instead of "
+					+ dataList.size());
+		}
+
+		int rowC = 0;
+		for (int i = 0; i < dataList.size(); i++) {
+			// some drivers don't say how many rows each insert changed but it can only be 1 if it didn't throw
+			int count = rowCounts[i];
+			if (count == BatchDatabaseConnection.ROW_COUNT_UNKNOWN) {
+				count = 1;
+			}
+			if (count > 0) {
+				afterInsert(dataList.get(i), versionDefaultValues[i], returnKeys ? keyHolder.keys.get(i) : null,
+						returnKeys, objectCache);
+				rowC += count;
+			}
+		}
+		return rowC;
+	}
+
 	public static <T, ID> MappedCreate<T, ID> build(DatabaseType databaseType, TableInfo<T, ID> tableInfo) {
 		StringBuilder sb = new StringBuilder(128);
 		appendTableName(databaseType, sb, "INSERT INTO ", tableInfo.getTableName());
@@ -189,6 +245,159 @@ public class MappedCreate<T, ID> extends BaseMappedStatement<T, ID> {
 		return new MappedCreate<T, ID>(tableInfo, sb.toString(), argFieldTypes, queryNext, versionFieldTypeIndex);
 	}
 
+	/**
+	 * Insert the rows with multi-row INSERT statements. All of the full sized statements are run as a batch of one
+	 * compiled statement and the remainder, if any, with a shorter statement. Returns the count for each row.
+	 */
+	private int[] insertMultiRow(BatchDatabaseConnection databaseConnection, List<Object[]> argsList, int batchSize)
+			throws SQLException {
+		int rowsPerStatement = Math.min(batchSize, MAX_MULTI_ROW_ARGUMENTS / argFieldTypes.length);
+		if (rowsPerStatement < 2) {
+			return databaseConnection.executeBatch(statement, argsList, argFieldTypes, null, batchSize);
+		}
+		int rowN = argsList.size();
+		int[] rowCounts = new int[rowN];
+		int fullN = rowN / rowsPerStatement;
+		int rowC = 0;
+		if (fullN > 0) {
+			List<Object[]> multiArgsList = new ArrayList<Object[]>(fullN);
+			for (int i = 0; i < fullN; i++) {
+				multiArgsList.add(joinArgs(argsList, rowC, rowsPerStatement));
+				rowC += rowsPerStatement;
+			}
+			int[] counts =
+					databaseConnection.executeBatch(buildMultiRowStatement(rowsPerStatement), multiArgsList,
+							repeatArgFieldTypes(rowsPerStatement), null, Math.max(1, batchSize / rowsPerStatement));
+			for (int i = 0; i < fullN; i++) {
+				setMultiRowCounts(rowCounts, i * rowsPerStatement, rowsPerStatement, counts[i]);
+			}
+		}
+		int restN = rowN - rowC;
+		if (restN > 0) {
+			List<Object[]> restArgsList = new ArrayList<Object[]>(1);
+			restArgsList.add(joinArgs(argsList, rowC, restN));
+			int[] counts =
+					databaseConnection.executeBatch(buildMultiRowStatement(restN), restArgsList,
+							repeatArgFieldTypes(restN), null, 1);
+			setMultiRowCounts(rowCounts, rowC, restN, counts[0]);
+		}
+		return rowCounts;
+	}
+
+	private static boolean isBatchGeneratedKeysSupported(DatabaseType databaseType) {
+		return databaseType instanceof BaseDatabaseType
+				&& ((BaseDatabaseType) databaseType).isBatchGeneratedKeysSupported();
+	}
+
+	private static boolean isMultiRowInsertSupported(DatabaseType databaseType) {
+		return databaseType instanceof BaseDatabaseType && ((BaseDatabaseType) databaseType).isMultiRowInsertSupported();
+	}
+
+	private String buildMultiRowStatement(int rowN) {
+		StringBuilder sb = new StringBuilder(statement.length() + (rowN - 1) * (argFieldTypes.length * 2 + 2));
+		sb.append(statement);
+		for (int rowC = 1; rowC < rowN; rowC++) {
+			sb.append(",(");
+			for (int i = 0; i < argFieldTypes.length; i++) {
+				if (i > 0) {
+					sb.append(",");
+				}
+				sb.append("?");
+			}
+			sb.append(")");
+		}
+		return sb.toString();
+	}
+
+	private FieldType[] repeatArgFieldTypes(int rowN) {
+		FieldType[] fieldTypes = new FieldType[argFieldTypes.length * rowN];
+		for (int rowC = 0; rowC < rowN; rowC++) {
+			System.arraycopy(argFieldTypes, 0, fieldTypes, rowC * argFieldTypes.length, argFieldTypes.length);
+		}
+		return fieldTypes;
+	}
+
+	private Object[] joinArgs(List<Object[]> argsList, int start, int rowN) {
+		Object[] args = new Object[argFieldTypes.length * rowN];
+		for (int rowC = 0; rowC < rowN; rowC++) {
+			System.arraycopy(argsList.get(start + rowC), 0, args, rowC * argFieldTypes.length, argFieldTypes.length);
+		}
+		return args;
+	}
+
+	private void setMultiRowCounts(int[] rowCounts, int start, int rowN, int statementCount) {
+		// a multi-row insert either inserts all of its rows or throws
+		int count = (statementCount == 0 ? 0 : 1);
+		for (int rowC = 0; rowC < rowN; rowC++) {
+			rowCounts[start + rowC] = count;
+		}
+	}
+
+	/**
+	 * Implement {@link DatabaseField#foreignAutoCreate()} by creating any foreign objects that don't have an id yet.
+	 */
+	private void createForeignObjects(T data) throws SQLException {
+		if (!tableInfo.isForeignAutoCreate()) {
+			return;
+		}
+		for (FieldType fieldType : tableInfo.getFieldTypes()) {
+			if (!fieldType.isForeignAutoCreate()) {
+				continue;
+			}
+			// get the field value
+			Object foreignObj = fieldType.extractRawJavaFieldValue(data);
+			if (foreignObj != null && fieldType.getForeignIdField().isObjectsFieldValueDefault(foreignObj)) {
+				fieldType.createWithForeignDao(foreignObj);
+			}
+		}
+	}
+
+	/**
+	 * Implement {@link DatabaseField#version()}. If the version argument is null then we need to initialize it before
+	 * create. Returns the initial version value which is assigned to the object after the insert or null if none.
+	 */
+	private Object initVersionArg(Object[] args) throws SQLException {
+		if (versionFieldTypeIndex >= 0 && args[versionFieldTypeIndex] == null) {
+			FieldType versionFieldType = argFieldTypes[versionFieldTypeIndex];
+			Object versionDefaultValue = versionFieldType.moveToNextValue(null);
+			args[versionFieldTypeIndex] = versionFieldType.convertJavaFieldToSqlArgValue(versionDefaultValue);
+			return versionDefaultValue;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Update the object after it has been inserted with the initial version, the key returned by the database and add
+	 * it to the cache.
+	 */
+	private void afterInsert(T data, Object versionDefaultValue, Number key, boolean keyExpected,
+			ObjectCache objectCache) throws SQLException {
+		if (versionDefaultValue != null) {
+			argFieldTypes[versionFieldTypeIndex].assignField(data, versionDefaultValue, false, null);
+		}
+		if (keyExpected) {
+			// assign the key returned by the database to the object's id field after it was inserted
+			if (key == null) {
+				// may never happen but let's be careful out there
+				throw new SQLException("generated-id key was not set by the update call");
+			}
+			if (key.longValue() == 0L) {
+				// sanity check because the generated-key returned is 0 by default, may never happen
+				throw new SQLException("generated-id key must not be 0 value");
+			}
+			assignIdValue(data, key, "keyholder", objectCache);
+		}
+		/*
+		 * If we have a cache and if all of the foreign-collection fields have been assigned then add to cache. However,
+		 * if one of the foreign collections has not be assigned then don't add it to the cache.
+		 */
+		if (objectCache != null && foreignCollectionsAreAssigned(tableInfo.getForeignCollections(), data)) {
+			Object id = idField.extractJavaFieldValue(data);
+			objectCache.put(clazz, id, data);
+		}
+	}
+
 	private boolean foreignCollectionsAreAssigned(FieldType[] foreignCollections, Object data) throws SQLException {
 		for (FieldType fieldType : foreignCollections) {
 			if (fieldType.extractJavaFieldValue(data) == null) {
@@ -267,4 +476,20 @@ public class MappedCreate<T, ID> extends BaseMappedStatement<T, ID> {
 			}
 		}
 	}
+
+	private static class BatchKeyHolder implements GeneratedKeyHolder {
+		final List<Number> keys;
+
+		BatchKeyHolder(int size) {
+			keys = new ArrayList<Number>(size);
+		}
+
+		public Number getKey() {
+			return keys.isEmpty() ? null : keys.get(0);
+		}
+
+		public void addKey(Number key) {
+			keys.add(key);
+		}
+	}
 }
@@ -1,11 +1,15 @@
 package com.j256.ormlite.stmt.mapped;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 import com.j256.ormlite.dao.ObjectCache;
 import com.j256.ormlite.db.DatabaseType;
 import com.j256.ormlite.field.FieldType;
 import com.j256.ormlite.misc.SqlExceptionUtil;
+import com.j256.ormlite.support.BatchDatabaseConnection;
 import com.j256.ormlite.support.DatabaseConnection;
 import com.j256.ormlite.table.TableInfo;
 
@@ -100,24 +104,7 @@ public class MappedUpdate<T, ID> extends BaseMappedStatement<T, ID> {
 			}
 			int rowC = databaseConnection.update(statement, args, argFieldTypes);
 			if (rowC > 0) {
-				if (newVersion != null) {
-					// if we have updated a row then update the version field in our object to the new value
-					versionFieldType.assignField(data, newVersion, false, null);
-				}
-				if (objectCache != null) {
-					// if we've changed something then see if we need to update our cache
-					Object id = idField.extractJavaFieldValue(data);
-					T cachedData = objectCache.get(clazz, id);
-					if (cachedData != null && cachedData != data) {
-						// copy each field from the updated data into the cached object
-						for (FieldType fieldType : tableInfo.getFieldTypes()) {
-							if (fieldType != idField) {
-								fieldType.assignField(cachedData, fieldType.extractJavaFieldValue(data), false,
-										objectCache);
-							}
-						}
-					}
-				}
+				afterUpdate(data, newVersion, objectCache);
 			}
 			logger.debug("update data with statement '{}' and {} args, changed {} rows", statement, args.length, rowC);
 			if (args.length > 0) {
@@ -130,6 +117,89 @@ public class MappedUpdate<T, ID> extends BaseMappedStatement<T, ID> {
 		}
 	}
 
+	/**
+	 * Update a collection of objects in the database. The update statement is compiled once and the rows are sent to
+	 * the database in batches of batchSize. If the connection is not a {@link BatchDatabaseConnection} then the objects
+	 * are updated one at a time.
+	 */
+	public int updateBatch(DatabaseConnection databaseConnection, Collection<T> datas, ObjectCache objectCache,
+			int batchSize) throws SQLException {
+		// there is always and id field as an argument so just return 0 lines updated
+		if (argFieldTypes.length <= 1) {
+			return 0;
+		}
+		if (!(databaseConnection instanceof BatchDatabaseConnection)) {
+			int rowC = 0;
+			for (T data : datas) {
+				rowC += update(databaseConnection, data, objectCache);
+			}
+			return rowC;
+		}
+		List<T> dataList = new ArrayList<T>(datas);
+		List<Object[]> argsList = new ArrayList<Object[]>(dataList.size());
+		Object[] newVersions = new Object[dataList.size()];
+		for (int i = 0; i < dataList.size(); i++) {
+			Object[] args = getFieldObjects(dataList.get(i));
+			if (versionFieldType != null) {
+				Object newVersion = versionFieldType.extractJavaFieldValue(dataList.get(i));
+				newVersion = versionFieldType.moveToNextValue(newVersion);
+				args[versionFieldTypeIndex] = versionFieldType.convertJavaFieldToSqlArgValue(newVersion);
+				newVersions[i] = newVersion;
+			}
+			argsList.add(args);
+		}
+		int[] rowCounts;
+		try {
+			rowCounts =
+					((BatchDatabaseConnection) databaseConnection).executeBatch(statement, argsList, argFieldTypes, null,
+							batchSize);
+		} catch (SQLException e) {
+			throw SqlExceptionUtil.create("Unable to run batch update stmt on " + dataList.size() + " objects: "
+					+ statement, e);
+		}
+		logger.debug("batch update of {} objects with statement '{}'", dataList.size(), statement);
+		int rowC = 0;
+		for (int i = 0; i < dataList.size(); i++) {
+			int count = rowCounts[i];
+			if (count == BatchDatabaseConnection.ROW_COUNT_UNKNOWN) {
+				/*
+				 * Some drivers don't say how many rows each update changed. We can't tell if a version check failed so
+				 * the version is not moved forward and the cached copy is dropped so it gets read again.
+				 */
+				if (objectCache != null) {
+					objectCache.remove(clazz, idField.extractJavaFieldValue(dataList.get(i)));
+				}
+			} else if (count > 0) {
+				afterUpdate(dataList.get(i), newVersions[i], objectCache);
+				rowC += count;
+			}
+		}
+		return rowC;
+	}
+
+	/**
+	 * Update the version field in the object and the cached copy of the object after it was updated in the database.
+	 */
+	private void afterUpdate(T data, Object newVersion, ObjectCache objectCache) throws SQLException {
+		if (newVersion != null) {
+			// if we have updated a row then update the version field in our object to the new value
+			versionFieldType.assignField(data, newVersion, false, null);
+		}
+		if (objectCache != null) {
+			// if we've changed something then see if we need to update our cache
+			Object id = idField.extractJavaFieldValue(data);
+			T cachedData = objectCache.get(clazz, id);
+			if (cachedData != null && cachedData != data) {
+				// copy each field from the updated data into the cached object
+				for (FieldType fieldType : tableInfo.getFieldTypes()) {
+					if (fieldType != idField) {
+						fieldType.assignField(cachedData, fieldType.extractJavaFieldValue(data), false, objectCache);
+					}
+				}
+			}
+		}
+	}
+
 	private static boolean isFieldUpdatable(FieldType fieldType, FieldType idField) {
 		if (fieldType == idField || fieldType.isForeignCollection() || fieldType.isReadOnly()) {
 			return false;
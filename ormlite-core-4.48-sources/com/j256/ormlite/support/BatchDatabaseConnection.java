@@ -0,0 +1,38 @@
+package com.j256.ormlite.support;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import com.j256.ormlite.field.FieldType;
+
+/**
+ * A {@link DatabaseConnection} that can run a statement for a number of argument arrays at one time. This is used by
+ * the batch methods of {@link com.j256.ormlite.dao.BaseDaoImpl}. With other connections they create or update the
+ * objects one at a time.
+ */
+public interface BatchDatabaseConnection extends DatabaseConnection {
+
+	/** returned by {@link #executeBatch} for a row if the database did not say how many rows were affected */
+	public final static int ROW_COUNT_UNKNOWN = -2;
+
+	/**
+	 * Perform a SQL insert or update once for each of the argument arrays. The statement is compiled once and the
+	 * arguments are sent to the database in batches of batchSize.
+	 * 
+	 * @param statement
+	 *            SQL statement to use for inserting or updating.
+	 * @param argsList
+	 *            List of object arguments for the SQL '?'s, one array for each execution of the statement.
+	 * @param argfieldTypes
+	 *            Field types of the arguments.
+	 * @param keyHolder
+	 *            The holder that gets set with the generated key values of all of the rows, in order, which may be
+	 *            null.
+	 * @param batchSize
+	 *            The maximum number of executions that are sent to the database at one time.
+	 * @return The number of rows affected by each execution, in order. If the database did not return the number for
+	 *         an execution then it is {@link #ROW_COUNT_UNKNOWN}.
+	 */
+	public int[] executeBatch(String statement, List<Object[]> argsList, FieldType[] argfieldTypes,
+			GeneratedKeyHolder keyHolder, int batchSize) throws SQLException;
+}
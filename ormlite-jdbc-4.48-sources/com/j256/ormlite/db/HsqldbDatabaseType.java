@@ -147,4 +147,9 @@ public class HsqldbDatabaseType extends BaseDatabaseType {
 	public String getPingStatement() {
 		return "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_TABLES";
 	}
+
+	@Override
+	public boolean isMultiRowInsertSupported() {
+		return true;
+	}
 }
@@ -91,4 +91,14 @@ public class MysqlDatabaseType extends BaseDatabaseType {
 	public boolean isCreateIndexIfNotExistsSupported() {
 		return false;
 	}
+
+	@Override
+	public boolean isBatchGeneratedKeysSupported() {
+		return true;
+	}
+
+	@Override
+	public boolean isMultiRowInsertSupported() {
+		return true;
+	}
 }
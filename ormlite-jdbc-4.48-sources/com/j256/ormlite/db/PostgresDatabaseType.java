@@ -120,4 +120,9 @@ public class PostgresDatabaseType extends BaseDatabaseType {
 			return super.isCreateIfNotExistsSupported();
 		}
 	}
+
+	@Override
+	public boolean isMultiRowInsertSupported() {
+		return true;
+	}
 }
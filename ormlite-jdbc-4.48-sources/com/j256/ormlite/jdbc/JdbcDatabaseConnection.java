@@ -9,6 +9,7 @@ import java.sql.SQLException;
 import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.List;
 
 import com.j256.ormlite.dao.ObjectCache;
 import com.j256.ormlite.field.FieldType;
@@ -17,6 +18,7 @@ import com.j256.ormlite.logger.LoggerFactory;
 import com.j256.ormlite.misc.VersionUtils;
 import com.j256.ormlite.stmt.GenericRowMapper;
 import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.support.BatchDatabaseConnection;
 import com.j256.ormlite.support.CompiledStatement;
 import com.j256.ormlite.support.DatabaseConnection;
 import com.j256.ormlite.support.DatabaseResults;
@@ -27,7 +29,7 @@ import com.j256.ormlite.support.GeneratedKeyHolder;
  * 
  * @author graywatson
  */
-public class JdbcDatabaseConnection implements DatabaseConnection {
+public class JdbcDatabaseConnection implements BatchDatabaseConnection {
 
 	private static final String JDBC_VERSION = "VERSION__4.48__";
 
@@ -170,16 +172,7 @@ public class JdbcDatabaseConnection implements DatabaseConnection {
 			int rowN = stmt.executeUpdate();
 			logger.trace("insert statement is prepared and executed: {}", statement);
 			if (keyHolder != null) {
-				ResultSet resultSet = stmt.getGeneratedKeys();
-				ResultSetMetaData metaData = resultSet.getMetaData();
-				int colN = metaData.getColumnCount();
-				while (resultSet.next()) {
-					for (int colC = 1; colC <= colN; colC++) {
-						// get the id column data so we can pass it back to the caller thru the keyHolder
-						Number id = getIdColumnData(resultSet, metaData, colC);
-						keyHolder.addKey(id);
-					}
-				}
+				addGeneratedKeys(stmt, keyHolder);
 			}
 			return rowN;
 		} finally {
@@ -191,6 +184,44 @@ public class JdbcDatabaseConnection implements DatabaseConnection {
 		return update(statement, args, argFieldTypes, "update");
 	}
 
+	public int[] executeBatch(String statement, List<Object[]> argsList, FieldType[] argFieldTypes,
+			GeneratedKeyHolder keyHolder, int batchSize) throws SQLException {
+		PreparedStatement stmt;
+		if (keyHolder == null) {
+			stmt = connection.prepareStatement(statement);
+		} else {
+			stmt = connection.prepareStatement(statement, Statement.RETURN_GENERATED_KEYS);
+		}
+		try {
+			int[] rowCounts = new int[argsList.size()];
+			int rowC = 0;
+			int batchC = 0;
+			for (Object[] args : argsList) {
+				statementSetArgs(stmt, args, argFieldTypes);
+				stmt.addBatch();
+				if (++batchC == batchSize || rowC + batchC == rowCounts.length) {
+					int[] batchCounts = stmt.executeBatch();
+					for (int i = 0; i < batchCounts.length; i++) {
+						if (batchCounts[i] == Statement.SUCCESS_NO_INFO) {
+							rowCounts[rowC + i] = ROW_COUNT_UNKNOWN;
+						} else {
+							rowCounts[rowC + i] = batchCounts[i];
+						}
+					}
+					if (keyHolder != null) {
+						addGeneratedKeys(stmt, keyHolder);
+					}
+					rowC += batchC;
+					batchC = 0;
+				}
+			}
+			logger.trace("batch statement is prepared and executed {} times: {}", rowC, statement);
+			return rowCounts;
+		} finally {
+			stmt.close();
+		}
+	}
+
 	public int delete(String statement, Object[] args, FieldType[] argFieldTypes) throws SQLException {
 		// it's a call to executeUpdate
 		return update(statement, args, argFieldTypes, "delete");
@@ -291,6 +322,26 @@ public class JdbcDatabaseConnection implements DatabaseConnection {
 		}
 	}
 
+	/**
+	 * Pass the generated keys of the last execution of the statement back to the caller thru the keyHolder.
+	 */
+	private void addGeneratedKeys(PreparedStatement stmt, GeneratedKeyHolder keyHolder) throws SQLException {
+		ResultSet resultSet = stmt.getGeneratedKeys();
+		try {
+			ResultSetMetaData metaData = resultSet.getMetaData();
+			int colN = metaData.getColumnCount();
+			while (resultSet.next()) {
+				for (int colC = 1; colC <= colN; colC++) {
+					// get the id column data so we can pass it back to the caller thru the keyHolder
+					Number id = getIdColumnData(resultSet, metaData, colC);
+					keyHolder.addKey(id);
+				}
+			}
+		} finally {
+			resultSet.close();
+		}
+	}
+
 	/**
 	 * Return the id associated with the column.
 	 */
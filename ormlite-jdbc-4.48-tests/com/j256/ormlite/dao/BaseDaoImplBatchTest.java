@@ -0,0 +1,415 @@
+package com.j256.ormlite.dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.j256.ormlite.dao.Dao.CreateOrUpdateStatus;
+import com.j256.ormlite.db.HsqldbDatabaseType;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.jdbc.JdbcDatabaseConnection;
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.support.BatchDatabaseConnection;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.support.DatabaseConnectionProxy;
+import com.j256.ormlite.support.GeneratedKeyHolder;
+import com.j256.ormlite.table.TableUtils;
+
+/**
+ * Tests the batch methods of {@link BaseDaoImpl} against an in-memory HSQLDB database: the multi-row inserts and how
+ * they are split, the generated keys of a batch, the row counts that the driver does not return and the fallback to
+ * one row at a time for connections that can't run batches.
+ */
+public class BaseDaoImplBatchTest extends TestCase {
+
+	private static int databaseCount;
+
+	private TestDatabaseType databaseType;
+	private RecordingConnectionSource connectionSource;
+
+	@Override
+	protected void setUp() throws Exception {
+		Class.forName("org.hsqldb.jdbc.JDBCDriver");
+		databaseType = new TestDatabaseType();
+		openConnectionSource(true);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		connectionSource.getReadWriteConnection().executeStatement("SHUTDOWN", DatabaseConnection.DEFAULT_RESULT_FLAGS);
+		connectionSource.close();
+	}
+
+	public void testCreateBatchMultiRow() throws Exception {
+		BaseDaoImpl<Foo, Integer> dao = createDao(Foo.class);
+		List<Foo> foos = createFoos(600);
+		assertEquals(600, dao.createBatch(foos));
+
+		// 4 arguments per row so each statement holds 999 / 4 = 249 rows, the last one holds the rest
+		assertEquals(2, connectionSource.statements.size());
+		assertEquals(249 * 4, countArguments(connectionSource.statements.get(0)));
+		assertEquals(2, (int) connectionSource.executions.get(0));
+		assertEquals(102 * 4, countArguments(connectionSource.statements.get(1)));
+		assertEquals(1, (int) connectionSource.executions.get(1));
+		checkFoos(dao, foos, 0);
+	}
+
+	public void testCreateBatchMultiRowBatchSize() throws Exception {
+		BaseDaoImpl<Foo, Integer> dao = createDao(Foo.class);
+		dao.setBatchSize(100);
+		List<Foo> foos = createFoos(250);
+		assertEquals(250, dao.createBatch(foos));
+
+		assertEquals(2, connectionSource.statements.size());
+		assertEquals(100 * 4, countArguments(connectionSource.statements.get(0)));
+		assertEquals(2, (int) connectionSource.executions.get(0));
+		assertEquals(50 * 4, countArguments(connectionSource.statements.get(1)));
+		checkFoos(dao, foos, 0);
+	}
+
+	public void testCreateBatchSingleRowStatements() throws Exception {
+		databaseType.multiRowInsert = false;
+		BaseDaoImpl<Foo, Integer> dao = createDao(Foo.class);
+		List<Foo> foos = createFoos(30);
+		assertEquals(30, dao.createBatch(foos));
+
+		assertEquals(1, connectionSource.statements.size());
+		assertEquals(4, countArguments(connectionSource.statements.get(0)));
+		assertEquals(30, (int) connectionSource.executions.get(0));
+		checkFoos(dao, foos, 0);
+	}
+
+	public void testCreateBatchRowCountUnknown() throws Exception {
+		databaseType.multiRowInsert = false;
+		connectionSource.unknownRowCounts = true;
+		BaseDaoImpl<Foo, Integer> dao = createDao(Foo.class);
+		dao.setObjectCache(true);
+		List<Foo> foos = createFoos(10);
+
+		// an insert that did not throw created its row
+		assertEquals(10, dao.createBatch(foos));
+		for (Foo foo : foos) {
+			assertSame(foo, dao.queryForId(foo.id));
+		}
+	}
+
+	public void testUpdateBatch() throws Exception {
+		BaseDaoImpl<Foo, Integer> dao = createDao(Foo.class);
+		List<Foo> foos = createFoos(20);
+		dao.createBatch(foos);
+		for (Foo foo : foos) {
+			foo.name = "updated" + foo.id;
+		}
+		// an object with an old version is not updated
+		Foo stale = foos.get(5);
+		stale.version = -1;
+
+		assertEquals(19, dao.updateBatch(foos));
+		for (Foo foo : foos) {
+			Foo result = dao.queryForId(foo.id);
+			if (foo == stale) {
+				assertEquals(-1, foo.version);
+				assertEquals("name" + foo.id, result.name);
+				assertEquals(0, result.version);
+			} else {
+				assertEquals(1, foo.version);
+				assertEquals(foo.name, result.name);
+				assertEquals(1, result.version);
+			}
+		}
+	}
+
+	public void testUpdateBatchRowCountUnknown() throws Exception {
+		BaseDaoImpl<Foo, Integer> dao = createDao(Foo.class);
+		dao.setObjectCache(true);
+		List<Foo> foos = createFoos(10);
+		dao.createBatch(foos);
+		for (Foo foo : foos) {
+			foo.name = "updated" + foo.id;
+		}
+
+		connectionSource.unknownRowCounts = true;
+		// the updates are not counted and the versions are not moved forward
+		assertEquals(0, dao.updateBatch(foos));
+		for (Foo foo : foos) {
+			assertEquals(0, foo.version);
+			// the cached copy was dropped so the row is read again
+			Foo result = dao.queryForId(foo.id);
+			assertNotSame(foo, result);
+			assertEquals(foo.name, result.name);
+			assertEquals(1, result.version);
+		}
+	}
+
+	public void testCreateBatchGeneratedSequence() throws Exception {
+		BaseDaoImpl<GeneratedFoo, Integer> dao = createDao(GeneratedFoo.class);
+		List<GeneratedFoo> foos = createGeneratedFoos(50);
+		assertEquals(50, dao.createBatch(foos));
+
+		// the ids are selected from the sequence first so the rows go in one multi-row insert
+		assertEquals(1, connectionSource.statements.size());
+		assertEquals(50, countArguments(connectionSource.statements.get(0)) / 2);
+		checkGeneratedFoos(dao, foos);
+	}
+
+	public void testCreateBatchGeneratedKeys() throws Exception {
+		databaseType.batchGeneratedKeys = true;
+		BaseDaoImpl<GeneratedFoo, Integer> dao = createIdentityDao();
+		List<GeneratedFoo> foos = createGeneratedFoos(50);
+		assertEquals(50, dao.createBatch(foos));
+
+		// all of the rows were sent as one batch and got their keys back in order
+		assertEquals(1, connectionSource.statements.size());
+		assertEquals(50, (int) connectionSource.executions.get(0));
+		checkGeneratedFoos(dao, foos);
+	}
+
+	public void testCreateBatchGeneratedKeysMissing() throws Exception {
+		databaseType.batchGeneratedKeys = true;
+		connectionSource.dropLastKey = true;
+		BaseDaoImpl<GeneratedFoo, Integer> dao = createIdentityDao();
+		try {
+			dao.createBatch(createGeneratedFoos(5));
+			fail("missing key not reported");
+		} catch (SQLException e) {
+			// expected
+		}
+	}
+
+	public void testCreateBatchGeneratedKeysNotSupported() throws Exception {
+		BaseDaoImpl<GeneratedFoo, Integer> dao = createIdentityDao();
+		List<GeneratedFoo> foos = createGeneratedFoos(20);
+		assertEquals(20, dao.createBatch(foos));
+
+		// inserted one at a time so the ids can be set
+		assertTrue(connectionSource.statements.isEmpty());
+		checkGeneratedFoos(dao, foos);
+	}
+
+	public void testNotBatchConnection() throws Exception {
+		connectionSource.close();
+		openConnectionSource(false);
+		BaseDaoImpl<Foo, Integer> dao = createDao(Foo.class);
+		List<Foo> foos = createFoos(20);
+		assertEquals(20, dao.createBatch(foos));
+		for (Foo foo : foos) {
+			foo.name = "updated" + foo.id;
+		}
+		assertEquals(20, dao.updateBatch(foos));
+
+		assertTrue(connectionSource.statements.isEmpty());
+		checkFoos(dao, foos, 1);
+	}
+
+	public void testCreateOrUpdateBatch() throws Exception {
+		BaseDaoImpl<Foo, Integer> dao = createDao(Foo.class);
+		Foo existing = new Foo(1, "existing");
+		dao.create(existing);
+
+		Foo first = new Foo(2, "first");
+		Foo second = new Foo(2, "second");
+		Foo updated = new Foo(1, "updated");
+		updated.version = existing.version;
+		CreateOrUpdateStatus status = dao.createOrUpdateBatch(Arrays.asList(updated, first, second));
+		assertTrue(status.isCreated());
+		assertTrue(status.isUpdated());
+		assertEquals(3, status.getNumLinesChanged());
+
+		// the first object with a new id creates the row and the next one updates it
+		assertEquals("updated", dao.queryForId(1).name);
+		assertEquals("second", dao.queryForId(2).name);
+		assertEquals(2, dao.countOf());
+	}
+
+	private void openConnectionSource(boolean batchConnection) throws SQLException {
+		connectionSource =
+				new RecordingConnectionSource("jdbc:hsqldb:mem:batch" + (databaseCount++), databaseType,
+						batchConnection);
+		TableUtils.createTable(connectionSource, Foo.class);
+		TableUtils.createTable(connectionSource, GeneratedFoo.class);
+	}
+
+	/**
+	 * Returns a DAO that gets the generated ids back from the identity column instead of selecting them from the
+	 * sequence before the insert.
+	 */
+	private BaseDaoImpl<GeneratedFoo, Integer> createIdentityDao() throws SQLException {
+		databaseType.selectSequenceBeforeInsert = false;
+		BaseDaoImpl<GeneratedFoo, Integer> dao = createDao(GeneratedFoo.class);
+		// the identity starts at 0 with hsqldb which is not a valid generated id
+		dao.executeRaw("ALTER TABLE \"GENERATEDFOO\" ALTER COLUMN \"id\" RESTART WITH 1");
+		return dao;
+	}
+
+	private <T> BaseDaoImpl<T, Integer> createDao(Class<T> clazz) throws SQLException {
+		BaseDaoImpl<T, Integer> dao = new BaseDaoImpl<T, Integer>(connectionSource, clazz) {
+		};
+		connectionSource.statements.clear();
+		connectionSource.executions.clear();
+		return dao;
+	}
+
+	private List<Foo> createFoos(int count) {
+		List<Foo> foos = new ArrayList<Foo>(count);
+		for (int i = 0; i < count; i++) {
+			foos.add(new Foo(i + 1, "name" + (i + 1)));
+		}
+		return foos;
+	}
+
+	private void checkFoos(BaseDaoImpl<Foo, Integer> dao, List<Foo> foos, int version) throws SQLException {
+		assertEquals(foos.size(), dao.countOf());
+		for (Foo foo : foos) {
+			assertEquals(version, foo.version);
+			Foo result = dao.queryForId(foo.id);
+			assertEquals(foo.name, result.name);
+			assertEquals(foo.value, result.value);
+			assertEquals(version, result.version);
+		}
+	}
+
+	private List<GeneratedFoo> createGeneratedFoos(int count) {
+		List<GeneratedFoo> foos = new ArrayList<GeneratedFoo>(count);
+		for (int i = 0; i < count; i++) {
+			GeneratedFoo foo = new GeneratedFoo();
+			foo.name = "generated" + i;
+			foos.add(foo);
+		}
+		return foos;
+	}
+
+	private void checkGeneratedFoos(BaseDaoImpl<GeneratedFoo, Integer> dao, List<GeneratedFoo> foos)
+			throws SQLException {
+		Set<Integer> ids = new HashSet<Integer>();
+		for (GeneratedFoo foo : foos) {
+			assertTrue(foo.id != 0);
+			assertTrue(ids.add(foo.id));
+			assertEquals(foo.name, dao.queryForId(foo.id).name);
+		}
+		assertEquals(foos.size(), dao.countOf());
+	}
+
+	private static int countArguments(String statement) {
+		int count = 0;
+		for (int i = 0; i < statement.length(); i++) {
+			if (statement.charAt(i) == '?') {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	protected static class Foo {
+		@DatabaseField(id = true)
+		int id;
+		@DatabaseField
+		String name;
+		@DatabaseField
+		long value;
+		@DatabaseField(version = true)
+		int version;
+
+		Foo() {
+		}
+
+		Foo(int id, String name) {
+			this.id = id;
+			this.name = name;
+			this.value = id * 1000L;
+		}
+	}
+
+	protected static class GeneratedFoo {
+		@DatabaseField(generatedId = true)
+		int id;
+		@DatabaseField
+		String name;
+	}
+
+	private static class TestDatabaseType extends HsqldbDatabaseType {
+		boolean multiRowInsert = true;
+		boolean batchGeneratedKeys;
+		boolean selectSequenceBeforeInsert = true;
+
+		@Override
+		public boolean isMultiRowInsertSupported() {
+			return multiRowInsert;
+		}
+
+		@Override
+		public boolean isBatchGeneratedKeysSupported() {
+			return batchGeneratedKeys;
+		}
+
+		@Override
+		public boolean isSelectSequenceBeforeInsert() {
+			return selectSequenceBeforeInsert;
+		}
+	}
+
+	/**
+	 * Connection source that records the statements run with {@link BatchDatabaseConnection#executeBatch} and can
+	 * change what the driver returns.
+	 */
+	private static class RecordingConnectionSource extends JdbcConnectionSource {
+		final List<String> statements = new ArrayList<String>();
+		final List<Integer> executions = new ArrayList<Integer>();
+		final boolean batchConnection;
+		boolean unknownRowCounts;
+		boolean dropLastKey;
+
+		RecordingConnectionSource(String url, TestDatabaseType databaseType, boolean batchConnection)
+				throws SQLException {
+			super(url, "SA", "", databaseType);
+			this.batchConnection = batchConnection;
+		}
+
+		@Override
+		protected DatabaseConnection makeConnection(Logger logger) throws SQLException {
+			JdbcDatabaseConnection connection = (JdbcDatabaseConnection) super.makeConnection(logger);
+			if (!batchConnection) {
+				return new DatabaseConnectionProxy(connection);
+			}
+			return new JdbcDatabaseConnection(connection.getInternalConnection()) {
+				@Override
+				public int[] executeBatch(String statement, List<Object[]> argsList, FieldType[] argFieldTypes,
+						GeneratedKeyHolder keyHolder, int batchSize) throws SQLException {
+					statements.add(statement);
+					executions.add(argsList.size());
+					if (keyHolder != null && dropLastKey) {
+						keyHolder = new LastKeyDroppingHolder(keyHolder, argsList.size());
+					}
+					int[] rowCounts = super.executeBatch(statement, argsList, argFieldTypes, keyHolder, batchSize);
+					if (unknownRowCounts) {
+						Arrays.fill(rowCounts, BatchDatabaseConnection.ROW_COUNT_UNKNOWN);
+					}
+					return rowCounts;
+				}
+			};
+		}
+	}
+
+	private static class LastKeyDroppingHolder implements GeneratedKeyHolder {
+		private final GeneratedKeyHolder holder;
+		private final int keyN;
+		private int keyC;
+
+		LastKeyDroppingHolder(GeneratedKeyHolder holder, int keyN) {
+			this.holder = holder;
+			this.keyN = keyN;
+		}
+
+		public void addKey(Number key) throws SQLException {
+			if (++keyC < keyN) {
+				holder.addKey(key);
+			}
+		}
+	}
+}